@@ -0,0 +1,143 @@
+package ru.projectsos.projectsos.benchmark;
+
+import android.support.annotation.NonNull;
+
+import java.util.List;
+import java.util.Locale;
+
+import io.reactivex.Completable;
+import io.reactivex.Observable;
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import io.reactivex.disposables.Disposable;
+import ru.projectsos.projectsos.domain.AuthHandshake;
+import ru.projectsos.projectsos.domain.AuthRepository;
+import ru.projectsos.projectsos.domain.SensorRepository;
+
+import static dagger.internal.Preconditions.checkNotNull;
+
+/**
+ * Сеанс для записи и воспроизведения (см. {@link ru.projectsos.projectsos.replay.CaptureReplay})
+ * Каждое устройство аутентифицируется и передает поток акселерометра в распознавание падений, пока не завершится
+ * {@code until}. Один и тот же сеанс идет и на симулированных браслетах, и на записи, поэтому количество
+ * распознанных падений при воспроизведении должно совпасть с записанным
+ */
+public final class CaptureReplayBenchmark {
+
+    private final AuthRepository mAuthRepository;
+    private final SensorRepository mSensorRepository;
+    private final AuthHandshake mHandshake;
+
+    /**
+     * Конструктор
+     *
+     * @param authRepository   репозиторий аутентификации
+     * @param sensorRepository репозиторий датчиков
+     * @param bleScheduler     планировщик Bluetooth
+     */
+    public CaptureReplayBenchmark(@NonNull AuthRepository authRepository,
+                                  @NonNull SensorRepository sensorRepository,
+                                  @NonNull Scheduler bleScheduler) {
+        mAuthRepository = checkNotNull(authRepository, "AuthRepository is required");
+        mSensorRepository = checkNotNull(sensorRepository, "SensorRepository is required");
+        mHandshake = new AuthHandshake(authRepository, bleScheduler);
+    }
+
+    /**
+     * Провести сеансы со всеми устройствами одновременно
+     *
+     * @param macAddresses MAC адреса устройств
+     * @param until        источник, завершение которого заканчивает сеансы
+     * @return возвращает источник с отчетом
+     */
+    public Single<Report> run(@NonNull List<String> macAddresses, @NonNull Completable until) {
+        return Single.defer(() -> {
+            long startNanos = System.nanoTime();
+            Completable shared = until.cache();
+
+            return Observable.fromIterable(macAddresses)
+                    .flatMapSingle(macAddress -> session(macAddress, shared))
+                    .reduce(new Report(), Report::add)
+                    .map(report -> report.finish(System.nanoTime() - startNanos));
+        });
+    }
+
+    /**
+     * Провести сеанс с одним устройством
+     * Подключение держится весь сеанс, чтобы между рукопожатием и потоком датчиков оно не закрывалось
+     *
+     * @param macAddress MAC адрес
+     * @param until      источник, завершение которого заканчивает сеанс
+     * @return возвращает источник с отчетом устройства
+     */
+    private Single<Report> session(String macAddress, Completable until) {
+        return Single.defer(() -> {
+            Disposable connection = mAuthRepository.observeConnections(macAddress).subscribe(count -> {
+            }, throwable -> {
+            });
+
+            return mHandshake.authenticate(macAddress)
+                    .flatMap(result -> mSensorRepository.observeFalls(macAddress)
+                            .takeUntil(until.toObservable())
+                            .count()
+                            .map(falls -> new Report().add(result.isSuccess(), falls)))
+                    .doFinally(connection::dispose);
+        }).flatMap(report -> mAuthRepository.gracefullyShutdown(macAddress).toSingleDefault(report));
+    }
+
+    /**
+     * Отчет бенчмарка
+     */
+    public static final class Report {
+
+        private int mBands;
+        private int mAuthenticated;
+        private long mFalls;
+        private long mTotalNanos;
+
+        Report add(boolean authenticated, long falls) {
+            mBands++;
+            mAuthenticated += authenticated ? 1 : 0;
+            mFalls += falls;
+            return this;
+        }
+
+        Report add(Report other) {
+            mBands += other.mBands;
+            mAuthenticated += other.mAuthenticated;
+            mFalls += other.mFalls;
+            return this;
+        }
+
+        Report finish(long totalNanos) {
+            mTotalNanos = totalNanos;
+            return this;
+        }
+
+        /**
+         * Проверить, что все устройства прошли аутентификацию
+         *
+         * @return {@code true}, если рукопожатие удалось со всеми
+         */
+        public boolean isAuthenticated() {
+            return mAuthenticated == mBands;
+        }
+
+        /**
+         * Получить количество распознанных падений на всех устройствах
+         *
+         * @return количество падений
+         */
+        public long getFalls() {
+            return mFalls;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "bands=%d authenticated=%d falls=%d total=%.1fms",
+                    mBands, mAuthenticated, mFalls, mTotalNanos / 1e6);
+        }
+
+    }
+
+}
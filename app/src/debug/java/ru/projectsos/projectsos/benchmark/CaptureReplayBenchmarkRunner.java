@@ -0,0 +1,172 @@
+package ru.projectsos.projectsos.benchmark;
+
+import com.polidea.rxandroidble2.RxBleClient;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Completable;
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+import ru.projectsos.projectsos.data.capture.CaptureReader;
+import ru.projectsos.projectsos.data.capture.CaptureRecord;
+import ru.projectsos.projectsos.data.capture.SessionRecorder;
+import ru.projectsos.projectsos.data.connection.DeviceConnectionManager;
+import ru.projectsos.projectsos.data.connection.ReconnectPolicy;
+import ru.projectsos.projectsos.data.crypto.AuthCryptoEngine;
+import ru.projectsos.projectsos.data.crypto.SharedPreferencesAuthKeyStore;
+import ru.projectsos.projectsos.data.journal.EventJournal;
+import ru.projectsos.projectsos.data.metrics.MetricsRegistry;
+import ru.projectsos.projectsos.data.protocol.NotificationDecoders;
+import ru.projectsos.projectsos.data.repository.AuthRepositoryImpl;
+import ru.projectsos.projectsos.data.repository.SensorRepositoryImpl;
+import ru.projectsos.projectsos.data.session.AuthSessionCache;
+import ru.projectsos.projectsos.replay.CaptureReplay;
+import ru.projectsos.projectsos.simulator.InMemorySharedPreferences;
+import ru.projectsos.projectsos.simulator.SimulatedRxBleClient;
+import ru.projectsos.projectsos.simulator.SimulatorConfig;
+
+/**
+ * Запись сеанса {@link CaptureReplayBenchmark} и его воспроизведение на обычной JVM
+ * <p>
+ * Если файла записи нет, сеанс сначала записывается на симулированных браслетах, и в середине каждый браслет
+ * падает. Затем запись воспроизводится через тот же стек приложения в записанном темпе и на максимальной скорости.
+ * Процесс завершается с кодом {@code 1}, если воспроизведение разошлось с записью: рукопожатие не прошло,
+ * команда приложения не совпала с записанной, часть записи осталась непроигранной или количество падений
+ * отличается от записанного
+ * <p>
+ * Аргументы: {@code [количество браслетов] [длительность записи в секундах] [файл записи]}
+ */
+public final class CaptureReplayBenchmarkRunner {
+
+    private static final int DEFAULT_BANDS = 8;
+    private static final int DEFAULT_SECONDS = 10;
+    private static final long REPLAY_TIMEOUT_SECONDS = 120;
+
+    private CaptureReplayBenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        int bands = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_BANDS;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_SECONDS;
+        File file = args.length > 2 ? new File(args[2]) : File.createTempFile("capture", ".bin");
+        long recordedFalls = -1;
+
+        if (args.length < 3 || !file.exists()) {
+            CaptureReplayBenchmark.Report recorded = record(file, bands, seconds);
+            System.out.println(String.format(Locale.US, "recorded %s file=%s (%d bytes)",
+                    recorded, file, file.length()));
+            recordedFalls = recorded.getFalls();
+        }
+
+        List<CaptureRecord> records = CaptureReader.read(file);
+        boolean failed = false;
+
+        for (CaptureReplay.Speed speed : CaptureReplay.Speed.values()) {
+            CaptureReplay replay = new CaptureReplay(records, speed, newScheduler("ProjectSOS-Replay"));
+            Scheduler sensorScheduler = newScheduler("ProjectSOS-Sensor");
+            // Конец записи проходит через планировщик распознавания после последних замеров, иначе на максимальной
+            // скорости сеанс закончится раньше, чем распознаются уже доставленные замеры
+            Completable until = replay.completion()
+                    .timeout(REPLAY_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                    .observeOn(sensorScheduler);
+            CaptureReplayBenchmark.Report report = createBenchmark(
+                    replay.asRxBleClient(),
+                    replay.getMacAddresses().size(),
+                    new SessionRecorder(),
+                    sensorScheduler
+            ).run(replay.getMacAddresses(), until).blockingGet();
+            CaptureReplay.Report replayed = replay.report();
+
+            System.out.println(String.format(Locale.US, "%-8s %s", speed, report));
+            System.out.println(String.format(Locale.US, "%-8s %s", speed, replayed));
+
+            if (!report.isAuthenticated()
+                    || recordedFalls >= 0 && report.getFalls() != recordedFalls
+                    || replayed.getMismatchedWrites() > 0
+                    || replayed.getRemaining() > 0) {
+                System.out.println(String.format(Locale.US, "DIVERGED: %s recorded falls=%d", speed, recordedFalls));
+                failed = true;
+            }
+        }
+
+        System.exit(failed ? 1 : 0);
+    }
+
+    private static CaptureReplayBenchmark.Report record(File file, int bands, int seconds) throws IOException {
+        SimulatedRxBleClient client = new SimulatedRxBleClient(
+                new SimulatorConfig.Builder()
+                        .connectLatency(50)
+                        .responseLatency(20)
+                        .jitter(5)
+                        .build()
+        );
+        List<String> macAddresses = new ArrayList<>(bands);
+
+        for (int i = 0; i < bands; i++) {
+            macAddresses.add(SimulatedRxBleClient.bandMacAddress(i));
+        }
+
+        SessionRecorder recorder = new SessionRecorder();
+        recorder.start(file);
+
+        // Падение посередине записи, чтобы воспроизведение проверяло и распознавание, а не только поток замеров
+        Completable.timer(seconds * 1000L / 2, TimeUnit.MILLISECONDS)
+                .subscribe(() -> {
+                    for (String macAddress : macAddresses) {
+                        client.obtainDevice(macAddress).getBand().fall();
+                    }
+                });
+
+        try {
+            return createBenchmark(client, bands, recorder, newScheduler("ProjectSOS-Sensor"))
+                    .run(macAddresses, Completable.timer(seconds, TimeUnit.SECONDS))
+                    .blockingGet();
+        } finally {
+            recorder.stop();
+        }
+    }
+
+    private static CaptureReplayBenchmark createBenchmark(RxBleClient client,
+                                                          int bands,
+                                                          SessionRecorder recorder,
+                                                          Scheduler sensorScheduler) {
+        InMemorySharedPreferences sharedPreferences = new InMemorySharedPreferences();
+        // Сеансы держат подключение до конца, поэтому лимит подключений не должен выстраивать их в очередь
+        DeviceConnectionManager connectionManager = new DeviceConnectionManager(
+                client,
+                Math.max(bands, DeviceConnectionManager.DEFAULT_MAX_CONNECTIONS),
+                ReconnectPolicy.createDefault(),
+                new MetricsRegistry(),
+                new EventJournal(EventJournal.DEFAULT_CAPACITY),
+                recorder
+        );
+
+        return new CaptureReplayBenchmark(
+                new AuthRepositoryImpl(
+                        client,
+                        connectionManager,
+                        new AuthCryptoEngine(new SharedPreferencesAuthKeyStore(sharedPreferences)),
+                        NotificationDecoders.createDefault(),
+                        new AuthSessionCache(sharedPreferences),
+                        Schedulers.single()
+                ),
+                new SensorRepositoryImpl(connectionManager, sensorScheduler),
+                Schedulers.single()
+        );
+    }
+
+    private static Scheduler newScheduler(String name) {
+        return Schedulers.from(Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+}
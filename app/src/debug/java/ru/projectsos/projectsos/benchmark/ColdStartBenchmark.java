@@ -0,0 +1,239 @@
+package ru.projectsos.projectsos.benchmark;
+
+import android.content.SharedPreferences;
+import android.support.annotation.NonNull;
+
+import com.polidea.rxandroidble2.scan.ScanFilter;
+import com.polidea.rxandroidble2.scan.ScanSettings;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+
+import javax.inject.Provider;
+
+import dagger.Lazy;
+import dagger.internal.DoubleCheck;
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import io.reactivex.schedulers.Schedulers;
+import ru.projectsos.projectsos.data.ScanConstants;
+import ru.projectsos.projectsos.data.capture.SessionRecorder;
+import ru.projectsos.projectsos.data.connection.DeviceConnectionManager;
+import ru.projectsos.projectsos.data.connection.ReconnectPolicy;
+import ru.projectsos.projectsos.data.crypto.AuthCryptoEngine;
+import ru.projectsos.projectsos.data.crypto.SharedPreferencesAuthKeyStore;
+import ru.projectsos.projectsos.data.journal.EventJournal;
+import ru.projectsos.projectsos.data.metrics.MetricsRegistry;
+import ru.projectsos.projectsos.data.metrics.StartupTimer;
+import ru.projectsos.projectsos.data.protocol.NotificationDecoders;
+import ru.projectsos.projectsos.data.repository.ActivityRepositoryImpl;
+import ru.projectsos.projectsos.data.repository.AuthRepositoryImpl;
+import ru.projectsos.projectsos.data.repository.HeartRateRepositoryImpl;
+import ru.projectsos.projectsos.data.repository.MetricsRepositoryImpl;
+import ru.projectsos.projectsos.data.repository.SampleRepositoryImpl;
+import ru.projectsos.projectsos.data.repository.ScanRepositoryImpl;
+import ru.projectsos.projectsos.data.repository.SensorRepositoryImpl;
+import ru.projectsos.projectsos.data.repository.SosRepositoryImpl;
+import ru.projectsos.projectsos.data.scan.DeviceScanner;
+import ru.projectsos.projectsos.data.session.AuthSessionCache;
+import ru.projectsos.projectsos.data.sos.LocalSosDispatcher;
+import ru.projectsos.projectsos.data.sos.LocationCache;
+import ru.projectsos.projectsos.data.store.TimeSeriesStore;
+import ru.projectsos.projectsos.di.Prewarmer;
+import ru.projectsos.projectsos.domain.MainInteractor;
+import ru.projectsos.projectsos.models.domain.AuthResult;
+import ru.projectsos.projectsos.simulator.InMemorySharedPreferences;
+import ru.projectsos.projectsos.simulator.SimulatedRxBleClient;
+import ru.projectsos.projectsos.simulator.SimulatorConfig;
+
+import static dagger.internal.Preconditions.checkNotNull;
+
+/**
+ * Бенчмарк холодного старта
+ * Повторяет старт приложения на симулированном браслете: ленивый граф зависимостей как в {@code AppModule}
+ * и {@code MainModule}, параллельный прогрев через {@link Prewarmer} и первые подписки {@code MainPresenter}.
+ * Этапы отмечаются тем же {@link StartupTimer}, что и в приложении
+ * <p>
+ * Холодный старт бывает один раз за процесс, поэтому на каждый замер нужен новый процесс
+ * (см. {@link ColdStartBenchmarkRunner})
+ */
+public final class ColdStartBenchmark {
+
+    /**
+     * Первое успешное рукопожатие
+     */
+    public static final String AUTHENTICATED = "authenticated";
+
+    private final long mStartNanos;
+    private final SimulatorConfig mConfig;
+    private final File mDirectory;
+
+    /**
+     * Конструктор
+     *
+     * @param startNanos начало старта процесса по {@link System#nanoTime()}
+     * @param config     настройки симулятора
+     * @param directory  папка для файлов хранилища
+     */
+    public ColdStartBenchmark(long startNanos, @NonNull SimulatorConfig config, @NonNull File directory) {
+        mStartNanos = startNanos;
+        mConfig = checkNotNull(config, "SimulatorConfig is required");
+        mDirectory = checkNotNull(directory, "Directory is required");
+    }
+
+    /**
+     * Стартовать и дождаться первого состояния и первого рукопожатия
+     *
+     * @param macAddress MAC адрес браслета
+     * @return возвращает источник с отчетом
+     */
+    public Single<Report> run(@NonNull String macAddress) {
+        return Single.defer(() -> {
+            MetricsRegistry registry = new MetricsRegistry();
+            StartupTimer timer = new StartupTimer(registry, mStartNanos);
+
+            Lazy<SimulatedRxBleClient> client = lazy(() -> new SimulatedRxBleClient(mConfig));
+            Lazy<SharedPreferences> sharedPreferences = lazy(InMemorySharedPreferences::new);
+            Lazy<Scheduler> bleScheduler = lazy(Schedulers::single);
+            Lazy<MainInteractor> interactor = lazy(() -> createInteractor(
+                    client.get(),
+                    sharedPreferences.get(),
+                    bleScheduler.get(),
+                    registry
+            ));
+
+            Prewarmer.prewarm(Schedulers.io(), client::get, sharedPreferences::get).subscribe();
+            long applicationNanos = timer.mark(StartupTimer.APPLICATION);
+
+            Single<MainInteractor> lazyInteractor = Single.fromCallable(interactor::get).subscribeOn(Schedulers.io());
+
+            Single<Long> firstState = lazyInteractor
+                    .flatMap(mainInteractor -> mainInteractor.traceBluetoothState().firstOrError())
+                    .map(state -> timer.mark(StartupTimer.FIRST_STATE));
+
+            Single<Long> authenticated = lazyInteractor
+                    .flatMap(mainInteractor -> mainInteractor.authenticateOnEveryConnection(macAddress)
+                            .filter(AuthResult::isSuccess)
+                            .firstOrError())
+                    .map(result -> timer.mark(AUTHENTICATED));
+
+            return Single.zip(firstState, authenticated,
+                    (firstStateNanos, authenticatedNanos) -> new Report(applicationNanos, firstStateNanos, authenticatedNanos));
+        });
+    }
+
+    private MainInteractor createInteractor(SimulatedRxBleClient client,
+                                            SharedPreferences sharedPreferences,
+                                            Scheduler bleScheduler,
+                                            MetricsRegistry registry) {
+        DeviceConnectionManager connectionManager = new DeviceConnectionManager(
+                client,
+                DeviceConnectionManager.DEFAULT_MAX_CONNECTIONS,
+                ReconnectPolicy.createDefault(),
+                registry,
+                new EventJournal(EventJournal.DEFAULT_CAPACITY),
+                new SessionRecorder()
+        );
+
+        return new MainInteractor(
+                new AuthRepositoryImpl(
+                        client,
+                        connectionManager,
+                        new AuthCryptoEngine(new SharedPreferencesAuthKeyStore(sharedPreferences)),
+                        NotificationDecoders.createDefault(),
+                        new AuthSessionCache(sharedPreferences),
+                        bleScheduler
+                ),
+                new HeartRateRepositoryImpl(connectionManager, bleScheduler),
+                new ActivityRepositoryImpl(connectionManager, sharedPreferences),
+                new SampleRepositoryImpl(new TimeSeriesStore(mDirectory, TimeSeriesStore.DEFAULT_SEGMENT_CAPACITY), registry),
+                new MetricsRepositoryImpl(registry, new File(mDirectory, "metrics.txt")),
+                new ScanRepositoryImpl(createScanner(client), Schedulers.computation()),
+                new SensorRepositoryImpl(connectionManager, Schedulers.newThread()),
+                new SosRepositoryImpl(connectionManager, new LocationCache(), new LocalSosDispatcher(false), Schedulers.newThread()),
+                bleScheduler
+        );
+    }
+
+    private static DeviceScanner createScanner(SimulatedRxBleClient client) {
+        return new DeviceScanner(
+                client,
+                new ScanSettings.Builder().build(),
+                new ScanFilter.Builder().build(),
+                ScanConstants.MI_BAND_SERVICE,
+                DeviceScanner.DEFAULT_MAX_DEVICES,
+                DeviceScanner.DEFAULT_SMOOTHING,
+                DeviceScanner.DEFAULT_MAX_AGE_MILLIS
+        );
+    }
+
+    private static <T> Lazy<T> lazy(Provider<T> provider) {
+        return DoubleCheck.lazy(provider);
+    }
+
+    /**
+     * Отчет бенчмарка, все времена от начала старта процесса
+     */
+    public static final class Report {
+
+        private final long mApplicationNanos;
+        private final long mFirstStateNanos;
+        private final long mAuthenticatedNanos;
+
+        Report(long applicationNanos, long firstStateNanos, long authenticatedNanos) {
+            mApplicationNanos = applicationNanos;
+            mFirstStateNanos = firstStateNanos;
+            mAuthenticatedNanos = authenticatedNanos;
+        }
+
+        /**
+         * Разобрать отчет из строки {@link #toString()}
+         *
+         * @param line строка
+         * @return отчет
+         * @throws IOException если строка не отчет
+         */
+        public static Report parse(String line) throws IOException {
+            String[] fields = line.trim().split(" ");
+
+            try {
+                return new Report(value(fields[0], StartupTimer.APPLICATION),
+                        value(fields[1], StartupTimer.FIRST_STATE),
+                        value(fields[2], AUTHENTICATED));
+            } catch (RuntimeException e) {
+                throw new IOException("Not a report: " + line, e);
+            }
+        }
+
+        private static long value(String field, String name) {
+            if (!field.startsWith(name + "=")) {
+                throw new IllegalArgumentException("Expected " + name + ", got " + field);
+            }
+
+            return Long.parseLong(field.substring(name.length() + 1));
+        }
+
+        public long getApplicationNanos() {
+            return mApplicationNanos;
+        }
+
+        public long getFirstStateNanos() {
+            return mFirstStateNanos;
+        }
+
+        public long getAuthenticatedNanos() {
+            return mAuthenticatedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s=%d %s=%d %s=%d",
+                    StartupTimer.APPLICATION, mApplicationNanos,
+                    StartupTimer.FIRST_STATE, mFirstStateNanos,
+                    AUTHENTICATED, mAuthenticatedNanos);
+        }
+
+    }
+
+}
@@ -0,0 +1,128 @@
+package ru.projectsos.projectsos.benchmark;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import ru.projectsos.projectsos.data.metrics.Histogram;
+import ru.projectsos.projectsos.data.metrics.HistogramSnapshot;
+import ru.projectsos.projectsos.data.metrics.StartupTimer;
+import ru.projectsos.projectsos.simulator.SimulatorConfig;
+
+/**
+ * Запуск {@link ColdStartBenchmark} на обычной JVM
+ * <p>
+ * Каждый замер — отдельный процесс, поэтому загрузка классов и инициализация библиотек попадают в замер, как при
+ * настоящем холодном старте. Итог — распределение времени до каждого этапа. Если p90 времени до первого
+ * состояния выходит за бюджет, процесс завершается с кодом {@code 1}, чтобы сборка могла это поймать
+ * <p>
+ * Аргументы: {@code [количество запусков] [бюджет до первого состояния в миллисекундах]}
+ */
+public final class ColdStartBenchmarkRunner {
+
+    private static final int DEFAULT_RUNS = 10;
+    private static final long DEFAULT_BUDGET_MILLIS = 1000;
+    private static final String CHILD = "--child";
+    private static final String MAC_ADDRESS = "C0:00:00:00:00:01";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private ColdStartBenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        // Отсчет с первой строки процесса, как с начала Application.onCreate
+        long startNanos = System.nanoTime();
+
+        if (args.length > 0 && CHILD.equals(args[0])) {
+            runChild(startNanos);
+            return;
+        }
+
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_RUNS;
+        long budgetMillis = args.length > 1 ? Long.parseLong(args[1]) : DEFAULT_BUDGET_MILLIS;
+
+        Histogram application = new Histogram();
+        Histogram firstState = new Histogram();
+        Histogram authenticated = new Histogram();
+
+        for (int i = 0; i < runs; i++) {
+            ColdStartBenchmark.Report report = runProcess();
+            application.record(report.getApplicationNanos());
+            firstState.record(report.getFirstStateNanos());
+            authenticated.record(report.getAuthenticatedNanos());
+        }
+
+        HistogramSnapshot firstStateSnapshot = firstState.snapshot();
+
+        System.out.println(String.format(Locale.US, "%-13s %s", StartupTimer.APPLICATION, application.snapshot()));
+        System.out.println(String.format(Locale.US, "%-13s %s", StartupTimer.FIRST_STATE, firstStateSnapshot));
+        System.out.println(String.format(Locale.US, "%-13s %s", ColdStartBenchmark.AUTHENTICATED, authenticated.snapshot()));
+
+        long p90Millis = TimeUnit.NANOSECONDS.toMillis(firstStateSnapshot.getPercentile(90));
+
+        if (p90Millis > budgetMillis) {
+            System.out.println(String.format(Locale.US, "OVER BUDGET: first state p90=%dms budget=%dms", p90Millis, budgetMillis));
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Выполнить один холодный старт в этом процессе и напечатать отчет
+     *
+     * @param startNanos начало процесса
+     */
+    private static void runChild(long startNanos) throws IOException {
+        File directory = File.createTempFile("coldstart", "");
+
+        if (!directory.delete() || !directory.mkdirs()) {
+            throw new IOException("Failed to create " + directory);
+        }
+
+        directory.deleteOnExit();
+
+        SimulatorConfig config = new SimulatorConfig.Builder()
+                .connectLatency(50)
+                .responseLatency(20)
+                .jitter(5)
+                .build();
+
+        System.out.println(new ColdStartBenchmark(startNanos, config, directory).run(MAC_ADDRESS).blockingGet());
+        System.exit(0);
+    }
+
+    /**
+     * Запустить холодный старт в новом процессе с тем же classpath
+     *
+     * @return отчет процесса
+     */
+    private static ColdStartBenchmark.Report runProcess() throws IOException, InterruptedException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        Process process = new ProcessBuilder(
+                java, "-cp", System.getProperty("java.class.path"), ColdStartBenchmarkRunner.class.getName(), CHILD)
+                .redirectErrorStream(true)
+                .start();
+
+        String report = null;
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), UTF_8))) {
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(StartupTimer.APPLICATION + "=")) {
+                    report = line;
+                }
+            }
+        }
+
+        if (process.waitFor() != 0 || report == null) {
+            throw new IOException("Cold start run failed");
+        }
+
+        return ColdStartBenchmark.Report.parse(report);
+    }
+
+}
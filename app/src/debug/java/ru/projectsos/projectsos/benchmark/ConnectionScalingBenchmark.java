@@ -0,0 +1,113 @@
+package ru.projectsos.projectsos.benchmark;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import io.reactivex.Observable;
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import ru.projectsos.projectsos.domain.AuthHandshake;
+import ru.projectsos.projectsos.domain.AuthRepository;
+
+import static dagger.internal.Preconditions.checkNotNull;
+
+/**
+ * Бенчмарк масштабирования подключений
+ * Одновременно проводит аутентификацию N устройств через {@link AuthHandshake} и измеряет пропускную способность
+ * (рукопожатий в секунду) и задержку каждого рукопожатия
+ */
+public final class ConnectionScalingBenchmark {
+
+    private final AuthRepository mRepository;
+    private final AuthHandshake mHandshake;
+
+    /**
+     * Конструктор
+     *
+     * @param authRepository репозиторий аутентификации, подключенный к реальным или симулированным устройствам
+     * @param bleScheduler   планировщик Bluetooth
+     */
+    public ConnectionScalingBenchmark(@NonNull AuthRepository authRepository, @NonNull Scheduler bleScheduler) {
+        mRepository = checkNotNull(authRepository, "AuthRepository is required");
+        mHandshake = new AuthHandshake(authRepository, bleScheduler);
+    }
+
+    /**
+     * Запустить рукопожатия со всеми устройствами одновременно
+     *
+     * @param macAddresses MAC адреса устройств
+     * @return возвращает источник с отчетом
+     */
+    public Single<Report> run(@NonNull List<String> macAddresses) {
+        return Single.defer(() -> {
+            long startNanos = System.nanoTime();
+
+            return Observable.fromIterable(macAddresses)
+                    .flatMapSingle(this::handshake)
+                    .toList()
+                    .map(latencies -> new Report(latencies, System.nanoTime() - startNanos));
+        });
+    }
+
+    /**
+     * Провести рукопожатие с одним устройством
+     *
+     * @param macAddress MAC адрес
+     * @return возвращает источник с длительностью рукопожатия в наносекундах
+     */
+    private Single<Long> handshake(String macAddress) {
+        return mHandshake.authenticate(macAddress)
+                .flatMap(result -> mRepository.gracefullyShutdown(macAddress).toSingleDefault(result.getTotalNanos()));
+    }
+
+    /**
+     * Отчет бенчмарка
+     */
+    public static final class Report {
+
+        private final int mBands;
+        private final long mTotalNanos;
+        private final long mMeanNanos;
+        private final long mP50Nanos;
+        private final long mMaxNanos;
+
+        Report(List<Long> latencies, long totalNanos) {
+            List<Long> sorted = new ArrayList<>(latencies);
+            Collections.sort(sorted);
+
+            long sum = 0;
+            for (long latency : sorted) {
+                sum += latency;
+            }
+
+            mBands = sorted.size();
+            mTotalNanos = totalNanos;
+            mMeanNanos = mBands == 0 ? 0 : sum / mBands;
+            mP50Nanos = mBands == 0 ? 0 : sorted.get(mBands / 2);
+            mMaxNanos = mBands == 0 ? 0 : sorted.get(mBands - 1);
+        }
+
+        /**
+         * Получить пропускную способность
+         *
+         * @return рукопожатий в секунду
+         */
+        public double getHandshakesPerSecond() {
+            return mTotalNanos == 0 ? 0 : mBands * 1e9 / mTotalNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "bands=%d total=%.1fms throughput=%.2f handshakes/s latency mean=%.1fms p50=%.1fms max=%.1fms",
+                    mBands, mTotalNanos / 1e6, getHandshakesPerSecond(),
+                    mMeanNanos / 1e6, mP50Nanos / 1e6, mMaxNanos / 1e6);
+        }
+
+    }
+
+}
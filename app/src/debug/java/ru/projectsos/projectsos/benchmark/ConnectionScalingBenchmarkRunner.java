@@ -0,0 +1,82 @@
+package ru.projectsos.projectsos.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import io.reactivex.schedulers.Schedulers;
+import ru.projectsos.projectsos.data.capture.SessionRecorder;
+import ru.projectsos.projectsos.data.connection.DeviceConnectionManager;
+import ru.projectsos.projectsos.data.connection.ReconnectPolicy;
+import ru.projectsos.projectsos.data.crypto.AuthCryptoEngine;
+import ru.projectsos.projectsos.data.crypto.SharedPreferencesAuthKeyStore;
+import ru.projectsos.projectsos.data.journal.EventJournal;
+import ru.projectsos.projectsos.data.metrics.MetricsRegistry;
+import ru.projectsos.projectsos.data.protocol.NotificationDecoders;
+import ru.projectsos.projectsos.data.repository.AuthRepositoryImpl;
+import ru.projectsos.projectsos.data.session.AuthSessionCache;
+import ru.projectsos.projectsos.simulator.InMemorySharedPreferences;
+import ru.projectsos.projectsos.simulator.SimulatedRxBleClient;
+import ru.projectsos.projectsos.simulator.SimulatorConfig;
+
+/**
+ * Запуск {@link ConnectionScalingBenchmark} на симулированных браслетах на обычной JVM
+ * <p>
+ * Аргументы: {@code [максимальное количество браслетов] [лимит подключений]}
+ */
+public final class ConnectionScalingBenchmarkRunner {
+
+    private ConnectionScalingBenchmarkRunner() {
+    }
+
+    public static void main(String[] args) {
+        int maxBands = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        int maxConnections = args.length > 1 ? Integer.parseInt(args[1]) : DeviceConnectionManager.DEFAULT_MAX_CONNECTIONS;
+
+        // Прогрев: загрузка классов и JIT не должны попадать в первый замер
+        createBenchmark(maxConnections).run(macAddresses(maxConnections)).blockingGet();
+
+        for (int bands = 1; bands <= maxBands; bands *= 2) {
+            ConnectionScalingBenchmark benchmark = createBenchmark(maxConnections);
+
+            // Первый проход сопрягает браслеты, второй переподключается к уже известным
+            ConnectionScalingBenchmark.Report pairing = benchmark.run(macAddresses(bands)).blockingGet();
+            ConnectionScalingBenchmark.Report reconnect = benchmark.run(macAddresses(bands)).blockingGet();
+
+            System.out.println(String.format(Locale.US, "limit=%d pairing   %s", maxConnections, pairing));
+            System.out.println(String.format(Locale.US, "limit=%d reconnect %s", maxConnections, reconnect));
+        }
+    }
+
+    private static ConnectionScalingBenchmark createBenchmark(int maxConnections) {
+        SimulatedRxBleClient client = new SimulatedRxBleClient(
+                new SimulatorConfig.Builder()
+                        .connectLatency(50)
+                        .responseLatency(20)
+                        .jitter(5)
+                        .build()
+        );
+
+        InMemorySharedPreferences sharedPreferences = new InMemorySharedPreferences();
+
+        return new ConnectionScalingBenchmark(new AuthRepositoryImpl(
+                client,
+                new DeviceConnectionManager(client, maxConnections, ReconnectPolicy.createDefault(), new MetricsRegistry(), new EventJournal(EventJournal.DEFAULT_CAPACITY), new SessionRecorder()),
+                new AuthCryptoEngine(new SharedPreferencesAuthKeyStore(sharedPreferences)),
+                NotificationDecoders.createDefault(),
+                new AuthSessionCache(sharedPreferences),
+                Schedulers.single()
+        ), Schedulers.single());
+    }
+
+    private static List<String> macAddresses(int count) {
+        List<String> macAddresses = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            macAddresses.add(String.format(Locale.US, "C0:00:00:00:%02X:%02X", (i >> 8) & 0xFF, i & 0xFF));
+        }
+
+        return macAddresses;
+    }
+
+}
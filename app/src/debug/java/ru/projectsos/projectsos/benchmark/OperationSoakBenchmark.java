@@ -0,0 +1,226 @@
+package ru.projectsos.projectsos.benchmark;
+
+import android.support.annotation.NonNull;
+
+import java.util.Locale;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.reactivex.Completable;
+import io.reactivex.Scheduler;
+import io.reactivex.disposables.CompositeDisposable;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.functions.Action;
+import ru.projectsos.projectsos.domain.AuthHandshake;
+import ru.projectsos.projectsos.domain.AuthRepository;
+import ru.projectsos.projectsos.models.domain.AuthResult;
+import ru.projectsos.projectsos.presentation.util.OperationTracker;
+
+import static dagger.internal.Preconditions.checkNotNull;
+
+/**
+ * Длительная нагрузка командами на одно устройство
+ * <p>
+ * После рукопожатия на устройство уходят тысячи команд запроса случайного ключа, не больше
+ * {@link #IN_FLIGHT} одновременно, и каждая подписка кладется в проверяемый контейнер, как это делает презентер.
+ * На {@link #CHECKPOINTS} контрольных точках команды дожидаются, после сборки мусора замеряется занятая куча.
+ * Если контейнер держит закончившиеся команды, куча растет линейно с количеством команд
+ */
+public final class OperationSoakBenchmark {
+
+    /**
+     * Наибольшее количество одновременных команд
+     */
+    public static final int IN_FLIGHT = 4;
+
+    /**
+     * Количество замеров кучи
+     */
+    public static final int CHECKPOINTS = 10;
+
+    private final AuthRepository mRepository;
+    private final AuthHandshake mHandshake;
+
+    /**
+     * Конструктор
+     *
+     * @param authRepository репозиторий аутентификации
+     * @param bleScheduler   планировщик Bluetooth
+     */
+    public OperationSoakBenchmark(@NonNull AuthRepository authRepository, @NonNull Scheduler bleScheduler) {
+        mRepository = checkNotNull(authRepository, "AuthRepository is required");
+        mHandshake = new AuthHandshake(authRepository, bleScheduler);
+    }
+
+    /**
+     * Провести нагрузку, запуская команды через контейнер операций
+     *
+     * @param macAddress MAC адрес устройства
+     * @param cycles     количество команд, не меньше {@link #CHECKPOINTS}
+     * @param tracker    контейнер операций
+     * @return возвращает отчет
+     * @throws InterruptedException если ожидание команд прервано
+     */
+    public Report run(String macAddress, int cycles, @NonNull OperationTracker tracker) throws InterruptedException {
+        return run(macAddress, cycles, (command, onTerminate) ->
+                tracker.track(command, onTerminate, throwable -> onTerminate.run()), tracker::getLive, tracker::getPeak);
+    }
+
+    /**
+     * Провести нагрузку, складывая подписки команд в {@link CompositeDisposable}
+     * Так раньше работал презентер, замер нужен для сравнения
+     *
+     * @param macAddress MAC адрес устройства
+     * @param cycles     количество команд, не меньше {@link #CHECKPOINTS}
+     * @param composite  контейнер подписок
+     * @return возвращает отчет
+     * @throws InterruptedException если ожидание команд прервано
+     */
+    public Report runComposite(String macAddress, int cycles, @NonNull CompositeDisposable composite) throws InterruptedException {
+        return run(macAddress, cycles, (command, onTerminate) ->
+                composite.add(command.subscribe(onTerminate, throwable -> onTerminate.run())), composite::size, composite::size);
+    }
+
+    private Report run(String macAddress, int cycles, Launcher launcher, Counter live, Counter peak) throws InterruptedException {
+        // Иначе часть контрольных точек не замеряется и рост кучи считается от нуля
+        if (cycles < CHECKPOINTS) {
+            throw new IllegalArgumentException("At least " + CHECKPOINTS + " cycles are required, got " + cycles);
+        }
+
+        Disposable connection = mRepository.observeConnections(macAddress).subscribe(count -> {
+        }, throwable -> {
+        });
+
+        try {
+            AuthResult result = mHandshake.authenticate(macAddress).blockingGet();
+
+            if (!result.isSuccess()) {
+                throw new IllegalStateException("Handshake failed: " + result);
+            }
+
+            Semaphore inFlight = new Semaphore(IN_FLIGHT);
+            AtomicLong failures = new AtomicLong();
+            long[] heap = new long[CHECKPOINTS];
+            int checkpoint = Math.max(cycles / CHECKPOINTS, 1);
+            long startNanos = System.nanoTime();
+
+            for (int i = 1; i <= cycles; i++) {
+                inFlight.acquire();
+                launcher.launch(mRepository.requestRandomKey(macAddress).doOnError(throwable -> failures.incrementAndGet()),
+                        inFlight::release);
+
+                if (i % checkpoint == 0 && i / checkpoint <= CHECKPOINTS) {
+                    inFlight.acquire(IN_FLIGHT);
+                    heap[i / checkpoint - 1] = usedHeap();
+                    inFlight.release(IN_FLIGHT);
+                }
+            }
+
+            inFlight.acquire(IN_FLIGHT);
+            return new Report(cycles, failures.get(), live.get(), peak.get(), heap, System.nanoTime() - startNanos);
+        } finally {
+            connection.dispose();
+            mRepository.gracefullyShutdown(macAddress).onErrorComplete().blockingAwait();
+        }
+    }
+
+    /**
+     * Замерить занятую кучу
+     * Сборка мусора — только просьба, поэтому берется наименьший из нескольких замеров
+     *
+     * @return занятая куча в байтах
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+
+        return used;
+    }
+
+    /**
+     * Запуск команды через проверяемый контейнер
+     */
+    private interface Launcher {
+
+        void launch(Completable command, Action onTerminate);
+
+    }
+
+    /**
+     * Счетчик проверяемого контейнера
+     */
+    private interface Counter {
+
+        int get();
+
+    }
+
+    /**
+     * Отчет бенчмарка
+     */
+    public static final class Report {
+
+        private final int mCycles;
+        private final long mFailures;
+        private final int mLive;
+        private final int mPeak;
+        private final long[] mHeap;
+        private final long mTotalNanos;
+
+        Report(int cycles, long failures, int live, int peak, long[] heap, long totalNanos) {
+            mCycles = cycles;
+            mFailures = failures;
+            mLive = live;
+            mPeak = peak;
+            mHeap = heap;
+            mTotalNanos = totalNanos;
+        }
+
+        public long getFailures() {
+            return mFailures;
+        }
+
+        /**
+         * Получить количество подписок, оставшихся в контейнере после всех команд
+         *
+         * @return количество подписок
+         */
+        public int getLive() {
+            return mLive;
+        }
+
+        /**
+         * Получить наибольшее количество подписок в контейнере
+         *
+         * @return пиковое количество подписок
+         */
+        public int getPeak() {
+            return mPeak;
+        }
+
+        /**
+         * Получить рост кучи от первой контрольной точки до последней
+         * Первая точка идет после прогрева, поэтому загрузка классов и JIT в рост не попадают
+         *
+         * @return рост в байтах, может быть отрицательным
+         */
+        public long getHeapGrowthBytes() {
+            return mHeap[mHeap.length - 1] - mHeap[0];
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "cycles=%d failures=%d live=%d peak=%d heap=%.1f->%.1fKiB growth=%.1fB/cycle total=%.1fms",
+                    mCycles, mFailures, mLive, mPeak, mHeap[0] / 1024.0, mHeap[mHeap.length - 1] / 1024.0,
+                    (double) getHeapGrowthBytes() / mCycles, mTotalNanos / 1e6);
+        }
+
+    }
+
+}
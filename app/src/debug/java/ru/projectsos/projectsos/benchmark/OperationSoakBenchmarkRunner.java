@@ -0,0 +1,96 @@
+package ru.projectsos.projectsos.benchmark;
+
+import java.util.Locale;
+
+import io.reactivex.disposables.CompositeDisposable;
+import io.reactivex.schedulers.Schedulers;
+import ru.projectsos.projectsos.data.capture.SessionRecorder;
+import ru.projectsos.projectsos.data.connection.DeviceConnectionManager;
+import ru.projectsos.projectsos.data.connection.ReconnectPolicy;
+import ru.projectsos.projectsos.data.crypto.AuthCryptoEngine;
+import ru.projectsos.projectsos.data.crypto.SharedPreferencesAuthKeyStore;
+import ru.projectsos.projectsos.data.journal.EventJournal;
+import ru.projectsos.projectsos.data.metrics.MetricsRegistry;
+import ru.projectsos.projectsos.data.protocol.NotificationDecoders;
+import ru.projectsos.projectsos.data.repository.AuthRepositoryImpl;
+import ru.projectsos.projectsos.data.session.AuthSessionCache;
+import ru.projectsos.projectsos.presentation.util.OperationTracker;
+import ru.projectsos.projectsos.simulator.InMemorySharedPreferences;
+import ru.projectsos.projectsos.simulator.SimulatedRxBleClient;
+import ru.projectsos.projectsos.simulator.SimulatorConfig;
+
+/**
+ * Запуск {@link OperationSoakBenchmark} на симулированном браслете на обычной JVM
+ * <p>
+ * Сначала для сравнения команды складываются в {@link CompositeDisposable}, затем идут через
+ * {@link OperationTracker}. Если после нагрузки в контейнере операций остались подписки, пик превысил
+ * {@link OperationSoakBenchmark#IN_FLIGHT} или куча выросла больше чем на {@link #HEAP_GROWTH_LIMIT_BYTES_PER_CYCLE} байтов на команду,
+ * процесс завершается с кодом {@code 1}, чтобы сборка могла это поймать
+ * <p>
+ * Аргументы: {@code [количество команд]}
+ */
+public final class OperationSoakBenchmarkRunner {
+
+    private static final int DEFAULT_CYCLES = 20_000;
+    // Закончившаяся подписка в CompositeDisposable стоит около 50 байтов, поэтому утечка заметна уже на тысячах команд
+    private static final long HEAP_GROWTH_LIMIT_BYTES_PER_CYCLE = 16;
+    private static final String MAC_ADDRESS = "C0:00:00:00:00:01";
+
+    private OperationSoakBenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int cycles = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_CYCLES;
+
+        CompositeDisposable composite = new CompositeDisposable();
+        System.out.println("composite " + createBenchmark().runComposite(MAC_ADDRESS, cycles, composite));
+        composite.dispose();
+
+        OperationTracker tracker = new OperationTracker();
+        OperationSoakBenchmark.Report report = createBenchmark().run(MAC_ADDRESS, cycles, tracker);
+        System.out.println("tracker   " + report);
+        tracker.dispose();
+
+        long limitBytes = HEAP_GROWTH_LIMIT_BYTES_PER_CYCLE * cycles;
+
+        if (report.getFailures() > 0
+                || report.getLive() > 0
+                || report.getPeak() > OperationSoakBenchmark.IN_FLIGHT
+                || report.getHeapGrowthBytes() > limitBytes) {
+            System.out.println(String.format(Locale.US, "LEAK: live=%d peak=%d growth=%dB limit=%dB failures=%d",
+                    report.getLive(), report.getPeak(), report.getHeapGrowthBytes(), limitBytes,
+                    report.getFailures()));
+            System.exit(1);
+        }
+
+        System.exit(0);
+    }
+
+    private static OperationSoakBenchmark createBenchmark() {
+        SimulatedRxBleClient client = new SimulatedRxBleClient(
+                new SimulatorConfig.Builder()
+                        .connectLatency(0)
+                        .responseLatency(0)
+                        .build()
+        );
+
+        InMemorySharedPreferences sharedPreferences = new InMemorySharedPreferences();
+
+        return new OperationSoakBenchmark(new AuthRepositoryImpl(
+                client,
+                new DeviceConnectionManager(
+                        client,
+                        DeviceConnectionManager.DEFAULT_MAX_CONNECTIONS,
+                        ReconnectPolicy.createDefault(),
+                        new MetricsRegistry(),
+                        new EventJournal(EventJournal.DEFAULT_CAPACITY),
+                        new SessionRecorder()
+                ),
+                new AuthCryptoEngine(new SharedPreferencesAuthKeyStore(sharedPreferences)),
+                NotificationDecoders.createDefault(),
+                new AuthSessionCache(sharedPreferences),
+                Schedulers.single()
+        ), Schedulers.single());
+    }
+
+}
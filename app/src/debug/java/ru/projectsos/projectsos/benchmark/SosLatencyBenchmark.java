@@ -0,0 +1,147 @@
+package ru.projectsos.projectsos.benchmark;
+
+import android.support.annotation.NonNull;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Observable;
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import ru.projectsos.projectsos.data.metrics.Histogram;
+import ru.projectsos.projectsos.data.metrics.HistogramSnapshot;
+import ru.projectsos.projectsos.domain.AuthHandshake;
+import ru.projectsos.projectsos.domain.AuthRepository;
+import ru.projectsos.projectsos.domain.SosRepository;
+import ru.projectsos.projectsos.models.domain.SosResult;
+import ru.projectsos.projectsos.simulator.SimulatedRxBleClient;
+import ru.projectsos.projectsos.simulator.SimulatedRxBleDevice;
+
+import static dagger.internal.Preconditions.checkNotNull;
+import static ru.projectsos.projectsos.data.SosConstants.SOS_PRESSES;
+
+/**
+ * Бенчмарк задержки сигнала SOS
+ * Аутентифицирует симулированный браслет, подает сигналы тройным нажатием кнопки и собирает из итогов время
+ * от получения уведомления последнего нажатия до передачи сигнала отправителю и до возврата отправителя
+ */
+public final class SosLatencyBenchmark {
+
+    /**
+     * Промежуток между сигналами: больше окна серии нажатий не нужен, серия сбрасывается после сигнала
+     */
+    private static final long SIGNAL_PERIOD_MILLIS = 100;
+
+    private final SimulatedRxBleClient mClient;
+    private final SosRepository mSosRepository;
+    private final AuthHandshake mHandshake;
+
+    /**
+     * Конструктор
+     *
+     * @param client         симулированный клиент Bluetooth
+     * @param authRepository репозиторий аутентификации
+     * @param sosRepository  репозиторий сигнала SOS
+     * @param bleScheduler   планировщик Bluetooth
+     */
+    public SosLatencyBenchmark(@NonNull SimulatedRxBleClient client,
+                               @NonNull AuthRepository authRepository,
+                               @NonNull SosRepository sosRepository,
+                               @NonNull Scheduler bleScheduler) {
+        mClient = checkNotNull(client, "SimulatedRxBleClient is required");
+        mSosRepository = checkNotNull(sosRepository, "SosRepository is required");
+        mHandshake = new AuthHandshake(checkNotNull(authRepository, "AuthRepository is required"), bleScheduler);
+    }
+
+    /**
+     * Подать сигналы и дождаться итогов всех
+     *
+     * @param macAddress MAC адрес браслета
+     * @param signals    количество сигналов
+     * @return возвращает источник с отчетом
+     */
+    public Single<Report> run(@NonNull String macAddress, int signals) {
+        return Single.defer(() -> {
+            Histogram trigger = new Histogram();
+            Histogram dispatch = new Histogram();
+            int[] failed = new int[1];
+
+            return mSosRepository.observeSos(macAddress)
+                    .take(signals)
+                    .doOnNext(result -> {
+                        trigger.record(result.getTriggerNanos());
+                        dispatch.record(result.getDispatchNanos());
+
+                        if (!result.isSuccess()) {
+                            failed[0]++;
+                        }
+                    })
+                    .mergeWith(press(macAddress, signals))
+                    .ignoreElements()
+                    .toSingle(() -> new Report(trigger.snapshot(), dispatch.snapshot(), failed[0]));
+        });
+    }
+
+    /**
+     * Аутентифицироваться и нажимать кнопку сериями
+     *
+     * @param macAddress MAC адрес браслета
+     * @param signals    количество серий
+     * @return возвращает источник без элементов
+     */
+    private Observable<SosResult> press(String macAddress, int signals) {
+        SimulatedRxBleDevice device = mClient.obtainDevice(macAddress);
+
+        return mHandshake.authenticate(macAddress)
+                .flatMapObservable(result -> {
+                    if (!result.isSuccess()) {
+                        return Observable.error(new IllegalStateException("Authentication failed: " + result));
+                    }
+
+                    return Observable.interval(SIGNAL_PERIOD_MILLIS, TimeUnit.MILLISECONDS).take(signals);
+                })
+                .doOnNext(tick -> {
+                    for (int i = 0; i < SOS_PRESSES; i++) {
+                        device.pressButton();
+                    }
+                })
+                .ignoreElements()
+                .toObservable();
+    }
+
+    /**
+     * Отчет бенчмарка
+     */
+    public static final class Report {
+
+        private final HistogramSnapshot mTrigger;
+        private final HistogramSnapshot mDispatch;
+        private final int mFailed;
+
+        Report(HistogramSnapshot trigger, HistogramSnapshot dispatch, int failed) {
+            mTrigger = trigger;
+            mDispatch = dispatch;
+            mFailed = failed;
+        }
+
+        public HistogramSnapshot getTrigger() {
+            return mTrigger;
+        }
+
+        public HistogramSnapshot getDispatch() {
+            return mDispatch;
+        }
+
+        public int getFailed() {
+            return mFailed;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "signals=%d failed=%d%ntrigger  %s%ndispatch %s",
+                    mTrigger.getCount(), mFailed, mTrigger, mDispatch);
+        }
+
+    }
+
+}
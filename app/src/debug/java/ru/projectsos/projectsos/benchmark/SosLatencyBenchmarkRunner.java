@@ -0,0 +1,106 @@
+package ru.projectsos.projectsos.benchmark;
+
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+import ru.projectsos.projectsos.data.capture.SessionRecorder;
+import ru.projectsos.projectsos.data.connection.DeviceConnectionManager;
+import ru.projectsos.projectsos.data.connection.ReconnectPolicy;
+import ru.projectsos.projectsos.data.crypto.AuthCryptoEngine;
+import ru.projectsos.projectsos.data.crypto.SharedPreferencesAuthKeyStore;
+import ru.projectsos.projectsos.data.journal.EventJournal;
+import ru.projectsos.projectsos.data.metrics.MetricsRegistry;
+import ru.projectsos.projectsos.data.protocol.NotificationDecoders;
+import ru.projectsos.projectsos.data.repository.AuthRepositoryImpl;
+import ru.projectsos.projectsos.data.repository.SosRepositoryImpl;
+import ru.projectsos.projectsos.data.session.AuthSessionCache;
+import ru.projectsos.projectsos.data.sos.LocalSosDispatcher;
+import ru.projectsos.projectsos.data.sos.LocationCache;
+import ru.projectsos.projectsos.simulator.InMemorySharedPreferences;
+import ru.projectsos.projectsos.simulator.SimulatedRxBleClient;
+import ru.projectsos.projectsos.simulator.SimulatorConfig;
+
+import static ru.projectsos.projectsos.data.SosConstants.SOS_TRIGGER_BUDGET_MILLIS;
+
+/**
+ * Запуск {@link SosLatencyBenchmark} на симулированном браслете на обычной JVM
+ * <p>
+ * Первый прогон прогревает JIT и не учитывается. Если p99 времени до передачи сигнала отправителю выходит за
+ * {@link ru.projectsos.projectsos.data.SosConstants#SOS_TRIGGER_BUDGET_MILLIS}, процесс завершается с кодом
+ * {@code 1}, чтобы сборка могла это поймать
+ * <p>
+ * Аргументы: {@code [количество сигналов]}
+ */
+public final class SosLatencyBenchmarkRunner {
+
+    private static final int DEFAULT_SIGNALS = 200;
+    private static final int WARMUP_SIGNALS = 50;
+    private static final String MAC_ADDRESS = "C0:00:00:00:00:01";
+
+    private SosLatencyBenchmarkRunner() {
+    }
+
+    public static void main(String[] args) {
+        int signals = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SIGNALS;
+
+        createBenchmark().run(MAC_ADDRESS, WARMUP_SIGNALS).blockingGet();
+        SosLatencyBenchmark.Report report = createBenchmark().run(MAC_ADDRESS, signals).blockingGet();
+        System.out.println(report);
+
+        long p99Millis = TimeUnit.NANOSECONDS.toMillis(report.getTrigger().getPercentile(99));
+
+        if (report.getFailed() > 0 || p99Millis > SOS_TRIGGER_BUDGET_MILLIS) {
+            System.out.println(String.format(Locale.US, "OVER BUDGET: trigger p99=%dms budget=%dms failed=%d",
+                    p99Millis, SOS_TRIGGER_BUDGET_MILLIS, report.getFailed()));
+            System.exit(1);
+        }
+
+        System.exit(0);
+    }
+
+    private static SosLatencyBenchmark createBenchmark() {
+        SimulatedRxBleClient client = new SimulatedRxBleClient(
+                new SimulatorConfig.Builder()
+                        .connectLatency(50)
+                        .responseLatency(20)
+                        .jitter(5)
+                        .build()
+        );
+
+        InMemorySharedPreferences sharedPreferences = new InMemorySharedPreferences();
+        DeviceConnectionManager connectionManager = new DeviceConnectionManager(
+                client,
+                DeviceConnectionManager.DEFAULT_MAX_CONNECTIONS,
+                ReconnectPolicy.createDefault(),
+                new MetricsRegistry(),
+                new EventJournal(EventJournal.DEFAULT_CAPACITY),
+                new SessionRecorder()
+        );
+        Scheduler sosScheduler = Schedulers.from(Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ProjectSOS-SOS");
+            thread.setDaemon(true);
+            return thread;
+        }));
+
+        LocationCache locationCache = new LocationCache();
+        locationCache.update(55.751244, 37.618423, 20, System.currentTimeMillis());
+
+        return new SosLatencyBenchmark(
+                client,
+                new AuthRepositoryImpl(
+                        client,
+                        connectionManager,
+                        new AuthCryptoEngine(new SharedPreferencesAuthKeyStore(sharedPreferences)),
+                        NotificationDecoders.createDefault(),
+                        new AuthSessionCache(sharedPreferences),
+                        Schedulers.single()
+                ),
+                new SosRepositoryImpl(connectionManager, locationCache, new LocalSosDispatcher(false), sosScheduler),
+                Schedulers.single()
+        );
+    }
+
+}
@@ -0,0 +1,304 @@
+package ru.projectsos.projectsos.replay;
+
+import android.support.annotation.NonNull;
+
+import com.polidea.rxandroidble2.RxBleClient;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.reactivex.Completable;
+import io.reactivex.Scheduler;
+import io.reactivex.subjects.CompletableSubject;
+import ru.projectsos.projectsos.data.capture.CaptureRecord;
+
+import static dagger.internal.Preconditions.checkNotNull;
+
+/**
+ * Воспроизведение записи сеансов (см. {@link ru.projectsos.projectsos.data.capture.SessionRecorder})
+ * через настоящий стек приложения
+ * <p>
+ * Запись подменяет браслеты: {@link #asRxBleClient()} отдается в {@code DeviceConnectionManager} вместо клиента
+ * RxAndroidBle, а каждое устройство проигрывает свои события (см. {@link ReplayRxBleDevice}). Со скоростью
+ * {@link Speed#RECORDED} уведомления идут с темпом записи, и прогон повторяет полевой сеанс; со скоростью
+ * {@link Speed#MAX} — подряд, и прогон меряет, сколько уведомлений в секунду выдерживает приложение
+ */
+public final class CaptureReplay {
+
+    /**
+     * Скорость воспроизведения
+     */
+    public enum Speed {
+
+        /**
+         * С промежутками между уведомлениями, как в записи
+         */
+        RECORDED,
+
+        /**
+         * Так быстро, как приложение принимает уведомления
+         */
+        MAX
+    }
+
+    private final Map<String, List<CaptureRecord>> mScripts = new LinkedHashMap<>();
+    private final ConcurrentMap<String, ReplayRxBleDevice> mDevices = new ConcurrentHashMap<>();
+    private final Speed mSpeed;
+    private final Scheduler mScheduler;
+    private final long mRecordedNanos;
+    private final CompletableSubject mCompletion = CompletableSubject.create();
+    private final AtomicInteger mUnfinished;
+    private final AtomicLong mStartNanos = new AtomicLong();
+    private final AtomicLong mFinishNanos = new AtomicLong();
+    private final AtomicLong mNotifications = new AtomicLong();
+    private final AtomicLong mDropped = new AtomicLong();
+    private final AtomicLong mWrites = new AtomicLong();
+    private final AtomicLong mMismatchedWrites = new AtomicLong();
+
+    /**
+     * Конструктор
+     *
+     * @param records   события записи (см. {@link ru.projectsos.projectsos.data.capture.CaptureReader})
+     * @param speed     скорость воспроизведения
+     * @param scheduler планировщик воспроизведения; уведомления выдаются на нем
+     */
+    public CaptureReplay(@NonNull List<CaptureRecord> records, @NonNull Speed speed, @NonNull Scheduler scheduler) {
+        checkNotNull(records, "Records are required");
+        mSpeed = checkNotNull(speed, "Speed is required");
+        mScheduler = checkNotNull(scheduler, "Scheduler is required");
+
+        for (CaptureRecord record : records) {
+            List<CaptureRecord> script = mScripts.get(record.getMacAddress());
+
+            if (script == null) {
+                script = new ArrayList<>();
+                mScripts.put(record.getMacAddress(), script);
+            }
+
+            script.add(record);
+        }
+
+        mRecordedNanos = records.isEmpty() ? 0 : records.get(records.size() - 1).getTimestampNanos() - records.get(0).getTimestampNanos();
+        mUnfinished = new AtomicInteger(mScripts.size());
+
+        if (mScripts.isEmpty()) {
+            mCompletion.onComplete();
+        }
+    }
+
+    /**
+     * Получить клиент, устройства которого проигрывают запись
+     *
+     * @return клиент для {@code DeviceConnectionManager}
+     */
+    public RxBleClient asRxBleClient() {
+        return new ReplayRxBleClient(this);
+    }
+
+    /**
+     * Получить MAC адреса устройств записи в порядке их появления
+     *
+     * @return MAC адреса
+     */
+    public List<String> getMacAddresses() {
+        return Collections.unmodifiableList(new ArrayList<>(mScripts.keySet()));
+    }
+
+    /**
+     * Дождаться конца воспроизведения
+     * Устройство заканчивает, когда проиграло все свои события. Если приложение не делает того, что ждет запись,
+     * источник не завершится: ограничение времени и разбор {@link #report()} — дело вызывающего
+     *
+     * @return возвращает источник, который завершится, когда закончат все устройства записи
+     */
+    public Completable completion() {
+        return mCompletion.hide();
+    }
+
+    /**
+     * Получить отчет о воспроизведении на текущий момент
+     *
+     * @return отчет
+     */
+    public Report report() {
+        int remaining = 0;
+
+        for (ReplayRxBleDevice device : mDevices.values()) {
+            remaining += device.getRemaining();
+        }
+
+        for (String macAddress : mScripts.keySet()) {
+            if (!mDevices.containsKey(macAddress)) {
+                remaining += mScripts.get(macAddress).size();
+            }
+        }
+
+        long startNanos = mStartNanos.get();
+        long finishNanos = mFinishNanos.get();
+        long elapsedNanos = startNanos == 0 ? 0 : (finishNanos != 0 ? finishNanos : System.nanoTime()) - startNanos;
+
+        return new Report(
+                mNotifications.get(),
+                mDropped.get(),
+                mWrites.get(),
+                mMismatchedWrites.get(),
+                remaining,
+                mRecordedNanos,
+                elapsedNanos
+        );
+    }
+
+    Speed getSpeed() {
+        return mSpeed;
+    }
+
+    Scheduler getScheduler() {
+        return mScheduler;
+    }
+
+    /**
+     * Получить устройство, создав его при первом обращении
+     * Устройство, которого нет в записи, подключается и молчит
+     *
+     * @param macAddress MAC адрес
+     * @return устройство
+     */
+    ReplayRxBleDevice device(String macAddress) {
+        ReplayRxBleDevice device = mDevices.get(macAddress);
+
+        if (device == null) {
+            List<CaptureRecord> script = mScripts.get(macAddress);
+            mStartNanos.compareAndSet(0, System.nanoTime());
+
+            ReplayRxBleDevice created = new ReplayRxBleDevice(
+                    macAddress,
+                    script != null ? script : Collections.<CaptureRecord>emptyList(),
+                    this
+            );
+            device = mDevices.putIfAbsent(macAddress, created);
+
+            if (device == null) {
+                device = created;
+            }
+        }
+
+        return device;
+    }
+
+    /**
+     * Учесть уведомление
+     *
+     * @param delivered {@code true}, если у уведомления был подписчик
+     */
+    void onNotification(boolean delivered) {
+        (delivered ? mNotifications : mDropped).incrementAndGet();
+    }
+
+    /**
+     * Учесть дождавшуюся запись
+     *
+     * @param sameCommand {@code true}, если первый байт совпал с записанным
+     */
+    void onWrite(boolean sameCommand) {
+        mWrites.incrementAndGet();
+
+        if (!sameCommand) {
+            mMismatchedWrites.incrementAndGet();
+        }
+    }
+
+    /**
+     * Учесть устройство, проигравшее все события
+     * Устройства без событий в записи сюда не приходят: их нет в счетчике
+     */
+    void onFinished() {
+        if (mUnfinished.decrementAndGet() == 0) {
+            mFinishNanos.set(System.nanoTime());
+            mCompletion.onComplete();
+        }
+    }
+
+    /**
+     * Отчет о воспроизведении
+     */
+    public static final class Report {
+
+        private final long mNotifications;
+        private final long mDropped;
+        private final long mWrites;
+        private final long mMismatchedWrites;
+        private final int mRemaining;
+        private final long mRecordedNanos;
+        private final long mElapsedNanos;
+
+        Report(long notifications,
+               long dropped,
+               long writes,
+               long mismatchedWrites,
+               int remaining,
+               long recordedNanos,
+               long elapsedNanos) {
+            mNotifications = notifications;
+            mDropped = dropped;
+            mWrites = writes;
+            mMismatchedWrites = mismatchedWrites;
+            mRemaining = remaining;
+            mRecordedNanos = recordedNanos;
+            mElapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * Получить количество уведомлений, у которых не было подписчика
+         *
+         * @return количество уведомлений
+         */
+        public long getDropped() {
+            return mDropped;
+        }
+
+        /**
+         * Получить количество дождавшихся записей, команда которых не совпала с записанной
+         *
+         * @return количество записей
+         */
+        public long getMismatchedWrites() {
+            return mMismatchedWrites;
+        }
+
+        /**
+         * Получить количество непроигранных событий: больше нуля, если воспроизведение застряло
+         *
+         * @return количество событий
+         */
+        public int getRemaining() {
+            return mRemaining;
+        }
+
+        /**
+         * Получить пропускную способность
+         *
+         * @return доставленных уведомлений в секунду
+         */
+        public double getNotificationsPerSecond() {
+            return mElapsedNanos == 0 ? 0 : mNotifications * 1e9 / mElapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "notifications=%d dropped=%d writes=%d mismatched=%d remaining=%d recorded=%.1fms elapsed=%.1fms throughput=%.0f notifications/s",
+                    mNotifications, mDropped, mWrites, mMismatchedWrites, mRemaining,
+                    mRecordedNanos / 1e6, mElapsedNanos / 1e6, getNotificationsPerSecond());
+        }
+
+    }
+
+}
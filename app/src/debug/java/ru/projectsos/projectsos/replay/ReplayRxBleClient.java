@@ -0,0 +1,65 @@
+package ru.projectsos.projectsos.replay;
+
+import com.polidea.rxandroidble2.RxBleClient;
+import com.polidea.rxandroidble2.RxBleDevice;
+import com.polidea.rxandroidble2.RxBleScanResult;
+import com.polidea.rxandroidble2.scan.ScanFilter;
+import com.polidea.rxandroidble2.scan.ScanResult;
+import com.polidea.rxandroidble2.scan.ScanSettings;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.UUID;
+
+import io.reactivex.Observable;
+
+/**
+ * Bluetooth LE клиент, устройства которого проигрывают запись (см. {@link CaptureReplay})
+ * Поиск не воспроизводится: запись не содержит рекламных пакетов, а MAC адреса устройств дает она сама
+ * (см. {@link CaptureReplay#getMacAddresses()}). Поиск идет, но ничего не находит
+ */
+final class ReplayRxBleClient extends RxBleClient {
+
+    private final CaptureReplay mReplay;
+
+    /**
+     * Конструктор
+     *
+     * @param replay воспроизведение
+     */
+    ReplayRxBleClient(CaptureReplay replay) {
+        mReplay = replay;
+    }
+
+    @Override
+    public RxBleDevice getBleDevice(String macAddress) {
+        return mReplay.device(macAddress);
+    }
+
+    @Override
+    public Set<RxBleDevice> getBondedDevices() {
+        return Collections.emptySet();
+    }
+
+    @Override
+    public Observable<ScanResult> scanBleDevices(ScanSettings scanSettings, ScanFilter... scanFilters) {
+        return Observable.never();
+    }
+
+    @Override
+    @Deprecated
+    public Observable<RxBleScanResult> scanBleDevices(UUID... filterServiceUUIDs) {
+        return Observable.never();
+    }
+
+    @Override
+    public Observable<State> observeStateChanges() {
+        return Observable.never();
+    }
+
+    @Override
+    public State getState() {
+        return State.READY;
+    }
+
+}
@@ -0,0 +1,166 @@
+package ru.projectsos.projectsos.replay;
+
+import com.polidea.rxandroidble2.RxBleConnection;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import io.reactivex.Completable;
+import io.reactivex.Observable;
+import io.reactivex.Single;
+import io.reactivex.subjects.PublishSubject;
+import io.reactivex.subjects.Subject;
+
+/**
+ * Воспроизводимое GATT подключение
+ * <p>
+ * Как и {@code SimulatedRxBleConnection}, реализуется через {@link Proxy}:
+ * поддерживается подмножество {@link RxBleConnection}, которое использует приложение. Записи подтверждаются сразу
+ * и передаются устройству (см. {@link ReplayRxBleDevice}), а уведомления устройство выдает из записи
+ */
+final class ReplayRxBleConnection implements InvocationHandler {
+
+    private static final int DEFAULT_MTU = 23;
+    private static final int RSSI = -60;
+
+    private final ReplayRxBleDevice mDevice;
+    private final ConcurrentMap<UUID, Subject<byte[]>> mNotificationSubjects = new ConcurrentHashMap<>();
+
+    private volatile int mMtu = DEFAULT_MTU;
+
+    /**
+     * Конструктор
+     *
+     * @param device устройство
+     */
+    ReplayRxBleConnection(ReplayRxBleDevice device) {
+        mDevice = device;
+    }
+
+    /**
+     * Получить подключение в виде {@link RxBleConnection}
+     *
+     * @return подключение
+     */
+    RxBleConnection asRxBleConnection() {
+        return (RxBleConnection) Proxy.newProxyInstance(
+                RxBleConnection.class.getClassLoader(),
+                new Class<?>[]{RxBleConnection.class},
+                this
+        );
+    }
+
+    /**
+     * Проверить, что приложение слушает уведомления характеристики
+     *
+     * @param characteristic UUID характеристики
+     * @return {@code true}, если у уведомлений есть подписчик
+     */
+    boolean isSubscribed(UUID characteristic) {
+        Subject<byte[]> subject = mNotificationSubjects.get(characteristic);
+        return subject != null && subject.hasObservers();
+    }
+
+    /**
+     * Отправить уведомление подписчикам характеристики
+     *
+     * @param characteristic UUID характеристики
+     * @param value          уведомление
+     * @return {@code true}, если у уведомления были подписчики
+     */
+    boolean notify(UUID characteristic, byte[] value) {
+        Subject<byte[]> subject = mNotificationSubjects.get(characteristic);
+
+        if (subject == null || !subject.hasObservers()) {
+            return false;
+        }
+
+        subject.onNext(value);
+        return true;
+    }
+
+    /**
+     * Закрыть подключение
+     *
+     * @param error ошибка разрыва или {@code null} при штатном отключении
+     */
+    void close(Throwable error) {
+        for (Subject<byte[]> subject : mNotificationSubjects.values()) {
+            if (error == null) {
+                subject.onComplete();
+            } else {
+                subject.onError(error);
+            }
+        }
+
+        mNotificationSubjects.clear();
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "setupNotification":
+            case "setupIndication":
+                if (args.length == 1 && args[0] instanceof UUID) {
+                    return setupNotification((UUID) args[0]);
+                }
+                break;
+            case "writeCharacteristic":
+                if (args.length == 2 && args[0] instanceof UUID) {
+                    return writeCharacteristic((UUID) args[0], (byte[]) args[1]);
+                }
+                break;
+            case "requestMtu":
+                return Single.fromCallable(() -> mMtu = (Integer) args[0]);
+            case "getMtu":
+                return mMtu;
+            case "readRssi":
+                return Single.just(RSSI);
+            case "requestConnectionPriority":
+                return Completable.complete();
+            case "toString":
+                return "ReplayRxBleConnection{" + mDevice.getMacAddress() + "}";
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            default:
+                break;
+        }
+
+        throw new UnsupportedOperationException("Not replayed: " + method.toGenericString());
+    }
+
+    /**
+     * Включить уведомления
+     * Устройство узнает о подписке уже после того, как подписчик добавлен, поэтому первое уведомление не теряется
+     *
+     * @param characteristic UUID характеристики
+     * @return возвращает источник, который выдает источник уведомлений
+     */
+    private Observable<Observable<byte[]>> setupNotification(UUID characteristic) {
+        return Observable.fromCallable(() -> {
+            Subject<byte[]> created = PublishSubject.<byte[]>create().toSerialized();
+            Subject<byte[]> existing = mNotificationSubjects.putIfAbsent(characteristic, created);
+            Subject<byte[]> subject = existing != null ? existing : created;
+
+            return Observable.<byte[]>unsafeCreate(observer -> {
+                subject.subscribe(observer);
+                mDevice.schedule();
+            });
+        }).concatWith(Observable.never());
+    }
+
+    private Single<byte[]> writeCharacteristic(UUID characteristic, byte[] value) {
+        return Single.fromCallable(() -> {
+            byte[] copy = value.clone();
+            mDevice.onWrite(characteristic, copy);
+            return copy;
+        });
+    }
+
+}
@@ -0,0 +1,375 @@
+package ru.projectsos.projectsos.replay;
+
+import android.bluetooth.BluetoothDevice;
+import android.support.annotation.NonNull;
+
+import com.polidea.rxandroidble2.RxBleConnection;
+import com.polidea.rxandroidble2.RxBleDevice;
+import com.polidea.rxandroidble2.Timeout;
+import com.polidea.rxandroidble2.exceptions.BleAlreadyConnectedException;
+import com.polidea.rxandroidble2.exceptions.BleDisconnectedException;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.Observable;
+import io.reactivex.ObservableEmitter;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.subjects.BehaviorSubject;
+import ru.projectsos.projectsos.data.capture.CaptureEvent;
+import ru.projectsos.projectsos.data.capture.CaptureRecord;
+
+import static dagger.internal.Preconditions.checkNotNull;
+
+/**
+ * Воспроизводимое устройство: проигрывает события одного устройства из записи
+ * <p>
+ * Запись — это разговор, и устройство ведет его по очереди: подключение ждет, пока приложение подключится,
+ * включение уведомлений — пока оно подпишется, а запись, на которую браслет ответил уведомлением в ту же
+ * характеристику, — пока приложение запишет в нее. Остальные записи (пинги, команды датчиков) ответов не ждут и
+ * пропускаются. Уведомления выдаются со сдвигом от последнего дождавшегося события, как в записи, или сразу.
+ * Разрыв с ошибкой воспроизводится, штатное отключение — дело приложения
+ * <p>
+ * Все шаги выполняются на планировщике воспроизведения и по одному
+ */
+final class ReplayRxBleDevice implements RxBleDevice {
+
+    private static final String NAME = "MI Band 2";
+
+    private final String mMacAddress;
+    private final CaptureReplay mReplay;
+    private final List<CaptureRecord> mScript;
+    private final boolean[] mAwaitsWrite;
+    private final Map<UUID, Queue<byte[]>> mWrites = new HashMap<>();
+    private final BehaviorSubject<RxBleConnection.RxBleConnectionState> mStateSubject;
+    private final AtomicInteger mWip = new AtomicInteger();
+
+    private ObservableEmitter<RxBleConnection> mEmitter;
+    private ReplayRxBleConnection mConnection;
+    private Disposable mTimer;
+    private int mPosition;
+    private long mAnchorRecordedNanos;
+    private long mAnchorNanos;
+    private boolean mFinished;
+
+    /**
+     * Конструктор
+     *
+     * @param macAddress MAC адрес
+     * @param script     события устройства в порядке записи
+     * @param replay     воспроизведение, которому устройство сообщает о ходе
+     */
+    ReplayRxBleDevice(@NonNull String macAddress, @NonNull List<CaptureRecord> script, @NonNull CaptureReplay replay) {
+        mMacAddress = checkNotNull(macAddress, "MAC address is required");
+        mScript = checkNotNull(script, "Script is required");
+        mReplay = checkNotNull(replay, "CaptureReplay is required");
+        mStateSubject = BehaviorSubject.createDefault(RxBleConnection.RxBleConnectionState.DISCONNECTED);
+        mAwaitsWrite = new boolean[script.size()];
+
+        for (int i = 0; i < script.size(); i++) {
+            CaptureRecord record = script.get(i);
+
+            if (record.getEvent() == CaptureEvent.WRITE && isAnswered(i)) {
+                mAwaitsWrite[i] = true;
+                mWrites.put(record.getCharacteristic(), new ArrayDeque<>());
+            }
+        }
+    }
+
+    /**
+     * Получить количество событий, которые еще не проиграны
+     *
+     * @return количество событий
+     */
+    synchronized int getRemaining() {
+        return mScript.size() - mPosition;
+    }
+
+    /**
+     * Запланировать следующие шаги
+     */
+    void schedule() {
+        mReplay.getScheduler().scheduleDirect(this::drain);
+    }
+
+    /**
+     * Учесть запись приложения
+     *
+     * @param characteristic UUID характеристики
+     * @param value          значение
+     */
+    void onWrite(UUID characteristic, byte[] value) {
+        synchronized (this) {
+            Queue<byte[]> writes = mWrites.get(characteristic);
+
+            if (writes == null) {
+                return;
+            }
+
+            writes.add(value);
+        }
+
+        schedule();
+    }
+
+    @Override
+    public Observable<RxBleConnection.RxBleConnectionState> observeConnectionStateChanges() {
+        return mStateSubject.distinctUntilChanged();
+    }
+
+    @Override
+    public RxBleConnection.RxBleConnectionState getConnectionState() {
+        return mStateSubject.getValue();
+    }
+
+    @Override
+    public Observable<RxBleConnection> establishConnection(boolean autoConnect) {
+        return Observable.create(emitter -> {
+            ReplayRxBleConnection connection = new ReplayRxBleConnection(this);
+
+            synchronized (this) {
+                if (mEmitter != null) {
+                    emitter.onError(new BleAlreadyConnectedException(mMacAddress));
+                    return;
+                }
+
+                mEmitter = emitter;
+                mConnection = connection;
+            }
+
+            emitter.setCancellable(() -> onDisconnected(emitter, null));
+            mStateSubject.onNext(RxBleConnection.RxBleConnectionState.CONNECTED);
+            emitter.onNext(connection.asRxBleConnection());
+            schedule();
+        });
+    }
+
+    @Override
+    public Observable<RxBleConnection> establishConnection(boolean autoConnect, Timeout operationTimeout) {
+        return establishConnection(autoConnect);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String getMacAddress() {
+        return mMacAddress;
+    }
+
+    /**
+     * У воспроизводимого устройства нет системного {@link BluetoothDevice}
+     *
+     * @return {@code null}
+     */
+    @Override
+    public BluetoothDevice getBluetoothDevice() {
+        return null;
+    }
+
+    /**
+     * Проверить, ответил ли браслет на запись уведомлением в ту же характеристику до следующей записи в нее
+     *
+     * @param index номер записи в сценарии
+     * @return {@code true}, если запись нужно дождаться
+     */
+    private boolean isAnswered(int index) {
+        UUID characteristic = mScript.get(index).getCharacteristic();
+
+        for (int i = index + 1; i < mScript.size(); i++) {
+            CaptureRecord record = mScript.get(i);
+
+            if (record.getEvent() == CaptureEvent.DISCONNECTED) {
+                return false;
+            }
+
+            if (characteristic.equals(record.getCharacteristic())) {
+                if (record.getEvent() == CaptureEvent.WRITE) {
+                    return false;
+                }
+
+                if (record.getEvent() == CaptureEvent.NOTIFICATION) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Проиграть все, что можно проиграть сейчас
+     * Вызовы с разных потоков не пересекаются: шаги выполняет только первый, остальные просят его повторить
+     */
+    private void drain() {
+        if (mWip.getAndIncrement() != 0) {
+            return;
+        }
+
+        do {
+            while (step()) {
+                // Проигрывать, пока сценарий не упрется в ожидание
+            }
+        } while (mWip.decrementAndGet() != 0);
+    }
+
+    /**
+     * Проиграть одно событие
+     * Уведомления и разрывы выполняются вне блокировки: подписчики приложения получают их синхронно
+     *
+     * @return {@code true}, если можно сразу проиграть следующее событие
+     */
+    private boolean step() {
+        Runnable action;
+
+        synchronized (this) {
+            if (mPosition == mScript.size()) {
+                if (!mFinished) {
+                    mFinished = true;
+                    mReplay.onFinished();
+                }
+
+                return false;
+            }
+
+            CaptureRecord record = mScript.get(mPosition);
+            long nowNanos = mReplay.getScheduler().now(TimeUnit.NANOSECONDS);
+
+            switch (record.getEvent()) {
+                case CONNECTED:
+                    if (mConnection == null) {
+                        return false;
+                    }
+
+                    pass(record, nowNanos);
+                    return true;
+                case NOTIFICATION_SETUP:
+                    if (mConnection == null || !mConnection.isSubscribed(record.getCharacteristic())) {
+                        return false;
+                    }
+
+                    pass(record, nowNanos);
+                    return true;
+                case WRITE:
+                    if (!mAwaitsWrite[mPosition]) {
+                        mPosition++;
+                        return true;
+                    }
+
+                    byte[] written = mWrites.get(record.getCharacteristic()).poll();
+
+                    if (written == null) {
+                        return false;
+                    }
+
+                    mReplay.onWrite(sameCommand(record.getValue(), written));
+                    pass(record, nowNanos);
+                    return true;
+                case NOTIFICATION:
+                    long delayNanos = mReplay.getSpeed() == CaptureReplay.Speed.MAX
+                            ? 0
+                            : mAnchorNanos + record.getTimestampNanos() - mAnchorRecordedNanos - nowNanos;
+
+                    if (delayNanos > 0) {
+                        scheduleTimer(delayNanos);
+                        return false;
+                    }
+
+                    mPosition++;
+                    ReplayRxBleConnection connection = mConnection;
+                    action = () -> mReplay.onNotification(connection != null && connection.notify(record.getCharacteristic(), record.getValue()));
+                    break;
+                case DISCONNECTED:
+                    mPosition++;
+
+                    if (!record.isError()) {
+                        return true;
+                    }
+
+                    action = this::disconnectWithError;
+                    break;
+                default:
+                    mPosition++;
+                    return true;
+            }
+        }
+
+        action.run();
+        return true;
+    }
+
+    /**
+     * Пройти дождавшееся событие и отсчитывать время следующих от него
+     *
+     * @param record   событие
+     * @param nowNanos текущее время
+     */
+    private void pass(CaptureRecord record, long nowNanos) {
+        mAnchorRecordedNanos = record.getTimestampNanos();
+        mAnchorNanos = nowNanos;
+        mPosition++;
+    }
+
+    private void scheduleTimer(long delayNanos) {
+        if (mTimer != null && !mTimer.isDisposed()) {
+            return;
+        }
+
+        mTimer = mReplay.getScheduler().scheduleDirect(() -> {
+            synchronized (this) {
+                mTimer = null;
+            }
+
+            drain();
+        }, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static boolean sameCommand(byte[] recorded, byte[] written) {
+        return recorded.length == 0 ? written.length == 0 : written.length > 0 && recorded[0] == written[0];
+    }
+
+    private void disconnectWithError() {
+        ObservableEmitter<RxBleConnection> emitter;
+
+        synchronized (this) {
+            emitter = mEmitter;
+        }
+
+        if (emitter != null) {
+            BleDisconnectedException error = new BleDisconnectedException(mMacAddress);
+            onDisconnected(emitter, error);
+            emitter.tryOnError(error);
+        }
+    }
+
+    private void onDisconnected(ObservableEmitter<RxBleConnection> emitter, Throwable error) {
+        ReplayRxBleConnection connection;
+
+        synchronized (this) {
+            if (mEmitter != emitter) {
+                return;
+            }
+
+            connection = mConnection;
+            mConnection = null;
+            mEmitter = null;
+        }
+
+        mStateSubject.onNext(RxBleConnection.RxBleConnectionState.DISCONNECTING);
+
+        if (connection != null) {
+            connection.close(error);
+        }
+
+        mStateSubject.onNext(RxBleConnection.RxBleConnectionState.DISCONNECTED);
+    }
+
+}
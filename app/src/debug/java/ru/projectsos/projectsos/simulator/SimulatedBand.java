@@ -0,0 +1,477 @@
+package ru.projectsos.projectsos.simulator;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+
+import ru.projectsos.projectsos.data.activity.ActivityTime;
+
+import static dagger.internal.Preconditions.checkNotNull;
+import static ru.projectsos.projectsos.data.ActivityConstants.ACTIVITY_COUNT_OFFSET;
+import static ru.projectsos.projectsos.data.ActivityConstants.ACTIVITY_FETCH_CHAR;
+import static ru.projectsos.projectsos.data.ActivityConstants.ACTIVITY_METADATA_LENGTH;
+import static ru.projectsos.projectsos.data.ActivityConstants.ACTIVITY_RECORD_INTERVAL_MILLIS;
+import static ru.projectsos.projectsos.data.ActivityConstants.ACTIVITY_RECORD_LENGTH;
+import static ru.projectsos.projectsos.data.ActivityConstants.ACTIVITY_RESPONSE;
+import static ru.projectsos.projectsos.data.ActivityConstants.ACTIVITY_START_COMMAND;
+import static ru.projectsos.projectsos.data.ActivityConstants.ACTIVITY_SUCCESS;
+import static ru.projectsos.projectsos.data.ActivityConstants.ACTIVITY_TIME_OFFSET;
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_CHAR;
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_FAIL;
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_REQUEST_RANDOM_KEY_COMMAND;
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_RESPONSE;
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_SEND_ENCRYPTED_KEY_COMMAND;
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_SEND_SECRET_KEY_COMMAND;
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_SUCCESS;
+import static ru.projectsos.projectsos.data.HeartRateConstants.HEART_RATE_COMMAND;
+import static ru.projectsos.projectsos.data.HeartRateConstants.HEART_RATE_CONTROL_POINT_CHAR;
+import static ru.projectsos.projectsos.data.HeartRateConstants.HEART_RATE_ENABLE;
+import static ru.projectsos.projectsos.data.HeartRateConstants.HEART_RATE_MODE_CONTINUOUS;
+import static ru.projectsos.projectsos.data.HeartRateConstants.HEART_RATE_PING_COMMAND;
+import static ru.projectsos.projectsos.data.SensorConstants.ACCELEROMETER_COUNTS_PER_G;
+import static ru.projectsos.projectsos.data.SensorConstants.SENSOR_CONTROL_CHAR;
+import static ru.projectsos.projectsos.data.SensorConstants.SENSOR_ENABLE_COMMAND;
+import static ru.projectsos.projectsos.data.SensorConstants.SENSOR_FRAME_ACCELEROMETER;
+import static ru.projectsos.projectsos.data.SensorConstants.SENSOR_FRAME_HEADER_LENGTH;
+import static ru.projectsos.projectsos.data.SensorConstants.SENSOR_SAMPLE_LENGTH;
+import static ru.projectsos.projectsos.data.SensorConstants.SENSOR_START_COMMAND;
+import static ru.projectsos.projectsos.data.SensorConstants.SENSOR_STOP_COMMAND;
+import static ru.projectsos.projectsos.data.SosConstants.ALERT_LEVEL_CHAR;
+import static ru.projectsos.projectsos.data.SosConstants.DEVICE_EVENT_BUTTON_PRESSED;
+
+/**
+ * Протокольная модель браслета Mi Band 2
+ * Отвечает на команды характеристики {@link ru.projectsos.projectsos.data.AuthConstants#AUTH_CHAR}
+ * так же, как настоящий браслет (см. {@link ru.projectsos.projectsos.data.AuthConstants}), и меряет пульс
+ * по командам {@link ru.projectsos.projectsos.data.HeartRateConstants#HEART_RATE_CONTROL_POINT_CHAR}
+ * <p>
+ * Акселерометр по командам {@link ru.projectsos.projectsos.data.SensorConstants#SENSOR_CONTROL_CHAR} выдает
+ * покой руки с шумом, а после {@link #fall()} — падение: невесомость, удар, отскоки и покой на боку
+ * <p>
+ * Нажатие кнопки сообщается событием {@link ru.projectsos.projectsos.data.SosConstants#DEVICE_EVENT_BUTTON_PRESSED},
+ * а запись в {@link ru.projectsos.projectsos.data.SosConstants#ALERT_LEVEL_CHAR} считается вибрацией
+ * <p>
+ * История активности ведется поминутно с момента создания браслета минус {@link #ACTIVITY_HISTORY_MILLIS}
+ */
+public final class SimulatedBand {
+
+    private static final int KEY_LENGTH = 16;
+    private static final int KEY_OFFSET = 2;
+
+    private static final long HEART_RATE_TIMEOUT_MILLIS = 15_000;
+    private static final int MIN_BPM = 50;
+    private static final int MAX_BPM = 150;
+
+    private static final int SAMPLES_PER_FRAME = 3;
+    private static final int ACCELEROMETER_NOISE = 8;
+    private static final int FREE_FALL_SAMPLES = 8;
+    private static final int IMPACT_SAMPLES = 2;
+    private static final int BOUNCE_SAMPLES = 6;
+
+    /**
+     * Глубина истории активности, которая уже лежит в браслете при создании
+     */
+    static final long ACTIVITY_HISTORY_MILLIS = TimeUnit.DAYS.toMillis(2);
+
+    private final String mMacAddress;
+    private final SimulatorConfig mConfig;
+    private final long mActivityOriginMillis;
+
+    private byte[] mSecretKey;
+    private byte[] mRandomKey;
+    private boolean mAuthenticated;
+    private boolean mHeartRateContinuous;
+    private long mHeartRateDeadlineMillis;
+    private int mBpm = 70;
+    private long mFetchStartMillis;
+    private int mFetchCount;
+    private boolean mSensorEnabled;
+    private boolean mSensorStreaming;
+    private int mSensorCounter;
+    private int mFallSample = -1;
+    private boolean mLying;
+    private int mAlerts;
+
+    /**
+     * Конструктор
+     *
+     * @param macAddress MAC адрес
+     * @param config     настройки симулятора
+     */
+    public SimulatedBand(@NonNull String macAddress, @NonNull SimulatorConfig config) {
+        mMacAddress = checkNotNull(macAddress, "MAC address is required");
+        mConfig = checkNotNull(config, "SimulatorConfig is required");
+        mActivityOriginMillis = floorMinute(now() - ACTIVITY_HISTORY_MILLIS);
+    }
+
+    /**
+     * Получить MAC адрес
+     *
+     * @return MAC адрес
+     */
+    public String getMacAddress() {
+        return mMacAddress;
+    }
+
+    /**
+     * Проверить, что браслет прошел аутентификацию в текущем подключении
+     *
+     * @return {@code true} если аутентифицирован
+     */
+    public synchronized boolean isAuthenticated() {
+        return mAuthenticated;
+    }
+
+    /**
+     * Проверить, что браслету уже передан секретный ключ (сопряжение состоялось)
+     *
+     * @return {@code true} если секретный ключ сохранен
+     */
+    public synchronized boolean isPaired() {
+        return mSecretKey != null;
+    }
+
+    /**
+     * Забыть секретный ключ, как после сброса браслета
+     */
+    public synchronized void reset() {
+        mSecretKey = null;
+        mRandomKey = null;
+        mAuthenticated = false;
+    }
+
+    /**
+     * Сбросить состояние текущего подключения
+     */
+    synchronized void onDisconnected() {
+        mRandomKey = null;
+        mAuthenticated = false;
+        mHeartRateContinuous = false;
+        mSensorEnabled = false;
+        mSensorStreaming = false;
+    }
+
+    /**
+     * Уронить браслет вместе с рукой
+     * Падение начнется со следующего замера акселерометра, после него рука останется лежать на боку
+     */
+    public synchronized void fall() {
+        mFallSample = 0;
+    }
+
+    /**
+     * Поднять руку в исходное положение
+     */
+    public synchronized void standUp() {
+        mFallSample = -1;
+        mLying = false;
+    }
+
+    /**
+     * Нажать кнопку браслета
+     * Браслет сообщает о нажатии только после аутентификации
+     *
+     * @return уведомление о нажатии или {@code null}
+     */
+    @Nullable
+    synchronized byte[] pressButton() {
+        return mAuthenticated ? new byte[]{DEVICE_EVENT_BUTTON_PRESSED} : null;
+    }
+
+    /**
+     * Получить количество вибраций с создания браслета
+     *
+     * @return количество записей ненулевого уровня оповещения
+     */
+    public synchronized int getAlerts() {
+        return mAlerts;
+    }
+
+    /**
+     * Измерить ускорение, если запущен поток акселерометра
+     *
+     * @return уведомление с замерами или {@code null}
+     */
+    @Nullable
+    synchronized byte[] nextAccelerometerFrame() {
+        if (!mSensorStreaming) {
+            return null;
+        }
+
+        byte[] frame = new byte[SENSOR_FRAME_HEADER_LENGTH + SAMPLES_PER_FRAME * SENSOR_SAMPLE_LENGTH];
+        frame[0] = SENSOR_FRAME_ACCELEROMETER;
+        frame[1] = (byte) mSensorCounter++;
+
+        for (int i = 0, offset = SENSOR_FRAME_HEADER_LENGTH; i < SAMPLES_PER_FRAME; i++, offset += SENSOR_SAMPLE_LENGTH) {
+            float[] g = nextAcceleration();
+            putShort(frame, offset, g[0]);
+            putShort(frame, offset + 2, g[1]);
+            putShort(frame, offset + 4, g[2]);
+        }
+
+        return frame;
+    }
+
+    /**
+     * Ускорение очередного замера по осям в g
+     *
+     * @return ускорение
+     */
+    private float[] nextAcceleration() {
+        if (mFallSample < 0) {
+            return mLying ? new float[]{1, 0, 0} : new float[]{0, 0, 1};
+        }
+
+        int sample = mFallSample++;
+
+        if (sample < FREE_FALL_SAMPLES) {
+            return new float[]{0.05f, 0.1f, 0.1f};
+        }
+
+        if (sample < FREE_FALL_SAMPLES + IMPACT_SAMPLES) {
+            return new float[]{3.2f, 1.5f, -1.8f};
+        }
+
+        if (sample < FREE_FALL_SAMPLES + IMPACT_SAMPLES + BOUNCE_SAMPLES) {
+            return new float[]{1.4f, 0.6f, sample % 2 == 0 ? 0.5f : -0.5f};
+        }
+
+        mFallSample = -1;
+        mLying = true;
+        return new float[]{1, 0, 0};
+    }
+
+    private void putShort(byte[] frame, int offset, float g) {
+        int value = Math.round(g * ACCELEROMETER_COUNTS_PER_G) + mConfig.nextInt(2 * ACCELEROMETER_NOISE + 1) - ACCELEROMETER_NOISE;
+        frame[offset] = (byte) value;
+        frame[offset + 1] = (byte) (value >> 8);
+    }
+
+    /**
+     * Измерить пульс, если идет непрерывное измерение
+     * Без пинга браслет прекращает измерение через 15 секунд
+     *
+     * @return уведомление с пульсом или {@code null}
+     */
+    @Nullable
+    synchronized byte[] nextHeartRateMeasurement() {
+        if (!mHeartRateContinuous || now() > mHeartRateDeadlineMillis) {
+            mHeartRateContinuous = false;
+            return null;
+        }
+
+        mBpm = Math.max(MIN_BPM, Math.min(MAX_BPM, mBpm + mConfig.nextInt(5) - 2));
+        return new byte[]{0x00, (byte) mBpm};
+    }
+
+    /**
+     * Обработать запись в характеристику
+     *
+     * @param characteristic UUID характеристики
+     * @param value          записанные байты
+     * @return уведомление в ответ или {@code null}, если браслет молчит
+     */
+    @Nullable
+    synchronized byte[] onWrite(UUID characteristic, byte[] value) {
+        if (HEART_RATE_CONTROL_POINT_CHAR.equals(characteristic)) {
+            onHeartRateControl(value);
+            return null;
+        }
+
+        if (ACTIVITY_FETCH_CHAR.equals(characteristic)) {
+            return onActivityControl(value);
+        }
+
+        if (SENSOR_CONTROL_CHAR.equals(characteristic)) {
+            onSensorControl(value);
+            return null;
+        }
+
+        if (ALERT_LEVEL_CHAR.equals(characteristic)) {
+            if (value != null && value.length > 0 && value[0] != 0) {
+                mAlerts++;
+            }
+
+            return null;
+        }
+
+        if (!AUTH_CHAR.equals(characteristic) || value == null || value.length < 2) {
+            return null;
+        }
+
+        switch (value[0]) {
+            case AUTH_SEND_SECRET_KEY_COMMAND:
+                return onSendSecretKey(value);
+            case AUTH_REQUEST_RANDOM_KEY_COMMAND:
+                return onRequestRandomKey();
+            case AUTH_SEND_ENCRYPTED_KEY_COMMAND:
+                return onSendEncryptedKey(value);
+            default:
+                return null;
+        }
+    }
+
+    private void onHeartRateControl(byte[] value) {
+        if (!mAuthenticated || value == null || value.length == 0) {
+            return;
+        }
+
+        if (value[0] == HEART_RATE_PING_COMMAND) {
+            mHeartRateDeadlineMillis = now() + HEART_RATE_TIMEOUT_MILLIS;
+        } else if (value.length == 3 && value[0] == HEART_RATE_COMMAND && value[1] == HEART_RATE_MODE_CONTINUOUS) {
+            mHeartRateContinuous = value[2] == HEART_RATE_ENABLE;
+            mHeartRateDeadlineMillis = now() + HEART_RATE_TIMEOUT_MILLIS;
+        }
+    }
+
+    private void onSensorControl(byte[] value) {
+        if (!mAuthenticated || value == null || value.length == 0) {
+            return;
+        }
+
+        if (Arrays.equals(value, SENSOR_ENABLE_COMMAND)) {
+            mSensorEnabled = true;
+        } else if (value[0] == SENSOR_START_COMMAND) {
+            mSensorStreaming = mSensorEnabled;
+        } else if (value[0] == SENSOR_STOP_COMMAND) {
+            mSensorStreaming = false;
+        }
+    }
+
+    /**
+     * Выдать запрошенную историю активности пакетами
+     * Вызывается после команды передачи данных, повторный вызов вернет пустой список
+     *
+     * @param payload максимальный размер уведомления
+     * @return пакеты для {@link ru.projectsos.projectsos.data.ActivityConstants#ACTIVITY_DATA_CHAR}
+     */
+    synchronized List<byte[]> fetchActivity(int payload) {
+        int recordsPerPacket = Math.max(1, (payload - 1) / ACTIVITY_RECORD_LENGTH);
+        long firstMinute = mFetchStartMillis / ACTIVITY_RECORD_INTERVAL_MILLIS;
+        List<byte[]> packets = new ArrayList<>();
+
+        for (int record = 0; record < mFetchCount; record += recordsPerPacket) {
+            int count = Math.min(recordsPerPacket, mFetchCount - record);
+            byte[] packet = new byte[1 + count * ACTIVITY_RECORD_LENGTH];
+            packet[0] = (byte) packets.size();
+
+            for (int i = 0; i < count; i++) {
+                long minute = firstMinute + record + i;
+                int offset = 1 + i * ACTIVITY_RECORD_LENGTH;
+                packet[offset] = 1;
+                packet[offset + 1] = (byte) (minute % 100);
+                packet[offset + 2] = (byte) (minute * 7 % 50);
+                packet[offset + 3] = (byte) 0xFF;
+            }
+
+            packets.add(packet);
+        }
+
+        mFetchCount = 0;
+        return packets;
+    }
+
+    private byte[] onActivityControl(byte[] value) {
+        if (!mAuthenticated || value == null || value.length < 2 + ActivityTime.REQUEST_LENGTH
+                || value[0] != ACTIVITY_START_COMMAND) {
+            return null;
+        }
+
+        // В запросе нет секунд: время ответа — то же время с нулевой секундой
+        byte[] since = new byte[ActivityTime.RESPONSE_LENGTH];
+        System.arraycopy(value, 2, since, 0, ActivityTime.REQUEST_LENGTH - 1);
+        since[ActivityTime.RESPONSE_LENGTH - 1] = value[2 + ActivityTime.REQUEST_LENGTH - 1];
+
+        mFetchStartMillis = Math.max(floorMinute(ActivityTime.decodeResponse(since, 0)), mActivityOriginMillis);
+        mFetchCount = (int) Math.max(0, (floorMinute(now()) - mFetchStartMillis) / ACTIVITY_RECORD_INTERVAL_MILLIS);
+
+        byte[] start = new byte[ActivityTime.REQUEST_LENGTH];
+        ActivityTime.encodeRequest(mFetchStartMillis, TimeZone.getDefault(), start, 0);
+
+        byte[] response = new byte[ACTIVITY_METADATA_LENGTH];
+        response[0] = ACTIVITY_RESPONSE;
+        response[1] = ACTIVITY_START_COMMAND;
+        response[2] = ACTIVITY_SUCCESS;
+        response[ACTIVITY_COUNT_OFFSET] = (byte) mFetchCount;
+        response[ACTIVITY_COUNT_OFFSET + 1] = (byte) (mFetchCount >> 8);
+        response[ACTIVITY_COUNT_OFFSET + 2] = (byte) (mFetchCount >> 16);
+        response[ACTIVITY_COUNT_OFFSET + 3] = (byte) (mFetchCount >> 24);
+        System.arraycopy(start, 0, response, ACTIVITY_TIME_OFFSET, ActivityTime.REQUEST_LENGTH - 1);
+        response[ACTIVITY_TIME_OFFSET + ActivityTime.RESPONSE_LENGTH - 1] = start[ActivityTime.REQUEST_LENGTH - 1];
+        return response;
+    }
+
+    private static long floorMinute(long millis) {
+        return millis - millis % ACTIVITY_RECORD_INTERVAL_MILLIS;
+    }
+
+    private long now() {
+        return mConfig.getScheduler().now(TimeUnit.MILLISECONDS);
+    }
+
+    private byte[] onSendSecretKey(byte[] value) {
+        if (value.length != KEY_OFFSET + KEY_LENGTH || mConfig.nextAuthFailure()) {
+            return response(AUTH_SEND_SECRET_KEY_COMMAND, AUTH_FAIL);
+        }
+
+        mSecretKey = Arrays.copyOfRange(value, KEY_OFFSET, KEY_OFFSET + KEY_LENGTH);
+        return response(AUTH_SEND_SECRET_KEY_COMMAND, AUTH_SUCCESS);
+    }
+
+    private byte[] onRequestRandomKey() {
+        if (mConfig.nextAuthFailure()) {
+            return response(AUTH_REQUEST_RANDOM_KEY_COMMAND, AUTH_FAIL);
+        }
+
+        mRandomKey = new byte[KEY_LENGTH];
+        mConfig.nextBytes(mRandomKey);
+
+        byte[] response = new byte[3 + KEY_LENGTH];
+        response[0] = AUTH_RESPONSE;
+        response[1] = AUTH_REQUEST_RANDOM_KEY_COMMAND;
+        response[2] = AUTH_SUCCESS;
+        System.arraycopy(mRandomKey, 0, response, 3, KEY_LENGTH);
+        return response;
+    }
+
+    private byte[] onSendEncryptedKey(byte[] value) {
+        boolean valid = value.length == KEY_OFFSET + KEY_LENGTH
+                && mSecretKey != null
+                && mRandomKey != null
+                && Arrays.equals(encrypt(mSecretKey, mRandomKey), Arrays.copyOfRange(value, KEY_OFFSET, KEY_OFFSET + KEY_LENGTH));
+
+        mRandomKey = null;
+
+        if (!valid || mConfig.nextAuthFailure()) {
+            return response(AUTH_SEND_ENCRYPTED_KEY_COMMAND, AUTH_FAIL);
+        }
+
+        mAuthenticated = true;
+        return response(AUTH_SEND_ENCRYPTED_KEY_COMMAND, AUTH_SUCCESS);
+    }
+
+    private static byte[] response(byte command, byte result) {
+        return new byte[]{AUTH_RESPONSE, command, result};
+    }
+
+    private static byte[] encrypt(byte[] key, byte[] message) {
+        try {
+            Cipher cipher = Cipher.getInstance("AES/ECB/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "AES"));
+            return cipher.doFinal(message);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("AES is not available", e);
+        }
+    }
+
+}
@@ -0,0 +1,192 @@
+package ru.projectsos.projectsos.simulator;
+
+import android.support.annotation.NonNull;
+
+import com.polidea.rxandroidble2.RxBleClient;
+import com.polidea.rxandroidble2.RxBleDevice;
+import com.polidea.rxandroidble2.RxBleScanResult;
+import com.polidea.rxandroidble2.scan.ScanCallbackType;
+import com.polidea.rxandroidble2.scan.ScanFilter;
+import com.polidea.rxandroidble2.scan.ScanRecord;
+import com.polidea.rxandroidble2.scan.ScanResult;
+import com.polidea.rxandroidble2.scan.ScanSettings;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import io.reactivex.Observable;
+
+import static dagger.internal.Preconditions.checkNotNull;
+
+/**
+ * Симулированный Bluetooth LE клиент
+ * Заменяет {@link RxBleClient#create(android.content.Context)} там, где нужен повторяемый прогон без браслета:
+ * на обычной JVM, в бенчмарках и при отладке протокола
+ */
+public final class SimulatedRxBleClient extends RxBleClient {
+
+    private static final String BAND_NAME = "MI Band 2";
+    private static final String OTHER_NAME = "Other";
+    private static final String BAND_MAC_PREFIX = "C0:00:00:00";
+    private static final String OTHER_MAC_PREFIX = "D0:00:00:00";
+    private static final int MI_BAND_SERVICE_16_BIT = 0xFEE0;
+    private static final int BATTERY_SERVICE_16_BIT = 0x180F;
+    private static final int MAX_BASE_RSSI = -40;
+    private static final int MIN_BASE_RSSI = -95;
+    private static final int RSSI_NOISE = 6;
+
+    private final SimulatorConfig mConfig;
+    private final ConcurrentMap<String, SimulatedRxBleDevice> mDevices = new ConcurrentHashMap<>();
+    private final List<Advertiser> mAdvertisers = new ArrayList<>();
+
+    /**
+     * Конструктор
+     *
+     * @param config настройки симулятора
+     */
+    public SimulatedRxBleClient(@NonNull SimulatorConfig config) {
+        mConfig = checkNotNull(config, "SimulatorConfig is required");
+
+        ScanRecord bandRecord = new SimulatedScanRecord(BAND_NAME, MI_BAND_SERVICE_16_BIT);
+        ScanRecord otherRecord = new SimulatedScanRecord(OTHER_NAME, BATTERY_SERVICE_16_BIT);
+
+        for (int i = 1; i <= config.getBandAdvertisers(); i++) {
+            mAdvertisers.add(new Advertiser(obtainDevice(macAddress(BAND_MAC_PREFIX, i)), bandRecord, nextBaseRssi()));
+        }
+
+        for (int i = 1; i <= config.getOtherAdvertisers(); i++) {
+            mAdvertisers.add(new Advertiser(obtainDevice(macAddress(OTHER_MAC_PREFIX, i)), otherRecord, nextBaseRssi()));
+        }
+    }
+
+    /**
+     * Получить MAC адрес браслета, который слышен при поиске
+     *
+     * @param index номер браслета от 1 до {@link SimulatorConfig.Builder#advertisers(int, int)}
+     * @return MAC адрес
+     */
+    public static String bandMacAddress(int index) {
+        return macAddress(BAND_MAC_PREFIX, index);
+    }
+
+    /**
+     * Получить симулированное устройство, создав его при первом обращении
+     *
+     * @param macAddress MAC адрес
+     * @return устройство
+     */
+    public SimulatedRxBleDevice obtainDevice(@NonNull String macAddress) {
+        checkNotNull(macAddress, "MAC address is required");
+
+        SimulatedRxBleDevice device = mDevices.get(macAddress);
+
+        if (device == null) {
+            SimulatedRxBleDevice created = new SimulatedRxBleDevice(new SimulatedBand(macAddress, mConfig), mConfig);
+            device = mDevices.putIfAbsent(macAddress, created);
+
+            if (device == null) {
+                device = created;
+            }
+        }
+
+        return device;
+    }
+
+    @Override
+    public RxBleDevice getBleDevice(@NonNull String macAddress) {
+        return obtainDevice(macAddress);
+    }
+
+    @Override
+    public Set<RxBleDevice> getBondedDevices() {
+        Set<RxBleDevice> bonded = new HashSet<>();
+
+        for (SimulatedRxBleDevice device : mDevices.values()) {
+            if (device.getBand().isPaired()) {
+                bonded.add(device);
+            }
+        }
+
+        return bonded;
+    }
+
+    /**
+     * Искать устройства
+     * Каждое устройство в зоне действия шлет рекламный пакет раз в период со случайным отклонением сигнала
+     * от своего среднего. Фильтры не соблюдаются, как на части прошивок
+     */
+    @Override
+    public Observable<ScanResult> scanBleDevices(ScanSettings scanSettings, ScanFilter... scanFilters) {
+        return Observable.interval(0, mConfig.getAdvertisingIntervalMillis(), mConfig.getTimeUnit(), mConfig.getScheduler())
+                .flatMapIterable(tick -> advertise());
+    }
+
+    /**
+     * Искать устройства через устаревший API
+     * Те же рекламные пакеты, что и в {@link #scanBleDevices(ScanSettings, ScanFilter...)}, с сырыми байтами записи.
+     * Фильтр по сервисам так же не соблюдается
+     */
+    @Override
+    @Deprecated
+    public Observable<RxBleScanResult> scanBleDevices(UUID... filterServiceUUIDs) {
+        return scanBleDevices(new ScanSettings.Builder().build())
+                .map(result -> new RxBleScanResult(result.getBleDevice(), result.getRssi(), result.getScanRecord().getBytes()));
+    }
+
+    @Override
+    public Observable<State> observeStateChanges() {
+        return Observable.never();
+    }
+
+    @Override
+    public State getState() {
+        return State.READY;
+    }
+
+    private List<ScanResult> advertise() {
+        List<ScanResult> results = new ArrayList<>(mAdvertisers.size());
+        long timestampNanos = System.nanoTime();
+
+        for (Advertiser advertiser : mAdvertisers) {
+            if (advertiser.mDevice.isInRange()) {
+                int rssi = advertiser.mBaseRssi + mConfig.nextInt(2 * RSSI_NOISE + 1) - RSSI_NOISE;
+                results.add(new ScanResult(advertiser.mDevice, rssi, timestampNanos,
+                        ScanCallbackType.CALLBACK_TYPE_ALL_MATCHES, advertiser.mRecord));
+            }
+        }
+
+        return results;
+    }
+
+    private int nextBaseRssi() {
+        return MAX_BASE_RSSI - mConfig.nextInt(MAX_BASE_RSSI - MIN_BASE_RSSI + 1);
+    }
+
+    private static String macAddress(String prefix, int index) {
+        return String.format(Locale.US, "%s:%02X:%02X", prefix, (index >>> 8) & 0xFF, index & 0xFF);
+    }
+
+    /**
+     * Устройство, которое слышно при поиске
+     */
+    private static final class Advertiser {
+
+        private final SimulatedRxBleDevice mDevice;
+        private final ScanRecord mRecord;
+        private final int mBaseRssi;
+
+        Advertiser(SimulatedRxBleDevice device, ScanRecord record, int baseRssi) {
+            mDevice = device;
+            mRecord = record;
+            mBaseRssi = baseRssi;
+        }
+
+    }
+
+}
@@ -0,0 +1,311 @@
+package ru.projectsos.projectsos.simulator;
+
+import android.bluetooth.BluetoothGatt;
+import android.support.annotation.NonNull;
+
+import com.polidea.rxandroidble2.RxBleConnection;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Completable;
+import io.reactivex.Observable;
+import io.reactivex.Single;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.subjects.PublishSubject;
+import io.reactivex.subjects.Subject;
+
+import static dagger.internal.Preconditions.checkNotNull;
+import static ru.projectsos.projectsos.data.ActivityConstants.ACTIVITY_DATA_CHAR;
+import static ru.projectsos.projectsos.data.ActivityConstants.ACTIVITY_FETCH_CHAR;
+import static ru.projectsos.projectsos.data.ActivityConstants.ACTIVITY_FETCH_COMMAND;
+import static ru.projectsos.projectsos.data.ActivityConstants.ACTIVITY_RESPONSE;
+import static ru.projectsos.projectsos.data.ActivityConstants.ACTIVITY_SUCCESS;
+import static ru.projectsos.projectsos.data.HeartRateConstants.HEART_RATE_CONTROL_POINT_CHAR;
+import static ru.projectsos.projectsos.data.HeartRateConstants.HEART_RATE_MEASUREMENT_CHAR;
+import static ru.projectsos.projectsos.data.SensorConstants.ACCELEROMETER_SAMPLE_RATE_HZ;
+import static ru.projectsos.projectsos.data.SensorConstants.SENSOR_CONTROL_CHAR;
+import static ru.projectsos.projectsos.data.SensorConstants.SENSOR_DATA_CHAR;
+
+/**
+ * Симулированное GATT подключение
+ * <p>
+ * Реализуется через {@link Proxy}, чтобы не зависеть от полного набора методов {@link RxBleConnection}
+ * в конкретной версии RxAndroidBle: поддерживается подмножество, которое использует приложение,
+ * остальные методы бросают {@link UnsupportedOperationException}
+ * <p>
+ * Выгрузка истории идет с темпом радиоканала: {@link #PACKETS_PER_CONNECTION_EVENT} уведомлений за интервал
+ * подключения, который зависит от запрошенного приоритета (верхние границы интервалов Android)
+ */
+final class SimulatedRxBleConnection implements InvocationHandler {
+
+    private static final int DEFAULT_MTU = 23;
+    private static final int MAX_MTU = 247;
+    private static final int RSSI = -60;
+    private static final int ATT_HEADER_LENGTH = 3;
+    private static final int PACKETS_PER_CONNECTION_EVENT = 4;
+    private static final long HIGH_INTERVAL_MICROS = 15_000;
+    private static final long BALANCED_INTERVAL_MICROS = 50_000;
+    private static final long LOW_POWER_INTERVAL_MICROS = 125_000;
+    private static final long ACCELEROMETER_FRAME_MICROS = 3_000_000L / ACCELEROMETER_SAMPLE_RATE_HZ;
+
+    private final SimulatedRxBleDevice mDevice;
+    private final SimulatedBand mBand;
+    private final SimulatorConfig mConfig;
+    private final ConcurrentMap<UUID, Subject<byte[]>> mNotificationSubjects = new ConcurrentHashMap<>();
+
+    private volatile int mMtu = DEFAULT_MTU;
+    private volatile int mPriority = BluetoothGatt.CONNECTION_PRIORITY_BALANCED;
+    private Disposable mHeartRateDisposable;
+    private Disposable mActivityDisposable;
+    private Disposable mAccelerometerDisposable;
+
+    private SimulatedRxBleConnection(SimulatedRxBleDevice device, SimulatedBand band, SimulatorConfig config) {
+        mDevice = device;
+        mBand = band;
+        mConfig = config;
+    }
+
+    /**
+     * Создать подключение
+     *
+     * @param device устройство
+     * @param band   модель браслета
+     * @param config настройки симулятора
+     * @return обработчик подключения
+     */
+    static SimulatedRxBleConnection create(@NonNull SimulatedRxBleDevice device,
+                                           @NonNull SimulatedBand band,
+                                           @NonNull SimulatorConfig config) {
+        return new SimulatedRxBleConnection(
+                checkNotNull(device, "SimulatedRxBleDevice is required"),
+                checkNotNull(band, "SimulatedBand is required"),
+                checkNotNull(config, "SimulatorConfig is required")
+        );
+    }
+
+    /**
+     * Получить подключение в виде {@link RxBleConnection}
+     *
+     * @return подключение
+     */
+    RxBleConnection asRxBleConnection() {
+        return (RxBleConnection) Proxy.newProxyInstance(
+                RxBleConnection.class.getClassLoader(),
+                new Class<?>[]{RxBleConnection.class},
+                this
+        );
+    }
+
+    /**
+     * Отправить уведомление подписчикам характеристики
+     *
+     * @param characteristic UUID характеристики
+     * @param value          уведомление
+     */
+    void notify(UUID characteristic, byte[] value) {
+        Subject<byte[]> subject = mNotificationSubjects.get(characteristic);
+
+        if (subject != null) {
+            subject.onNext(value);
+        }
+    }
+
+    /**
+     * Закрыть подключение
+     *
+     * @param error ошибка разрыва или {@code null} при штатном отключении
+     */
+    synchronized void close(Throwable error) {
+        if (mHeartRateDisposable != null) {
+            mHeartRateDisposable.dispose();
+        }
+
+        if (mActivityDisposable != null) {
+            mActivityDisposable.dispose();
+        }
+
+        if (mAccelerometerDisposable != null) {
+            mAccelerometerDisposable.dispose();
+        }
+
+        for (Subject<byte[]> subject : mNotificationSubjects.values()) {
+            if (error == null) {
+                subject.onComplete();
+            } else {
+                subject.onError(error);
+            }
+        }
+
+        mNotificationSubjects.clear();
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "setupNotification":
+                if (args.length == 1 && args[0] instanceof UUID) {
+                    return setupNotification((UUID) args[0]);
+                }
+                break;
+            case "writeCharacteristic":
+                if (args.length == 2 && args[0] instanceof UUID) {
+                    return writeCharacteristic((UUID) args[0], (byte[]) args[1]);
+                }
+                break;
+            case "requestMtu":
+                return requestMtu((Integer) args[0]);
+            case "getMtu":
+                return mMtu;
+            case "readRssi":
+                return Single.just(RSSI);
+            case "requestConnectionPriority":
+                return requestConnectionPriority((Integer) args[0]);
+            case "toString":
+                return "SimulatedRxBleConnection{" + mBand.getMacAddress() + "}";
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            default:
+                break;
+        }
+
+        throw new UnsupportedOperationException("Not simulated: " + method.toGenericString());
+    }
+
+    private Observable<Observable<byte[]>> setupNotification(UUID characteristic) {
+        return Observable.fromCallable(() -> {
+            Subject<byte[]> created = PublishSubject.<byte[]>create().toSerialized();
+            Subject<byte[]> subject = mNotificationSubjects.putIfAbsent(characteristic, created);
+            return (subject != null ? subject : created).hide();
+        }).concatWith(Observable.never());
+    }
+
+    private Single<byte[]> writeCharacteristic(UUID characteristic, byte[] value) {
+        byte[] copy = value.clone();
+
+        return Single.timer(mConfig.nextResponseLatencyMillis(), TimeUnit.MILLISECONDS, mConfig.getScheduler())
+                .flatMap(tick -> {
+                    if (mConfig.nextDisconnect()) {
+                        return Single.error(mDevice.disconnectWithError());
+                    }
+
+                    byte[] response = mBand.onWrite(characteristic, copy);
+
+                    if (HEART_RATE_CONTROL_POINT_CHAR.equals(characteristic)) {
+                        startHeartRateSensor();
+                    }
+
+                    if (SENSOR_CONTROL_CHAR.equals(characteristic)) {
+                        startAccelerometer();
+                    }
+
+                    return Single.just(copy)
+                            .doAfterSuccess(written -> {
+                                if (response != null) {
+                                    notify(characteristic, response);
+                                }
+
+                                if (ACTIVITY_FETCH_CHAR.equals(characteristic) && copy.length == 1 && copy[0] == ACTIVITY_FETCH_COMMAND) {
+                                    streamActivity();
+                                }
+                            });
+                });
+    }
+
+    /**
+     * Передать запрошенную историю активности и сообщить об окончании выгрузки
+     * Размер пакетов ограничен текущим MTU, темп — интервалом подключения
+     */
+    private synchronized void streamActivity() {
+        List<byte[]> packets = mBand.fetchActivity(mMtu - ATT_HEADER_LENGTH);
+        int events = (packets.size() + PACKETS_PER_CONNECTION_EVENT - 1) / PACKETS_PER_CONNECTION_EVENT;
+
+        if (mActivityDisposable != null) {
+            mActivityDisposable.dispose();
+        }
+
+        mActivityDisposable = Observable.range(0, events + 1)
+                .concatMap(event -> Observable.timer(connectionIntervalMicros(), TimeUnit.MICROSECONDS, mConfig.getScheduler())
+                        .map(tick -> event))
+                .subscribe(event -> {
+                    if (event == events) {
+                        notify(ACTIVITY_FETCH_CHAR, new byte[]{ACTIVITY_RESPONSE, ACTIVITY_FETCH_COMMAND, ACTIVITY_SUCCESS});
+                        return;
+                    }
+
+                    int end = Math.min(packets.size(), (event + 1) * PACKETS_PER_CONNECTION_EVENT);
+
+                    for (int i = event * PACKETS_PER_CONNECTION_EVENT; i < end; i++) {
+                        notify(ACTIVITY_DATA_CHAR, packets.get(i));
+                    }
+                });
+    }
+
+    private long connectionIntervalMicros() {
+        switch (mPriority) {
+            case BluetoothGatt.CONNECTION_PRIORITY_HIGH:
+                return HIGH_INTERVAL_MICROS;
+            case BluetoothGatt.CONNECTION_PRIORITY_LOW_POWER:
+                return LOW_POWER_INTERVAL_MICROS;
+            default:
+                return BALANCED_INTERVAL_MICROS;
+        }
+    }
+
+    private Completable requestConnectionPriority(int priority) {
+        return Completable.fromAction(() -> mPriority = priority);
+    }
+
+    /**
+     * Запустить датчик пульса: он опрашивает браслет с заданным периодом, пока подключение открыто
+     */
+    private synchronized void startHeartRateSensor() {
+        if (mHeartRateDisposable != null) {
+            return;
+        }
+
+        long interval = mConfig.getHeartRateIntervalMillis();
+        mHeartRateDisposable = Observable.interval(interval, interval, TimeUnit.MILLISECONDS, mConfig.getScheduler())
+                .subscribe(tick -> {
+                    byte[] measurement = mBand.nextHeartRateMeasurement();
+
+                    if (measurement != null) {
+                        notify(HEART_RATE_MEASUREMENT_CHAR, measurement);
+                    }
+                });
+    }
+
+    /**
+     * Запустить акселерометр: он опрашивает браслет по уведомлению на три замера, пока подключение открыто
+     */
+    private synchronized void startAccelerometer() {
+        if (mAccelerometerDisposable != null) {
+            return;
+        }
+
+        mAccelerometerDisposable = Observable.interval(ACCELEROMETER_FRAME_MICROS, ACCELEROMETER_FRAME_MICROS, TimeUnit.MICROSECONDS, mConfig.getScheduler())
+                .subscribe(tick -> {
+                    byte[] frame = mBand.nextAccelerometerFrame();
+
+                    if (frame != null) {
+                        notify(SENSOR_DATA_CHAR, frame);
+                    }
+                });
+    }
+
+    private Single<Integer> requestMtu(int mtu) {
+        return Single.fromCallable(() -> {
+            mMtu = Math.max(DEFAULT_MTU, Math.min(mtu, MAX_MTU));
+            return mMtu;
+        });
+    }
+
+}
@@ -0,0 +1,277 @@
+package ru.projectsos.projectsos.simulator;
+
+import android.bluetooth.BluetoothDevice;
+import android.support.annotation.NonNull;
+
+import com.polidea.rxandroidble2.RxBleConnection;
+import com.polidea.rxandroidble2.RxBleDevice;
+import com.polidea.rxandroidble2.Timeout;
+import com.polidea.rxandroidble2.exceptions.BleAlreadyConnectedException;
+import com.polidea.rxandroidble2.exceptions.BleDisconnectedException;
+
+import java.util.UUID;
+
+import io.reactivex.Observable;
+import io.reactivex.ObservableEmitter;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.subjects.BehaviorSubject;
+
+import static dagger.internal.Preconditions.checkNotNull;
+import static ru.projectsos.projectsos.data.SosConstants.DEVICE_EVENT_CHAR;
+
+/**
+ * Симулированное устройство
+ * Как и настоящее, допускает только одно подключение одновременно
+ * Вне зоны действия прямое подключение завершается ошибкой, а подключение с autoConnect ждет возвращения браслета
+ */
+public final class SimulatedRxBleDevice implements RxBleDevice {
+
+    private static final String NAME = "MI Band 2";
+
+    private final SimulatedBand mBand;
+    private final SimulatorConfig mConfig;
+    private final BehaviorSubject<RxBleConnection.RxBleConnectionState> mStateSubject;
+
+    private ObservableEmitter<RxBleConnection> mEmitter;
+    private SimulatedRxBleConnection mConnection;
+    private boolean mInRange = true;
+    private boolean mAwaitingRange;
+
+    /**
+     * Конструктор
+     *
+     * @param band   модель браслета
+     * @param config настройки симулятора
+     */
+    SimulatedRxBleDevice(@NonNull SimulatedBand band, @NonNull SimulatorConfig config) {
+        mBand = checkNotNull(band, "SimulatedBand is required");
+        mConfig = checkNotNull(config, "SimulatorConfig is required");
+        mStateSubject = BehaviorSubject.createDefault(RxBleConnection.RxBleConnectionState.DISCONNECTED);
+    }
+
+    /**
+     * Получить модель браслета
+     *
+     * @return модель браслета
+     */
+    public SimulatedBand getBand() {
+        return mBand;
+    }
+
+    /**
+     * Отправить уведомление по характеристике, если устройство подключено
+     * Используется для данных, которые браслет шлет сам (пульс, датчики, кнопка)
+     *
+     * @param characteristic UUID характеристики
+     * @param value          уведомление
+     */
+    public void notify(UUID characteristic, byte[] value) {
+        SimulatedRxBleConnection connection;
+
+        synchronized (this) {
+            connection = mConnection;
+        }
+
+        if (connection != null) {
+            connection.notify(characteristic, value);
+        }
+    }
+
+    /**
+     * Нажать кнопку браслета: подключенный аутентифицированный браслет пришлет уведомление о нажатии
+     */
+    public void pressButton() {
+        byte[] event = mBand.pressButton();
+
+        if (event != null) {
+            notify(DEVICE_EVENT_CHAR, event);
+        }
+    }
+
+    /**
+     * Разорвать подключение со стороны браслета, как при выходе из зоны действия
+     */
+    public void simulateDisconnect() {
+        disconnectWithError();
+    }
+
+    /**
+     * Переместить браслет в зону действия или из нее
+     * При выходе подключение разрывается, при возвращении подключается ожидающее подключение с autoConnect
+     *
+     * @param inRange в зоне действия ли браслет
+     */
+    public void setInRange(boolean inRange) {
+        ObservableEmitter<RxBleConnection> awaiting = null;
+
+        synchronized (this) {
+            mInRange = inRange;
+
+            if (inRange && mAwaitingRange) {
+                mAwaitingRange = false;
+                awaiting = mEmitter;
+            }
+        }
+
+        if (!inRange) {
+            disconnectWithError();
+        } else if (awaiting != null) {
+            ObservableEmitter<RxBleConnection> emitter = awaiting;
+            mConfig.getScheduler().scheduleDirect(() -> onConnected(emitter), mConfig.nextConnectLatencyMillis(), mConfig.getTimeUnit());
+        }
+    }
+
+    /**
+     * Проверить, в зоне действия ли браслет
+     *
+     * @return {@code true}, если браслет в зоне действия и слышен при поиске
+     */
+    public synchronized boolean isInRange() {
+        return mInRange;
+    }
+
+    @Override
+    public Observable<RxBleConnection.RxBleConnectionState> observeConnectionStateChanges() {
+        return mStateSubject.distinctUntilChanged();
+    }
+
+    @Override
+    public RxBleConnection.RxBleConnectionState getConnectionState() {
+        return mStateSubject.getValue();
+    }
+
+    @Override
+    public Observable<RxBleConnection> establishConnection(boolean autoConnect) {
+        return Observable.create(emitter -> {
+            synchronized (this) {
+                if (mEmitter != null) {
+                    emitter.onError(new BleAlreadyConnectedException(getMacAddress()));
+                    return;
+                }
+
+                mEmitter = emitter;
+            }
+
+            mStateSubject.onNext(RxBleConnection.RxBleConnectionState.CONNECTING);
+
+            Disposable connecting = mConfig.getScheduler().scheduleDirect(
+                    () -> onConnectAttempt(emitter, autoConnect),
+                    mConfig.nextConnectLatencyMillis(),
+                    mConfig.getTimeUnit()
+            );
+
+            emitter.setCancellable(() -> {
+                connecting.dispose();
+                onDisconnected(emitter, null);
+            });
+        });
+    }
+
+    @Override
+    public Observable<RxBleConnection> establishConnection(boolean autoConnect, Timeout operationTimeout) {
+        return establishConnection(autoConnect);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String getMacAddress() {
+        return mBand.getMacAddress();
+    }
+
+    /**
+     * У симулированного устройства нет системного {@link BluetoothDevice}
+     *
+     * @return {@code null}
+     */
+    @Override
+    public BluetoothDevice getBluetoothDevice() {
+        return null;
+    }
+
+    /**
+     * Разорвать подключение с ошибкой
+     *
+     * @return ошибка, с которой завершено подключение
+     */
+    BleDisconnectedException disconnectWithError() {
+        BleDisconnectedException error = new BleDisconnectedException(getMacAddress());
+        ObservableEmitter<RxBleConnection> emitter;
+
+        synchronized (this) {
+            emitter = mEmitter;
+        }
+
+        if (emitter != null) {
+            onDisconnected(emitter, error);
+            emitter.tryOnError(error);
+        }
+
+        return error;
+    }
+
+    private void onConnectAttempt(ObservableEmitter<RxBleConnection> emitter, boolean autoConnect) {
+        synchronized (this) {
+            if (mEmitter != emitter) {
+                return;
+            }
+
+            if (!mInRange && autoConnect) {
+                mAwaitingRange = true;
+                return;
+            }
+        }
+
+        if (mInRange && !mConfig.nextConnectFailure()) {
+            onConnected(emitter);
+            return;
+        }
+
+        BleDisconnectedException error = new BleDisconnectedException(getMacAddress());
+        onDisconnected(emitter, error);
+        emitter.tryOnError(error);
+    }
+
+    private void onConnected(ObservableEmitter<RxBleConnection> emitter) {
+        SimulatedRxBleConnection connection = SimulatedRxBleConnection.create(this, mBand, mConfig);
+
+        synchronized (this) {
+            if (mEmitter != emitter) {
+                return;
+            }
+
+            mConnection = connection;
+        }
+
+        mStateSubject.onNext(RxBleConnection.RxBleConnectionState.CONNECTED);
+        emitter.onNext(connection.asRxBleConnection());
+    }
+
+    private void onDisconnected(ObservableEmitter<RxBleConnection> emitter, Throwable error) {
+        SimulatedRxBleConnection connection;
+
+        synchronized (this) {
+            if (mEmitter != emitter) {
+                return;
+            }
+
+            connection = mConnection;
+            mConnection = null;
+            mEmitter = null;
+            mAwaitingRange = false;
+        }
+
+        mStateSubject.onNext(RxBleConnection.RxBleConnectionState.DISCONNECTING);
+
+        if (connection != null) {
+            connection.close(error);
+        }
+
+        mBand.onDisconnected();
+        mStateSubject.onNext(RxBleConnection.RxBleConnectionState.DISCONNECTED);
+    }
+
+}
@@ -0,0 +1,100 @@
+package ru.projectsos.projectsos.simulator;
+
+import android.os.ParcelUuid;
+import android.support.annotation.NonNull;
+import android.util.SparseArray;
+
+import com.polidea.rxandroidble2.scan.ScanRecord;
+
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Map;
+
+import static dagger.internal.Preconditions.checkNotNull;
+import static ru.projectsos.projectsos.data.ScanConstants.AD_TYPE_COMPLETE_16_BIT_UUIDS;
+
+/**
+ * Симулированный рекламный пакет
+ * Содержит флаги, полный список из одного 16-битного сервиса и имя устройства. Разобранные поля, которые
+ * на устройстве строятся из {@link android.os.ParcelUuid} и {@link SparseArray}, не симулируются
+ */
+final class SimulatedScanRecord implements ScanRecord {
+
+    private static final int AD_TYPE_FLAGS = 0x01;
+    private static final int AD_TYPE_COMPLETE_LOCAL_NAME = 0x09;
+    private static final int FLAGS_LE_GENERAL_DISCOVERABLE_BR_EDR_NOT_SUPPORTED = 0x06;
+
+    private final String mName;
+    private final byte[] mBytes;
+
+    /**
+     * Конструктор
+     *
+     * @param name    имя устройства
+     * @param service 16-битный идентификатор сервиса
+     */
+    SimulatedScanRecord(@NonNull String name, int service) {
+        mName = checkNotNull(name, "Name is required");
+
+        byte[] nameBytes = name.getBytes(Charset.forName("UTF-8"));
+        mBytes = new byte[3 + 4 + 2 + nameBytes.length];
+
+        int offset = 0;
+        mBytes[offset++] = 2;
+        mBytes[offset++] = AD_TYPE_FLAGS;
+        mBytes[offset++] = FLAGS_LE_GENERAL_DISCOVERABLE_BR_EDR_NOT_SUPPORTED;
+        mBytes[offset++] = 3;
+        mBytes[offset++] = AD_TYPE_COMPLETE_16_BIT_UUIDS;
+        mBytes[offset++] = (byte) service;
+        mBytes[offset++] = (byte) (service >>> 8);
+        mBytes[offset++] = (byte) (1 + nameBytes.length);
+        mBytes[offset++] = AD_TYPE_COMPLETE_LOCAL_NAME;
+        System.arraycopy(nameBytes, 0, mBytes, offset, nameBytes.length);
+    }
+
+    @Override
+    public int getAdvertiseFlags() {
+        return FLAGS_LE_GENERAL_DISCOVERABLE_BR_EDR_NOT_SUPPORTED;
+    }
+
+    @Override
+    public List<ParcelUuid> getServiceUuids() {
+        return null;
+    }
+
+    @Override
+    public SparseArray<byte[]> getManufacturerSpecificData() {
+        return null;
+    }
+
+    @Override
+    public byte[] getManufacturerSpecificData(int manufacturerId) {
+        return null;
+    }
+
+    @Override
+    public Map<ParcelUuid, byte[]> getServiceData() {
+        return null;
+    }
+
+    @Override
+    public byte[] getServiceData(ParcelUuid serviceDataUuid) {
+        return null;
+    }
+
+    @Override
+    public int getTxPowerLevel() {
+        return Integer.MIN_VALUE;
+    }
+
+    @Override
+    public String getDeviceName() {
+        return mName;
+    }
+
+    @Override
+    public byte[] getBytes() {
+        return mBytes;
+    }
+
+}
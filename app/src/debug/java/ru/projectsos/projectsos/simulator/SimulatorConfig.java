@@ -0,0 +1,344 @@
+package ru.projectsos.projectsos.simulator;
+
+import android.support.annotation.NonNull;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+
+import static dagger.internal.Preconditions.checkNotNull;
+
+/**
+ * Настройки симулятора браслета: задержки, разброс задержек и внедрение отказов
+ * Все случайные решения принимаются по генератору с фиксированным зерном, поэтому прогоны повторяемы
+ */
+public final class SimulatorConfig {
+
+    private final long mConnectLatencyMillis;
+    private final long mResponseLatencyMillis;
+    private final long mJitterMillis;
+    private final double mAuthFailureRate;
+    private final double mDisconnectRate;
+    private final double mConnectFailureRate;
+    private final long mHeartRateIntervalMillis;
+    private final int mBandAdvertisers;
+    private final int mOtherAdvertisers;
+    private final long mAdvertisingIntervalMillis;
+    private final Random mRandom;
+    private final Scheduler mScheduler;
+
+    private SimulatorConfig(Builder builder) {
+        mConnectLatencyMillis = builder.mConnectLatencyMillis;
+        mResponseLatencyMillis = builder.mResponseLatencyMillis;
+        mJitterMillis = builder.mJitterMillis;
+        mAuthFailureRate = builder.mAuthFailureRate;
+        mDisconnectRate = builder.mDisconnectRate;
+        mConnectFailureRate = builder.mConnectFailureRate;
+        mHeartRateIntervalMillis = builder.mHeartRateIntervalMillis;
+        mBandAdvertisers = builder.mBandAdvertisers;
+        mOtherAdvertisers = builder.mOtherAdvertisers;
+        mAdvertisingIntervalMillis = builder.mAdvertisingIntervalMillis;
+        mRandom = new Random(builder.mSeed);
+        mScheduler = builder.mScheduler;
+    }
+
+    /**
+     * Получить задержку подключения с учетом разброса
+     *
+     * @return задержка в миллисекундах
+     */
+    long nextConnectLatencyMillis() {
+        return withJitter(mConnectLatencyMillis);
+    }
+
+    /**
+     * Получить задержку ответа на запись с учетом разброса
+     *
+     * @return задержка в миллисекундах
+     */
+    long nextResponseLatencyMillis() {
+        return withJitter(mResponseLatencyMillis);
+    }
+
+    /**
+     * Решить, отказать ли в очередном шаге аутентификации
+     *
+     * @return {@code true} если браслет должен ответить {@code AUTH_FAIL}
+     */
+    boolean nextAuthFailure() {
+        return mAuthFailureRate > 0 && mRandom.nextDouble() < mAuthFailureRate;
+    }
+
+    /**
+     * Решить, разорвать ли подключение при очередной записи
+     *
+     * @return {@code true} если подключение должно быть разорвано
+     */
+    boolean nextDisconnect() {
+        return mDisconnectRate > 0 && mRandom.nextDouble() < mDisconnectRate;
+    }
+
+    /**
+     * Решить, провалить ли очередную попытку подключения
+     *
+     * @return {@code true} если подключение должно завершиться ошибкой
+     */
+    boolean nextConnectFailure() {
+        return mConnectFailureRate > 0 && mRandom.nextDouble() < mConnectFailureRate;
+    }
+
+    /**
+     * Заполнить массив случайными байтами
+     *
+     * @param bytes массив
+     */
+    void nextBytes(byte[] bytes) {
+        mRandom.nextBytes(bytes);
+    }
+
+    /**
+     * Получить случайное число
+     *
+     * @param bound верхняя граница, не включая
+     * @return число от 0 до {@code bound}
+     */
+    int nextInt(int bound) {
+        return mRandom.nextInt(bound);
+    }
+
+    /**
+     * Получить период уведомлений пульсометра
+     *
+     * @return миллисекунды
+     */
+    long getHeartRateIntervalMillis() {
+        return mHeartRateIntervalMillis;
+    }
+
+    /**
+     * Получить количество браслетов, которые слышны при поиске
+     *
+     * @return количество браслетов
+     */
+    int getBandAdvertisers() {
+        return mBandAdvertisers;
+    }
+
+    /**
+     * Получить количество посторонних устройств, которые слышны при поиске
+     *
+     * @return количество устройств
+     */
+    int getOtherAdvertisers() {
+        return mOtherAdvertisers;
+    }
+
+    /**
+     * Получить период рекламных пакетов каждого устройства
+     *
+     * @return миллисекунды
+     */
+    long getAdvertisingIntervalMillis() {
+        return mAdvertisingIntervalMillis;
+    }
+
+    /**
+     * Получить планировщик, на котором симулятор отвечает
+     *
+     * @return планировщик
+     */
+    Scheduler getScheduler() {
+        return mScheduler;
+    }
+
+    /**
+     * Единица измерения задержек
+     *
+     * @return миллисекунды
+     */
+    TimeUnit getTimeUnit() {
+        return TimeUnit.MILLISECONDS;
+    }
+
+    private long withJitter(long latency) {
+        if (mJitterMillis <= 0) {
+            return latency;
+        }
+
+        long jitter = (long) ((mRandom.nextDouble() * 2 - 1) * mJitterMillis);
+        return Math.max(0, latency + jitter);
+    }
+
+    /**
+     * Строитель настроек симулятора
+     */
+    public static final class Builder {
+
+        private long mConnectLatencyMillis = 50;
+        private long mResponseLatencyMillis = 20;
+        private long mJitterMillis;
+        private double mAuthFailureRate;
+        private double mDisconnectRate;
+        private double mConnectFailureRate;
+        private long mHeartRateIntervalMillis = 1000;
+        private int mBandAdvertisers;
+        private int mOtherAdvertisers;
+        private long mAdvertisingIntervalMillis = 100;
+        private long mSeed = 42;
+        private Scheduler mScheduler = Schedulers.computation();
+
+        /**
+         * Задержка установки подключения
+         *
+         * @param millis миллисекунды
+         * @return строитель
+         */
+        public Builder connectLatency(long millis) {
+            mConnectLatencyMillis = requireNonNegative(millis);
+            return this;
+        }
+
+        /**
+         * Задержка уведомления в ответ на запись
+         *
+         * @param millis миллисекунды
+         * @return строитель
+         */
+        public Builder responseLatency(long millis) {
+            mResponseLatencyMillis = requireNonNegative(millis);
+            return this;
+        }
+
+        /**
+         * Максимальное отклонение задержек в обе стороны
+         *
+         * @param millis миллисекунды
+         * @return строитель
+         */
+        public Builder jitter(long millis) {
+            mJitterMillis = requireNonNegative(millis);
+            return this;
+        }
+
+        /**
+         * Доля шагов аутентификации, на которые браслет отвечает {@code AUTH_FAIL}
+         *
+         * @param rate вероятность от 0 до 1
+         * @return строитель
+         */
+        public Builder authFailureRate(double rate) {
+            mAuthFailureRate = requireProbability(rate);
+            return this;
+        }
+
+        /**
+         * Доля записей, при которых браслет разрывает подключение
+         *
+         * @param rate вероятность от 0 до 1
+         * @return строитель
+         */
+        public Builder disconnectRate(double rate) {
+            mDisconnectRate = requireProbability(rate);
+            return this;
+        }
+
+        /**
+         * Доля попыток подключения, которые завершаются ошибкой, как GATT 133 на Android
+         *
+         * @param rate вероятность от 0 до 1
+         * @return строитель
+         */
+        public Builder connectFailureRate(double rate) {
+            mConnectFailureRate = requireProbability(rate);
+            return this;
+        }
+
+        /**
+         * Период уведомлений пульсометра в режиме непрерывного измерения
+         *
+         * @param millis миллисекунды
+         * @return строитель
+         */
+        public Builder heartRateInterval(long millis) {
+            if (millis <= 0) {
+                throw new IllegalArgumentException("Heart rate interval must be positive, got " + millis);
+            }
+            mHeartRateIntervalMillis = millis;
+            return this;
+        }
+
+        /**
+         * Устройства, которые слышны при поиске
+         *
+         * @param bands  количество браслетов
+         * @param others количество посторонних устройств без сервиса браслета
+         * @return строитель
+         */
+        public Builder advertisers(int bands, int others) {
+            if (bands < 0 || others < 0) {
+                throw new IllegalArgumentException("Invalid advertisers: " + bands + " bands, " + others + " others");
+            }
+            mBandAdvertisers = bands;
+            mOtherAdvertisers = others;
+            return this;
+        }
+
+        /**
+         * Период рекламных пакетов каждого устройства
+         *
+         * @param millis миллисекунды
+         * @return строитель
+         */
+        public Builder advertisingInterval(long millis) {
+            if (millis <= 0) {
+                throw new IllegalArgumentException("Advertising interval must be positive, got " + millis);
+            }
+            mAdvertisingIntervalMillis = millis;
+            return this;
+        }
+
+        /**
+         * Зерно генератора случайных чисел
+         *
+         * @param seed зерно
+         * @return строитель
+         */
+        public Builder seed(long seed) {
+            mSeed = seed;
+            return this;
+        }
+
+        /**
+         * Планировщик для задержек, например {@link io.reactivex.schedulers.TestScheduler} для детерминированных прогонов
+         *
+         * @param scheduler планировщик
+         * @return строитель
+         */
+        public Builder scheduler(@NonNull Scheduler scheduler) {
+            mScheduler = checkNotNull(scheduler, "Scheduler is required");
+            return this;
+        }
+
+        public SimulatorConfig build() {
+            return new SimulatorConfig(this);
+        }
+
+        private static long requireNonNegative(long value) {
+            if (value < 0) {
+                throw new IllegalArgumentException("Value must not be negative, got " + value);
+            }
+            return value;
+        }
+
+        private static double requireProbability(double value) {
+            if (value < 0 || value > 1) {
+                throw new IllegalArgumentException("Probability must be within [0, 1], got " + value);
+            }
+            return value;
+        }
+
+    }
+
+}
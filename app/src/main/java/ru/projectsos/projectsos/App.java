@@ -1,39 +1,130 @@
 package ru.projectsos.projectsos;
 
 import android.app.Application;
+import android.content.Context;
+import android.location.LocationManager;
+import android.util.Log;
 
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Completable;
+import io.reactivex.Observable;
+import io.reactivex.schedulers.Schedulers;
+import ru.projectsos.projectsos.data.journal.JournalFlusher;
+import ru.projectsos.projectsos.data.metrics.StartupTimer;
+import ru.projectsos.projectsos.di.Prewarmer;
 import ru.projectsos.projectsos.di.component.AppComponent;
 import ru.projectsos.projectsos.di.component.DaggerAppComponent;
-import ru.projectsos.projectsos.di.component.MainComponent;
+import ru.projectsos.projectsos.di.component.DeviceComponent;
 import ru.projectsos.projectsos.di.module.AppModule;
-import ru.projectsos.projectsos.di.module.MainModule;
+import ru.projectsos.projectsos.di.module.DeviceModule;
 
 public final class App extends Application {
 
+    private static final String TAG = "PROJECT_SOS";
+    private static final String PREWARM_KEY = "prewarm";
+
     private static AppComponent sAppComponent;
-    private static MainComponent sMainComponent;
+    private static DeviceComponent sDeviceComponent;
 
     public static AppComponent getAppComponent() {
         return sAppComponent;
     }
 
-    public static MainComponent getMainComponent() {
-        return sMainComponent;
+    /**
+     * Получить компонент работы с устройствами
+     * Живет, пока жив процесс, поэтому подключения и сессии переживают пересоздание окон
+     *
+     * @return возвращает компонент, из которого окна строят свои {@link ru.projectsos.projectsos.di.component.MainComponent}
+     */
+    public static DeviceComponent getDeviceComponent() {
+        return sDeviceComponent;
     }
 
     @Override
     public void onCreate() {
+        long startNanos = System.nanoTime();
         super.onCreate();
 
+        // Сборка компонентов ничего не создает: зависимости создаются при первом обращении к ним
         sAppComponent = DaggerAppComponent
                 .builder()
-                .appModule(new AppModule(this.getApplicationContext()))
+                .appModule(new AppModule(this.getApplicationContext(), startNanos))
                 .build();
 
-        sMainComponent = sAppComponent
-                .mainComponentBuilder()
-                .mainModule(new MainModule())
+        sDeviceComponent = sAppComponent
+                .deviceComponentBuilder()
+                .deviceModule(new DeviceModule())
                 .build();
+
+        prewarm(sAppComponent);
+        startJournalFlusher(sAppComponent);
+        startSessionCapture(sAppComponent);
+
+        sAppComponent.startupTimer().mark(StartupTimer.APPLICATION);
+    }
+
+    /**
+     * Создать тяжелые зависимости параллельно вне главного потока, пока создается окно
+     * Клиент Bluetooth при создании собирает собственный граф и подписывается на системные события,
+     * а первое чтение предпочтений дожидается загрузки файла с диска. Путь сигнала SOS готовится заранее:
+     * запускается его поток, отправитель разрешает адреса, а кэш местоположения начинает получать обновления
+     *
+     * @param component компонент приложения
+     */
+    private static void prewarm(AppComponent component) {
+        Prewarmer
+                .prewarm(
+                        Schedulers.io(),
+                        component::rxBleClient,
+                        () -> component.sharedPreferences().contains(PREWARM_KEY),
+                        () -> component.sosScheduler().scheduleDirect(() -> component.sosDispatcher().prewarm()),
+                        () -> {
+                            component.locationCache().start((LocationManager) component.context().getSystemService(Context.LOCATION_SERVICE));
+                            return true;
+                        }
+                )
+                .subscribe(() -> {
+                }, throwable -> Log.e(TAG, "Prewarming failed", throwable));
+    }
+
+    /**
+     * Запустить сброс журнала событий Bluetooth в файлы на все время жизни процесса
+     * Журнал и сброс создаются тоже вне главного потока
+     *
+     * @param component компонент приложения
+     */
+    private static void startJournalFlusher(AppComponent component) {
+        Completable
+                .defer(() -> component.journalFlusher().run(JournalFlusher.DEFAULT_PERIOD_MILLIS, Schedulers.io()))
+                .subscribeOn(Schedulers.io())
+                .subscribe(() -> {
+                }, throwable -> Log.e(TAG, "Journal flushing stopped", throwable));
+    }
+
+    /**
+     * Записывать сеансы Bluetooth с запуска процесса, если запись включена в настройках
+     * Каждый процесс пишет свой файл, буфер записи сбрасывается в него с периодом сброса журнала
+     *
+     * @param component компонент приложения
+     */
+    private static void startSessionCapture(AppComponent component) {
+        Completable
+                .defer(() -> {
+                    if (!component.sharedPreferences().getBoolean(AppModule.CAPTURE_SESSIONS_KEY, false)) {
+                        return Completable.complete();
+                    }
+
+                    File directory = new File(component.context().getFilesDir(), AppModule.CAPTURE_DIRECTORY);
+                    component.sessionRecorder().start(new File(directory, System.currentTimeMillis() + ".bin"));
+
+                    return Observable.interval(JournalFlusher.DEFAULT_PERIOD_MILLIS, TimeUnit.MILLISECONDS, Schedulers.io())
+                            .concatMapCompletable(tick -> Completable.fromAction(() -> component.sessionRecorder().flush()));
+                })
+                .subscribeOn(Schedulers.io())
+                .subscribe(() -> {
+                }, throwable -> Log.e(TAG, "Session capture stopped", throwable));
     }
 
 }
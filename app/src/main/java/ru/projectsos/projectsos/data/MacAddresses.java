@@ -0,0 +1,67 @@
+package ru.projectsos.projectsos.data;
+
+/**
+ * Упаковка MAC адресов в {@code long}
+ * Адрес занимает младшие 48 бит, первый байт адреса — старший, поэтому порядок чисел совпадает с порядком строк
+ */
+public final class MacAddresses {
+
+    /**
+     * Результат упаковки строки, которая не является MAC адресом
+     * Упакованный адрес никогда не бывает отрицательным
+     */
+    public static final long INVALID = -1;
+
+    private static final int DIGITS = 12;
+
+    private MacAddresses() {
+    }
+
+    /**
+     * Упаковать MAC адрес без выделения памяти
+     *
+     * @param macAddress адрес вида {@code C8:0F:10:00:00:01}, регистр не важен
+     * @return возвращает 48-битное число или {@link #INVALID}
+     */
+    public static long pack(CharSequence macAddress) {
+        long packed = 0;
+        int digits = 0;
+
+        for (int i = 0; i < macAddress.length(); i++) {
+            char c = macAddress.charAt(i);
+            int digit = Character.digit(c, 16);
+
+            if (digit >= 0) {
+                packed = (packed << 4) | digit;
+                digits++;
+            } else if (c != ':') {
+                return INVALID;
+            }
+        }
+
+        return digits == DIGITS ? packed : INVALID;
+    }
+
+    /**
+     * Восстановить MAC адрес
+     *
+     * @param packed упакованный адрес
+     * @return возвращает адрес в верхнем регистре
+     */
+    public static String format(long packed) {
+        char[] chars = new char[DIGITS / 2 * 3 - 1];
+
+        for (int i = 0, shift = 40; shift >= 0; shift -= 8) {
+            int octet = (int) (packed >>> shift) & 0xFF;
+            chars[i++] = Character.toUpperCase(Character.forDigit(octet >>> 4, 16));
+            chars[i++] = Character.toUpperCase(Character.forDigit(octet & 0xF, 16));
+
+            if (shift > 0) {
+                chars[i++] = ':';
+            }
+        }
+
+        return new String(chars);
+    }
+
+}
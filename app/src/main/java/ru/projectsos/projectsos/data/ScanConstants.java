@@ -0,0 +1,54 @@
+package ru.projectsos.projectsos.data;
+
+import java.util.UUID;
+
+/**
+ * <h1>Константы поиска устройств</h1>
+ *
+ * Браслет объявляет о себе сервисом {@link #MI_BAND_SERVICE} в списке 16-битных идентификаторов сервисов
+ * рекламного пакета. Пакет — последовательность структур: байт длины (без самого себя), байт типа
+ * ({@link #AD_TYPE_INCOMPLETE_16_BIT_UUIDS}, {@link #AD_TYPE_COMPLETE_16_BIT_UUIDS} и т.д.) и данные,
+ * многобайтовые значения младшим байтом первым. Структура нулевой длины означает конец пакета
+ */
+public final class ScanConstants {
+
+    /**
+     * Уникальный универсальный идентификатор сервиса браслета в рекламном пакете
+     */
+    public static final UUID MI_BAND_SERVICE = UUID.fromString("0000fee0-0000-1000-8000-00805f9b34fb");
+
+    /**
+     * Старшие биты базового идентификатора Bluetooth {@code 00000000-0000-1000-8000-00805f9b34fb}
+     * 16-битный идентификатор занимает биты 32-47
+     */
+    public static final long BASE_UUID_MOST_SIGNIFICANT_BITS = 0x0000000000001000L;
+
+    /**
+     * Младшие биты базового идентификатора Bluetooth
+     */
+    public static final long BASE_UUID_LEAST_SIGNIFICANT_BITS = 0x800000805F9B34FBL;
+
+    /**
+     * Неполный список 16-битных идентификаторов сервисов
+     */
+    public static final int AD_TYPE_INCOMPLETE_16_BIT_UUIDS = 0x02;
+
+    /**
+     * Полный список 16-битных идентификаторов сервисов
+     */
+    public static final int AD_TYPE_COMPLETE_16_BIT_UUIDS = 0x03;
+
+    /**
+     * Неполный список 128-битных идентификаторов сервисов
+     */
+    public static final int AD_TYPE_INCOMPLETE_128_BIT_UUIDS = 0x06;
+
+    /**
+     * Полный список 128-битных идентификаторов сервисов
+     */
+    public static final int AD_TYPE_COMPLETE_128_BIT_UUIDS = 0x07;
+
+    private ScanConstants() {
+    }
+
+}
@@ -0,0 +1,53 @@
+package ru.projectsos.projectsos.data;
+
+import java.util.UUID;
+
+/**
+ * <h1>Константы сигнала SOS</h1>
+ *
+ * Браслет сообщает о нажатии кнопки уведомлением {@link #DEVICE_EVENT_BUTTON_PRESSED} характеристики
+ * {@link #DEVICE_EVENT_CHAR}. Сигнал SOS — {@link #SOS_PRESSES} нажатия подряд не дольше чем за
+ * {@link #SOS_PRESS_WINDOW_MILLIS}, так что случайное нажатие его не подаст. После отправки браслет вибрирует
+ * через {@link #ALERT_LEVEL_CHAR}, чтобы пользователь знал, что сигнал ушел
+ */
+public final class SosConstants {
+
+    /**
+     * Уникальный универсальный идентификатор характеристики событий браслета
+     */
+    public static final UUID DEVICE_EVENT_CHAR = UUID.fromString("00000010-0000-3512-2118-0009af100700");
+
+    /**
+     * Событие нажатия кнопки
+     */
+    public static final byte DEVICE_EVENT_BUTTON_PRESSED = 0x04;
+
+    /**
+     * Количество нажатий сигнала SOS
+     */
+    public static final int SOS_PRESSES = 3;
+
+    /**
+     * Наибольшее время между первым и последним нажатием сигнала SOS
+     */
+    public static final long SOS_PRESS_WINDOW_MILLIS = 2000;
+
+    /**
+     * Бюджет времени от получения уведомления последнего нажатия до передачи сигнала отправителю
+     */
+    public static final long SOS_TRIGGER_BUDGET_MILLIS = 50;
+
+    /**
+     * Уникальный универсальный идентификатор характеристики уровня оповещения (Immediate Alert)
+     */
+    public static final UUID ALERT_LEVEL_CHAR = UUID.fromString("00002a06-0000-1000-8000-00805f9b34fb");
+
+    /**
+     * Уровень оповещения: короткая вибрация
+     */
+    public static final byte ALERT_LEVEL_MILD = 0x01;
+
+    private SosConstants() {
+    }
+
+}
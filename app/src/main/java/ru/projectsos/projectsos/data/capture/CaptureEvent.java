@@ -0,0 +1,75 @@
+package ru.projectsos.projectsos.data.capture;
+
+import android.support.annotation.Nullable;
+
+/**
+ * Событие записи сеанса
+ * Коды записываются в файлы записей, поэтому у существующих событий они не меняются
+ */
+public enum CaptureEvent {
+
+    /**
+     * Объявление устройства: номер и MAC адрес, без времени
+     */
+    DEVICE(1),
+
+    /**
+     * Объявление характеристики: номер и UUID, без времени
+     */
+    CHARACTERISTIC(2),
+
+    /**
+     * Устройство подключено
+     */
+    CONNECTED(3),
+
+    /**
+     * Подключение закончилось, данные — {@code 1}, если оно разорвано с ошибкой
+     */
+    DISCONNECTED(4),
+
+    /**
+     * Включены уведомления характеристики
+     */
+    NOTIFICATION_SETUP(5),
+
+    /**
+     * Запрошена запись характеристики, данные — значение
+     */
+    WRITE(6),
+
+    /**
+     * Уведомление, данные — значение
+     */
+    NOTIFICATION(7);
+
+    private static final CaptureEvent[] VALUES = values();
+
+    private final byte mCode;
+
+    CaptureEvent(int code) {
+        mCode = (byte) code;
+    }
+
+    public byte getCode() {
+        return mCode;
+    }
+
+    /**
+     * Найти событие по коду
+     *
+     * @param code код
+     * @return событие или {@code null} для кода из более новой версии
+     */
+    @Nullable
+    public static CaptureEvent fromCode(byte code) {
+        for (CaptureEvent event : VALUES) {
+            if (event.mCode == code) {
+                return event;
+            }
+        }
+
+        return null;
+    }
+
+}
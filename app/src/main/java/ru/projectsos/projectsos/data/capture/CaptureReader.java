@@ -0,0 +1,182 @@
+package ru.projectsos.projectsos.data.capture;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Чтение записи сеансов, сделанной {@link SessionRecorder}
+ * <p>
+ * Работает только при воспроизведении и разборе, поэтому свободно выделяет память
+ */
+public final class CaptureReader {
+
+    private CaptureReader() {
+    }
+
+    /**
+     * Прочитать файл записи
+     * Недописанная последняя запись пропускается
+     *
+     * @param file файл записи
+     * @return события в порядке записи
+     * @throws IOException при ошибке ввода-вывода или чужом файле
+     */
+    public static List<CaptureRecord> read(File file) throws IOException {
+        try (InputStream inputStream = new BufferedInputStream(new FileInputStream(file))) {
+            return read(inputStream);
+        }
+    }
+
+    /**
+     * Прочитать запись из потока
+     *
+     * @param inputStream поток записи с заголовком
+     * @return события в порядке записи
+     * @throws IOException при ошибке ввода-вывода или чужом файле
+     */
+    public static List<CaptureRecord> read(InputStream inputStream) throws IOException {
+        DataInputStream input = new DataInputStream(inputStream);
+
+        if (input.readInt() != SessionRecorder.MAGIC) {
+            throw new IOException("Not a capture file");
+        }
+
+        int version = input.readUnsignedShort();
+
+        if (version != SessionRecorder.VERSION) {
+            throw new IOException("Unsupported capture version " + version);
+        }
+
+        input.readUnsignedShort();
+        input.readLong();
+
+        List<String> devices = new ArrayList<>();
+        List<UUID> characteristics = new ArrayList<>();
+        List<CaptureRecord> records = new ArrayList<>();
+        long timestampNanos = 0;
+
+        while (true) {
+            int code = input.read();
+
+            if (code < 0) {
+                return records;
+            }
+
+            CaptureEvent event = CaptureEvent.fromCode((byte) code);
+
+            if (event == null) {
+                throw new IOException("Unknown capture event " + code);
+            }
+
+            try {
+                switch (event) {
+                    case DEVICE:
+                        declare(devices, readIndex(input), readAscii(input));
+                        break;
+                    case CHARACTERISTIC:
+                        declare(characteristics, readIndex(input), new UUID(input.readLong(), input.readLong()));
+                        break;
+                    default:
+                        timestampNanos += readVarint(input);
+                        records.add(readRecord(input, event, timestampNanos, devices, characteristics));
+                        break;
+                }
+            } catch (EOFException e) {
+                return records;
+            }
+        }
+    }
+
+    private static CaptureRecord readRecord(DataInputStream input,
+                                            CaptureEvent event,
+                                            long timestampNanos,
+                                            List<String> devices,
+                                            List<UUID> characteristics) throws IOException {
+        String macAddress = lookup(devices, readIndex(input));
+
+        switch (event) {
+            case CONNECTED:
+                return new CaptureRecord(event, timestampNanos, macAddress, null, null);
+            case DISCONNECTED:
+                return new CaptureRecord(event, timestampNanos, macAddress, null, readValue(input));
+            case NOTIFICATION_SETUP:
+                return new CaptureRecord(event, timestampNanos, macAddress, lookup(characteristics, readIndex(input)), null);
+            default:
+                UUID characteristic = lookup(characteristics, readIndex(input));
+                return new CaptureRecord(event, timestampNanos, macAddress, characteristic, readValue(input));
+        }
+    }
+
+    private static <T> void declare(List<T> table, int index, T value) throws IOException {
+        if (index != table.size()) {
+            throw new IOException("Unexpected declaration #" + index);
+        }
+
+        table.add(value);
+    }
+
+    private static <T> T lookup(List<T> table, int index) throws IOException {
+        if (index >= table.size()) {
+            throw new IOException("Undeclared index #" + index);
+        }
+
+        return table.get(index);
+    }
+
+    private static byte[] readValue(DataInputStream input) throws IOException {
+        int length = readIndex(input);
+
+        if (length > SessionRecorder.MAX_VALUE_LENGTH) {
+            throw new IOException("Value is too long: " + length);
+        }
+
+        byte[] value = new byte[length];
+        input.readFully(value);
+        return value;
+    }
+
+    private static String readAscii(DataInputStream input) throws IOException {
+        byte[] bytes = readValue(input);
+        char[] chars = new char[bytes.length];
+
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i] = (char) (bytes[i] & 0xFF);
+        }
+
+        return new String(chars);
+    }
+
+    private static int readIndex(DataInputStream input) throws IOException {
+        long value = readVarint(input);
+
+        if (value > Integer.MAX_VALUE) {
+            throw new IOException("Index is too large: " + value);
+        }
+
+        return (int) value;
+    }
+
+    private static long readVarint(DataInputStream input) throws IOException {
+        long value = 0;
+
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = input.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+
+        throw new IOException("Malformed varint");
+    }
+
+}
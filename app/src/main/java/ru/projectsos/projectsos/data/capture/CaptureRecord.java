@@ -0,0 +1,72 @@
+package ru.projectsos.projectsos.data.capture;
+
+import android.support.annotation.Nullable;
+
+import java.util.UUID;
+
+/**
+ * Событие сеанса, прочитанное из записи
+ * Объявления устройств и характеристик уже подставлены: у события сразу MAC адрес и UUID
+ */
+public final class CaptureRecord {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final CaptureEvent mEvent;
+    private final long mTimestampNanos;
+    private final String mMacAddress;
+    private final UUID mCharacteristic;
+    private final byte[] mValue;
+
+    /**
+     * Конструктор
+     *
+     * @param event          событие
+     * @param timestampNanos время от начала записи в наносекундах
+     * @param macAddress     MAC адрес устройства
+     * @param characteristic UUID характеристики или {@code null}, если событие не касается характеристики
+     * @param value          данные или {@code null}, если их нет
+     */
+    public CaptureRecord(CaptureEvent event,
+                         long timestampNanos,
+                         String macAddress,
+                         @Nullable UUID characteristic,
+                         @Nullable byte[] value) {
+        mEvent = event;
+        mTimestampNanos = timestampNanos;
+        mMacAddress = macAddress;
+        mCharacteristic = characteristic;
+        mValue = value != null ? value : EMPTY;
+    }
+
+    public CaptureEvent getEvent() {
+        return mEvent;
+    }
+
+    public long getTimestampNanos() {
+        return mTimestampNanos;
+    }
+
+    public String getMacAddress() {
+        return mMacAddress;
+    }
+
+    @Nullable
+    public UUID getCharacteristic() {
+        return mCharacteristic;
+    }
+
+    public byte[] getValue() {
+        return mValue;
+    }
+
+    /**
+     * Проверить, что подключение было разорвано с ошибкой
+     *
+     * @return {@code true} для {@link CaptureEvent#DISCONNECTED} с ошибкой
+     */
+    public boolean isError() {
+        return mEvent == CaptureEvent.DISCONNECTED && mValue.length > 0 && mValue[0] != 0;
+    }
+
+}
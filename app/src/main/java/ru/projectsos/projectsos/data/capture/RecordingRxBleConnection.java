@@ -0,0 +1,204 @@
+package ru.projectsos.projectsos.data.capture;
+
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattDescriptor;
+import android.support.annotation.NonNull;
+
+import com.polidea.rxandroidble2.NotificationSetupMode;
+import com.polidea.rxandroidble2.RxBleConnection;
+import com.polidea.rxandroidble2.RxBleCustomOperation;
+import com.polidea.rxandroidble2.RxBleDeviceServices;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Completable;
+import io.reactivex.Observable;
+import io.reactivex.Single;
+
+/**
+ * Обертка подключения, которая пишет записи и уведомления в {@link SessionRecorder}
+ * <p>
+ * Перехватываются запись характеристики и включение уведомлений и индикаций, остальные методы отдаются
+ * исходному подключению как есть. Обертка ставится только на подключения, установленные во время записи
+ */
+final class RecordingRxBleConnection implements RxBleConnection {
+
+    private final SessionRecorder mRecorder;
+    private final String mMacAddress;
+    private final RxBleConnection mDelegate;
+
+    /**
+     * Конструктор
+     *
+     * @param recorder   запись сеансов
+     * @param macAddress MAC адрес
+     * @param delegate   исходное подключение
+     */
+    RecordingRxBleConnection(SessionRecorder recorder, String macAddress, RxBleConnection delegate) {
+        mRecorder = recorder;
+        mMacAddress = macAddress;
+        mDelegate = delegate;
+    }
+
+    @Override
+    public Single<RxBleDeviceServices> discoverServices() {
+        return mDelegate.discoverServices();
+    }
+
+    @Override
+    public Single<RxBleDeviceServices> discoverServices(long timeout, @NonNull TimeUnit timeUnit) {
+        return mDelegate.discoverServices(timeout, timeUnit);
+    }
+
+    @Override
+    @Deprecated
+    public Single<BluetoothGattCharacteristic> getCharacteristic(@NonNull UUID characteristicUuid) {
+        return mDelegate.getCharacteristic(characteristicUuid);
+    }
+
+    @Override
+    public Observable<Observable<byte[]>> setupNotification(@NonNull UUID characteristicUuid) {
+        return recordNotifications(characteristicUuid, mDelegate.setupNotification(characteristicUuid));
+    }
+
+    @Override
+    public Observable<Observable<byte[]>> setupNotification(@NonNull BluetoothGattCharacteristic characteristic) {
+        return recordNotifications(characteristic.getUuid(), mDelegate.setupNotification(characteristic));
+    }
+
+    @Override
+    public Observable<Observable<byte[]>> setupNotification(@NonNull UUID characteristicUuid,
+                                                            @NonNull NotificationSetupMode setupMode) {
+        return recordNotifications(characteristicUuid, mDelegate.setupNotification(characteristicUuid, setupMode));
+    }
+
+    @Override
+    public Observable<Observable<byte[]>> setupNotification(@NonNull BluetoothGattCharacteristic characteristic,
+                                                            @NonNull NotificationSetupMode setupMode) {
+        return recordNotifications(characteristic.getUuid(), mDelegate.setupNotification(characteristic, setupMode));
+    }
+
+    @Override
+    public Observable<Observable<byte[]>> setupIndication(@NonNull UUID characteristicUuid) {
+        return recordNotifications(characteristicUuid, mDelegate.setupIndication(characteristicUuid));
+    }
+
+    @Override
+    public Observable<Observable<byte[]>> setupIndication(@NonNull BluetoothGattCharacteristic characteristic) {
+        return recordNotifications(characteristic.getUuid(), mDelegate.setupIndication(characteristic));
+    }
+
+    @Override
+    public Observable<Observable<byte[]>> setupIndication(@NonNull UUID characteristicUuid,
+                                                          @NonNull NotificationSetupMode setupMode) {
+        return recordNotifications(characteristicUuid, mDelegate.setupIndication(characteristicUuid, setupMode));
+    }
+
+    @Override
+    public Observable<Observable<byte[]>> setupIndication(@NonNull BluetoothGattCharacteristic characteristic,
+                                                          @NonNull NotificationSetupMode setupMode) {
+        return recordNotifications(characteristic.getUuid(), mDelegate.setupIndication(characteristic, setupMode));
+    }
+
+    @Override
+    public Single<byte[]> readCharacteristic(@NonNull UUID characteristicUuid) {
+        return mDelegate.readCharacteristic(characteristicUuid);
+    }
+
+    @Override
+    public Single<byte[]> readCharacteristic(@NonNull BluetoothGattCharacteristic characteristic) {
+        return mDelegate.readCharacteristic(characteristic);
+    }
+
+    @Override
+    public Single<byte[]> writeCharacteristic(@NonNull UUID characteristicUuid, @NonNull byte[] data) {
+        return recordWrite(characteristicUuid, data, mDelegate.writeCharacteristic(characteristicUuid, data));
+    }
+
+    @Override
+    @Deprecated
+    public Single<BluetoothGattCharacteristic> writeCharacteristic(@NonNull BluetoothGattCharacteristic characteristic) {
+        return mDelegate.writeCharacteristic(characteristic);
+    }
+
+    @Override
+    public Single<byte[]> writeCharacteristic(@NonNull BluetoothGattCharacteristic characteristic, @NonNull byte[] data) {
+        return recordWrite(characteristic.getUuid(), data, mDelegate.writeCharacteristic(characteristic, data));
+    }
+
+    @Override
+    public LongWriteOperationBuilder createNewLongWriteBuilder() {
+        return mDelegate.createNewLongWriteBuilder();
+    }
+
+    @Override
+    public Single<byte[]> readDescriptor(@NonNull UUID serviceUuid,
+                                         @NonNull UUID characteristicUuid,
+                                         @NonNull UUID descriptorUuid) {
+        return mDelegate.readDescriptor(serviceUuid, characteristicUuid, descriptorUuid);
+    }
+
+    @Override
+    public Single<byte[]> readDescriptor(@NonNull BluetoothGattDescriptor descriptor) {
+        return mDelegate.readDescriptor(descriptor);
+    }
+
+    @Override
+    public Completable writeDescriptor(@NonNull UUID serviceUuid,
+                                       @NonNull UUID characteristicUuid,
+                                       @NonNull UUID descriptorUuid,
+                                       @NonNull byte[] data) {
+        return mDelegate.writeDescriptor(serviceUuid, characteristicUuid, descriptorUuid, data);
+    }
+
+    @Override
+    public Completable writeDescriptor(@NonNull BluetoothGattDescriptor descriptor, @NonNull byte[] data) {
+        return mDelegate.writeDescriptor(descriptor, data);
+    }
+
+    @Override
+    public Single<Integer> readRssi() {
+        return mDelegate.readRssi();
+    }
+
+    @Override
+    public Completable requestConnectionPriority(int connectionPriority, long delay, @NonNull TimeUnit timeUnit) {
+        return mDelegate.requestConnectionPriority(connectionPriority, delay, timeUnit);
+    }
+
+    @Override
+    public Single<Integer> requestMtu(int mtu) {
+        return mDelegate.requestMtu(mtu);
+    }
+
+    @Override
+    public int getMtu() {
+        return mDelegate.getMtu();
+    }
+
+    @Override
+    public <T> Observable<T> queue(@NonNull RxBleCustomOperation<T> operation) {
+        return mDelegate.queue(operation);
+    }
+
+    private Observable<Observable<byte[]>> recordNotifications(UUID characteristic, Observable<Observable<byte[]>> setup) {
+        return setup.map(notifications -> {
+            mRecorder.record(CaptureEvent.NOTIFICATION_SETUP, mMacAddress, characteristic, null);
+            return notifications.doOnNext(bytes -> mRecorder.record(CaptureEvent.NOTIFICATION, mMacAddress, characteristic, bytes));
+        });
+    }
+
+    /**
+     * Записать запрос записи в момент подписки: тогда очередь операций действительно отдает его браслету
+     *
+     * @param characteristic UUID характеристики
+     * @param value          значение
+     * @param write          запись исходного подключения
+     * @return возвращает источник с записанным значением
+     */
+    private Single<byte[]> recordWrite(UUID characteristic, byte[] value, Single<byte[]> write) {
+        return write.doOnSubscribe(disposable -> mRecorder.record(CaptureEvent.WRITE, mMacAddress, characteristic, value));
+    }
+
+}
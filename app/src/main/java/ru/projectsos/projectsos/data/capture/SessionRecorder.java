@@ -0,0 +1,317 @@
+package ru.projectsos.projectsos.data.capture;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.polidea.rxandroidble2.RxBleConnection;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.reactivex.Observable;
+import io.reactivex.ObservableTransformer;
+
+import static dagger.internal.Preconditions.checkNotNull;
+
+/**
+ * Запись сеансов Bluetooth в двоичный файл для воспроизведения (см. {@link CaptureReader})
+ * <p>
+ * Обертку получают только подключения, установленные во время записи (см. {@link #record(String)}), остальные
+ * работают напрямую и ничего за запись не платят. Подключение, начатое до записи, в нее не попадает. Записываются подключения и отключения, включение
+ * уведомлений, записи характеристик в момент запроса и уведомления целиком, без усечения. События копируются в
+ * буфер под блокировкой и уходят в файл, когда буфер заполнен, поэтому поток Bluetooth редко ждет диск
+ * <p>
+ * Формат файла, big-endian: заголовок из {@link #HEADER_LENGTH} байтов (сигнатура, версия, резерв, время начала
+ * записи в миллисекундах от эпохи) и записи. Запись — код {@link CaptureEvent}, затем для объявлений номер и
+ * MAC адрес (длина и ASCII) или UUID (16 байтов), для остальных событий — время от предыдущей записи в
+ * наносекундах, номер устройства, номер характеристики, длина и данные, если они у события есть. Числа, кроме
+ * UUID, пишутся как varint: 7 бит на байт, старший бит — продолжение. Номера объявляются перед первым
+ * использованием и действуют до конца файла
+ */
+public final class SessionRecorder {
+
+    static final int MAGIC = 0x50534350;
+    static final int VERSION = 1;
+    static final int HEADER_LENGTH = 16;
+
+    /**
+     * Наибольшая длина значения: больше атрибут GATT не бывает
+     */
+    static final int MAX_VALUE_LENGTH = 512;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_VARINT_LENGTH = 10;
+    private static final int MAX_RECORD_LENGTH = 1 + 5 * MAX_VARINT_LENGTH + MAX_VALUE_LENGTH;
+
+    private final ByteBuffer mBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final Map<String, Integer> mDevices = new HashMap<>();
+    private final Map<UUID, Integer> mCharacteristics = new HashMap<>();
+
+    private volatile boolean mRecording;
+    private FileChannel mChannel;
+    private File mFile;
+    private IOException mError;
+    private long mLastNanos;
+    private long mRecords;
+
+    /**
+     * Начать запись в файл
+     * Файл перезаписывается, прежняя запись, если она шла, заканчивается
+     *
+     * @param file файл записи
+     * @throws IOException если файл не удалось открыть
+     */
+    public synchronized void start(@NonNull File file) throws IOException {
+        checkNotNull(file, "File is required");
+        stopQuietly();
+
+        File directory = file.getParentFile();
+
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Failed to create " + directory);
+        }
+
+        mChannel = new FileOutputStream(file, false).getChannel();
+        mFile = file;
+        mError = null;
+        mRecords = 0;
+        mDevices.clear();
+        mCharacteristics.clear();
+        mLastNanos = System.nanoTime();
+
+        mBuffer.clear();
+        mBuffer.putInt(MAGIC).putShort((short) VERSION).putShort((short) 0).putLong(System.currentTimeMillis());
+        mRecording = true;
+    }
+
+    /**
+     * Закончить запись и дописать буфер в файл
+     *
+     * @return файл записи или {@code null}, если запись не шла
+     * @throws IOException если запись прервалась ошибкой ввода-вывода
+     */
+    @Nullable
+    public synchronized File stop() throws IOException {
+        File file = mFile;
+        stopQuietly();
+
+        if (mError != null) {
+            IOException error = mError;
+            mError = null;
+            throw error;
+        }
+
+        return file;
+    }
+
+    /**
+     * Дописать буфер в файл, не прекращая запись
+     *
+     * @throws IOException при ошибке ввода-вывода
+     */
+    public synchronized void flush() throws IOException {
+        if (mChannel != null) {
+            drain();
+        }
+    }
+
+    public boolean isRecording() {
+        return mRecording;
+    }
+
+    /**
+     * Получить количество событий текущей или последней записи
+     *
+     * @return количество событий без объявлений
+     */
+    public synchronized long getRecords() {
+        return mRecords;
+    }
+
+    /**
+     * Записывать подключения устройства и все, что через них проходит
+     * Подключение, установленное во время записи, подменяется оберткой, которая отдает операции исходному
+     * подключению. Без записи подключение проходит как есть
+     *
+     * @param macAddress MAC адрес
+     * @return возвращает преобразователь источника подключений устройства
+     */
+    public ObservableTransformer<RxBleConnection, RxBleConnection> record(@NonNull String macAddress) {
+        checkNotNull(macAddress, "MAC address is required");
+
+        return upstream -> Observable.defer(() -> {
+            AtomicBoolean connected = new AtomicBoolean();
+
+            return upstream
+                    .map(rxBleConnection -> {
+                        if (!mRecording) {
+                            return rxBleConnection;
+                        }
+
+                        connected.set(true);
+                        record(CaptureEvent.CONNECTED, macAddress, null, null);
+                        return new RecordingRxBleConnection(this, macAddress, rxBleConnection);
+                    })
+                    .doOnError(throwable -> {
+                        if (connected.getAndSet(false)) {
+                            record(CaptureEvent.DISCONNECTED, macAddress, null, new byte[]{1});
+                        }
+                    })
+                    .doFinally(() -> {
+                        if (connected.getAndSet(false)) {
+                            record(CaptureEvent.DISCONNECTED, macAddress, null, new byte[]{0});
+                        }
+                    });
+        });
+    }
+
+    /**
+     * Записать событие, если идет запись
+     * Ошибка ввода-вывода прекращает запись, ее бросит {@link #stop()}
+     *
+     * @param event          событие
+     * @param macAddress     MAC адрес
+     * @param characteristic UUID характеристики или {@code null}
+     * @param value          данные или {@code null}
+     */
+    void record(CaptureEvent event, String macAddress, @Nullable UUID characteristic, @Nullable byte[] value) {
+        if (!mRecording) {
+            return;
+        }
+
+        synchronized (this) {
+            if (!mRecording) {
+                return;
+            }
+
+            try {
+                int device = declareDevice(macAddress);
+                int characteristicIndex = characteristic != null ? declareCharacteristic(characteristic) : -1;
+
+                ensureRemaining(MAX_RECORD_LENGTH);
+                long nowNanos = System.nanoTime();
+                mBuffer.put(event.getCode());
+                putVarint(nowNanos - mLastNanos);
+                putVarint(device);
+                mLastNanos = nowNanos;
+
+                if (characteristicIndex >= 0) {
+                    putVarint(characteristicIndex);
+                }
+
+                if (value != null) {
+                    int length = Math.min(value.length, MAX_VALUE_LENGTH);
+                    putVarint(length);
+                    mBuffer.put(value, 0, length);
+                }
+
+                mRecords++;
+            } catch (IOException e) {
+                mError = e;
+                stopQuietly();
+            }
+        }
+    }
+
+    private int declareDevice(String macAddress) throws IOException {
+        Integer index = mDevices.get(macAddress);
+
+        if (index != null) {
+            return index;
+        }
+
+        int created = mDevices.size();
+        mDevices.put(macAddress, created);
+
+        ensureRemaining(1 + 2 * MAX_VARINT_LENGTH + macAddress.length());
+        mBuffer.put(CaptureEvent.DEVICE.getCode());
+        putVarint(created);
+        putVarint(macAddress.length());
+
+        for (int i = 0; i < macAddress.length(); i++) {
+            mBuffer.put((byte) macAddress.charAt(i));
+        }
+
+        return created;
+    }
+
+    private int declareCharacteristic(UUID characteristic) throws IOException {
+        Integer index = mCharacteristics.get(characteristic);
+
+        if (index != null) {
+            return index;
+        }
+
+        int created = mCharacteristics.size();
+        mCharacteristics.put(characteristic, created);
+
+        ensureRemaining(1 + MAX_VARINT_LENGTH + 16);
+        mBuffer.put(CaptureEvent.CHARACTERISTIC.getCode());
+        putVarint(created);
+        mBuffer.putLong(characteristic.getMostSignificantBits()).putLong(characteristic.getLeastSignificantBits());
+        return created;
+    }
+
+    private void putVarint(long value) {
+        while ((value & ~0x7FL) != 0) {
+            mBuffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+
+        mBuffer.put((byte) value);
+    }
+
+    private void ensureRemaining(int length) throws IOException {
+        if (mBuffer.remaining() < length) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        mBuffer.flip();
+
+        while (mBuffer.hasRemaining()) {
+            mChannel.write(mBuffer);
+        }
+
+        mBuffer.clear();
+    }
+
+    /**
+     * Закончить запись, запомнив ошибку вместо того, чтобы бросить ее
+     */
+    private void stopQuietly() {
+        mRecording = false;
+
+        if (mChannel == null) {
+            return;
+        }
+
+        try {
+            drain();
+        } catch (IOException e) {
+            if (mError == null) {
+                mError = e;
+            }
+        }
+
+        try {
+            mChannel.close();
+        } catch (IOException e) {
+            if (mError == null) {
+                mError = e;
+            }
+        }
+
+        mChannel = null;
+        mFile = null;
+    }
+
+}
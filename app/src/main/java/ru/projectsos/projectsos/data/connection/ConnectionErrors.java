@@ -0,0 +1,65 @@
+package ru.projectsos.projectsos.data.connection;
+
+import com.polidea.rxandroidble2.exceptions.BleDisconnectedException;
+import com.polidea.rxandroidble2.exceptions.BleGattException;
+
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Классификация ошибок подключения: после каких имеет смысл подключаться снова
+ * <p>
+ * Повторяемые ошибки — разрыв связи, таймауты и сбои GATT стека, в том числе печально известный статус 133,
+ * которым Android отвечает почти на любую неудачу подключения. Браслет постоянно выходит из зоны действия
+ * и возвращается, поэтому такие ошибки — обычное дело. Окончательные — отказ в доступе к характеристикам
+ * (браслет требует сопряжения заново) и любые ошибки вне Bluetooth: повторное подключение их не исправит
+ */
+public final class ConnectionErrors {
+
+    /**
+     * Общий сбой GATT, Android возвращает его в том числе при неудачном подключении
+     */
+    public static final int GATT_ERROR = 133;
+
+    private static final int GATT_INSUFFICIENT_AUTHENTICATION = 0x05;
+    private static final int GATT_REQUEST_NOT_SUPPORTED = 0x06;
+    private static final int GATT_INSUFFICIENT_ENCRYPTION = 0x0F;
+
+    private ConnectionErrors() {
+    }
+
+    /**
+     * Проверить, имеет ли смысл подключиться снова после ошибки
+     *
+     * @param throwable ошибка подключения
+     * @return возвращает {@code true} для разрывов, таймаутов и сбоев GATT, иначе {@code false}
+     */
+    public static boolean isRetryable(Throwable throwable) {
+        if (throwable instanceof BleDisconnectedException || throwable instanceof TimeoutException) {
+            return true;
+        }
+
+        if (throwable instanceof BleGattException) {
+            switch (((BleGattException) throwable).getStatus()) {
+                case GATT_INSUFFICIENT_AUTHENTICATION:
+                case GATT_REQUEST_NOT_SUPPORTED:
+                case GATT_INSUFFICIENT_ENCRYPTION:
+                    return false;
+                default:
+                    return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Получить статус GATT ошибки
+     *
+     * @param throwable ошибка
+     * @return возвращает статус или {@code -1}, если ошибка не от GATT
+     */
+    public static int getStatus(Throwable throwable) {
+        return throwable instanceof BleGattException ? ((BleGattException) throwable).getStatus() : -1;
+    }
+
+}
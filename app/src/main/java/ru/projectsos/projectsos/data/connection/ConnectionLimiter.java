@@ -0,0 +1,158 @@
+package ru.projectsos.projectsos.data.connection;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import io.reactivex.Completable;
+import io.reactivex.CompletableEmitter;
+import io.reactivex.Observable;
+import io.reactivex.ObservableTransformer;
+
+/**
+ * Ограничитель количества одновременных GATT подключений
+ * <p>
+ * Bluetooth стек Android держит ограниченное число GATT клиентов, поэтому подключения сверх лимита
+ * ждут в очереди (FIFO), пока одно из активных подключений не будет закрыто
+ */
+public final class ConnectionLimiter {
+
+    private final Object mLock = new Object();
+    private final Deque<Ticket> mWaitingTickets = new ArrayDeque<>();
+    private final int mMaxConnections;
+
+    private int mAvailablePermits;
+
+    /**
+     * Конструктор
+     *
+     * @param maxConnections максимальное количество одновременных подключений
+     */
+    public ConnectionLimiter(int maxConnections) {
+        if (maxConnections <= 0) {
+            throw new IllegalArgumentException("maxConnections must be positive, got " + maxConnections);
+        }
+
+        mMaxConnections = maxConnections;
+        mAvailablePermits = maxConnections;
+    }
+
+    /**
+     * Ограничить источник подключения
+     * Подписка на источник откладывается до получения разрешения, разрешение возвращается при
+     * завершении или отписке
+     *
+     * @param <T> тип элементов источника
+     * @return преобразователь источника
+     */
+    public <T> ObservableTransformer<T, T> limit() {
+        return upstream -> Observable.using(
+                Ticket::new,
+                ticket -> awaitPermit(ticket).andThen(upstream),
+                this::releasePermit
+        );
+    }
+
+    /**
+     * Получить максимальное количество одновременных подключений
+     *
+     * @return максимальное количество подключений
+     */
+    public int getMaxConnections() {
+        return mMaxConnections;
+    }
+
+    /**
+     * Получить количество активных подключений
+     *
+     * @return количество выданных разрешений
+     */
+    public int getActiveConnections() {
+        synchronized (mLock) {
+            return mMaxConnections - mAvailablePermits;
+        }
+    }
+
+    /**
+     * Получить количество подключений в очереди
+     *
+     * @return количество ожидающих разрешения подключений
+     */
+    public int getWaitingConnections() {
+        synchronized (mLock) {
+            return mWaitingTickets.size();
+        }
+    }
+
+    /**
+     * Дождаться разрешения на подключение
+     *
+     * @param ticket билет подписки
+     * @return завершаемый источник, который завершается при получении разрешения
+     */
+    private Completable awaitPermit(Ticket ticket) {
+        return Completable.create(emitter -> {
+            boolean granted;
+
+            synchronized (mLock) {
+                if (mAvailablePermits > 0 && mWaitingTickets.isEmpty()) {
+                    mAvailablePermits--;
+                    ticket.mState = Ticket.GRANTED;
+                    granted = true;
+                } else {
+                    ticket.mEmitter = emitter;
+                    mWaitingTickets.addLast(ticket);
+                    granted = false;
+                }
+            }
+
+            if (granted) {
+                emitter.onComplete();
+            }
+        });
+    }
+
+    /**
+     * Вернуть разрешение и передать его следующему в очереди
+     *
+     * @param ticket билет подписки
+     */
+    private void releasePermit(Ticket ticket) {
+        Ticket next = null;
+
+        synchronized (mLock) {
+            if (ticket.mState == Ticket.GRANTED) {
+                next = mWaitingTickets.pollFirst();
+
+                if (next != null) {
+                    next.mState = Ticket.GRANTED;
+                } else {
+                    mAvailablePermits++;
+                }
+            } else if (ticket.mState == Ticket.WAITING) {
+                mWaitingTickets.remove(ticket);
+            }
+
+            ticket.mState = Ticket.RELEASED;
+        }
+
+        // Если следующий уже отписался, его releasePermit передаст разрешение дальше
+        if (next != null) {
+            next.mEmitter.onComplete();
+        }
+    }
+
+    /**
+     * Билет одной подписки на подключение
+     */
+    private static final class Ticket {
+
+        private static final int WAITING = 0;
+        private static final int GRANTED = 1;
+        private static final int RELEASED = 2;
+
+        private int mState = WAITING;
+        private CompletableEmitter mEmitter;
+
+    }
+
+}
@@ -0,0 +1,271 @@
+package ru.projectsos.projectsos.data.connection;
+
+import android.bluetooth.BluetoothGatt;
+
+import com.polidea.rxandroidble2.RxBleConnection;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Completable;
+import io.reactivex.Observable;
+import io.reactivex.ObservableTransformer;
+import io.reactivex.Single;
+import io.reactivex.SingleTransformer;
+import io.reactivex.disposables.Disposable;
+
+/**
+ * Параметры GATT подключения: размер MTU и приоритет подключения
+ * <p>
+ * По умолчанию MTU равен 23 байтам, то есть в уведомление помещается 20 байтов данных, а интервал подключения
+ * сбалансированный. Профиль при каждом подключении запрашивает наибольший MTU, который примет браслет, а на время
+ * рукопожатия и выгрузки истории — высокий приоритет подключения. Через {@link #IDLE_DELAY_MILLIS} после последней
+ * такой операции приоритет возвращается к сбалансированному
+ * <p>
+ * Запросы идут через очередь операций подключения с приоритетом {@link GattPriority#CRITICAL}
+ */
+public final class ConnectionProfile {
+
+    /**
+     * MTU по умолчанию
+     */
+    public static final int DEFAULT_MTU = 23;
+
+    /**
+     * Наибольший MTU, который допускает Android
+     */
+    public static final int MAX_MTU = 517;
+
+    /**
+     * Задержка возврата к сбалансированному приоритету после последней операции, которой нужен высокий
+     * Операции часто идут подряд, например рукопожатие и выгрузка, и не должны переключать приоритет между собой
+     */
+    public static final long IDLE_DELAY_MILLIS = 2000;
+
+    /**
+     * Сколько операция смены приоритета держит очередь RxAndroidBle, пока браслет принимает новые параметры
+     */
+    private static final long PRIORITY_SETTLE_MILLIS = 20;
+
+    private final GattOperationQueue mQueue;
+    private final Object mLock = new Object();
+
+    private RxBleConnection mConnection;
+    private int mMtu = DEFAULT_MTU;
+    private int mPriority = BluetoothGatt.CONNECTION_PRIORITY_BALANCED;
+    private int mRequestedPriority = BluetoothGatt.CONNECTION_PRIORITY_BALANCED;
+    private int mLeases;
+    private long mHighSinceNanos;
+    private long mHighPriorityNanos;
+    private long mPriorityRequests;
+    private Disposable mIdleDisposable;
+
+    /**
+     * Конструктор
+     *
+     * @param queue очередь операций подключения
+     */
+    ConnectionProfile(GattOperationQueue queue) {
+        mQueue = queue;
+    }
+
+    /**
+     * Настроить новое подключение: запросить MTU и, если идут операции, которым он нужен, высокий приоритет
+     * Отказ браслета в большем MTU не ошибка: подключение остается с прежним
+     *
+     * @param rxBleConnection подключение
+     * @return возвращает источник с настроенным подключением
+     */
+    Single<RxBleConnection> configure(RxBleConnection rxBleConnection) {
+        return mQueue.schedule(GattPriority.CRITICAL, rxBleConnection.requestMtu(MAX_MTU))
+                .onErrorReturn(throwable -> rxBleConnection.getMtu())
+                .flatMap(mtu -> {
+                    Completable request;
+
+                    synchronized (mLock) {
+                        mConnection = rxBleConnection;
+                        mMtu = mtu;
+                        // Новое подключение начинается со сбалансированного приоритета
+                        onPriorityChanged(BluetoothGatt.CONNECTION_PRIORITY_BALANCED);
+                        mRequestedPriority = BluetoothGatt.CONNECTION_PRIORITY_BALANCED;
+                        request = mLeases > 0 ? requestPriority(BluetoothGatt.CONNECTION_PRIORITY_HIGH) : Completable.complete();
+                    }
+
+                    return request.toSingleDefault(rxBleConnection);
+                });
+    }
+
+    /**
+     * Держать высокий приоритет подключения, пока есть подписка на источник
+     *
+     * @param <T> тип элементов источника
+     * @return преобразователь источника
+     */
+    public <T> ObservableTransformer<T, T> highPriority() {
+        return upstream -> Observable.using(this::acquire, lease -> upstream, lease -> release());
+    }
+
+    /**
+     * Держать высокий приоритет подключения, пока есть подписка на источник
+     *
+     * @param <T> тип результата источника
+     * @return преобразователь источника
+     */
+    public <T> SingleTransformer<T, T> highPrioritySingle() {
+        return upstream -> Single.using(this::acquire, lease -> upstream, lease -> release());
+    }
+
+    /**
+     * Получить согласованный MTU
+     *
+     * @return байты
+     */
+    public int getMtu() {
+        synchronized (mLock) {
+            return mMtu;
+        }
+    }
+
+    /**
+     * Получить размер данных в одном уведомлении или записи
+     *
+     * @return байты
+     */
+    public int getPayloadSize() {
+        return getMtu() - 3;
+    }
+
+    /**
+     * Получить текущий приоритет подключения
+     *
+     * @return одна из констант {@code BluetoothGatt.CONNECTION_PRIORITY_*}
+     */
+    public int getPriority() {
+        synchronized (mLock) {
+            return mPriority;
+        }
+    }
+
+    /**
+     * Получить количество запросов смены приоритета
+     *
+     * @return количество запросов
+     */
+    public long getPriorityRequests() {
+        synchronized (mLock) {
+            return mPriorityRequests;
+        }
+    }
+
+    /**
+     * Получить суммарное время с высоким приоритетом
+     *
+     * @return наносекунды
+     */
+    public long getHighPriorityNanos() {
+        synchronized (mLock) {
+            return mHighPriorityNanos + (mPriority == BluetoothGatt.CONNECTION_PRIORITY_HIGH ? System.nanoTime() - mHighSinceNanos : 0);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "mtu=%d priority=%d requests=%d high=%.1fms",
+                getMtu(), getPriority(), getPriorityRequests(), getHighPriorityNanos() / 1e6);
+    }
+
+    private Object acquire() {
+        Completable request = null;
+
+        synchronized (mLock) {
+            mLeases++;
+
+            if (mIdleDisposable != null) {
+                mIdleDisposable.dispose();
+                mIdleDisposable = null;
+            }
+
+            if (mRequestedPriority != BluetoothGatt.CONNECTION_PRIORITY_HIGH) {
+                request = requestPriority(BluetoothGatt.CONNECTION_PRIORITY_HIGH);
+            }
+        }
+
+        if (request != null) {
+            // Приоритет — оптимизация: операция не ждет его смены и не падает при отказе
+            request.onErrorComplete().subscribe();
+        }
+
+        return this;
+    }
+
+    private void release() {
+        synchronized (mLock) {
+            if (--mLeases > 0) {
+                return;
+            }
+
+            if (mIdleDisposable != null) {
+                mIdleDisposable.dispose();
+            }
+
+            mIdleDisposable = Completable.timer(IDLE_DELAY_MILLIS, TimeUnit.MILLISECONDS)
+                    .andThen(Completable.defer(() -> {
+                        synchronized (mLock) {
+                            return mLeases > 0 ? Completable.complete() : requestPriority(BluetoothGatt.CONNECTION_PRIORITY_BALANCED);
+                        }
+                    }))
+                    .onErrorComplete()
+                    .subscribe();
+        }
+    }
+
+    /**
+     * Запросить приоритет у текущего подключения
+     * Вызывается под блокировкой. Приоритет считается смененным, только когда запрос выполнен: отказанный или
+     * упавший запрос не попадает во время с высоким приоритетом, а следующая операция запросит его снова
+     *
+     * @param priority одна из констант {@code BluetoothGatt.CONNECTION_PRIORITY_*}
+     * @return возвращает завершаемый источник
+     */
+    private Completable requestPriority(int priority) {
+        RxBleConnection rxBleConnection = mConnection;
+
+        if (rxBleConnection == null) {
+            return Completable.complete();
+        }
+
+        mRequestedPriority = priority;
+        mPriorityRequests++;
+
+        return mQueue.schedule(GattPriority.CRITICAL, rxBleConnection
+                .requestConnectionPriority(priority, PRIORITY_SETTLE_MILLIS, TimeUnit.MILLISECONDS)
+                .toSingleDefault(priority))
+                .ignoreElement()
+                .doOnComplete(() -> {
+                    synchronized (mLock) {
+                        if (mConnection == rxBleConnection) {
+                            onPriorityChanged(priority);
+                        }
+                    }
+                })
+                .doOnError(throwable -> {
+                    synchronized (mLock) {
+                        if (mConnection == rxBleConnection && mRequestedPriority == priority) {
+                            mRequestedPriority = mPriority;
+                        }
+                    }
+                });
+    }
+
+    private void onPriorityChanged(int priority) {
+        long now = System.nanoTime();
+
+        if (mPriority == BluetoothGatt.CONNECTION_PRIORITY_HIGH) {
+            mHighPriorityNanos += now - mHighSinceNanos;
+        }
+
+        mPriority = priority;
+        mHighSinceNanos = now;
+    }
+
+}
@@ -0,0 +1,263 @@
+package ru.projectsos.projectsos.data.connection;
+
+import android.support.annotation.NonNull;
+
+import com.jakewharton.rx.ReplayingShare;
+import com.polidea.rxandroidble2.RxBleConnection;
+import com.polidea.rxandroidble2.RxBleDevice;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.reactivex.Notification;
+import io.reactivex.Observable;
+import io.reactivex.Single;
+import io.reactivex.subjects.PublishSubject;
+import ru.projectsos.projectsos.data.capture.SessionRecorder;
+import ru.projectsos.projectsos.data.journal.DeviceJournal;
+import ru.projectsos.projectsos.data.journal.JournalEvent;
+import ru.projectsos.projectsos.data.metrics.DeviceMetrics;
+
+import static dagger.internal.Preconditions.checkNotNull;
+
+/**
+ * Подключение к одному устройству
+ * Имеет собственный жизненный цикл: собственный разделяемый источник подключения и собственный триггер отключения,
+ * поэтому отключение одного устройства не затрагивает остальные
+ * Операции с характеристиками идут через собственную очередь с приоритетами (см. {@link GattOperationQueue}),
+ * а каждое новое GATT подключение настраивается профилем (см. {@link ConnectionProfile})
+ * После разрыва подключение восстанавливается само (см. {@link ReconnectPolicy}), подписчики разделяемого
+ * источника получают новое подключение вместо ошибки. Разделяемый источник помнит не само подключение, а
+ * последнее событие: при разрыве его сменяет отметка об отключении, поэтому подписчик, пришедший во время
+ * ожидания повторной попытки, ждет нового подключения, а не получает уже разорванное
+ * Время подключения, включения уведомлений и записей пишется в метрики устройства (см. {@link DeviceMetrics}),
+ * а сами события с первыми байтами уведомлений и записей — в журнал (см. {@link DeviceJournal})
+ * Каждое GATT подключение проходит через запись сеансов (см. {@link SessionRecorder}), пока она идет, туда
+ * попадают все записи и уведомления целиком
+ */
+public final class DeviceConnection {
+
+    private final String mMacAddress;
+    private final RxBleDevice mDevice;
+    private final PublishSubject<Boolean> mDisconnectTriggerSubject;
+    private final Observable<RxBleConnection> mConnectionObservable;
+    private final DeviceMetrics mMetrics;
+    private final DeviceJournal mJournal;
+    private final GattOperationQueue mOperationQueue;
+    private final ConnectionProfile mProfile;
+    private final ReconnectEngine mReconnectEngine;
+    private final SessionRecorder mRecorder;
+
+    /**
+     * Конструктор
+     *
+     * @param device          устройство
+     * @param limiter         ограничитель одновременных подключений
+     * @param reconnectPolicy политика повторного подключения
+     * @param metrics         метрики устройства
+     * @param journal         журнал устройства
+     * @param recorder        запись сеансов
+     */
+    DeviceConnection(@NonNull RxBleDevice device,
+                     @NonNull ConnectionLimiter limiter,
+                     @NonNull ReconnectPolicy reconnectPolicy,
+                     @NonNull DeviceMetrics metrics,
+                     @NonNull DeviceJournal journal,
+                     @NonNull SessionRecorder recorder) {
+        mDevice = checkNotNull(device, "RxBleDevice is required");
+        mMacAddress = device.getMacAddress();
+        mMetrics = checkNotNull(metrics, "DeviceMetrics is required");
+        mJournal = checkNotNull(journal, "DeviceJournal is required");
+        mDisconnectTriggerSubject = PublishSubject.create();
+        mOperationQueue = new GattOperationQueue(metrics.getWrite(), journal);
+        mProfile = new ConnectionProfile(mOperationQueue);
+        mReconnectEngine = new ReconnectEngine(
+                checkNotNull(reconnectPolicy, "ReconnectPolicy is required"),
+                metrics.getReconnect(),
+                journal
+        );
+        mRecorder = checkNotNull(recorder, "SessionRecorder is required");
+
+        // Разрешение лимитера возвращается при каждой ошибке, поэтому ожидание повторной попытки не занимает слот
+        Observable<Notification<RxBleConnection>> shared = Observable
+                .defer(() -> {
+                    long startNanos = System.nanoTime();
+                    boolean autoConnect = mReconnectEngine.useAutoConnect();
+                    mJournal.record(JournalEvent.CONNECT_ATTEMPT, autoConnect ? 1 : 0);
+
+                    return mDevice.establishConnection(autoConnect)
+                            .compose(mRecorder.record(mMacAddress))
+                            .flatMapSingle(mProfile::configure)
+                            .doOnNext(rxBleConnection -> {
+                                long connectNanos = System.nanoTime() - startNanos;
+                                mMetrics.getConnect().record(connectNanos);
+                                mJournal.record(JournalEvent.CONNECTED, connectNanos);
+                                mReconnectEngine.onConnected();
+                            })
+                            .map(Notification::createOnNext)
+                            // Отметка об отключении заменяет разорванное подключение до повторной попытки
+                            .onErrorResumeNext((Throwable throwable) -> Observable
+                                    .just(Notification.<RxBleConnection>createOnError(throwable))
+                                    .concatWith(Observable.error(throwable)));
+                })
+                .compose(checkNotNull(limiter, "ConnectionLimiter is required").limit())
+                .compose(mReconnectEngine.reconnect())
+                .takeUntil(mDisconnectTriggerSubject)
+                .concatWith(Observable.just(Notification.createOnComplete()))
+                .compose(ReplayingShare.instance());
+        mConnectionObservable = shared
+                .filter(Notification::isOnNext)
+                .map(Notification::getValue);
+    }
+
+    /**
+     * Получить MAC адрес устройства
+     *
+     * @return MAC адрес
+     */
+    public String getMacAddress() {
+        return mMacAddress;
+    }
+
+    /**
+     * Получить устройство
+     *
+     * @return устройство
+     */
+    public RxBleDevice getDevice() {
+        return mDevice;
+    }
+
+    /**
+     * Наблюдать за подключением к устройству
+     * Все подписчики разделяют одно GATT подключение. Новый подписчик сразу получает текущее подключение, а если
+     * оно разорвано и ждет повторной попытки — следующее
+     *
+     * @return возвращает горячий источник
+     */
+    public Observable<RxBleConnection> observeConnection() {
+        return mConnectionObservable;
+    }
+
+    /**
+     * Получить очередь GATT операций подключения
+     *
+     * @return очередь операций
+     */
+    public GattOperationQueue getOperationQueue() {
+        return mOperationQueue;
+    }
+
+    /**
+     * Получить профиль подключения
+     *
+     * @return профиль подключения
+     */
+    public ConnectionProfile getProfile() {
+        return mProfile;
+    }
+
+    /**
+     * Получить метрики устройства
+     *
+     * @return метрики устройства
+     */
+    public DeviceMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    /**
+     * Получить журнал устройства
+     *
+     * @return журнал устройства
+     */
+    public DeviceJournal getJournal() {
+        return mJournal;
+    }
+
+    /**
+     * Включить уведомления характеристики
+     * Время включения и промежутки между уведомлениями пишутся в метрики устройства, уведомления — в журнал
+     *
+     * @param rxBleConnection подключение
+     * @param characteristic  UUID характеристики
+     * @return возвращает источник, который выдает источник уведомлений, когда они включены
+     */
+    public Observable<Observable<byte[]>> setupNotification(RxBleConnection rxBleConnection, UUID characteristic) {
+        return Observable.defer(() -> {
+            long startNanos = System.nanoTime();
+
+            return rxBleConnection.setupNotification(characteristic)
+                    .doOnNext(notifications -> {
+                        mMetrics.getNotificationSetup().recordSince(startNanos);
+                        mJournal.record(JournalEvent.NOTIFICATION_SETUP, characteristic);
+                    })
+                    .map(this::measure);
+        });
+    }
+
+    /**
+     * Получить счетчики повторных подключений
+     *
+     * @return счетчики и гистограмма времени восстановления
+     */
+    public ReconnectStats getReconnectStats() {
+        return mReconnectEngine.getStats();
+    }
+
+    /**
+     * Записать характеристику через очередь операций
+     * Подключение берется до постановки в очередь, поэтому ожидание подключения не задерживает другие операции.
+     * Во время повторного подключения запись ждет нового подключения, а не уходит в разорванное
+     *
+     * @param characteristic UUID характеристики
+     * @param value          значение
+     * @param priority       приоритет
+     * @param coalesce       заменить значение еще не начатой записи в эту характеристику
+     * @return возвращает источник с записанным значением
+     */
+    public Single<byte[]> write(UUID characteristic, byte[] value, GattPriority priority, boolean coalesce) {
+        return mConnectionObservable
+                .firstOrError()
+                .flatMap(rxBleConnection -> mOperationQueue.write(rxBleConnection, characteristic, value, priority, coalesce));
+    }
+
+    /**
+     * Наблюдать за состоянием подключения
+     *
+     * @return возвращает горячий источник
+     */
+    public Observable<RxBleConnection.RxBleConnectionState> observeConnectionState() {
+        return mDevice
+                .observeConnectionStateChanges()
+                .takeUntil(mDisconnectTriggerSubject);
+    }
+
+    /**
+     * Учитывать уведомления подписки в метриках и журнале
+     *
+     * @param notifications источник уведомлений
+     * @return возвращает источник уведомлений
+     */
+    private Observable<byte[]> measure(Observable<byte[]> notifications) {
+        return Observable.defer(() -> {
+            AtomicLong lastNanos = new AtomicLong(Long.MIN_VALUE);
+
+            return notifications.doOnNext(bytes -> {
+                long nowNanos = System.nanoTime();
+                long previousNanos = lastNanos.getAndSet(nowNanos);
+                mMetrics.recordNotification(bytes.length, previousNanos == Long.MIN_VALUE ? -1 : nowNanos - previousNanos);
+                mJournal.record(JournalEvent.NOTIFICATION, bytes);
+            });
+        });
+    }
+
+    /**
+     * Разорвать подключение и завершить источники этого устройства
+     */
+    void disconnect() {
+        mJournal.record(JournalEvent.DISCONNECT_REQUESTED);
+        mDisconnectTriggerSubject.onNext(true);
+    }
+
+}
@@ -0,0 +1,147 @@
+package ru.projectsos.projectsos.data.connection;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.polidea.rxandroidble2.RxBleClient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import ru.projectsos.projectsos.data.capture.SessionRecorder;
+import ru.projectsos.projectsos.data.journal.EventJournal;
+import ru.projectsos.projectsos.data.metrics.MetricsRegistry;
+
+import static dagger.internal.Preconditions.checkNotNull;
+
+/**
+ * Менеджер подключений к нескольким устройствам
+ * Хранит по одному {@link DeviceConnection} на каждый MAC адрес и ограничивает количество одновременных
+ * GATT подключений
+ */
+public final class DeviceConnectionManager {
+
+    /**
+     * Количество одновременных GATT подключений по умолчанию
+     * Большинство Bluetooth стеков Android надежно держат не больше 4-7 подключений
+     */
+    public static final int DEFAULT_MAX_CONNECTIONS = 4;
+
+    private final RxBleClient mRxBleClient;
+    private final ConnectionLimiter mConnectionLimiter;
+    private final ReconnectPolicy mReconnectPolicy;
+    private final MetricsRegistry mMetricsRegistry;
+    private final EventJournal mJournal;
+    private final SessionRecorder mRecorder;
+    private final ConcurrentMap<String, DeviceConnection> mConnections = new ConcurrentHashMap<>();
+
+    /**
+     * Конструктор
+     *
+     * @param rxBleClient    клиент для работы с Bluetooth LE
+     * @param maxConnections  максимальное количество одновременных GATT подключений
+     * @param reconnectPolicy политика повторного подключения
+     * @param metricsRegistry реестр метрик
+     * @param journal         журнал событий
+     * @param recorder        запись сеансов
+     */
+    public DeviceConnectionManager(@NonNull RxBleClient rxBleClient,
+                                   int maxConnections,
+                                   @NonNull ReconnectPolicy reconnectPolicy,
+                                   @NonNull MetricsRegistry metricsRegistry,
+                                   @NonNull EventJournal journal,
+                                   @NonNull SessionRecorder recorder) {
+        mRxBleClient = checkNotNull(rxBleClient, "RxBleClient is required");
+        mConnectionLimiter = new ConnectionLimiter(maxConnections);
+        mReconnectPolicy = checkNotNull(reconnectPolicy, "ReconnectPolicy is required");
+        mMetricsRegistry = checkNotNull(metricsRegistry, "MetricsRegistry is required");
+        mJournal = checkNotNull(journal, "EventJournal is required");
+        mRecorder = checkNotNull(recorder, "SessionRecorder is required");
+    }
+
+    /**
+     * Получить подключение к устройству, создав его при необходимости
+     *
+     * @param macAddress MAC адрес
+     * @return подключение к устройству
+     */
+    public DeviceConnection obtain(@NonNull String macAddress) {
+        checkNotNull(macAddress, "MAC address is required");
+
+        DeviceConnection connection = mConnections.get(macAddress);
+
+        if (connection == null) {
+            DeviceConnection created = new DeviceConnection(
+                    mRxBleClient.getBleDevice(macAddress),
+                    mConnectionLimiter,
+                    mReconnectPolicy,
+                    mMetricsRegistry.device(macAddress),
+                    mJournal.device(macAddress),
+                    mRecorder
+            );
+            connection = mConnections.putIfAbsent(macAddress, created);
+
+            if (connection == null) {
+                connection = created;
+            }
+        }
+
+        return connection;
+    }
+
+    /**
+     * Найти подключение к устройству, не создавая его
+     * Нужно тем, кто только читает подключение: после {@link #release(String)} чтение не должно его воскрешать
+     *
+     * @param macAddress MAC адрес
+     * @return подключение к устройству или {@code null}, если его нет
+     */
+    @Nullable
+    public DeviceConnection find(@NonNull String macAddress) {
+        return mConnections.get(checkNotNull(macAddress, "MAC address is required"));
+    }
+
+    /**
+     * Отключиться от устройства и забыть его подключение
+     * Остальные подключения не затрагиваются
+     *
+     * @param macAddress MAC адрес
+     */
+    public void release(@NonNull String macAddress) {
+        DeviceConnection connection = mConnections.remove(macAddress);
+
+        if (connection != null) {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Отключиться от всех устройств
+     */
+    public void releaseAll() {
+        for (String macAddress : new ArrayList<>(mConnections.keySet())) {
+            release(macAddress);
+        }
+    }
+
+    /**
+     * Получить MAC адреса устройств, с которыми есть подключение
+     *
+     * @return список MAC адресов
+     */
+    public List<String> getMacAddresses() {
+        return new ArrayList<>(mConnections.keySet());
+    }
+
+    /**
+     * Получить ограничитель одновременных подключений
+     *
+     * @return ограничитель подключений
+     */
+    public ConnectionLimiter getConnectionLimiter() {
+        return mConnectionLimiter;
+    }
+
+}
@@ -0,0 +1,405 @@
+package ru.projectsos.projectsos.data.connection;
+
+import android.support.annotation.NonNull;
+
+import com.polidea.rxandroidble2.RxBleConnection;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.Single;
+import io.reactivex.SingleEmitter;
+import io.reactivex.disposables.Disposable;
+import ru.projectsos.projectsos.data.journal.DeviceJournal;
+import ru.projectsos.projectsos.data.journal.JournalEvent;
+import ru.projectsos.projectsos.data.metrics.Histogram;
+
+import static dagger.internal.Preconditions.checkNotNull;
+
+/**
+ * Очередь GATT операций одного подключения
+ * <p>
+ * RxAndroidBle выполняет операции по одной в порядке подписки, поэтому команда аутентификации или SOS, поданная
+ * после выгрузки истории, ждала бы ее целиком. Здесь в RxAndroidBle передается не больше одной операции за раз,
+ * а следующая выбирается по {@link GattPriority}
+ * <p>
+ * Запись с объединением заменяет значение еще не начатой записи в ту же характеристику: выполняется одна запись
+ * последнего значения, и ее итог получают все подписчики. Ожидание в очереди учитывается по приоритетам,
+ * а полное время записи, от постановки в очередь до подтверждения, — в гистограмме записей
+ */
+public final class GattOperationQueue {
+
+    private static final GattPriority[] PRIORITIES = GattPriority.values();
+
+    private final Histogram mWriteHistogram;
+    private final DeviceJournal mJournal;
+    private final Object mLock = new Object();
+    private final AtomicInteger mWip = new AtomicInteger();
+    private final List<ArrayDeque<Operation>> mPending = new ArrayList<>(PRIORITIES.length);
+    private final long[] mStarted = new long[PRIORITIES.length];
+    private final long[] mTotalWaitNanos = new long[PRIORITIES.length];
+    private final long[] mMaxWaitNanos = new long[PRIORITIES.length];
+
+    private Operation mRunning;
+    private int mPendingCount;
+    private int mPeakPendingCount;
+    private long mCoalesced;
+
+    /**
+     * Конструктор
+     *
+     * @param writeHistogram гистограмма времени записей
+     * @param journal        журнал устройства
+     */
+    public GattOperationQueue(@NonNull Histogram writeHistogram, @NonNull DeviceJournal journal) {
+        mWriteHistogram = checkNotNull(writeHistogram, "Histogram is required");
+        mJournal = checkNotNull(journal, "DeviceJournal is required");
+
+        for (int i = 0; i < PRIORITIES.length; i++) {
+            mPending.add(new ArrayDeque<>());
+        }
+    }
+
+    /**
+     * Поставить операцию в очередь
+     * Операция запускается при своей очереди, отписка до запуска убирает ее из очереди
+     *
+     * @param priority  приоритет
+     * @param operation операция
+     * @param <T>       тип результата
+     * @return возвращает источник с результатом операции
+     */
+    public <T> Single<T> schedule(GattPriority priority, Single<T> operation) {
+        return enqueue(priority, null, operation);
+    }
+
+    /**
+     * Поставить запись характеристики в очередь
+     *
+     * @param rxBleConnection подключение
+     * @param characteristic  UUID характеристики
+     * @param value           значение
+     * @param priority        приоритет
+     * @param coalesce        заменить значение еще не начатой записи в эту характеристику
+     * @return возвращает источник с записанным значением
+     */
+    public Single<byte[]> write(RxBleConnection rxBleConnection,
+                                UUID characteristic,
+                                byte[] value,
+                                GattPriority priority,
+                                boolean coalesce) {
+        return Single.defer(() -> {
+            long startNanos = System.nanoTime();
+
+            return enqueue(priority, coalesce ? characteristic : null, rxBleConnection.writeCharacteristic(characteristic, value))
+                    .doOnSuccess(written -> {
+                        mWriteHistogram.recordSince(startNanos);
+                        mJournal.record(JournalEvent.WRITE, written);
+                    })
+                    .doOnError(throwable -> mJournal.record(JournalEvent.WRITE_ERROR, ConnectionErrors.getStatus(throwable)));
+        });
+    }
+
+    /**
+     * Получить количество операций, ожидающих запуска
+     *
+     * @return количество операций
+     */
+    public int getPendingCount() {
+        synchronized (mLock) {
+            return mPendingCount;
+        }
+    }
+
+    /**
+     * Получить наибольшее количество операций, ожидавших запуска
+     *
+     * @return количество операций
+     */
+    public int getPeakPendingCount() {
+        synchronized (mLock) {
+            return mPeakPendingCount;
+        }
+    }
+
+    /**
+     * Получить количество записей, объединенных с уже стоящими в очереди
+     *
+     * @return количество записей
+     */
+    public long getCoalescedCount() {
+        synchronized (mLock) {
+            return mCoalesced;
+        }
+    }
+
+    /**
+     * Получить количество запущенных операций
+     *
+     * @param priority приоритет
+     * @return количество операций
+     */
+    public long getStartedCount(GattPriority priority) {
+        synchronized (mLock) {
+            return mStarted[priority.ordinal()];
+        }
+    }
+
+    /**
+     * Получить среднее ожидание запуска
+     *
+     * @param priority приоритет
+     * @return наносекунды
+     */
+    public long getAverageWaitNanos(GattPriority priority) {
+        synchronized (mLock) {
+            int index = priority.ordinal();
+            return mStarted[index] == 0 ? 0 : mTotalWaitNanos[index] / mStarted[index];
+        }
+    }
+
+    /**
+     * Получить наибольшее ожидание запуска
+     *
+     * @param priority приоритет
+     * @return наносекунды
+     */
+    public long getMaxWaitNanos(GattPriority priority) {
+        synchronized (mLock) {
+            return mMaxWaitNanos[priority.ordinal()];
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+
+        synchronized (mLock) {
+            builder.append(String.format(Locale.US, "pending=%d peak=%d coalesced=%d", mPendingCount, mPeakPendingCount, mCoalesced));
+
+            for (GattPriority priority : PRIORITIES) {
+                int index = priority.ordinal();
+                builder.append(String.format(Locale.US, " %s[n=%d avg=%.1fms max=%.1fms]", priority, mStarted[index],
+                        mStarted[index] == 0 ? 0 : mTotalWaitNanos[index] / 1e6 / mStarted[index], mMaxWaitNanos[index] / 1e6));
+            }
+        }
+
+        return builder.toString();
+    }
+
+    private <T> Single<T> enqueue(GattPriority priority, Object coalescingKey, Single<T> operation) {
+        return Single.create(emitter -> {
+            Operation queued;
+
+            synchronized (mLock) {
+                queued = coalescingKey == null ? null : findPending(coalescingKey);
+
+                if (queued != null) {
+                    mCoalesced++;
+                    queued.mOperation = operation;
+
+                    // Объединенная запись занимает место более срочной из двух
+                    if (priority.ordinal() < queued.mPriority.ordinal()) {
+                        mPending.get(queued.mPriority.ordinal()).remove(queued);
+                        mPending.get(priority.ordinal()).addLast(queued);
+                        queued.mPriority = priority;
+                    }
+                } else {
+                    queued = new Operation(priority, coalescingKey, operation);
+                    mPending.get(priority.ordinal()).addLast(queued);
+                    mPendingCount++;
+                    mPeakPendingCount = Math.max(mPeakPendingCount, mPendingCount);
+                }
+
+                queued.mEmitters.add(emitter);
+            }
+
+            Operation subscribed = queued;
+            emitter.setCancellable(() -> cancel(subscribed, emitter));
+            drain();
+        });
+    }
+
+    /**
+     * Найти еще не начатую операцию с тем же ключом объединения
+     *
+     * @param coalescingKey ключ объединения
+     * @return операция или {@code null}
+     */
+    private Operation findPending(Object coalescingKey) {
+        for (ArrayDeque<Operation> pending : mPending) {
+            for (Operation operation : pending) {
+                if (coalescingKey.equals(operation.mCoalescingKey)) {
+                    return operation;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Запускать операции по одной, пока очередь не опустеет или пока операция не выполняется асинхронно
+     * Операция, завершившаяся прямо при запуске, не вызывает рекурсию: следующую запускает этот же цикл
+     */
+    private void drain() {
+        if (mWip.getAndIncrement() != 0) {
+            return;
+        }
+
+        int missed = 1;
+
+        do {
+            Operation next = null;
+
+            synchronized (mLock) {
+                if (mRunning == null) {
+                    next = poll();
+                    mRunning = next;
+                }
+            }
+
+            if (next != null) {
+                start(next);
+            } else {
+                missed = mWip.addAndGet(-missed);
+            }
+        } while (missed != 0);
+    }
+
+    private Operation poll() {
+        for (ArrayDeque<Operation> pending : mPending) {
+            Operation operation = pending.pollFirst();
+
+            if (operation != null) {
+                int index = operation.mPriority.ordinal();
+                long waitNanos = System.nanoTime() - operation.mEnqueuedNanos;
+
+                mPendingCount--;
+                mStarted[index]++;
+                mTotalWaitNanos[index] += waitNanos;
+                mMaxWaitNanos[index] = Math.max(mMaxWaitNanos[index], waitNanos);
+                return operation;
+            }
+        }
+
+        return null;
+    }
+
+    private void start(Operation operation) {
+        Disposable disposable = operation.mOperation.subscribe(
+                result -> finish(operation, result, null),
+                error -> finish(operation, null, error)
+        );
+
+        boolean cancelled;
+
+        synchronized (mLock) {
+            cancelled = mRunning != operation;
+
+            if (!cancelled) {
+                operation.mDisposable = disposable;
+            }
+        }
+
+        // Операция завершилась при запуске или ее подписчики отписались до сохранения подписки
+        if (cancelled) {
+            disposable.dispose();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void finish(Operation operation, Object result, Throwable error) {
+        List<SingleEmitter<?>> emitters;
+
+        synchronized (mLock) {
+            if (mRunning != operation) {
+                return;
+            }
+
+            mRunning = null;
+            emitters = new ArrayList<>(operation.mEmitters);
+            operation.mEmitters.clear();
+        }
+
+        for (SingleEmitter<?> emitter : emitters) {
+            if (error == null) {
+                ((SingleEmitter<Object>) emitter).onSuccess(result);
+            } else {
+                emitter.tryOnError(error);
+            }
+        }
+
+        drain();
+    }
+
+    /**
+     * Отписать подписчика операции
+     * Операция без подписчиков убирается из очереди, а запущенная — прерывается
+     *
+     * @param operation операция
+     * @param emitter   подписчик
+     */
+    private void cancel(Operation operation, SingleEmitter<?> emitter) {
+        boolean running;
+        Disposable disposable = null;
+
+        synchronized (mLock) {
+            if (!operation.mEmitters.remove(emitter) || !operation.mEmitters.isEmpty()) {
+                return;
+            }
+
+            running = mRunning == operation;
+
+            if (running) {
+                mRunning = null;
+                disposable = operation.mDisposable;
+            } else {
+                Iterator<Operation> iterator = mPending.get(operation.mPriority.ordinal()).iterator();
+
+                while (iterator.hasNext()) {
+                    if (iterator.next() == operation) {
+                        iterator.remove();
+                        mPendingCount--;
+                        break;
+                    }
+                }
+            }
+        }
+
+        if (disposable != null) {
+            disposable.dispose();
+        }
+
+        if (running) {
+            drain();
+        }
+    }
+
+    /**
+     * Операция в очереди и ее подписчики
+     */
+    private static final class Operation {
+
+        private final Object mCoalescingKey;
+        private final long mEnqueuedNanos = System.nanoTime();
+        private final List<SingleEmitter<?>> mEmitters = new ArrayList<>(1);
+
+        private GattPriority mPriority;
+        private Single<?> mOperation;
+        private Disposable mDisposable;
+
+        Operation(GattPriority priority, Object coalescingKey, Single<?> operation) {
+            mPriority = priority;
+            mCoalescingKey = coalescingKey;
+            mOperation = operation;
+        }
+
+    }
+
+}
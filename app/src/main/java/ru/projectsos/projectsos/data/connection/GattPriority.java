@@ -0,0 +1,24 @@
+package ru.projectsos.projectsos.data.connection;
+
+/**
+ * Приоритет GATT операции в очереди подключения (см. {@link GattOperationQueue})
+ * Операции выполняются в порядке приоритета, при равном приоритете — в порядке постановки
+ */
+public enum GattPriority {
+
+    /**
+     * Аутентификация и сигнал SOS: от этих команд зависит ответ пользователю
+     */
+    CRITICAL,
+
+    /**
+     * Управление датчиками
+     */
+    NORMAL,
+
+    /**
+     * Выгрузка истории
+     */
+    BULK
+
+}
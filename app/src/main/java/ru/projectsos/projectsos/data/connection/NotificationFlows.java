@@ -0,0 +1,51 @@
+package ru.projectsos.projectsos.data.connection;
+
+import io.reactivex.BackpressureOverflowStrategy;
+import io.reactivex.BackpressureStrategy;
+import io.reactivex.Flowable;
+import io.reactivex.Observable;
+import ru.projectsos.projectsos.models.domain.Backpressure;
+import ru.projectsos.projectsos.models.domain.BackpressureStats;
+
+/**
+ * Перевод горячих источников уведомлений в {@link Flowable} с ограниченной очередью
+ * <p>
+ * Уведомления Bluetooth нельзя притормозить, поэтому без ограничения медленный подписчик копит их в неограниченной
+ * очереди {@code observeOn} или {@code flatMap}. Здесь очередь одна, ее размер и поведение при переполнении
+ * задаются {@link Backpressure}, а заполнение видно в {@link BackpressureStats}
+ */
+public final class NotificationFlows {
+
+    private NotificationFlows() {
+    }
+
+    /**
+     * Ограничить источник очередью
+     *
+     * @param source       горячий источник
+     * @param backpressure размер очереди и поведение при переполнении
+     * @param stats        счетчики очереди
+     * @param <T>          тип элементов
+     * @return источник с поддержкой запросов подписчика
+     */
+    public static <T> Flowable<T> toFlowable(Observable<T> source, Backpressure backpressure, BackpressureStats stats) {
+        Flowable<T> flowable = source.doOnNext(item -> stats.onReceived())
+                .toFlowable(BackpressureStrategy.MISSING);
+
+        switch (backpressure.getStrategy()) {
+            case BUFFER:
+                // Переполнение завершает подписку ошибкой MissingBackpressureException
+                flowable = flowable.onBackpressureBuffer(backpressure.getCapacity(), false, false, stats::onDropped);
+                break;
+            case DROP_OLDEST:
+            case LATEST:
+                // LATEST — та же очередь длиной в один элемент, поэтому потери считаются одинаково
+                flowable = flowable.onBackpressureBuffer(backpressure.getCapacity(), stats::onDropped,
+                        BackpressureOverflowStrategy.DROP_OLDEST);
+                break;
+        }
+
+        return flowable.doOnNext(item -> stats.onDelivered());
+    }
+
+}
@@ -0,0 +1,117 @@
+package ru.projectsos.projectsos.data.connection;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Observable;
+import io.reactivex.ObservableTransformer;
+import ru.projectsos.projectsos.data.journal.DeviceJournal;
+import ru.projectsos.projectsos.data.journal.JournalEvent;
+import ru.projectsos.projectsos.data.metrics.Histogram;
+
+/**
+ * Повторное подключение к одному устройству по {@link ReconnectPolicy}
+ * <p>
+ * Повторяемые ошибки (см. {@link ConnectionErrors}) перехватываются внутри источника подключения, поэтому
+ * подписчики разделяемого подключения их не видят, а просто получают новое подключение. Окончательные ошибки
+ * проходят дальше как есть. Счетчик неудач подряд сбрасывается каждым успешным подключением
+ */
+final class ReconnectEngine {
+
+    private final ReconnectPolicy mPolicy;
+    private final ReconnectStats mStats;
+    private final DeviceJournal mJournal;
+    private final Random mRandom = new Random();
+
+    private int mFailures;
+    private long mDisconnectedAtNanos;
+    private boolean mConnected;
+    private boolean mEverConnected;
+
+    /**
+     * Конструктор
+     *
+     * @param policy    политика повторного подключения
+     * @param reconnect гистограмма времени восстановления
+     * @param journal   журнал устройства
+     */
+    ReconnectEngine(ReconnectPolicy policy, Histogram reconnect, DeviceJournal journal) {
+        mPolicy = policy;
+        mStats = new ReconnectStats(reconnect);
+        mJournal = journal;
+    }
+
+    /**
+     * Проверить, подключаться ли следующей попыткой с autoConnect
+     *
+     * @return возвращает {@code true} после достаточного количества неудач подряд
+     */
+    synchronized boolean useAutoConnect() {
+        boolean autoConnect = mPolicy.useAutoConnect(mFailures);
+
+        if (autoConnect) {
+            mStats.onAutoConnect();
+        }
+
+        return autoConnect;
+    }
+
+    /**
+     * Переподключаться при повторяемых ошибках источника
+     * Источник должен при каждой подписке начинать новую попытку подключения и сообщать об успешном
+     * подключении через {@link #onConnected()}
+     *
+     * @param <T> тип элементов источника
+     * @return преобразователь источника
+     */
+    <T> ObservableTransformer<T, T> reconnect() {
+        return upstream -> upstream.retryWhen(errors -> errors.flatMap(this::onError));
+    }
+
+    ReconnectStats getStats() {
+        return mStats;
+    }
+
+    /**
+     * Учесть успешное подключение: сбросить счетчик неудач и записать время восстановления
+     */
+    void onConnected() {
+        long reconnectNanos;
+
+        synchronized (this) {
+            reconnectNanos = mEverConnected && !mConnected ? System.nanoTime() - mDisconnectedAtNanos : -1;
+
+            mFailures = 0;
+            mConnected = true;
+            mEverConnected = true;
+        }
+
+        mStats.onConnected(reconnectNanos);
+    }
+
+    private Observable<Long> onError(Throwable throwable) {
+        boolean retryable = ConnectionErrors.isRetryable(throwable);
+        mStats.onFailure(retryable);
+        mJournal.record(JournalEvent.CONNECTION_ERROR, ConnectionErrors.getStatus(throwable));
+
+        if (!retryable) {
+            return Observable.error(throwable);
+        }
+
+        long delay;
+
+        synchronized (this) {
+            if (mConnected) {
+                mConnected = false;
+                mDisconnectedAtNanos = System.nanoTime();
+            }
+
+            mFailures++;
+            delay = mPolicy.delayMillis(mFailures, mRandom);
+        }
+
+        mJournal.record(JournalEvent.RECONNECT_SCHEDULED, delay);
+        return Observable.timer(delay, TimeUnit.MILLISECONDS, mPolicy.getScheduler());
+    }
+
+}
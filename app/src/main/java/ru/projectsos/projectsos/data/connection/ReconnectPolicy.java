@@ -0,0 +1,125 @@
+package ru.projectsos.projectsos.data.connection;
+
+import android.support.annotation.NonNull;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+
+import static dagger.internal.Preconditions.checkNotNull;
+
+/**
+ * Политика повторного подключения
+ * <p>
+ * Задержка перед попыткой растет вдвое после каждой неудачи подряд от {@code initialDelayMillis} до
+ * {@code maxDelayMillis}. Из нее случайно берется от половины до целого, чтобы браслеты, потерянные одновременно,
+ * не подключались все разом. После {@code autoConnectAfterFailures} неудач подряд подключение идет с autoConnect:
+ * Android сам ждет появления браслета и не тратит попытки, пока его нет рядом
+ */
+public final class ReconnectPolicy {
+
+    /**
+     * Начальная задержка по умолчанию
+     */
+    public static final long DEFAULT_INITIAL_DELAY_MILLIS = 500;
+
+    /**
+     * Наибольшая задержка по умолчанию
+     */
+    public static final long DEFAULT_MAX_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    /**
+     * Количество неудач подряд, после которого подключение идет с autoConnect, по умолчанию
+     */
+    public static final int DEFAULT_AUTO_CONNECT_AFTER_FAILURES = 3;
+
+    private final long mInitialDelayMillis;
+    private final long mMaxDelayMillis;
+    private final int mAutoConnectAfterFailures;
+    private final Scheduler mScheduler;
+
+    /**
+     * Конструктор
+     *
+     * @param initialDelayMillis       задержка после первой неудачи
+     * @param maxDelayMillis           наибольшая задержка
+     * @param autoConnectAfterFailures количество неудач подряд, после которого подключение идет с autoConnect,
+     *                                 или {@code 0}, чтобы никогда не переключаться
+     * @param scheduler                планировщик задержек
+     */
+    public ReconnectPolicy(long initialDelayMillis,
+                           long maxDelayMillis,
+                           int autoConnectAfterFailures,
+                           @NonNull Scheduler scheduler) {
+        if (initialDelayMillis <= 0 || maxDelayMillis < initialDelayMillis) {
+            throw new IllegalArgumentException("Invalid delays: initial " + initialDelayMillis + ", max " + maxDelayMillis);
+        }
+
+        if (autoConnectAfterFailures < 0) {
+            throw new IllegalArgumentException("autoConnectAfterFailures must not be negative, got " + autoConnectAfterFailures);
+        }
+
+        mInitialDelayMillis = initialDelayMillis;
+        mMaxDelayMillis = maxDelayMillis;
+        mAutoConnectAfterFailures = autoConnectAfterFailures;
+        mScheduler = checkNotNull(scheduler, "Scheduler is required");
+    }
+
+    /**
+     * Создать политику по умолчанию
+     *
+     * @return политика с задержками от полсекунды до 30 секунд и autoConnect после трех неудач
+     */
+    public static ReconnectPolicy createDefault() {
+        return new ReconnectPolicy(
+                DEFAULT_INITIAL_DELAY_MILLIS,
+                DEFAULT_MAX_DELAY_MILLIS,
+                DEFAULT_AUTO_CONNECT_AFTER_FAILURES,
+                Schedulers.computation()
+        );
+    }
+
+    /**
+     * Получить задержку перед следующей попыткой
+     *
+     * @param failures количество неудач подряд, не меньше одной
+     * @param random   источник случайности
+     * @return миллисекунды
+     */
+    long delayMillis(int failures, Random random) {
+        int shift = Math.min(failures - 1, Long.numberOfLeadingZeros(mInitialDelayMillis) - 1);
+        long delay = Math.min(mMaxDelayMillis, mInitialDelayMillis << shift);
+        long half = delay / 2;
+
+        return half + (long) (random.nextDouble() * (delay - half + 1));
+    }
+
+    /**
+     * Проверить, нужно ли подключаться с autoConnect
+     *
+     * @param failures количество неудач подряд
+     * @return возвращает {@code true}, если неудач набралось достаточно
+     */
+    boolean useAutoConnect(int failures) {
+        return mAutoConnectAfterFailures > 0 && failures >= mAutoConnectAfterFailures;
+    }
+
+    public long getInitialDelayMillis() {
+        return mInitialDelayMillis;
+    }
+
+    public long getMaxDelayMillis() {
+        return mMaxDelayMillis;
+    }
+
+    public int getAutoConnectAfterFailures() {
+        return mAutoConnectAfterFailures;
+    }
+
+    public Scheduler getScheduler() {
+        return mScheduler;
+    }
+
+}
@@ -0,0 +1,108 @@
+package ru.projectsos.projectsos.data.connection;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import ru.projectsos.projectsos.data.metrics.Histogram;
+import ru.projectsos.projectsos.data.metrics.HistogramSnapshot;
+
+/**
+ * Счетчики повторных подключений и гистограмма времени восстановления: от разрыва до нового настроенного
+ * подключения, включая все неудачные попытки между ними
+ * Потокобезопасны: подключение и таймеры задержек работают в разных потоках
+ */
+public final class ReconnectStats {
+
+    private final Histogram mReconnect;
+    private final AtomicLong mConnections = new AtomicLong();
+    private final AtomicLong mRetryableFailures = new AtomicLong();
+    private final AtomicLong mFatalFailures = new AtomicLong();
+    private final AtomicLong mAutoConnectAttempts = new AtomicLong();
+
+    /**
+     * Конструктор
+     *
+     * @param reconnect гистограмма времени восстановления в наносекундах
+     */
+    ReconnectStats(Histogram reconnect) {
+        mReconnect = reconnect;
+    }
+
+    /**
+     * Учесть подключение
+     *
+     * @param reconnectNanos время от разрыва или {@code -1} для первого подключения
+     */
+    void onConnected(long reconnectNanos) {
+        mConnections.incrementAndGet();
+
+        if (reconnectNanos >= 0) {
+            mReconnect.record(reconnectNanos);
+        }
+    }
+
+    /**
+     * Учесть ошибку подключения
+     *
+     * @param retryable будет ли повторная попытка
+     */
+    void onFailure(boolean retryable) {
+        (retryable ? mRetryableFailures : mFatalFailures).incrementAndGet();
+    }
+
+    /**
+     * Учесть попытку с autoConnect
+     */
+    void onAutoConnect() {
+        mAutoConnectAttempts.incrementAndGet();
+    }
+
+    public long getConnections() {
+        return mConnections.get();
+    }
+
+    public long getRetryableFailures() {
+        return mRetryableFailures.get();
+    }
+
+    public long getFatalFailures() {
+        return mFatalFailures.get();
+    }
+
+    public long getAutoConnectAttempts() {
+        return mAutoConnectAttempts.get();
+    }
+
+    /**
+     * Получить количество восстановленных подключений
+     *
+     * @return количество замеров в гистограмме
+     */
+    public long getReconnects() {
+        return mReconnect.getCount();
+    }
+
+    /**
+     * Получить снимок гистограммы времени восстановления
+     *
+     * @return снимок, значения в наносекундах
+     */
+    public HistogramSnapshot getReconnectTimes() {
+        return mReconnect.snapshot();
+    }
+
+    @Override
+    public String toString() {
+        HistogramSnapshot reconnects = getReconnectTimes();
+
+        return String.format(Locale.US,
+                "connections=%d reconnects=%d retryable=%d fatal=%d autoConnect=%d p50=%dms p90=%dms p99=%dms max=%dms",
+                getConnections(), reconnects.getCount(), getRetryableFailures(), getFatalFailures(), getAutoConnectAttempts(),
+                TimeUnit.NANOSECONDS.toMillis(reconnects.getPercentile(50)),
+                TimeUnit.NANOSECONDS.toMillis(reconnects.getPercentile(90)),
+                TimeUnit.NANOSECONDS.toMillis(reconnects.getPercentile(99)),
+                TimeUnit.NANOSECONDS.toMillis(reconnects.getMax()));
+    }
+
+}
@@ -0,0 +1,53 @@
+package ru.projectsos.projectsos.data.connection;
+
+import android.support.annotation.NonNull;
+
+import java.util.UUID;
+
+import io.reactivex.Completable;
+import io.reactivex.Observable;
+import ru.projectsos.projectsos.data.transport.BandTransport;
+
+import static dagger.internal.Preconditions.checkNotNull;
+
+/**
+ * Транспорт до браслета через RxAndroidBle
+ * Уведомления включаются на каждом подключении {@link DeviceConnection}, а записи идут вне очереди выгрузок с
+ * приоритетом {@link GattPriority#CRITICAL}
+ */
+public final class RxBleBandTransport implements BandTransport {
+
+    private final DeviceConnectionManager mConnectionManager;
+
+    /**
+     * Конструктор
+     *
+     * @param connectionManager менеджер подключений к устройствам
+     */
+    public RxBleBandTransport(@NonNull DeviceConnectionManager connectionManager) {
+        mConnectionManager = checkNotNull(connectionManager, "DeviceConnectionManager is required");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Observable<Observable<byte[]>> setupNotification(String macAddress, UUID characteristic) {
+        DeviceConnection connection = mConnectionManager.obtain(macAddress);
+
+        return connection.observeConnection()
+                .flatMap(rxBleConnection -> connection.setupNotification(rxBleConnection, characteristic));
+    }
+
+    /**
+     * {@inheritDoc}
+     * Источник завершается после записи, подключение остается открытым, пока на него есть подписчики
+     */
+    @Override
+    public Completable write(String macAddress, UUID characteristic, byte[] value) {
+        return mConnectionManager.obtain(macAddress)
+                .write(characteristic, value, GattPriority.CRITICAL, false)
+                .ignoreElement();
+    }
+
+}
@@ -0,0 +1,84 @@
+package ru.projectsos.projectsos.data.crypto;
+
+import android.content.SharedPreferences;
+import android.support.annotation.NonNull;
+
+import static dagger.internal.Preconditions.checkNotNull;
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_KEY_LENGTH;
+import static ru.projectsos.projectsos.data.AuthConstants.SECRET_KEY;
+
+/**
+ * Хранилище ключей устройств в {@link SharedPreferences}
+ * Ключи хранятся в шестнадцатеричном виде под ключами {@code auth_key_<MAC>} и {@code auth_key_version_<MAC>}
+ */
+public final class SharedPreferencesAuthKeyStore implements AuthKeyStore {
+
+    private static final String KEY_PREFIX = "auth_key_";
+    private static final String VERSION_PREFIX = "auth_key_version_";
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private static final AuthKey LEGACY_KEY = new AuthKey(SECRET_KEY, AuthKey.LEGACY_VERSION);
+
+    private final SharedPreferences mSharedPreferences;
+
+    /**
+     * Конструктор
+     *
+     * @param sharedPreferences хранилище для настроек
+     */
+    public SharedPreferencesAuthKeyStore(@NonNull SharedPreferences sharedPreferences) {
+        mSharedPreferences = checkNotNull(sharedPreferences, "SharedPreferences is required");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AuthKey getKey(String macAddress) {
+        String hex = mSharedPreferences.getString(KEY_PREFIX + macAddress, null);
+
+        if (hex == null) {
+            return LEGACY_KEY;
+        }
+
+        int version = mSharedPreferences.getInt(VERSION_PREFIX + macAddress, AuthKey.LEGACY_VERSION);
+        return new AuthKey(fromHex(hex), version);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void saveKey(String macAddress, AuthKey key) {
+        byte[] bytes = new byte[AUTH_KEY_LENGTH];
+        key.copyTo(bytes, 0);
+
+        mSharedPreferences
+                .edit()
+                .putString(KEY_PREFIX + macAddress, toHex(bytes))
+                .putInt(VERSION_PREFIX + macAddress, key.getVersion())
+                .apply();
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0x0F];
+            chars[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0x0F];
+        }
+
+        return new String(chars);
+    }
+
+    private static byte[] fromHex(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+        }
+
+        return bytes;
+    }
+
+}
@@ -0,0 +1,67 @@
+package ru.projectsos.projectsos.data.journal;
+
+import java.util.UUID;
+
+/**
+ * Журнал одного устройства: пишет события в общий {@link EventJournal} с заранее вычисленным идентификатором
+ */
+public final class DeviceJournal {
+
+    private final EventJournal mJournal;
+    private final long mDeviceId;
+
+    /**
+     * Конструктор
+     *
+     * @param journal  общий журнал
+     * @param deviceId идентификатор устройства
+     */
+    DeviceJournal(EventJournal journal, long deviceId) {
+        mJournal = journal;
+        mDeviceId = deviceId;
+    }
+
+    /**
+     * Записать событие без данных
+     *
+     * @param event событие
+     */
+    public void record(JournalEvent event) {
+        mJournal.record(mDeviceId, event);
+    }
+
+    /**
+     * Записать событие со значением
+     *
+     * @param event событие
+     * @param value значение
+     */
+    public void record(JournalEvent event, long value) {
+        mJournal.record(mDeviceId, event, value);
+    }
+
+    /**
+     * Записать событие с UUID характеристики
+     *
+     * @param event событие
+     * @param uuid  UUID
+     */
+    public void record(JournalEvent event, UUID uuid) {
+        mJournal.record(mDeviceId, event, uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+    }
+
+    /**
+     * Записать событие с данными
+     *
+     * @param event   событие
+     * @param payload данные
+     */
+    public void record(JournalEvent event, byte[] payload) {
+        mJournal.record(mDeviceId, event, payload);
+    }
+
+    public long getDeviceId() {
+        return mDeviceId;
+    }
+
+}
@@ -0,0 +1,242 @@
+package ru.projectsos.projectsos.data.journal;
+
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+
+import ru.projectsos.projectsos.data.MacAddresses;
+
+import static dagger.internal.Preconditions.checkNotNull;
+
+/**
+ * Журнал событий Bluetooth в виде двоичных записей фиксированной длины в заранее выделенном кольце
+ * <p>
+ * Запись события ничего не выделяет и не форматирует: время, устройство, код события и до
+ * {@link #MAX_PAYLOAD_LENGTH} байтов данных копируются в кольцо, при переполнении вытесняются самые старые записи.
+ * В текст записи превращаются только при выгрузке (см. {@link JournalDecoder}), а в файл их может сбрасывать
+ * {@link JournalFlusher}
+ * <p>
+ * Формат записи, big-endian: время в наносекундах от эпохи (8 байтов), устройство (8), код события (2),
+ * исходная длина данных (2), данные (20)
+ */
+public final class EventJournal {
+
+    public static final int RECORD_LENGTH = 40;
+    public static final int MAX_PAYLOAD_LENGTH = 20;
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    /**
+     * Устройство для событий самого журнала
+     */
+    public static final long NO_DEVICE = 0;
+
+    static final int TIMESTAMP_OFFSET = 0;
+    static final int DEVICE_OFFSET = 8;
+    static final int EVENT_OFFSET = 16;
+    static final int LENGTH_OFFSET = 18;
+    static final int PAYLOAD_OFFSET = 20;
+
+    private static final long MAC_ADDRESS_MASK = 0xFFFFFFFFFFFFL;
+    private static final long HASHED_DEVICE_FLAG = 1L << 62;
+
+    private final ByteBuffer mRecords;
+    private final byte[] mArray;
+    private final int mMask;
+    private final long mOriginMillis;
+    private final long mOriginNanos;
+
+    private long mWritten;
+
+    /**
+     * Конструктор
+     *
+     * @param capacity минимальное количество записей, округляется вверх до степени двойки
+     */
+    public EventJournal(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive, got " + capacity);
+        }
+
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+
+        mRecords = ByteBuffer.allocate(size * RECORD_LENGTH);
+        mArray = mRecords.array();
+        mMask = size - 1;
+        mOriginMillis = System.currentTimeMillis();
+        mOriginNanos = System.nanoTime();
+    }
+
+    /**
+     * Получить журнал устройства
+     *
+     * @param macAddress MAC адрес
+     * @return журнал, пишущий события от имени устройства
+     */
+    public DeviceJournal device(@NonNull String macAddress) {
+        return new DeviceJournal(this, deviceId(checkNotNull(macAddress, "MAC address is required")));
+    }
+
+    /**
+     * Записать событие без данных
+     *
+     * @param deviceId устройство
+     * @param event    событие
+     */
+    public synchronized void record(long deviceId, JournalEvent event) {
+        begin(deviceId, event, 0);
+    }
+
+    /**
+     * Записать событие со значением
+     *
+     * @param deviceId устройство
+     * @param event    событие
+     * @param value    значение
+     */
+    public synchronized void record(long deviceId, JournalEvent event, long value) {
+        int offset = begin(deviceId, event, 8);
+        mRecords.putLong(offset + PAYLOAD_OFFSET, value);
+    }
+
+    /**
+     * Записать событие с двумя значениями, например с UUID
+     *
+     * @param deviceId устройство
+     * @param event    событие
+     * @param first    первое значение
+     * @param second   второе значение
+     */
+    public synchronized void record(long deviceId, JournalEvent event, long first, long second) {
+        int offset = begin(deviceId, event, 16);
+        mRecords.putLong(offset + PAYLOAD_OFFSET, first);
+        mRecords.putLong(offset + PAYLOAD_OFFSET + 8, second);
+    }
+
+    /**
+     * Записать событие с данными
+     * Сохраняются первые {@link #MAX_PAYLOAD_LENGTH} байтов и исходная длина
+     *
+     * @param deviceId устройство
+     * @param event    событие
+     * @param payload  данные
+     */
+    public synchronized void record(long deviceId, JournalEvent event, byte[] payload) {
+        int offset = begin(deviceId, event, payload.length);
+        System.arraycopy(payload, 0, mArray, offset + PAYLOAD_OFFSET, Math.min(payload.length, MAX_PAYLOAD_LENGTH));
+    }
+
+    /**
+     * Получить номер следующей записи
+     *
+     * @return количество записей за все время
+     */
+    public synchronized long getSequence() {
+        return mWritten;
+    }
+
+    /**
+     * Получить вместимость кольца
+     *
+     * @return количество записей
+     */
+    public int getCapacity() {
+        return mMask + 1;
+    }
+
+    /**
+     * Скопировать записи начиная с номера, сколько поместится
+     * Если часть записей уже вытеснена, копирование начинается с самой старой из оставшихся
+     *
+     * @param sequence номер первой нужной записи
+     * @param target   получатель записей
+     * @return номер записи, следующей за последней скопированной
+     */
+    public synchronized long drainTo(long sequence, ByteBuffer target) {
+        long from = Math.max(sequence, mWritten - getCapacity());
+        int count = (int) Math.min(mWritten - from, target.remaining() / RECORD_LENGTH);
+
+        for (int i = 0; i < count; i++) {
+            target.put(mArray, (int) ((from + i) & mMask) * RECORD_LENGTH, RECORD_LENGTH);
+        }
+
+        return from + count;
+    }
+
+    /**
+     * Выгрузить записи, оставшиеся в кольце, в текстовом виде
+     * Кольцо копируется под блокировкой, а расшифровывается уже без нее
+     *
+     * @param writer получатель
+     * @throws IOException при ошибке записи
+     */
+    public void dump(Writer writer) throws IOException {
+        ByteBuffer records = ByteBuffer.allocate(mArray.length);
+        drainTo(0, records);
+        records.flip();
+        JournalDecoder.decode(records, writer);
+    }
+
+    /**
+     * Получить идентификатор устройства
+     * MAC адрес упаковывается в 48 бит (см. {@link MacAddresses}), поэтому восстанавливается при расшифровке
+     *
+     * @param macAddress MAC адрес
+     * @return идентификатор
+     */
+    public static long deviceId(String macAddress) {
+        long id = MacAddresses.pack(macAddress);
+        return id != MacAddresses.INVALID ? id : HASHED_DEVICE_FLAG | (macAddress.hashCode() & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Проверить, упакован ли в идентификатор MAC адрес
+     *
+     * @param deviceId идентификатор
+     * @return возвращает {@code true}, если идентификатор получен из MAC адреса
+     */
+    static boolean isMacAddress(long deviceId) {
+        return (deviceId & ~MAC_ADDRESS_MASK) == 0;
+    }
+
+    /**
+     * Записать событие со значением в чужой буфер, минуя кольцо
+     *
+     * @param target   буфер
+     * @param offset   смещение записи
+     * @param deviceId устройство
+     * @param event    событие
+     * @param value    значение
+     */
+    void encode(ByteBuffer target, int offset, long deviceId, JournalEvent event, long value) {
+        writeHeader(target, offset, deviceId, event, 8);
+        target.putLong(offset + PAYLOAD_OFFSET, value);
+    }
+
+    /**
+     * Занять следующую ячейку и записать в нее заголовок
+     *
+     * @param deviceId устройство
+     * @param event    событие
+     * @param length   исходная длина данных
+     * @return смещение ячейки
+     */
+    private int begin(long deviceId, JournalEvent event, int length) {
+        int offset = (int) (mWritten & mMask) * RECORD_LENGTH;
+        writeHeader(mRecords, offset, deviceId, event, length);
+        mWritten++;
+        return offset;
+    }
+
+    private void writeHeader(ByteBuffer target, int offset, long deviceId, JournalEvent event, int length) {
+        target.putLong(offset + TIMESTAMP_OFFSET, mOriginMillis * 1_000_000L + System.nanoTime() - mOriginNanos);
+        target.putLong(offset + DEVICE_OFFSET, deviceId);
+        target.putShort(offset + EVENT_OFFSET, event.getCode());
+        target.putShort(offset + LENGTH_OFFSET, (short) Math.min(length, 0xFFFF));
+    }
+
+}
@@ -0,0 +1,155 @@
+package ru.projectsos.projectsos.data.journal;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.UUID;
+
+import ru.projectsos.projectsos.data.MacAddresses;
+
+/**
+ * Расшифровка двоичных записей журнала в текст, строка на запись:
+ * {@code 2018-06-01 12:00:00.123456 C8:0F:10:00:00:01 NOTIFICATION 4 10 01 01}
+ * <p>
+ * Работает только при выгрузке, поэтому свободно выделяет память
+ */
+public final class JournalDecoder {
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    private JournalDecoder() {
+    }
+
+    /**
+     * Расшифровать записи из буфера
+     *
+     * @param records записи от позиции до границы буфера
+     * @param writer  получатель
+     * @throws IOException при ошибке записи
+     */
+    public static void decode(ByteBuffer records, Writer writer) throws IOException {
+        SimpleDateFormat format = createDateFormat();
+
+        while (records.remaining() >= EventJournal.RECORD_LENGTH) {
+            int offset = records.position();
+            writer.write(decodeRecord(records, offset, format));
+            writer.write('\n');
+            records.position(offset + EventJournal.RECORD_LENGTH);
+        }
+    }
+
+    /**
+     * Расшифровать файл, записанный {@link JournalFlusher}
+     * Недописанная последняя запись пропускается
+     *
+     * @param file   файл журнала
+     * @param writer получатель
+     * @throws IOException при ошибке ввода-вывода или чужом файле
+     */
+    public static void decode(File file, Writer writer) throws IOException {
+        try (InputStream inputStream = new FileInputStream(file)) {
+            decode(inputStream, writer);
+        }
+    }
+
+    /**
+     * Расшифровать поток в формате файла журнала
+     *
+     * @param inputStream поток
+     * @param writer      получатель
+     * @throws IOException при ошибке ввода-вывода или чужом формате
+     */
+    public static void decode(InputStream inputStream, Writer writer) throws IOException {
+        DataInputStream input = new DataInputStream(inputStream);
+        SimpleDateFormat format = createDateFormat();
+        byte[] record = new byte[EventJournal.RECORD_LENGTH];
+
+        if (input.readInt() != JournalFlusher.MAGIC
+                || input.readUnsignedShort() != JournalFlusher.VERSION
+                || input.readUnsignedShort() != EventJournal.RECORD_LENGTH) {
+            throw new IOException("Not a journal");
+        }
+
+        while (true) {
+            try {
+                input.readFully(record);
+            } catch (EOFException e) {
+                return;
+            }
+
+            writer.write(decodeRecord(ByteBuffer.wrap(record), 0, format));
+            writer.write('\n');
+        }
+    }
+
+    private static SimpleDateFormat createDateFormat() {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.US);
+        format.setTimeZone(UTC);
+        return format;
+    }
+
+    private static String decodeRecord(ByteBuffer records, int offset, SimpleDateFormat format) {
+        long timestampNanos = records.getLong(offset + EventJournal.TIMESTAMP_OFFSET);
+        long deviceId = records.getLong(offset + EventJournal.DEVICE_OFFSET);
+        short code = records.getShort(offset + EventJournal.EVENT_OFFSET);
+        int length = records.getShort(offset + EventJournal.LENGTH_OFFSET) & 0xFFFF;
+        JournalEvent event = JournalEvent.fromCode(code);
+
+        StringBuilder builder = new StringBuilder(128)
+                .append(format.format(new Date(timestampNanos / 1_000_000L)))
+                .append(String.format(Locale.US, "%03d", timestampNanos / 1000 % 1000))
+                .append(' ')
+                .append(formatDevice(deviceId))
+                .append(' ')
+                .append(event == null ? "EVENT_" + code : event.name());
+
+        JournalEvent.Format payloadFormat = event == null ? JournalEvent.Format.BYTES : event.getFormat();
+        int payload = offset + EventJournal.PAYLOAD_OFFSET;
+
+        switch (payloadFormat) {
+            case VALUE:
+                builder.append(' ').append(records.getLong(payload));
+                break;
+            case UUID:
+                builder.append(' ').append(new UUID(records.getLong(payload), records.getLong(payload + 8)));
+                break;
+            case BYTES:
+                builder.append(' ').append(length);
+
+                for (int i = 0; i < Math.min(length, EventJournal.MAX_PAYLOAD_LENGTH); i++) {
+                    builder.append(String.format(Locale.US, " %02X", records.get(payload + i)));
+                }
+
+                if (length > EventJournal.MAX_PAYLOAD_LENGTH) {
+                    builder.append(" ...");
+                }
+                break;
+            case NONE:
+                break;
+        }
+
+        return builder.toString();
+    }
+
+    private static String formatDevice(long deviceId) {
+        if (deviceId == EventJournal.NO_DEVICE) {
+            return "-";
+        }
+
+        if (!EventJournal.isMacAddress(deviceId)) {
+            return String.format(Locale.US, "#%08X", deviceId & 0xFFFFFFFFL);
+        }
+
+        return MacAddresses.format(deviceId);
+    }
+
+}
@@ -0,0 +1,106 @@
+package ru.projectsos.projectsos.data.journal;
+
+import android.support.annotation.Nullable;
+
+/**
+ * Событие журнала
+ * Коды записываются в файлы журнала, поэтому у существующих событий они не меняются
+ */
+public enum JournalEvent {
+
+    /**
+     * Попытка подключения, значение — {@code 1} для autoConnect
+     */
+    CONNECT_ATTEMPT(1, Format.VALUE),
+
+    /**
+     * Подключение настроено, значение — время попытки в наносекундах
+     */
+    CONNECTED(2, Format.VALUE),
+
+    /**
+     * Ошибка подключения, значение — статус GATT или {@code -1}
+     */
+    CONNECTION_ERROR(3, Format.VALUE),
+
+    /**
+     * Запланирована повторная попытка, значение — задержка в миллисекундах
+     */
+    RECONNECT_SCHEDULED(4, Format.VALUE),
+
+    /**
+     * Запрошено отключение от устройства
+     */
+    DISCONNECT_REQUESTED(5, Format.NONE),
+
+    /**
+     * Включены уведомления, данные — UUID характеристики
+     */
+    NOTIFICATION_SETUP(6, Format.UUID),
+
+    /**
+     * Уведомление, данные — его первые байты
+     */
+    NOTIFICATION(7, Format.BYTES),
+
+    /**
+     * Подтвержденная запись, данные — первые байты значения
+     */
+    WRITE(8, Format.BYTES),
+
+    /**
+     * Ошибка записи, значение — статус GATT или {@code -1}
+     */
+    WRITE_ERROR(9, Format.VALUE),
+
+    /**
+     * Записи, вытесненные из кольца до сброса в файл, значение — их количество
+     */
+    OVERFLOW(100, Format.VALUE);
+
+    /**
+     * Формат данных записи
+     */
+    public enum Format {
+        NONE,
+        VALUE,
+        UUID,
+        BYTES
+    }
+
+    private static final JournalEvent[] VALUES = values();
+
+    private final short mCode;
+    private final Format mFormat;
+
+    JournalEvent(int code, Format format) {
+        mCode = (short) code;
+        mFormat = format;
+    }
+
+    public short getCode() {
+        return mCode;
+    }
+
+    public Format getFormat() {
+        return mFormat;
+    }
+
+    /**
+     * Найти событие по коду
+     *
+     * @param code код
+     * @return событие или {@code null} для кода из более новой версии
+     */
+    @Nullable
+    public static JournalEvent fromCode(short code) {
+        for (JournalEvent event : VALUES) {
+            if (event.mCode == code) {
+                return event;
+            }
+        }
+
+        return null;
+    }
+
+}
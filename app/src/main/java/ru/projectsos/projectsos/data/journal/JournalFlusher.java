@@ -0,0 +1,229 @@
+package ru.projectsos.projectsos.data.journal;
+
+import android.support.annotation.NonNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Completable;
+import io.reactivex.Observable;
+import io.reactivex.Scheduler;
+
+import static dagger.internal.Preconditions.checkNotNull;
+
+/**
+ * Фоновый сброс журнала в файлы с ротацией
+ * <p>
+ * Новые записи периодически дописываются в {@code journal.bin} как есть, без расшифровки. Когда файл дорастает
+ * до предела, он становится {@code journal.1.bin}, прежние сдвигаются дальше, а самый старый удаляется. Каждый
+ * процесс начинает новый файл. Если кольцо успело перезаписать записи до сброса, перед уцелевшими в файл
+ * пишется {@link JournalEvent#OVERFLOW} с количеством потерянных
+ * <p>
+ * Формат файла: заголовок из {@link #HEADER_LENGTH} байтов (сигнатура, версия, длина записи) и записи
+ * {@link EventJournal}, расшифровываются {@link JournalDecoder}
+ */
+public final class JournalFlusher {
+
+    public static final long DEFAULT_PERIOD_MILLIS = 5000;
+    public static final long DEFAULT_MAX_FILE_BYTES = 1024 * 1024;
+    public static final int DEFAULT_MAX_FILES = 4;
+
+    static final int MAGIC = 0x50534A4C;
+    static final int VERSION = 1;
+    static final int HEADER_LENGTH = 8;
+
+    private static final String FILE_PREFIX = "journal";
+    private static final String FILE_SUFFIX = ".bin";
+
+    private final EventJournal mJournal;
+    private final File mDirectory;
+    private final long mMaxFileBytes;
+    private final int mMaxFiles;
+    private final ByteBuffer mBuffer;
+
+    private FileChannel mChannel;
+    private long mFileBytes;
+    private long mSequence;
+
+    /**
+     * Конструктор
+     *
+     * @param journal      журнал
+     * @param directory    папка файлов журнала
+     * @param maxFileBytes размер файла, после которого начинается следующий
+     * @param maxFiles     количество хранимых файлов, включая текущий
+     */
+    public JournalFlusher(@NonNull EventJournal journal, @NonNull File directory, long maxFileBytes, int maxFiles) {
+        if (maxFileBytes <= HEADER_LENGTH || maxFiles <= 0) {
+            throw new IllegalArgumentException("Invalid rotation: " + maxFileBytes + " bytes, " + maxFiles + " files");
+        }
+
+        mJournal = checkNotNull(journal, "EventJournal is required");
+        mDirectory = checkNotNull(directory, "Directory is required");
+        mMaxFileBytes = maxFileBytes;
+        mMaxFiles = maxFiles;
+        // Первая ячейка зарезервирована под запись о потерянных записях
+        mBuffer = ByteBuffer.allocate((journal.getCapacity() + 1) * EventJournal.RECORD_LENGTH);
+    }
+
+    /**
+     * Сбрасывать журнал с заданным периодом
+     * Источник не завершается сам, отписка останавливает сброс и закрывает файл
+     *
+     * @param periodMillis период
+     * @param scheduler    планировщик для записи в файл
+     * @return возвращает завершаемый источник, завершающийся только ошибкой ввода-вывода
+     */
+    public Completable run(long periodMillis, Scheduler scheduler) {
+        return Observable.interval(periodMillis, TimeUnit.MILLISECONDS, scheduler)
+                .concatMapCompletable(tick -> Completable.fromAction(this::flush))
+                .doFinally(this::close);
+    }
+
+    /**
+     * Дописать в файл все новые записи журнала
+     *
+     * @return количество записанных записей
+     * @throws IOException при ошибке ввода-вывода
+     */
+    public synchronized int flush() throws IOException {
+        if (mJournal.getSequence() == mSequence) {
+            return 0;
+        }
+
+        mBuffer.clear().position(EventJournal.RECORD_LENGTH);
+        long next = mJournal.drainTo(mSequence, mBuffer);
+        int count = mBuffer.position() / EventJournal.RECORD_LENGTH - 1;
+        long dropped = next - mSequence - count;
+        mSequence = next;
+
+        mBuffer.flip();
+
+        if (dropped > 0) {
+            mJournal.encode(mBuffer, 0, EventJournal.NO_DEVICE, JournalEvent.OVERFLOW, dropped);
+        } else {
+            mBuffer.position(EventJournal.RECORD_LENGTH);
+        }
+
+        FileChannel channel = openChannel();
+
+        while (mBuffer.hasRemaining()) {
+            mFileBytes += channel.write(mBuffer);
+        }
+
+        if (mFileBytes >= mMaxFileBytes) {
+            close();
+            rotate();
+        }
+
+        return count;
+    }
+
+    /**
+     * Получить файлы журнала от нового к старому
+     *
+     * @return существующие файлы
+     */
+    public List<File> getFiles() {
+        List<File> files = new ArrayList<>(mMaxFiles);
+
+        for (int i = 0; i < mMaxFiles; i++) {
+            File file = file(i);
+
+            if (file.exists()) {
+                files.add(file);
+            }
+        }
+
+        return files;
+    }
+
+    /**
+     * Закрыть текущий файл
+     * Следующий сброс продолжит его же
+     */
+    public synchronized void close() {
+        if (mChannel == null) {
+            return;
+        }
+
+        try {
+            mChannel.close();
+        } catch (IOException ignored) {
+            // Все записанное уже в файле, а следующий сброс откроет его заново
+        }
+
+        mChannel = null;
+    }
+
+    /**
+     * Открыть текущий файл
+     * Первое открытие за процесс откладывает файл прошлого процесса в ротацию
+     *
+     * @return канал для дозаписи
+     * @throws IOException при ошибке ввода-вывода
+     */
+    private FileChannel openChannel() throws IOException {
+        if (mChannel != null) {
+            return mChannel;
+        }
+
+        if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+            throw new IOException("Failed to create " + mDirectory);
+        }
+
+        File file = file(0);
+
+        if (mFileBytes == 0 && file.length() > 0) {
+            rotate();
+        }
+
+        mChannel = new FileOutputStream(file, true).getChannel();
+        mFileBytes = mChannel.size();
+
+        if (mFileBytes == 0) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+            header.putInt(MAGIC).putShort((short) VERSION).putShort((short) EventJournal.RECORD_LENGTH).flip();
+
+            while (header.hasRemaining()) {
+                mFileBytes += mChannel.write(header);
+            }
+        }
+
+        return mChannel;
+    }
+
+    /**
+     * Сдвинуть файлы: текущий становится первым, самый старый удаляется
+     *
+     * @throws IOException если файл не удалось переименовать
+     */
+    private void rotate() throws IOException {
+        File oldest = file(mMaxFiles - 1);
+
+        if (oldest.exists() && !oldest.delete()) {
+            throw new IOException("Failed to delete " + oldest);
+        }
+
+        for (int i = mMaxFiles - 2; i >= 0; i--) {
+            File file = file(i);
+
+            if (file.exists() && !file.renameTo(file(i + 1))) {
+                throw new IOException("Failed to rename " + file);
+            }
+        }
+
+        mFileBytes = 0;
+    }
+
+    private File file(int index) {
+        return new File(mDirectory, index == 0 ? FILE_PREFIX + FILE_SUFFIX : FILE_PREFIX + "." + index + FILE_SUFFIX);
+    }
+
+}
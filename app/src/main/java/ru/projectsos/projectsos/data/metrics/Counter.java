@@ -0,0 +1,32 @@
+package ru.projectsos.projectsos.data.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Счетчик без блокировок
+ */
+public final class Counter {
+
+    private final AtomicLong mValue = new AtomicLong();
+
+    /**
+     * Увеличить на единицу
+     */
+    public void increment() {
+        mValue.incrementAndGet();
+    }
+
+    /**
+     * Увеличить на значение
+     *
+     * @param delta прибавка
+     */
+    public void add(long delta) {
+        mValue.addAndGet(delta);
+    }
+
+    public long get() {
+        return mValue.get();
+    }
+
+}
@@ -0,0 +1,218 @@
+package ru.projectsos.projectsos.data.metrics;
+
+import ru.projectsos.projectsos.data.protocol.AuthStep;
+import ru.projectsos.projectsos.models.domain.AuthResult;
+import ru.projectsos.projectsos.models.domain.SosResult;
+
+/**
+ * Метрики одного устройства, все времена в наносекундах
+ * <p>
+ * Имена метрик в реестре начинаются с MAC адреса: {@code <mac>/connect}, {@code <mac>/auth/REQUEST_RANDOM_KEY} и т.д.
+ * <ul>
+ * <li>{@code connect} — от начала попытки подключения до настроенного подключения, без ожидания лимита</li>
+ * <li>{@code reconnect} — от разрыва до нового настроенного подключения, включая неудачные попытки</li>
+ * <li>{@code notification_setup} — включение уведомлений характеристики</li>
+ * <li>{@code notification_interval} — промежуток между соседними уведомлениями одной подписки</li>
+ * <li>{@code write} — запись характеристики от постановки в очередь до подтверждения</li>
+ * <li>{@code auth/total} и {@code auth/<шаг>} — рукопожатие целиком и по шагам</li>
+ * <li>{@code fall_detection} — от получения уведомления, завершившего падение, до его распознавания</li>
+ * <li>{@code sos/trigger} — от получения уведомления последнего нажатия до передачи сигнала отправителю</li>
+ * <li>{@code sos/dispatch} — от получения уведомления последнего нажатия до возврата отправителя</li>
+ * <li>{@code store/rejected} — замеры, которые хранилище отвергло, потому что они раньше последнего замера ряда</li>
+ * </ul>
+ */
+public final class DeviceMetrics {
+
+    private final String mMacAddress;
+    private final Histogram mConnect;
+    private final Histogram mReconnect;
+    private final Histogram mNotificationSetup;
+    private final Histogram mNotificationInterval;
+    private final Histogram mWrite;
+    private final Histogram mAuthTotal;
+    private final Histogram[] mAuthSteps;
+    private final Histogram mFallDetection;
+    private final Histogram mSosTrigger;
+    private final Histogram mSosDispatch;
+    private final Counter mNotifications;
+    private final Counter mNotificationBytes;
+    private final Counter mAuthSuccesses;
+    private final Counter mAuthFailures;
+    private final Counter mAuthInterruptions;
+    private final Counter mFalls;
+    private final Counter mSosSent;
+    private final Counter mSosFailed;
+    private final Counter mRejectedSamples;
+
+    /**
+     * Конструктор
+     *
+     * @param registry   реестр
+     * @param macAddress MAC адрес
+     */
+    DeviceMetrics(MetricsRegistry registry, String macAddress) {
+        String prefix = macAddress + "/";
+
+        mMacAddress = macAddress;
+        mConnect = registry.histogram(prefix + "connect");
+        mReconnect = registry.histogram(prefix + "reconnect");
+        mNotificationSetup = registry.histogram(prefix + "notification_setup");
+        mNotificationInterval = registry.histogram(prefix + "notification_interval");
+        mWrite = registry.histogram(prefix + "write");
+        mAuthTotal = registry.histogram(prefix + "auth/total");
+        mAuthSteps = new Histogram[AuthStep.values().length];
+        mFallDetection = registry.histogram(prefix + "fall_detection");
+        mSosTrigger = registry.histogram(prefix + "sos/trigger");
+        mSosDispatch = registry.histogram(prefix + "sos/dispatch");
+        mNotifications = registry.counter(prefix + "notifications");
+        mNotificationBytes = registry.counter(prefix + "notification_bytes");
+        mAuthSuccesses = registry.counter(prefix + "auth/success");
+        mAuthFailures = registry.counter(prefix + "auth/failure");
+        mAuthInterruptions = registry.counter(prefix + "auth/interrupted");
+        mFalls = registry.counter(prefix + "falls");
+        mSosSent = registry.counter(prefix + "sos/sent");
+        mSosFailed = registry.counter(prefix + "sos/failed");
+        mRejectedSamples = registry.counter(prefix + "store/rejected");
+
+        for (AuthStep step : AuthStep.values()) {
+            mAuthSteps[step.ordinal()] = registry.histogram(prefix + "auth/" + step);
+        }
+    }
+
+    /**
+     * Учесть итог рукопожатия
+     *
+     * @param result итог
+     */
+    public void recordAuthentication(AuthResult result) {
+        if (result.isSuccess()) {
+            mAuthSuccesses.increment();
+        } else if (result.isInterrupted()) {
+            mAuthInterruptions.increment();
+        } else {
+            mAuthFailures.increment();
+        }
+
+        mAuthTotal.record(result.getTotalNanos());
+
+        for (AuthStep step : AuthStep.values()) {
+            long nanos = result.getStepNanos(step);
+
+            if (nanos != AuthResult.NOT_EXECUTED) {
+                mAuthSteps[step.ordinal()].record(nanos);
+            }
+        }
+    }
+
+    /**
+     * Учесть уведомление
+     *
+     * @param length        длина уведомления
+     * @param intervalNanos время с предыдущего уведомления подписки или отрицательное для первого
+     */
+    public void recordNotification(int length, long intervalNanos) {
+        mNotifications.increment();
+        mNotificationBytes.add(length);
+
+        if (intervalNanos >= 0) {
+            mNotificationInterval.record(intervalNanos);
+        }
+    }
+
+    /**
+     * Учесть распознанное падение
+     *
+     * @param latencyNanos время от получения уведомления до распознавания
+     */
+    public void recordFall(long latencyNanos) {
+        mFalls.increment();
+        mFallDetection.record(latencyNanos);
+    }
+
+    /**
+     * Учесть сигнал SOS
+     *
+     * @param result итог отправки
+     */
+    public void recordSos(SosResult result) {
+        if (result.isSuccess()) {
+            mSosSent.increment();
+        } else {
+            mSosFailed.increment();
+        }
+
+        mSosTrigger.record(result.getTriggerNanos());
+        mSosDispatch.record(result.getDispatchNanos());
+    }
+
+    public String getMacAddress() {
+        return mMacAddress;
+    }
+
+    public Histogram getConnect() {
+        return mConnect;
+    }
+
+    public Histogram getReconnect() {
+        return mReconnect;
+    }
+
+    public Histogram getNotificationSetup() {
+        return mNotificationSetup;
+    }
+
+    public Histogram getNotificationInterval() {
+        return mNotificationInterval;
+    }
+
+    public Histogram getWrite() {
+        return mWrite;
+    }
+
+    public Histogram getAuthTotal() {
+        return mAuthTotal;
+    }
+
+    /**
+     * Получить гистограмму шага рукопожатия
+     *
+     * @param step шаг
+     * @return гистограмма
+     */
+    public Histogram getAuthStep(AuthStep step) {
+        return mAuthSteps[step.ordinal()];
+    }
+
+    public Counter getNotifications() {
+        return mNotifications;
+    }
+
+    public Histogram getFallDetection() {
+        return mFallDetection;
+    }
+
+    public Counter getFalls() {
+        return mFalls;
+    }
+
+    public Histogram getSosTrigger() {
+        return mSosTrigger;
+    }
+
+    public Histogram getSosDispatch() {
+        return mSosDispatch;
+    }
+
+    public Counter getSosSent() {
+        return mSosSent;
+    }
+
+    public Counter getSosFailed() {
+        return mSosFailed;
+    }
+
+    public Counter getRejectedSamples() {
+        return mRejectedSamples;
+    }
+
+}
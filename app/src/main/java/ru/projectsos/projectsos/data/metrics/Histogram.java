@@ -0,0 +1,113 @@
+package ru.projectsos.projectsos.data.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Гистограмма с фиксированными лог-линейными интервалами
+ * <p>
+ * Значения до {@link #SUB_BUCKETS} учитываются точно, дальше каждый отрезок от степени двойки до следующей делится
+ * на {@link #SUB_BUCKETS} равных интервалов, поэтому относительная ошибка не больше 1/16 на всем диапазоне.
+ * Значения больше {@link #MAX_VALUE} попадают в последний интервал, наибольшее значение хранится точно
+ * <p>
+ * Запись без блокировок и аллокаций: номер интервала считается сдвигами, счетчики атомарные. Гистограмма не знает
+ * единиц, приложение пишет в нее наносекунды
+ */
+public final class Histogram {
+
+    static final int SUB_BUCKET_BITS = 4;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Наибольшее различимое значение: 2^42 наносекунд — больше часа
+     */
+    static final long MAX_VALUE = (1L << 42) - 1;
+
+    static final int BUCKETS = bucket(MAX_VALUE) + 1;
+
+    private final AtomicLongArray mCounts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong mCount = new AtomicLong();
+    private final AtomicLong mSum = new AtomicLong();
+    private final AtomicLong mMax = new AtomicLong();
+
+    /**
+     * Учесть значение
+     *
+     * @param value значение, отрицательные считаются нулем
+     */
+    public void record(long value) {
+        long clamped = Math.max(0, value);
+
+        mCounts.incrementAndGet(bucket(Math.min(clamped, MAX_VALUE)));
+        mSum.addAndGet(clamped);
+        mCount.incrementAndGet();
+
+        long max;
+
+        do {
+            max = mMax.get();
+        } while (clamped > max && !mMax.compareAndSet(max, clamped));
+    }
+
+    /**
+     * Учесть время, прошедшее с момента
+     *
+     * @param startNanos момент по {@link System#nanoTime()}
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public long getCount() {
+        return mCount.get();
+    }
+
+    /**
+     * Снять снимок
+     * Счетчики копируются по одному, поэтому снимок во время записи может разойтись с ней на несколько значений
+     *
+     * @return снимок
+     */
+    public HistogramSnapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        long count = 0;
+
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = mCounts.get(i);
+            count += counts[i];
+        }
+
+        return new HistogramSnapshot(counts, count, mSum.get(), mMax.get());
+    }
+
+    /**
+     * Получить номер интервала значения
+     *
+     * @param value значение от 0 до {@link #MAX_VALUE}
+     * @return номер интервала
+     */
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        int group = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS + 1;
+        return group * SUB_BUCKETS + (int) (value >>> (group - 1)) - SUB_BUCKETS;
+    }
+
+    /**
+     * Получить нижнюю границу интервала
+     *
+     * @param bucket номер интервала
+     * @return наименьшее значение интервала
+     */
+    static long lowerBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+
+        int group = bucket / SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (group - 1);
+    }
+
+}
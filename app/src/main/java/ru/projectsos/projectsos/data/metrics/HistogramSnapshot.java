@@ -0,0 +1,83 @@
+package ru.projectsos.projectsos.data.metrics;
+
+import java.util.Locale;
+
+/**
+ * Неизменяемый снимок {@link Histogram}
+ */
+public final class HistogramSnapshot {
+
+    private final long[] mCounts;
+    private final long mCount;
+    private final long mSum;
+    private final long mMax;
+
+    /**
+     * Конструктор
+     *
+     * @param counts счетчики интервалов, массив не копируется
+     * @param count  количество значений
+     * @param sum    сумма значений
+     * @param max    наибольшее значение
+     */
+    HistogramSnapshot(long[] counts, long count, long sum, long max) {
+        mCounts = counts;
+        mCount = count;
+        mSum = sum;
+        mMax = max;
+    }
+
+    public long getCount() {
+        return mCount;
+    }
+
+    public long getMax() {
+        return mMax;
+    }
+
+    /**
+     * Получить среднее значение
+     *
+     * @return среднее или {@code 0}, если значений нет
+     */
+    public long getMean() {
+        return mCount == 0 ? 0 : mSum / mCount;
+    }
+
+    /**
+     * Оценить перцентиль: верхняя граница интервала, в который он попал, но не больше наибольшего значения
+     *
+     * @param percentile перцентиль от 0 до 100
+     * @return значение или {@code 0}, если значений нет
+     */
+    public long getPercentile(double percentile) {
+        if (mCount == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(mCount * percentile / 100));
+        long seen = 0;
+
+        for (int i = 0; i < mCounts.length; i++) {
+            seen += mCounts[i];
+
+            if (seen >= rank) {
+                return i + 1 < Histogram.BUCKETS ? Math.min(Histogram.lowerBound(i + 1) - 1, mMax) : mMax;
+            }
+        }
+
+        return mMax;
+    }
+
+    /**
+     * Строка для отчета, значения в миллисекундах
+     * Гистограммы приложения хранят наносекунды
+     */
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "count=%d mean=%.3fms p50=%.3fms p90=%.3fms p99=%.3fms max=%.3fms",
+                mCount, getMean() / 1e6, getPercentile(50) / 1e6, getPercentile(90) / 1e6, getPercentile(99) / 1e6,
+                mMax / 1e6);
+    }
+
+}
@@ -0,0 +1,141 @@
+package ru.projectsos.projectsos.data.metrics;
+
+import android.support.annotation.NonNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static dagger.internal.Preconditions.checkNotNull;
+
+/**
+ * Реестр метрик приложения: именованные счетчики и гистограммы
+ * <p>
+ * Метрика создается при первом обращении и живет, пока жив реестр. Горячий путь не ищет метрики по имени:
+ * их получают один раз (см. {@link DeviceMetrics}) и дальше пишут без блокировок. Снимок можно прочитать
+ * из кода или выгрузить в файл, чтобы сравнивать задержки между версиями приложения
+ */
+public final class MetricsRegistry {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final ConcurrentMap<String, Histogram> mHistograms = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Counter> mCounters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, DeviceMetrics> mDevices = new ConcurrentHashMap<>();
+
+    /**
+     * Получить гистограмму, создав ее при необходимости
+     *
+     * @param name имя
+     * @return гистограмма
+     */
+    public Histogram histogram(@NonNull String name) {
+        Histogram histogram = mHistograms.get(checkNotNull(name, "Name is required"));
+
+        if (histogram == null) {
+            Histogram created = new Histogram();
+            histogram = mHistograms.putIfAbsent(name, created);
+
+            if (histogram == null) {
+                histogram = created;
+            }
+        }
+
+        return histogram;
+    }
+
+    /**
+     * Получить счетчик, создав его при необходимости
+     *
+     * @param name имя
+     * @return счетчик
+     */
+    public Counter counter(@NonNull String name) {
+        Counter counter = mCounters.get(checkNotNull(name, "Name is required"));
+
+        if (counter == null) {
+            Counter created = new Counter();
+            counter = mCounters.putIfAbsent(name, created);
+
+            if (counter == null) {
+                counter = created;
+            }
+        }
+
+        return counter;
+    }
+
+    /**
+     * Получить метрики устройства, создав их при необходимости
+     *
+     * @param macAddress MAC адрес
+     * @return метрики устройства
+     */
+    public DeviceMetrics device(@NonNull String macAddress) {
+        DeviceMetrics metrics = mDevices.get(checkNotNull(macAddress, "MAC address is required"));
+
+        if (metrics == null) {
+            DeviceMetrics created = new DeviceMetrics(this, macAddress);
+            metrics = mDevices.putIfAbsent(macAddress, created);
+
+            if (metrics == null) {
+                metrics = created;
+            }
+        }
+
+        return metrics;
+    }
+
+    /**
+     * Снять снимок всех метрик
+     *
+     * @return снимок
+     */
+    public MetricsSnapshot snapshot() {
+        SortedMap<String, HistogramSnapshot> histograms = new TreeMap<>();
+        SortedMap<String, Long> counters = new TreeMap<>();
+
+        for (Map.Entry<String, Histogram> entry : mHistograms.entrySet()) {
+            histograms.put(entry.getKey(), entry.getValue().snapshot());
+        }
+
+        for (Map.Entry<String, Counter> entry : mCounters.entrySet()) {
+            counters.put(entry.getKey(), entry.getValue().get());
+        }
+
+        return new MetricsSnapshot(System.currentTimeMillis(), histograms, counters);
+    }
+
+    /**
+     * Выгрузить снимок в файл
+     * Файл заменяется целиком: снимок пишется во временный файл рядом и переименовывается
+     *
+     * @param file файл отчета
+     * @return записанный снимок
+     * @throws IOException при ошибке записи
+     */
+    public MetricsSnapshot dump(@NonNull File file) throws IOException {
+        MetricsSnapshot snapshot = snapshot();
+        File temp = new File(checkNotNull(file, "File is required").getPath() + TEMP_SUFFIX);
+
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(temp), UTF_8)) {
+            snapshot.writeTo(writer);
+        }
+
+        if (!temp.renameTo(file)) {
+            throw new IOException("Failed to rename " + temp + " to " + file);
+        }
+
+        return snapshot;
+    }
+
+}
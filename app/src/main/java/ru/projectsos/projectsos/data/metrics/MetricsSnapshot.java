@@ -0,0 +1,99 @@
+package ru.projectsos.projectsos.data.metrics;
+
+import android.support.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Неизменяемый снимок всех метрик реестра, упорядоченных по имени
+ */
+public final class MetricsSnapshot {
+
+    private final long mTimestampMillis;
+    private final SortedMap<String, HistogramSnapshot> mHistograms;
+    private final SortedMap<String, Long> mCounters;
+
+    /**
+     * Конструктор
+     *
+     * @param timestampMillis время снимка
+     * @param histograms      снимки гистограмм по именам
+     * @param counters        значения счетчиков по именам
+     */
+    MetricsSnapshot(long timestampMillis, SortedMap<String, HistogramSnapshot> histograms, SortedMap<String, Long> counters) {
+        mTimestampMillis = timestampMillis;
+        mHistograms = Collections.unmodifiableSortedMap(histograms);
+        mCounters = Collections.unmodifiableSortedMap(counters);
+    }
+
+    public long getTimestampMillis() {
+        return mTimestampMillis;
+    }
+
+    public SortedMap<String, HistogramSnapshot> getHistograms() {
+        return mHistograms;
+    }
+
+    public SortedMap<String, Long> getCounters() {
+        return mCounters;
+    }
+
+    /**
+     * Получить снимок гистограммы
+     *
+     * @param name имя
+     * @return снимок или {@code null}, если гистограммы нет
+     */
+    @Nullable
+    public HistogramSnapshot getHistogram(String name) {
+        return mHistograms.get(name);
+    }
+
+    /**
+     * Получить значение счетчика
+     *
+     * @param name имя
+     * @return значение или {@code 0}, если счетчика нет
+     */
+    public long getCounter(String name) {
+        Long value = mCounters.get(name);
+        return value == null ? 0 : value;
+    }
+
+    /**
+     * Записать отчет: строка на метрику, сначала гистограммы, затем счетчики
+     *
+     * @param writer получатель
+     * @throws IOException при ошибке записи
+     */
+    public void writeTo(Writer writer) throws IOException {
+        writer.write("# timestamp=" + mTimestampMillis + "\n");
+
+        for (Map.Entry<String, HistogramSnapshot> entry : mHistograms.entrySet()) {
+            writer.write(entry.getKey() + " " + entry.getValue() + "\n");
+        }
+
+        for (Map.Entry<String, Long> entry : mCounters.entrySet()) {
+            writer.write(entry.getKey() + " " + entry.getValue() + "\n");
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringWriter writer = new StringWriter();
+
+        try {
+            writeTo(writer);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+
+        return writer.toString();
+    }
+
+}
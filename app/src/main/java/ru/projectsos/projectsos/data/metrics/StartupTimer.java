@@ -0,0 +1,64 @@
+package ru.projectsos.projectsos.data.metrics;
+
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static dagger.internal.Preconditions.checkNotNull;
+
+/**
+ * Время холодного старта: от начала {@code Application.onCreate} до отметок этапов
+ * <p>
+ * Каждый этап учитывается один раз за процесс, в гистограмме {@code startup/<этап>} реестра, поэтому из выгрузок
+ * метрик разных запусков и версий видно, укладывается ли старт в бюджет
+ */
+public final class StartupTimer {
+
+    /**
+     * Компоненты внедрения зависимостей собраны, {@code Application.onCreate} закончен
+     */
+    public static final String APPLICATION = "application";
+
+    /**
+     * Окно показало первое состояние Bluetooth или устройства
+     */
+    public static final String FIRST_STATE = "first_state";
+
+    private static final String PREFIX = "startup/";
+
+    private final MetricsRegistry mRegistry;
+    private final long mStartNanos;
+    private final ConcurrentMap<String, Long> mMarks = new ConcurrentHashMap<>();
+
+    /**
+     * Конструктор
+     *
+     * @param registry   реестр метрик
+     * @param startNanos начало старта по {@link System#nanoTime()}
+     */
+    public StartupTimer(@NonNull MetricsRegistry registry, long startNanos) {
+        mRegistry = checkNotNull(registry, "MetricsRegistry is required");
+        mStartNanos = startNanos;
+    }
+
+    /**
+     * Отметить этап старта
+     * Повторные отметки этапа не учитываются
+     *
+     * @param phase этап
+     * @return время от начала старта до первой отметки этапа в наносекундах
+     */
+    public long mark(@NonNull String phase) {
+        Long elapsedNanos = System.nanoTime() - mStartNanos;
+        Long previous = mMarks.putIfAbsent(checkNotNull(phase, "Phase is required"), elapsedNanos);
+
+        if (previous != null) {
+            return previous;
+        }
+
+        mRegistry.histogram(PREFIX + phase).record(elapsedNanos);
+        return elapsedNanos;
+    }
+
+}
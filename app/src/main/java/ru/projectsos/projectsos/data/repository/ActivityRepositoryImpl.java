@@ -0,0 +1,195 @@
+package ru.projectsos.projectsos.data.repository;
+
+import android.content.SharedPreferences;
+import android.support.annotation.NonNull;
+
+import com.polidea.rxandroidble2.RxBleConnection;
+
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Completable;
+import io.reactivex.Observable;
+import io.reactivex.Single;
+import ru.projectsos.projectsos.data.activity.ActivityStreamDecoder;
+import ru.projectsos.projectsos.data.activity.ActivityTime;
+import ru.projectsos.projectsos.data.connection.DeviceConnection;
+import ru.projectsos.projectsos.data.connection.DeviceConnectionManager;
+import ru.projectsos.projectsos.data.connection.GattOperationQueue;
+import ru.projectsos.projectsos.data.connection.GattPriority;
+import ru.projectsos.projectsos.domain.ActivityRepository;
+import ru.projectsos.projectsos.domain.ActivitySink;
+import ru.projectsos.projectsos.models.domain.SyncStats;
+
+import static dagger.internal.Preconditions.checkNotNull;
+import static ru.projectsos.projectsos.data.ActivityConstants.ACTIVITY_COUNT_OFFSET;
+import static ru.projectsos.projectsos.data.ActivityConstants.ACTIVITY_DATA_CHAR;
+import static ru.projectsos.projectsos.data.ActivityConstants.ACTIVITY_FETCH_CHAR;
+import static ru.projectsos.projectsos.data.ActivityConstants.ACTIVITY_FETCH_COMMAND;
+import static ru.projectsos.projectsos.data.ActivityConstants.ACTIVITY_METADATA_LENGTH;
+import static ru.projectsos.projectsos.data.ActivityConstants.ACTIVITY_RESPONSE;
+import static ru.projectsos.projectsos.data.ActivityConstants.ACTIVITY_START_COMMAND;
+import static ru.projectsos.projectsos.data.ActivityConstants.ACTIVITY_SUCCESS;
+import static ru.projectsos.projectsos.data.ActivityConstants.ACTIVITY_TIME_OFFSET;
+import static ru.projectsos.projectsos.data.ActivityConstants.ACTIVITY_TYPE;
+
+public final class ActivityRepositoryImpl implements ActivityRepository {
+
+    /**
+     * Глубина истории при первой выгрузке с устройства
+     */
+    public static final long DEFAULT_HISTORY_MILLIS = TimeUnit.DAYS.toMillis(7);
+
+    private static final String CHECKPOINT_PREFIX = "activity_checkpoint_";
+
+    private final DeviceConnectionManager mConnectionManager;
+    private final SharedPreferences mSharedPreferences;
+
+    /**
+     * Конструктор репозитория истории активности
+     *
+     * @param connectionManager менеджер подключений к устройствам
+     * @param sharedPreferences хранилище для контрольных точек
+     */
+    public ActivityRepositoryImpl(@NonNull DeviceConnectionManager connectionManager,
+                                  @NonNull SharedPreferences sharedPreferences) {
+        mConnectionManager = checkNotNull(connectionManager, "DeviceConnectionManager is required");
+        mSharedPreferences = checkNotNull(sharedPreferences, "SharedPreferences is required");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Single<SyncStats> sync(String macAddress, ActivitySink sink) {
+        return Single.defer(() -> {
+            long checkpoint = mSharedPreferences.getLong(
+                    CHECKPOINT_PREFIX + macAddress,
+                    System.currentTimeMillis() - DEFAULT_HISTORY_MILLIS
+            );
+            ActivityStreamDecoder decoder = new ActivityStreamDecoder(sink);
+            decoder.begin(checkpoint);
+            long startNanos = System.nanoTime();
+
+            DeviceConnection connection = mConnectionManager.obtain(macAddress);
+
+            return connection.observeConnection()
+                    .firstOrError()
+                    .flatMapObservable(rxBleConnection -> fetch(connection, rxBleConnection, decoder, checkpoint))
+                    .firstOrError()
+                    .map(done -> new SyncStats(
+                            macAddress,
+                            decoder.getRecords(),
+                            decoder.getBytes(),
+                            System.nanoTime() - startNanos,
+                            decoder.getNextTimestampMillis(),
+                            connection.getProfile().getMtu()
+                    ))
+                    .compose(connection.getProfile().highPrioritySingle())
+                    .doFinally(() -> saveCheckpoint(macAddress, decoder, sink));
+        });
+    }
+
+    /**
+     * Запросить историю и разбирать данные по мере прихода
+     * Команды выгрузки идут с низшим приоритетом и не задерживают аутентификацию и SOS
+     *
+     * @param connection      подключение к устройству
+     * @param rxBleConnection подключение
+     * @param decoder         декодер данных
+     * @param sinceMillis     время, с которого нужна история
+     * @return источник, который выдает значение по окончании выгрузки
+     */
+    private Observable<Boolean> fetch(DeviceConnection connection,
+                                      RxBleConnection rxBleConnection,
+                                      ActivityStreamDecoder decoder,
+                                      long sinceMillis) {
+        byte[] start = new byte[2 + ActivityTime.REQUEST_LENGTH];
+        start[0] = ACTIVITY_START_COMMAND;
+        start[1] = ACTIVITY_TYPE;
+        ActivityTime.encodeRequest(sinceMillis, TimeZone.getDefault(), start, 2);
+
+        GattOperationQueue queue = connection.getOperationQueue();
+
+        return connection.setupNotification(rxBleConnection, ACTIVITY_FETCH_CHAR)
+                .flatMap(control -> connection.setupNotification(rxBleConnection, ACTIVITY_DATA_CHAR)
+                        .flatMap(data -> Observable.merge(
+                                data.doOnNext(decoder::onPacket).ignoreElements().<Boolean>toObservable(),
+                                control.concatMap(frame -> onControl(queue, rxBleConnection, decoder, frame)),
+                                write(queue, rxBleConnection, start).<Boolean>toObservable()
+                        )));
+    }
+
+    /**
+     * Реагирование на уведомление управления выгрузкой
+     *
+     * @param queue           очередь операций подключения
+     * @param rxBleConnection подключение
+     * @param decoder         декодер данных
+     * @param frame           уведомление
+     * @return источник, который выдает значение по окончании выгрузки
+     */
+    private static Observable<Boolean> onControl(GattOperationQueue queue,
+                                                 RxBleConnection rxBleConnection,
+                                                 ActivityStreamDecoder decoder,
+                                                 byte[] frame) {
+        if (frame.length < 3 || frame[0] != ACTIVITY_RESPONSE) {
+            return Observable.empty();
+        }
+
+        if (frame[1] == ACTIVITY_START_COMMAND) {
+            if (frame[2] != ACTIVITY_SUCCESS || frame.length < ACTIVITY_METADATA_LENGTH) {
+                return Observable.error(new IllegalStateException("Activity fetch rejected with status " + frame[2]));
+            }
+
+            if (readCount(frame) == 0) {
+                return Observable.just(true);
+            }
+
+            decoder.begin(ActivityTime.decodeResponse(frame, ACTIVITY_TIME_OFFSET));
+            return write(queue, rxBleConnection, new byte[]{ACTIVITY_FETCH_COMMAND}).toObservable();
+        }
+
+        if (frame[1] == ACTIVITY_FETCH_COMMAND) {
+            if (frame[2] != ACTIVITY_SUCCESS) {
+                return Observable.error(new IllegalStateException("Activity fetch failed with status " + frame[2]));
+            }
+
+            return Observable.just(true);
+        }
+
+        return Observable.empty();
+    }
+
+    /**
+     * Сохранить принятые записи и сдвинуть контрольную точку
+     *
+     * @param macAddress MAC адрес
+     * @param decoder    декодер данных
+     * @param sink       приемник записей
+     */
+    private void saveCheckpoint(String macAddress, ActivityStreamDecoder decoder, ActivitySink sink) {
+        if (decoder.getRecords() == 0) {
+            return;
+        }
+
+        sink.flush();
+
+        mSharedPreferences
+                .edit()
+                .putLong(CHECKPOINT_PREFIX + macAddress, decoder.getNextTimestampMillis())
+                .apply();
+    }
+
+    private static long readCount(byte[] frame) {
+        return (frame[ACTIVITY_COUNT_OFFSET] & 0xFFL)
+                | (frame[ACTIVITY_COUNT_OFFSET + 1] & 0xFFL) << 8
+                | (frame[ACTIVITY_COUNT_OFFSET + 2] & 0xFFL) << 16
+                | (frame[ACTIVITY_COUNT_OFFSET + 3] & 0xFFL) << 24;
+    }
+
+    private static Completable write(GattOperationQueue queue, RxBleConnection rxBleConnection, byte[] frame) {
+        return queue.write(rxBleConnection, ACTIVITY_FETCH_CHAR, frame, GattPriority.BULK, false).ignoreElement();
+    }
+
+}
@@ -1,63 +1,83 @@
 package ru.projectsos.projectsos.data.repository;
 
-import android.content.SharedPreferences;
+import android.bluetooth.BluetoothDevice;
 import android.support.annotation.NonNull;
 
 import com.jakewharton.rx.ReplayingShare;
 import com.polidea.rxandroidble2.RxBleClient;
 import com.polidea.rxandroidble2.RxBleConnection;
-import com.polidea.rxandroidble2.RxBleDevice;
 
-import org.apache.commons.lang3.ArrayUtils;
-
-import java.util.Arrays;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import io.reactivex.Completable;
+import io.reactivex.Flowable;
 import io.reactivex.Observable;
-import io.reactivex.subjects.PublishSubject;
+import io.reactivex.Scheduler;
+import ru.projectsos.projectsos.data.connection.DeviceConnection;
+import ru.projectsos.projectsos.data.connection.DeviceConnectionManager;
+import ru.projectsos.projectsos.data.connection.NotificationFlows;
+import ru.projectsos.projectsos.data.connection.RxBleBandTransport;
+import ru.projectsos.projectsos.data.crypto.AuthCryptoEngine;
+import ru.projectsos.projectsos.data.protocol.AuthEvent;
+import ru.projectsos.projectsos.data.protocol.AuthProtocol;
+import ru.projectsos.projectsos.data.protocol.NotificationDecoders;
+import ru.projectsos.projectsos.data.session.AuthSessionCache;
 import ru.projectsos.projectsos.domain.AuthRepository;
 import ru.projectsos.projectsos.models.converter.AbstractConverter;
 import ru.projectsos.projectsos.models.converter.RxBleClientStateToBluetoothStateConverter;
 import ru.projectsos.projectsos.models.converter.RxBleConnectionStateToDeviceStateConverter;
+import ru.projectsos.projectsos.models.domain.Backpressure;
+import ru.projectsos.projectsos.models.domain.BackpressureStats;
 import ru.projectsos.projectsos.models.domain.BluetoothState;
 import ru.projectsos.projectsos.models.domain.DeviceState;
 
 import static dagger.internal.Preconditions.checkNotNull;
-import static ru.projectsos.projectsos.data.AuthConstants.AUTH_BYTE;
-import static ru.projectsos.projectsos.data.AuthConstants.AUTH_CHAR;
-import static ru.projectsos.projectsos.data.AuthConstants.AUTH_REQUEST_RANDOM_KEY_COMMAND;
-import static ru.projectsos.projectsos.data.AuthConstants.AUTH_SEND_ENCRYPTED_KEY_COMMAND;
-import static ru.projectsos.projectsos.data.AuthConstants.AUTH_SEND_SECRET_KEY_COMMAND;
-import static ru.projectsos.projectsos.data.AuthConstants.SECRET_KEY;
-import static ru.projectsos.projectsos.data.AuthConstants.encryptRandomKeyWithSecretKey;
 
 public final class AuthRepositoryImpl implements AuthRepository {
 
-    private static final String AUTHENTICATION_KEY = "authentication";
-    private static final PublishSubject<Boolean> DISCONNECT_TRIGGER_SUBJECT = PublishSubject.create();
-
     private final RxBleClient mRxBleClient;
-    private final SharedPreferences mSharedPreferences;
+    private final DeviceConnectionManager mConnectionManager;
+    private final AuthProtocol mProtocol;
+    private final Scheduler mScheduler;
     private final AbstractConverter<RxBleClient.State, BluetoothState> mBluetoothStateConverter;
     private final AbstractConverter<RxBleConnection.RxBleConnectionState, DeviceState> mDeviceStateConverter;
-
-    private Observable<RxBleClient.State> mStateChangesObservable;
-    private Observable<RxBleConnection> mConnectionObservable;
-    private RxBleDevice mDevice;
+    private final Observable<RxBleClient.State> mStateChangesObservable;
 
     /**
      * Конструктор репозитория аутентификации
      *
      * @param rxBleClient       клиент для работы с Bluetooth LE
-     * @param sharedPreferences хранилище для настроек
+     * @param connectionManager менеджер подключений к устройствам
+     * @param cryptoEngine      шифратор с ключами устройств
+     * @param decoders          декодеры уведомлений
+     * @param sessionCache      кэш сессий аутентификации
+     * @param scheduler         планировщик для сборки пачек уведомлений
      */
     public AuthRepositoryImpl(@NonNull RxBleClient rxBleClient,
-                              @NonNull SharedPreferences sharedPreferences) {
+                              @NonNull DeviceConnectionManager connectionManager,
+                              @NonNull AuthCryptoEngine cryptoEngine,
+                              @NonNull NotificationDecoders decoders,
+                              @NonNull AuthSessionCache sessionCache,
+                              @NonNull Scheduler scheduler) {
         mRxBleClient = checkNotNull(rxBleClient, "RxBleClient is required");
-        mSharedPreferences = checkNotNull(sharedPreferences, "SharedPreferences is required");
+        mConnectionManager = checkNotNull(connectionManager, "DeviceConnectionManager is required");
+        mProtocol = new AuthProtocol(
+                new RxBleBandTransport(mConnectionManager),
+                checkNotNull(cryptoEngine, "AuthCryptoEngine is required"),
+                checkNotNull(decoders, "NotificationDecoders is required"),
+                checkNotNull(sessionCache, "AuthSessionCache is required")
+        );
+        mScheduler = checkNotNull(scheduler, "Scheduler is required");
 
         mBluetoothStateConverter = new RxBleClientStateToBluetoothStateConverter();
         mDeviceStateConverter = new RxBleConnectionStateToDeviceStateConverter();
+        // Состояние Bluetooth общее для всех устройств, поэтому выключение одного устройства его не завершает
+        mStateChangesObservable = rxBleClient
+                .observeStateChanges()
+                .compose(ReplayingShare.instance());
     }
 
     /**
@@ -65,9 +85,8 @@ public final class AuthRepositoryImpl implements AuthRepository {
      */
     @Override
     public Observable<DeviceState> traceDeviceState(String macAddress) {
-        initDevice(macAddress);
-
-        return mDevice.observeConnectionStateChanges()
+        return mConnectionManager.obtain(macAddress)
+                .observeConnectionState()
                 .map(mDeviceStateConverter::convert);
     }
 
@@ -75,9 +94,21 @@ public final class AuthRepositoryImpl implements AuthRepository {
      * {@inheritDoc}
      */
     @Override
-    public Observable<BluetoothState> traceBluetoothState() {
-        initStateChangesObservable();
+    public Observable<Long> observeConnections(String macAddress) {
+        return Observable.defer(() -> {
+            AtomicLong counter = new AtomicLong();
+
+            return connection(macAddress)
+                    .distinctUntilChanged()
+                    .map(rxBleConnection -> counter.incrementAndGet());
+        });
+    }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Observable<BluetoothState> traceBluetoothState() {
         return mStateChangesObservable
                 .startWith(mRxBleClient.getState())
                 .map(mBluetoothStateConverter::convert);
@@ -88,10 +119,7 @@ public final class AuthRepositoryImpl implements AuthRepository {
      */
     @Override
     public Observable<byte[]> setupNotification(String macAddress) {
-        initConnectionObservable(macAddress);
-
-        return mConnectionObservable
-                .flatMap(rxBleConnection -> rxBleConnection.setupNotification(AUTH_CHAR))
+        return mProtocol.authNotifications(macAddress)
                 .flatMap(observable -> observable);
     }
 
@@ -99,63 +127,92 @@ public final class AuthRepositoryImpl implements AuthRepository {
      * {@inheritDoc}
      */
     @Override
-    public boolean isFirstAuthentication() {
-        return !mSharedPreferences.getBoolean(AUTHENTICATION_KEY, false);
+    public Flowable<byte[]> setupNotification(String macAddress, Backpressure backpressure, BackpressureStats stats) {
+        return NotificationFlows.toFlowable(setupNotification(macAddress), backpressure, stats);
+    }
+
+    /**
+     * {@inheritDoc}
+     * Пачки собираются до очереди: по таймеру их нельзя придержать до запроса подписчика
+     */
+    @Override
+    public Flowable<List<byte[]>> setupNotificationBatches(String macAddress,
+                                                           Backpressure backpressure,
+                                                           BackpressureStats stats,
+                                                           long maxDelayMillis,
+                                                           int maxFrames) {
+        Observable<List<byte[]>> batches = setupNotification(macAddress)
+                .buffer(maxDelayMillis, TimeUnit.MILLISECONDS, mScheduler, maxFrames)
+                .filter(batch -> !batch.isEmpty());
+
+        return NotificationFlows.toFlowable(batches, backpressure, stats);
     }
 
     /**
      * {@inheritDoc}
+     * Пока идет подписка, то есть все рукопожатие, подключение работает с высоким приоритетом. Подключение
+     * заводит сам протокол, приоритет берется у него, а не у нового подключения
      */
     @Override
-    public Completable sendSecretKey() {
-        byte[] secretKeyWithCommand = ArrayUtils.addAll(new byte[]{AUTH_SEND_SECRET_KEY_COMMAND, AUTH_BYTE}, SECRET_KEY);
+    public Observable<AuthEvent> observeAuthEvents(String macAddress) {
+        return Observable.defer(() -> {
+            Observable<AuthEvent> events = mProtocol.observeAuthEvents(macAddress);
+            DeviceConnection connection = mConnectionManager.find(macAddress);
 
-        return mConnectionObservable
-                .flatMapSingle(rxBleConnection -> rxBleConnection.writeCharacteristic(AUTH_CHAR, secretKeyWithCommand))
-                .ignoreElements();
+            return connection == null ? events : events.compose(connection.getProfile().highPriority());
+        });
     }
 
     /**
      * {@inheritDoc}
+     * Устройство, сопряжение с которым удалили в настройках системы, аутентифицируется заново
      */
     @Override
-    public Completable requestRandomKey() {
-        return mConnectionObservable
-                .flatMapSingle(rxBleConnection -> rxBleConnection.writeCharacteristic(AUTH_CHAR, new byte[]{AUTH_REQUEST_RANDOM_KEY_COMMAND, AUTH_BYTE}))
-                .ignoreElements();
+    public boolean isFirstAuthentication(String macAddress) {
+        if (mProtocol.isFirstAuthentication(macAddress)) {
+            return true;
+        }
+
+        BluetoothDevice device = bluetoothDevice(macAddress);
+        return device != null && device.getBondState() == BluetoothDevice.BOND_NONE;
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public Completable sendEncryptedKey(byte[] randomKeyResponse) {
-        byte[] randomKey = Arrays.copyOfRange(randomKeyResponse, 3, 19);
-        byte[] encryptedRandomKey = encryptRandomKeyWithSecretKey(randomKey);
-        byte[] dataToSend = ArrayUtils.addAll(new byte[]{AUTH_SEND_ENCRYPTED_KEY_COMMAND, AUTH_BYTE}, encryptedRandomKey);
+    public Completable sendSecretKey(String macAddress) {
+        return mProtocol.sendSecretKey(macAddress);
+    }
 
-        return mConnectionObservable
-                .flatMapSingle(rxBleConnection -> rxBleConnection.writeCharacteristic(AUTH_CHAR, dataToSend))
-                .ignoreElements();
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Completable requestRandomKey(String macAddress) {
+        return mProtocol.requestRandomKey(macAddress);
     }
 
     /**
-     * Процедура после первой аутентификации устройства
-     * Сохраняет флаг о прохождении первой аутентификации и сопрягается с устройством
-     *
-     * @return завершаемый источник
+     * {@inheritDoc}
+     */
+    @Override
+    public Completable sendEncryptedKey(String macAddress, ByteBuffer randomKey) {
+        return mProtocol.sendEncryptedKey(macAddress, randomKey);
+    }
+
+    /**
+     * {@inheritDoc}
      */
     @Override
-    public Completable afterFirstAuthentication() {
+    public Completable afterAuthentication(String macAddress) {
         return Completable.fromAction(() -> {
-            if (isFirstAuthentication()) {
-                mSharedPreferences
-                        .edit()
-                        .putBoolean(AUTHENTICATION_KEY, true)
-                        .apply();
-
-                mDevice.getBluetoothDevice().createBond();
-            }
+            BluetoothDevice device = bluetoothDevice(macAddress);
+            boolean bonded = device == null
+                    || device.getBondState() != BluetoothDevice.BOND_NONE
+                    || device.createBond();
+
+            mProtocol.recordAuthentication(macAddress, bonded);
         });
     }
 
@@ -163,47 +220,37 @@ public final class AuthRepositoryImpl implements AuthRepository {
      * {@inheritDoc}
      */
     @Override
-    public Completable gracefullyShutdown() {
-        return Completable.fromAction(() -> DISCONNECT_TRIGGER_SUBJECT.onNext(true));
+    public Completable resetAuthentication(String macAddress) {
+        return mProtocol.resetAuthentication(macAddress);
     }
 
     /**
-     * Инициализировать объект устройства
-     *
-     * @param macAddress MAC адрес
+     * {@inheritDoc}
      */
-    private void initDevice(String macAddress) {
-        if (mDevice == null) {
-            mDevice = mRxBleClient.getBleDevice(macAddress);
-        }
+    @Override
+    public Completable gracefullyShutdown(String macAddress) {
+        return Completable.fromAction(() -> mConnectionManager.release(macAddress));
     }
 
     /**
-     * Инициализировать наблюдение за состоянием
+     * Получить системное устройство
+     * Устройство берется у клиента, а не у подключения, чтобы не заводить подключение ради проверки сопряжения
+     *
+     * @param macAddress MAC адрес
+     * @return устройство или {@code null}, если за MAC адресом нет системного устройства
      */
-    private void initStateChangesObservable() {
-        if (mStateChangesObservable == null) {
-            mStateChangesObservable = mRxBleClient
-                    .observeStateChanges()
-                    .takeUntil(DISCONNECT_TRIGGER_SUBJECT)
-                    .compose(ReplayingShare.instance());
-        }
+    private BluetoothDevice bluetoothDevice(String macAddress) {
+        return mRxBleClient.getBleDevice(macAddress).getBluetoothDevice();
     }
 
     /**
-     * Инициализировать наблюдение за подключение с устройством
+     * Получить разделяемое подключение к устройству
      *
      * @param macAddress MAC адрес
+     * @return возвращает горячий источник
      */
-    private void initConnectionObservable(String macAddress) {
-        initDevice(macAddress);
-
-        if (mConnectionObservable == null) {
-            mConnectionObservable = mDevice
-                    .establishConnection(false)
-                    .takeUntil(DISCONNECT_TRIGGER_SUBJECT)
-                    .compose(ReplayingShare.instance());
-        }
+    private Observable<RxBleConnection> connection(String macAddress) {
+        return mConnectionManager.obtain(macAddress).observeConnection();
     }
 
 }
@@ -0,0 +1,133 @@
+package ru.projectsos.projectsos.data.repository;
+
+import android.support.annotation.NonNull;
+
+import com.polidea.rxandroidble2.RxBleConnection;
+
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Completable;
+import io.reactivex.Observable;
+import io.reactivex.Scheduler;
+import ru.projectsos.projectsos.data.connection.DeviceConnection;
+import ru.projectsos.projectsos.data.connection.DeviceConnectionManager;
+import ru.projectsos.projectsos.data.connection.GattOperationQueue;
+import ru.projectsos.projectsos.data.connection.GattPriority;
+import ru.projectsos.projectsos.data.heartrate.HeartRateRingBuffer;
+import ru.projectsos.projectsos.data.protocol.HeartRateMeasurement;
+import ru.projectsos.projectsos.domain.HeartRateRepository;
+import ru.projectsos.projectsos.models.domain.HeartRateWindow;
+
+import static dagger.internal.Preconditions.checkNotNull;
+import static ru.projectsos.projectsos.data.HeartRateConstants.HEART_RATE_COMMAND;
+import static ru.projectsos.projectsos.data.HeartRateConstants.HEART_RATE_CONTROL_POINT_CHAR;
+import static ru.projectsos.projectsos.data.HeartRateConstants.HEART_RATE_DISABLE;
+import static ru.projectsos.projectsos.data.HeartRateConstants.HEART_RATE_ENABLE;
+import static ru.projectsos.projectsos.data.HeartRateConstants.HEART_RATE_MEASUREMENT_CHAR;
+import static ru.projectsos.projectsos.data.HeartRateConstants.HEART_RATE_MODE_CONTINUOUS;
+import static ru.projectsos.projectsos.data.HeartRateConstants.HEART_RATE_MODE_MANUAL;
+import static ru.projectsos.projectsos.data.HeartRateConstants.HEART_RATE_PING_COMMAND;
+import static ru.projectsos.projectsos.data.HeartRateConstants.HEART_RATE_PING_INTERVAL_SECONDS;
+
+public final class HeartRateRepositoryImpl implements HeartRateRepository {
+
+    private final DeviceConnectionManager mConnectionManager;
+    private final Scheduler mScheduler;
+
+    /**
+     * Конструктор репозитория пульса
+     *
+     * @param connectionManager менеджер подключений к устройствам
+     * @param scheduler         планировщик для окон и пинга пульсометра
+     */
+    public HeartRateRepositoryImpl(@NonNull DeviceConnectionManager connectionManager, @NonNull Scheduler scheduler) {
+        mConnectionManager = checkNotNull(connectionManager, "DeviceConnectionManager is required");
+        mScheduler = checkNotNull(scheduler, "Scheduler is required");
+    }
+
+    /**
+     * {@inheritDoc}
+     * Уведомления декодируются сразу в кольцевой буфер, поэтому подписчик получает одно событие на окно, а не на замер
+     */
+    @Override
+    public Observable<HeartRateWindow> observeHeartRate(String macAddress, long windowMillis, int maxSamples) {
+        return Observable.defer(() -> {
+            HeartRateRingBuffer buffer = new HeartRateRingBuffer(maxSamples);
+
+            return measurements(macAddress)
+                    .publish(frames -> Observable.<Object>merge(
+                            frames.filter(frame -> offer(buffer, frame) >= maxSamples),
+                            Observable.interval(windowMillis, windowMillis, TimeUnit.MILLISECONDS, mScheduler)
+                    ))
+                    .map(trigger -> buffer.drain())
+                    .filter(window -> window.size() > 0);
+        });
+    }
+
+    /**
+     * Положить замер из уведомления в буфер
+     *
+     * @param buffer буфер
+     * @param frame  уведомление
+     * @return количество замеров в буфере
+     */
+    private static int offer(HeartRateRingBuffer buffer, byte[] frame) {
+        int bpm = HeartRateMeasurement.decodeBpm(frame);
+
+        if (bpm <= 0) {
+            return buffer.size();
+        }
+
+        return buffer.add(System.currentTimeMillis(), bpm);
+    }
+
+    /**
+     * Подписаться на уведомления пульсометра, запустить непрерывное измерение и продлевать его пингом
+     *
+     * @param macAddress MAC адрес
+     * @return возвращает горячий источник уведомлений
+     */
+    private Observable<byte[]> measurements(String macAddress) {
+        DeviceConnection connection = mConnectionManager.obtain(macAddress);
+        GattOperationQueue queue = connection.getOperationQueue();
+
+        return connection.observeConnection()
+                .flatMap(rxBleConnection -> connection.setupNotification(rxBleConnection, HEART_RATE_MEASUREMENT_CHAR)
+                        .flatMap(notifications -> notifications.mergeWith(
+                                startContinuous(queue, rxBleConnection)
+                                        .andThen(keepAlive(queue, rxBleConnection))
+                                        .toObservable()
+                        )));
+    }
+
+    /**
+     * Остановить текущие измерения и запустить непрерывное
+     *
+     * @param queue           очередь операций подключения
+     * @param rxBleConnection подключение
+     * @return возвращает завершаемый источник
+     */
+    private static Completable startContinuous(GattOperationQueue queue, RxBleConnection rxBleConnection) {
+        return write(queue, rxBleConnection, new byte[]{HEART_RATE_COMMAND, HEART_RATE_MODE_MANUAL, HEART_RATE_DISABLE}, false)
+                .andThen(write(queue, rxBleConnection, new byte[]{HEART_RATE_COMMAND, HEART_RATE_MODE_CONTINUOUS, HEART_RATE_DISABLE}, false))
+                .andThen(write(queue, rxBleConnection, new byte[]{HEART_RATE_COMMAND, HEART_RATE_MODE_CONTINUOUS, HEART_RATE_ENABLE}, false));
+    }
+
+    /**
+     * Продлевать непрерывное измерение, пока есть подписчики
+     * Пинги одинаковы, поэтому еще не отправленный пинг объединяется со следующим
+     *
+     * @param queue           очередь операций подключения
+     * @param rxBleConnection подключение
+     * @return возвращает бесконечный завершаемый источник
+     */
+    private Completable keepAlive(GattOperationQueue queue, RxBleConnection rxBleConnection) {
+        return Observable.interval(HEART_RATE_PING_INTERVAL_SECONDS, TimeUnit.SECONDS, mScheduler)
+                .concatMapCompletable(tick -> write(queue, rxBleConnection, new byte[]{HEART_RATE_PING_COMMAND}, true));
+    }
+
+    private static Completable write(GattOperationQueue queue, RxBleConnection rxBleConnection, byte[] frame, boolean coalesce) {
+        return queue.write(rxBleConnection, HEART_RATE_CONTROL_POINT_CHAR, frame, GattPriority.NORMAL, coalesce).ignoreElement();
+    }
+
+}
@@ -0,0 +1,46 @@
+package ru.projectsos.projectsos.data.repository;
+
+import android.support.annotation.NonNull;
+
+import java.io.File;
+
+import io.reactivex.Completable;
+import ru.projectsos.projectsos.data.metrics.MetricsRegistry;
+import ru.projectsos.projectsos.domain.MetricsRepository;
+import ru.projectsos.projectsos.models.domain.AuthResult;
+
+import static dagger.internal.Preconditions.checkNotNull;
+
+public final class MetricsRepositoryImpl implements MetricsRepository {
+
+    private final MetricsRegistry mRegistry;
+    private final File mReportFile;
+
+    /**
+     * Конструктор репозитория метрик
+     *
+     * @param registry   реестр метрик
+     * @param reportFile файл отчета
+     */
+    public MetricsRepositoryImpl(@NonNull MetricsRegistry registry, @NonNull File reportFile) {
+        mRegistry = checkNotNull(registry, "MetricsRegistry is required");
+        mReportFile = checkNotNull(reportFile, "File is required");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void recordAuthentication(AuthResult result) {
+        mRegistry.device(result.getMacAddress()).recordAuthentication(result);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Completable dump() {
+        return Completable.fromAction(() -> mRegistry.dump(mReportFile));
+    }
+
+}
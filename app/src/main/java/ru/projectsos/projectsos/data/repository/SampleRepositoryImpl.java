@@ -0,0 +1,232 @@
+package ru.projectsos.projectsos.data.repository;
+
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import io.reactivex.Completable;
+import io.reactivex.Single;
+import ru.projectsos.projectsos.data.metrics.Counter;
+import ru.projectsos.projectsos.data.metrics.MetricsRegistry;
+import ru.projectsos.projectsos.data.store.BucketVisitor;
+import ru.projectsos.projectsos.data.store.Metric;
+import ru.projectsos.projectsos.data.store.TimeSeries;
+import ru.projectsos.projectsos.data.store.TimeSeriesStore;
+import ru.projectsos.projectsos.domain.ActivitySink;
+import ru.projectsos.projectsos.domain.SampleRepository;
+import ru.projectsos.projectsos.models.domain.HeartRateWindow;
+import ru.projectsos.projectsos.models.domain.SampleHistory;
+
+import static dagger.internal.Preconditions.checkNotNull;
+
+public final class SampleRepositoryImpl implements SampleRepository {
+
+    /**
+     * Значение пульса в записи активности, если пульс не измерялся
+     */
+    private static final int NO_HEART_RATE = 0xFF;
+
+    private final TimeSeriesStore mStore;
+    private final MetricsRegistry mMetricsRegistry;
+
+    /**
+     * Конструктор репозитория замеров
+     *
+     * @param store           хранилище временных рядов
+     * @param metricsRegistry реестр метрик, куда считаются отвергнутые хранилищем замеры
+     */
+    public SampleRepositoryImpl(@NonNull TimeSeriesStore store, @NonNull MetricsRegistry metricsRegistry) {
+        mStore = checkNotNull(store, "TimeSeriesStore is required");
+        mMetricsRegistry = checkNotNull(metricsRegistry, "MetricsRegistry is required");
+    }
+
+    /**
+     * {@inheritDoc}
+     * Ряды открываются при подписке, а не на каждую запись. Пульс из истории пишется в свой ряд
+     * {@link Metric#ACTIVITY_HEART_RATE}: живой пульс идет одновременно с выгрузкой и уже ушел вперед
+     */
+    @Override
+    public Single<ActivitySink> activitySink(String macAddress) {
+        return Single.fromCallable(() -> new StoreActivitySink(
+                mStore.series(macAddress, Metric.ACTIVITY_KIND),
+                mStore.series(macAddress, Metric.ACTIVITY_INTENSITY),
+                mStore.series(macAddress, Metric.STEPS),
+                mStore.series(macAddress, Metric.ACTIVITY_HEART_RATE),
+                mMetricsRegistry.device(macAddress).getRejectedSamples()
+        ));
+    }
+
+    /**
+     * {@inheritDoc}
+     * Замеры старше последнего замера ряда хранилище не принимает, они учитываются в метриках устройства
+     */
+    @Override
+    public Completable recordHeartRate(String macAddress, HeartRateWindow window) {
+        return Completable.fromAction(() -> {
+            TimeSeries series = mStore.series(macAddress, Metric.HEART_RATE);
+            int rejected = 0;
+
+            for (int i = 0; i < window.size(); i++) {
+                if (!series.append(window.getTimestamp(i), window.getBpm(i))) {
+                    rejected++;
+                }
+            }
+
+            if (rejected > 0) {
+                mMetricsRegistry.device(macAddress).getRejectedSamples().add(rejected);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     * Запрос читает свертку рядов, а не сырые замеры, если разрешение это позволяет. Живой пульс и пульс из истории
+     * активности сливаются по времени: у рядов одинаковые уровни свертки, поэтому интервалы совпадают по границам
+     */
+    @Override
+    public Single<SampleHistory> heartRateHistory(String macAddress, long fromMillis, long toMillis, long resolutionMillis) {
+        return Single.fromCallable(() -> {
+            HistoryCollector live = new HistoryCollector();
+            HistoryCollector activity = new HistoryCollector();
+            long resolution = mStore.series(macAddress, Metric.HEART_RATE).query(fromMillis, toMillis, resolutionMillis, live);
+            mStore.series(macAddress, Metric.ACTIVITY_HEART_RATE).query(fromMillis, toMillis, resolutionMillis, activity);
+            return HistoryCollector.merge(live, activity).toHistory(resolution);
+        });
+    }
+
+    /**
+     * Накопитель интервалов свертки в массивы истории
+     */
+    private static final class HistoryCollector implements BucketVisitor {
+
+        private static final int INITIAL_CAPACITY = 256;
+
+        private long[] mStarts = new long[INITIAL_CAPACITY];
+        private int[] mCounts = new int[INITIAL_CAPACITY];
+        private long[] mMins = new long[INITIAL_CAPACITY];
+        private long[] mMaxs = new long[INITIAL_CAPACITY];
+        private long[] mSums = new long[INITIAL_CAPACITY];
+        private int mSize;
+
+        @Override
+        public void onBucket(long startMillis, int count, long min, long max, long sum) {
+            if (mSize == mStarts.length) {
+                int capacity = mSize * 2;
+                mStarts = Arrays.copyOf(mStarts, capacity);
+                mCounts = Arrays.copyOf(mCounts, capacity);
+                mMins = Arrays.copyOf(mMins, capacity);
+                mMaxs = Arrays.copyOf(mMaxs, capacity);
+                mSums = Arrays.copyOf(mSums, capacity);
+            }
+
+            mStarts[mSize] = startMillis;
+            mCounts[mSize] = count;
+            mMins[mSize] = min;
+            mMaxs[mSize] = max;
+            mSums[mSize] = sum;
+            mSize++;
+        }
+
+        /**
+         * Слить два упорядоченных по времени набора интервалов
+         * Интервалы с одинаковым началом складываются в один
+         *
+         * @param first  первый набор
+         * @param second второй набор
+         * @return возвращает слитый набор
+         */
+        static HistoryCollector merge(HistoryCollector first, HistoryCollector second) {
+            HistoryCollector merged = new HistoryCollector();
+            int i = 0;
+            int j = 0;
+
+            while (i < first.mSize || j < second.mSize) {
+                if (j == second.mSize || (i < first.mSize && first.mStarts[i] < second.mStarts[j])) {
+                    first.copyTo(i++, merged);
+                } else if (i == first.mSize || second.mStarts[j] < first.mStarts[i]) {
+                    second.copyTo(j++, merged);
+                } else {
+                    merged.onBucket(
+                            first.mStarts[i],
+                            first.mCounts[i] + second.mCounts[j],
+                            Math.min(first.mMins[i], second.mMins[j]),
+                            Math.max(first.mMaxs[i], second.mMaxs[j]),
+                            first.mSums[i] + second.mSums[j]
+                    );
+                    i++;
+                    j++;
+                }
+            }
+
+            return merged;
+        }
+
+        private void copyTo(int index, HistoryCollector target) {
+            target.onBucket(mStarts[index], mCounts[index], mMins[index], mMaxs[index], mSums[index]);
+        }
+
+        SampleHistory toHistory(long resolutionMillis) {
+            return new SampleHistory(
+                    resolutionMillis,
+                    Arrays.copyOf(mStarts, mSize),
+                    Arrays.copyOf(mCounts, mSize),
+                    Arrays.copyOf(mMins, mSize),
+                    Arrays.copyOf(mMaxs, mSize),
+                    Arrays.copyOf(mSums, mSize)
+            );
+        }
+
+    }
+
+    /**
+     * Приемник истории активности, раскладывающий записи по рядам
+     */
+    private static final class StoreActivitySink implements ActivitySink {
+
+        private final TimeSeries mKind;
+        private final TimeSeries mIntensity;
+        private final TimeSeries mSteps;
+        private final TimeSeries mHeartRate;
+        private final Counter mRejected;
+
+        StoreActivitySink(TimeSeries kind, TimeSeries intensity, TimeSeries steps, TimeSeries heartRate, Counter rejected) {
+            mKind = kind;
+            mIntensity = intensity;
+            mSteps = steps;
+            mHeartRate = heartRate;
+            mRejected = rejected;
+        }
+
+        @Override
+        public void onRecord(long timestampMillis, int kind, int intensity, int steps, int heartRate) {
+            try {
+                append(mKind, timestampMillis, kind);
+                append(mIntensity, timestampMillis, intensity);
+                append(mSteps, timestampMillis, steps);
+
+                if (heartRate > 0 && heartRate != NO_HEART_RATE) {
+                    append(mHeartRate, timestampMillis, heartRate);
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot store activity record", e);
+            }
+        }
+
+        @Override
+        public void flush() {
+            mKind.flush();
+            mIntensity.flush();
+            mSteps.flush();
+            mHeartRate.flush();
+        }
+
+        private void append(TimeSeries series, long timestampMillis, int value) throws IOException {
+            if (!series.append(timestampMillis, value)) {
+                mRejected.increment();
+            }
+        }
+
+    }
+
+}
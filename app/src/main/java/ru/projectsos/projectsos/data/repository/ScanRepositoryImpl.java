@@ -0,0 +1,39 @@
+package ru.projectsos.projectsos.data.repository;
+
+import android.support.annotation.NonNull;
+
+import java.util.List;
+
+import io.reactivex.Observable;
+import io.reactivex.Scheduler;
+import ru.projectsos.projectsos.data.scan.DeviceScanner;
+import ru.projectsos.projectsos.domain.ScanRepository;
+import ru.projectsos.projectsos.models.domain.ScannedDevice;
+
+import static dagger.internal.Preconditions.checkNotNull;
+
+public final class ScanRepositoryImpl implements ScanRepository {
+
+    private final DeviceScanner mScanner;
+    private final Scheduler mScheduler;
+
+    /**
+     * Конструктор репозитория поиска
+     *
+     * @param scanner   поиск устройств
+     * @param scheduler планировщик, на котором собираются списки
+     */
+    public ScanRepositoryImpl(@NonNull DeviceScanner scanner, @NonNull Scheduler scheduler) {
+        mScanner = checkNotNull(scanner, "DeviceScanner is required");
+        mScheduler = checkNotNull(scheduler, "Scheduler is required");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Observable<List<ScannedDevice>> scanDevices(long periodMillis, int limit) {
+        return mScanner.scan(periodMillis, limit, mScheduler);
+    }
+
+}
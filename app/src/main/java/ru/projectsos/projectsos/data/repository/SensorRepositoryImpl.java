@@ -0,0 +1,138 @@
+package ru.projectsos.projectsos.data.repository;
+
+import android.support.annotation.NonNull;
+
+import com.polidea.rxandroidble2.RxBleConnection;
+
+import io.reactivex.Completable;
+import io.reactivex.Observable;
+import io.reactivex.Scheduler;
+import ru.projectsos.projectsos.data.connection.DeviceConnection;
+import ru.projectsos.projectsos.data.connection.DeviceConnectionManager;
+import ru.projectsos.projectsos.data.connection.GattOperationQueue;
+import ru.projectsos.projectsos.data.connection.GattPriority;
+import ru.projectsos.projectsos.data.fall.FallDetector;
+import ru.projectsos.projectsos.data.fall.FrameArrivals;
+import ru.projectsos.projectsos.data.metrics.DeviceMetrics;
+import ru.projectsos.projectsos.data.protocol.AccelerometerFrame;
+import ru.projectsos.projectsos.domain.SensorRepository;
+import ru.projectsos.projectsos.models.domain.FallEvent;
+
+import static dagger.internal.Preconditions.checkNotNull;
+import static ru.projectsos.projectsos.data.SensorConstants.ACCELEROMETER_COUNTS_PER_G;
+import static ru.projectsos.projectsos.data.SensorConstants.ACCELEROMETER_SAMPLE_RATE_HZ;
+import static ru.projectsos.projectsos.data.SensorConstants.SENSOR_CONTROL_CHAR;
+import static ru.projectsos.projectsos.data.SensorConstants.SENSOR_DATA_CHAR;
+import static ru.projectsos.projectsos.data.SensorConstants.SENSOR_ENABLE_COMMAND;
+import static ru.projectsos.projectsos.data.SensorConstants.SENSOR_START_COMMAND;
+
+public final class SensorRepositoryImpl implements SensorRepository {
+
+    private static final int ARRIVALS_CAPACITY = 256;
+
+    private final DeviceConnectionManager mConnectionManager;
+    private final Scheduler mScheduler;
+
+    /**
+     * Конструктор репозитория датчиков
+     *
+     * @param connectionManager менеджер подключений к устройствам
+     * @param scheduler         выделенный планировщик распознавания; не должен делить поток с вводом-выводом,
+     *                          иначе замеры ждут в очереди за чужими задачами
+     */
+    public SensorRepositoryImpl(@NonNull DeviceConnectionManager connectionManager, @NonNull Scheduler scheduler) {
+        mConnectionManager = checkNotNull(connectionManager, "DeviceConnectionManager is required");
+        mScheduler = checkNotNull(scheduler, "Scheduler is required");
+    }
+
+    /**
+     * {@inheritDoc}
+     * Уведомления принимаются в потоке Bluetooth и сразу уходят на планировщик распознавания. Там замеры
+     * распаковываются в переиспользуемый массив и подаются в {@link FallDetector}, поэтому на уведомление
+     * не создается ни одного объекта, а объект события появляется только при падении. Массив рассчитан на
+     * самое длинное уведомление, так что после увеличения MTU замеры не теряются
+     */
+    @Override
+    public Observable<FallEvent> observeFalls(String macAddress) {
+        DeviceConnection connection = mConnectionManager.obtain(macAddress);
+        GattOperationQueue queue = connection.getOperationQueue();
+        DeviceMetrics metrics = connection.getMetrics();
+
+        return connection.observeConnection()
+                .switchMap(rxBleConnection -> Observable.defer(() -> {
+                    FallDetector detector = new FallDetector(ACCELEROMETER_SAMPLE_RATE_HZ, ACCELEROMETER_COUNTS_PER_G);
+                    FrameArrivals arrivals = new FrameArrivals(ARRIVALS_CAPACITY);
+                    short[] samples = new short[AccelerometerFrame.MAX_ATTRIBUTE_SAMPLES * 3];
+                    long[] detectedArrival = new long[1];
+
+                    return frames(connection, queue, rxBleConnection)
+                            .doOnNext(frame -> arrivals.arrive())
+                            .observeOn(mScheduler)
+                            .filter(frame -> {
+                                long arrivalNanos = arrivals.depart();
+
+                                if (!detect(detector, frame, samples)) {
+                                    return false;
+                                }
+
+                                detectedArrival[0] = arrivalNanos;
+                                return true;
+                            })
+                            .map(frame -> {
+                                long latencyNanos = System.nanoTime() - detectedArrival[0];
+                                metrics.recordFall(latencyNanos);
+
+                                return new FallEvent(
+                                        macAddress,
+                                        System.currentTimeMillis() - detector.getMillisSinceImpact(),
+                                        detector.getPeakG(),
+                                        detector.getFreeFallMillis(),
+                                        detector.getTiltDegrees(),
+                                        latencyNanos
+                                );
+                            });
+                }));
+    }
+
+    /**
+     * Подать замеры уведомления в распознавание
+     * Уведомление разбирается целиком, даже если падение распознано на одном из первых замеров
+     *
+     * @param detector распознавание
+     * @param frame    уведомление
+     * @param samples  массив для осей замеров
+     * @return возвращает {@code true}, если уведомление завершило падение
+     */
+    private static boolean detect(FallDetector detector, byte[] frame, short[] samples) {
+        int count = AccelerometerFrame.decode(frame, samples);
+        boolean detected = false;
+
+        for (int i = 0; i < count * 3; i += 3) {
+            detected |= detector.add(samples[i], samples[i + 1], samples[i + 2]);
+        }
+
+        return detected;
+    }
+
+    /**
+     * Подписаться на уведомления сырых данных и запустить поток акселерометра
+     *
+     * @param connection      подключение к устройству
+     * @param queue           очередь операций подключения
+     * @param rxBleConnection подключение
+     * @return возвращает горячий источник уведомлений
+     */
+    private static Observable<byte[]> frames(DeviceConnection connection, GattOperationQueue queue, RxBleConnection rxBleConnection) {
+        return connection.setupNotification(rxBleConnection, SENSOR_DATA_CHAR)
+                .flatMap(notifications -> notifications.mergeWith(
+                        write(queue, rxBleConnection, SENSOR_ENABLE_COMMAND)
+                                .andThen(write(queue, rxBleConnection, new byte[]{SENSOR_START_COMMAND}))
+                                .toObservable()
+                ));
+    }
+
+    private static Completable write(GattOperationQueue queue, RxBleConnection rxBleConnection, byte[] frame) {
+        return queue.write(rxBleConnection, SENSOR_CONTROL_CHAR, frame, GattPriority.NORMAL, false).ignoreElement();
+    }
+
+}
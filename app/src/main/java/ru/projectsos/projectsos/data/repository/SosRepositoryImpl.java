@@ -0,0 +1,214 @@
+package ru.projectsos.projectsos.data.repository;
+
+import android.support.annotation.NonNull;
+
+import com.polidea.rxandroidble2.RxBleConnection;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import io.reactivex.Observable;
+import io.reactivex.Scheduler;
+import ru.projectsos.projectsos.data.connection.DeviceConnection;
+import ru.projectsos.projectsos.data.connection.DeviceConnectionManager;
+import ru.projectsos.projectsos.data.connection.GattOperationQueue;
+import ru.projectsos.projectsos.data.connection.GattPriority;
+import ru.projectsos.projectsos.data.metrics.DeviceMetrics;
+import ru.projectsos.projectsos.data.sos.ButtonPresses;
+import ru.projectsos.projectsos.data.sos.LocationCache;
+import ru.projectsos.projectsos.data.sos.SosDispatcher;
+import ru.projectsos.projectsos.data.sos.SosPayload;
+import ru.projectsos.projectsos.domain.SosRepository;
+import ru.projectsos.projectsos.models.domain.HeartRateWindow;
+import ru.projectsos.projectsos.models.domain.SosResult;
+
+import static dagger.internal.Preconditions.checkNotNull;
+import static ru.projectsos.projectsos.data.SosConstants.ALERT_LEVEL_CHAR;
+import static ru.projectsos.projectsos.data.SosConstants.ALERT_LEVEL_MILD;
+import static ru.projectsos.projectsos.data.SosConstants.DEVICE_EVENT_BUTTON_PRESSED;
+import static ru.projectsos.projectsos.data.SosConstants.DEVICE_EVENT_CHAR;
+import static ru.projectsos.projectsos.data.SosConstants.SOS_PRESSES;
+import static ru.projectsos.projectsos.data.SosConstants.SOS_PRESS_WINDOW_MILLIS;
+
+public final class SosRepositoryImpl implements SosRepository {
+
+    private final DeviceConnectionManager mConnectionManager;
+    private final LocationCache mLocationCache;
+    private final SosDispatcher mDispatcher;
+    private final Scheduler mScheduler;
+    private final ConcurrentMap<String, DeviceSos> mDevices = new ConcurrentHashMap<>();
+
+    /**
+     * Конструктор репозитория сигнала SOS
+     *
+     * @param connectionManager менеджер подключений к устройствам
+     * @param locationCache     последнее известное местоположение
+     * @param dispatcher        отправитель сигнала
+     * @param scheduler         выделенный планировщик SOS; не должен делить поток ни с главным потоком,
+     *                          ни с вводом-выводом, иначе сигнал ждет в очереди за чужими задачами
+     */
+    public SosRepositoryImpl(@NonNull DeviceConnectionManager connectionManager,
+                             @NonNull LocationCache locationCache,
+                             @NonNull SosDispatcher dispatcher,
+                             @NonNull Scheduler scheduler) {
+        mConnectionManager = checkNotNull(connectionManager, "DeviceConnectionManager is required");
+        mLocationCache = checkNotNull(locationCache, "LocationCache is required");
+        mDispatcher = checkNotNull(dispatcher, "SosDispatcher is required");
+        mScheduler = checkNotNull(scheduler, "Scheduler is required");
+    }
+
+    /**
+     * {@inheritDoc}
+     * Нажатия распознаются прямо в потоке Bluetooth: это несколько сравнений без объектов, и только распознанный
+     * сигнал уходит на планировщик SOS. Там заранее созданное сообщение устройства заполняется кэшем местоположения
+     * и пульса и передается отправителю. Задержка считается от получения уведомления последнего нажатия
+     */
+    @Override
+    public Observable<SosResult> observeSos(String macAddress) {
+        DeviceConnection connection = mConnectionManager.obtain(macAddress);
+        GattOperationQueue queue = connection.getOperationQueue();
+        DeviceMetrics metrics = connection.getMetrics();
+        DeviceSos device = obtain(macAddress);
+
+        return connection.observeConnection()
+                .switchMap(rxBleConnection -> Observable.defer(() -> {
+                    ButtonPresses presses = new ButtonPresses(SOS_PRESSES, SOS_PRESS_WINDOW_MILLIS);
+
+                    return connection.setupNotification(rxBleConnection, DEVICE_EVENT_CHAR)
+                            .flatMap(notifications -> notifications)
+                            .filter(event -> event.length > 0
+                                    && event[0] == DEVICE_EVENT_BUTTON_PRESSED
+                                    && presses.press(System.currentTimeMillis()))
+                            .map(event -> System.nanoTime())
+                            .observeOn(mScheduler)
+                            .map(arrivalNanos -> dispatch(device, metrics, arrivalNanos))
+                            .concatMap(result -> result.isSuccess()
+                                    ? Observable.just(result).concatWith(alert(queue, rxBleConnection))
+                                    : Observable.just(result));
+                }));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void recordHeartRate(String macAddress, HeartRateWindow window) {
+        int size = window.size();
+
+        if (size > 0) {
+            obtain(macAddress).setHeartRate(window.getBpm(size - 1), window.getTimestamp(size - 1));
+        }
+    }
+
+    /**
+     * Заполнить сообщение устройства и передать отправителю
+     *
+     * @param device       сигнал устройства
+     * @param metrics      метрики устройства
+     * @param arrivalNanos время получения уведомления последнего нажатия
+     * @return возвращает итог отправки
+     */
+    private SosResult dispatch(DeviceSos device, DeviceMetrics metrics, long arrivalNanos) {
+        SosPayload payload = device.mPayload;
+        payload.reset(device.mMacAddress, System.currentTimeMillis());
+        mLocationCache.fill(payload);
+        device.fillHeartRate(payload);
+
+        long triggerNanos = System.nanoTime() - arrivalNanos;
+        String error = null;
+
+        try {
+            mDispatcher.dispatch(payload);
+        } catch (IOException | RuntimeException e) {
+            error = String.valueOf(e.getMessage());
+        }
+
+        SosResult result = new SosResult(
+                device.mMacAddress,
+                payload.getTimestampMillis(),
+                error == null,
+                mDispatcher.isConfigured(),
+                triggerNanos,
+                System.nanoTime() - arrivalNanos,
+                error
+        );
+
+        metrics.recordSos(result);
+        return result;
+    }
+
+    /**
+     * Получить сигнал устройства, создав его при первом обращении
+     * Сообщение создается и прогоняется через запись заранее, чтобы первый сигнал не платил за загрузку классов
+     *
+     * @param macAddress MAC адрес устройства
+     * @return сигнал устройства
+     */
+    private DeviceSos obtain(String macAddress) {
+        DeviceSos device = mDevices.get(macAddress);
+
+        if (device == null) {
+            DeviceSos created = new DeviceSos(macAddress);
+            device = mDevices.putIfAbsent(macAddress, created);
+
+            if (device == null) {
+                device = created;
+                mScheduler.scheduleDirect(created::prewarm);
+            }
+        }
+
+        return device;
+    }
+
+    /**
+     * Коротко провибрировать браслетом, чтобы пользователь знал, что сигнал ушел
+     * Ошибка записи не отменяет отправленный сигнал
+     *
+     * @param queue           очередь операций подключения
+     * @param rxBleConnection подключение
+     * @return возвращает источник без элементов
+     */
+    private static Observable<SosResult> alert(GattOperationQueue queue, RxBleConnection rxBleConnection) {
+        return queue.write(rxBleConnection, ALERT_LEVEL_CHAR, new byte[]{ALERT_LEVEL_MILD}, GattPriority.CRITICAL, false)
+                .ignoreElement()
+                .onErrorComplete()
+                .toObservable();
+    }
+
+    /**
+     * Сигнал одного устройства: заранее созданное сообщение и последний пульс
+     * Сообщение заполняется только на планировщике SOS, пульс пишется из потока пульса под блокировкой
+     */
+    private static final class DeviceSos {
+
+        private final String mMacAddress;
+        private final SosPayload mPayload = new SosPayload();
+
+        private int mBpm = SosPayload.NO_BPM;
+        private long mBpmMillis;
+
+        DeviceSos(String macAddress) {
+            mMacAddress = macAddress;
+        }
+
+        synchronized void setHeartRate(int bpm, long timeMillis) {
+            mBpm = bpm;
+            mBpmMillis = timeMillis;
+        }
+
+        synchronized void fillHeartRate(SosPayload payload) {
+            if (mBpm != SosPayload.NO_BPM) {
+                payload.setHeartRate(mBpm, mBpmMillis);
+            }
+        }
+
+        void prewarm() {
+            mPayload.reset(mMacAddress, System.currentTimeMillis());
+            fillHeartRate(mPayload);
+            mPayload.encodeJson();
+        }
+
+    }
+
+}
@@ -0,0 +1,94 @@
+package ru.projectsos.projectsos.data.scan;
+
+import android.support.annotation.Nullable;
+
+import java.util.UUID;
+
+import static ru.projectsos.projectsos.data.ScanConstants.AD_TYPE_COMPLETE_128_BIT_UUIDS;
+import static ru.projectsos.projectsos.data.ScanConstants.AD_TYPE_COMPLETE_16_BIT_UUIDS;
+import static ru.projectsos.projectsos.data.ScanConstants.AD_TYPE_INCOMPLETE_128_BIT_UUIDS;
+import static ru.projectsos.projectsos.data.ScanConstants.AD_TYPE_INCOMPLETE_16_BIT_UUIDS;
+import static ru.projectsos.projectsos.data.ScanConstants.BASE_UUID_LEAST_SIGNIFICANT_BITS;
+import static ru.projectsos.projectsos.data.ScanConstants.BASE_UUID_MOST_SIGNIFICANT_BITS;
+
+/**
+ * Разбор сырого рекламного пакета (см. {@link ru.projectsos.projectsos.data.ScanConstants})
+ * Пакет читается на месте, без {@link android.os.ParcelUuid} и списков, которые строит
+ * {@link com.polidea.rxandroidble2.scan.ScanRecord#getServiceUuids()}
+ */
+public final class Advertisements {
+
+    private static final long SHORT_UUID_MASK = 0xFFFFL << 32;
+
+    private Advertisements() {
+    }
+
+    /**
+     * Проверить, объявляет ли пакет сервис
+     * Сервис ищется в списках 128-битных идентификаторов, а если он построен на базовом идентификаторе — еще
+     * и в списках 16-битных. Обрезанная структура в конце пакета пропускается
+     *
+     * @param record  сырой пакет
+     * @param service сервис
+     * @return возвращает {@code true}, если сервис есть в пакете
+     */
+    public static boolean hasService(@Nullable byte[] record, UUID service) {
+        if (record == null) {
+            return false;
+        }
+
+        long most = service.getMostSignificantBits();
+        long least = service.getLeastSignificantBits();
+        int shortUuid = (most & ~SHORT_UUID_MASK) == BASE_UUID_MOST_SIGNIFICANT_BITS
+                && least == BASE_UUID_LEAST_SIGNIFICANT_BITS ? (int) (most >>> 32) & 0xFFFF : -1;
+
+        int offset = 0;
+
+        while (offset < record.length) {
+            int length = record[offset] & 0xFF;
+            int end = offset + 1 + length;
+
+            if (length == 0 || end > record.length) {
+                return false;
+            }
+
+            int type = record[offset + 1] & 0xFF;
+
+            switch (type) {
+                case AD_TYPE_INCOMPLETE_16_BIT_UUIDS:
+                case AD_TYPE_COMPLETE_16_BIT_UUIDS:
+                    for (int i = offset + 2; shortUuid >= 0 && i + 2 <= end; i += 2) {
+                        if (readLittleEndian(record, i, 2) == shortUuid) {
+                            return true;
+                        }
+                    }
+                    break;
+                case AD_TYPE_INCOMPLETE_128_BIT_UUIDS:
+                case AD_TYPE_COMPLETE_128_BIT_UUIDS:
+                    for (int i = offset + 2; i + 16 <= end; i += 16) {
+                        if (readLittleEndian(record, i, 8) == least && readLittleEndian(record, i + 8, 8) == most) {
+                            return true;
+                        }
+                    }
+                    break;
+                default:
+                    break;
+            }
+
+            offset = end;
+        }
+
+        return false;
+    }
+
+    private static long readLittleEndian(byte[] bytes, int offset, int length) {
+        long value = 0;
+
+        for (int i = length - 1; i >= 0; i--) {
+            value = (value << 8) | (bytes[offset + i] & 0xFF);
+        }
+
+        return value;
+    }
+
+}
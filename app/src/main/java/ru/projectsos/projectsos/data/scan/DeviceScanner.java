@@ -0,0 +1,133 @@
+package ru.projectsos.projectsos.data.scan;
+
+import android.support.annotation.NonNull;
+
+import com.polidea.rxandroidble2.RxBleClient;
+import com.polidea.rxandroidble2.scan.ScanFilter;
+import com.polidea.rxandroidble2.scan.ScanRecord;
+import com.polidea.rxandroidble2.scan.ScanResult;
+import com.polidea.rxandroidble2.scan.ScanSettings;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Observable;
+import io.reactivex.Scheduler;
+import ru.projectsos.projectsos.data.MacAddresses;
+import ru.projectsos.projectsos.models.domain.ScannedDevice;
+
+import static dagger.internal.Preconditions.checkNotNull;
+
+/**
+ * Поиск устройств с ранжированием по уровню сигнала
+ * <p>
+ * В людных местах рекламных пакетов приходят тысячи в секунду, поэтому пакет только сверяется с сервисом
+ * на месте (см. {@link Advertisements}) и учитывается в {@link ScanTable} по упакованному MAC адресу: строки
+ * и объекты на каждый пакет не создаются. Пакеты сверяются с сервисом, даже если его уже ищет
+ * {@link ScanFilter}, потому что часть прошивок фильтры не соблюдает. Список устройств собирается
+ * не чаще раза в период
+ */
+public final class DeviceScanner {
+
+    /**
+     * Предельное количество устройств по умолчанию
+     */
+    public static final int DEFAULT_MAX_DEVICES = 256;
+
+    /**
+     * Вес нового замера сигнала по умолчанию
+     */
+    public static final float DEFAULT_SMOOTHING = 0.25f;
+
+    /**
+     * Время молчания, после которого устройство пропадает из списка, по умолчанию
+     */
+    public static final long DEFAULT_MAX_AGE_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+    private final RxBleClient mClient;
+    private final ScanSettings mSettings;
+    private final ScanFilter mFilter;
+    private final UUID mService;
+    private final int mMaxDevices;
+    private final float mSmoothing;
+    private final long mMaxAgeNanos;
+
+    /**
+     * Конструктор
+     *
+     * @param client       Bluetooth LE клиент
+     * @param settings     настройки поиска
+     * @param filter       фильтр поиска для контроллера
+     * @param service      сервис, который должно объявлять устройство
+     * @param maxDevices   предельное количество устройств
+     * @param smoothing    вес нового замера сигнала (см. {@link ScanTable})
+     * @param maxAgeMillis время молчания, после которого устройство пропадает из списка
+     */
+    public DeviceScanner(@NonNull RxBleClient client,
+                         @NonNull ScanSettings settings,
+                         @NonNull ScanFilter filter,
+                         @NonNull UUID service,
+                         int maxDevices,
+                         float smoothing,
+                         long maxAgeMillis) {
+        mClient = checkNotNull(client, "RxBleClient is required");
+        mSettings = checkNotNull(settings, "ScanSettings is required");
+        mFilter = checkNotNull(filter, "ScanFilter is required");
+        mService = checkNotNull(service, "Service UUID is required");
+        mMaxDevices = maxDevices;
+        mSmoothing = smoothing;
+        mMaxAgeNanos = TimeUnit.MILLISECONDS.toNanos(maxAgeMillis);
+    }
+
+    /**
+     * Искать устройства, пока есть подписка
+     * У каждой подписки своя таблица устройств
+     *
+     * @param periodMillis период списка
+     * @param limit        наибольшая длина списка
+     * @param scheduler    планировщик, на котором собирается список
+     * @return возвращает горячий источник списков устройств по убыванию сигнала
+     */
+    public Observable<List<ScannedDevice>> scan(long periodMillis, int limit, Scheduler scheduler) {
+        return Observable.defer(() -> {
+            ScanTable table = new ScanTable(mMaxDevices, mSmoothing);
+
+            Observable<List<ScannedDevice>> advertisements = mClient.scanBleDevices(mSettings, mFilter)
+                    .doOnNext(result -> record(table, result))
+                    .ignoreElements()
+                    .toObservable();
+
+            Observable<List<ScannedDevice>> ranking = Observable
+                    .interval(periodMillis, periodMillis, TimeUnit.MILLISECONDS, scheduler)
+                    .map(tick -> {
+                        long nowNanos = System.nanoTime();
+                        table.expire(nowNanos, mMaxAgeNanos);
+                        return table.rank(limit, nowNanos);
+                    });
+
+            return Observable.merge(advertisements, ranking);
+        });
+    }
+
+    /**
+     * Учесть рекламный пакет, если устройство объявляет нужный сервис
+     *
+     * @param table  таблица устройств
+     * @param result результат поиска
+     */
+    private void record(ScanTable table, ScanResult result) {
+        ScanRecord record = result.getScanRecord();
+
+        if (record == null || !Advertisements.hasService(record.getBytes(), mService)) {
+            return;
+        }
+
+        long macAddress = MacAddresses.pack(result.getBleDevice().getMacAddress());
+
+        if (macAddress != MacAddresses.INVALID) {
+            table.update(macAddress, result.getRssi(), System.nanoTime());
+        }
+    }
+
+}
@@ -0,0 +1,256 @@
+package ru.projectsos.projectsos.data.scan;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import ru.projectsos.projectsos.data.MacAddresses;
+import ru.projectsos.projectsos.models.domain.ScannedDevice;
+
+/**
+ * Таблица найденных устройств с открытой адресацией по упакованному MAC адресу (см. {@link MacAddresses})
+ * <p>
+ * Поля устройства лежат в примитивных массивах под номером ячейки, поэтому учет рекламного пакета ничего
+ * не выделяет. Коллизии разрешаются линейным пробированием, а удаление сдвигает хвост цепочки назад, так что
+ * надгробий нет. Ячеек хотя бы вдвое больше предельного количества устройств. Когда таблица полна,
+ * новое устройство вытесняет то, что дольше всех молчит
+ * <p>
+ * Уровень сигнала сглаживается экспоненциальным скользящим средним: {@code rssi += smoothing * (новый - rssi)}
+ */
+public final class ScanTable {
+
+    private static final long EMPTY = MacAddresses.INVALID;
+
+    private final long[] mKeys;
+    private final float[] mRssi;
+    private final long[] mLastSeenNanos;
+    private final int[] mAdvertisements;
+    private final int mMask;
+    private final int mMaxDevices;
+    private final float mSmoothing;
+
+    private int mSize;
+    private long mEvicted;
+
+    /**
+     * Конструктор
+     *
+     * @param maxDevices предельное количество устройств
+     * @param smoothing  вес нового замера сигнала, от 0 (не меняется) до 1 (без сглаживания)
+     */
+    public ScanTable(int maxDevices, float smoothing) {
+        if (maxDevices <= 0 || maxDevices > 1 << 20) {
+            throw new IllegalArgumentException("Invalid max devices: " + maxDevices);
+        }
+
+        if (!(smoothing > 0 && smoothing <= 1)) {
+            throw new IllegalArgumentException("Smoothing must be within (0, 1], got " + smoothing);
+        }
+
+        int slots = Integer.highestOneBit(maxDevices) << 2;
+
+        mKeys = new long[slots];
+        mRssi = new float[slots];
+        mLastSeenNanos = new long[slots];
+        mAdvertisements = new int[slots];
+        mMask = slots - 1;
+        mMaxDevices = maxDevices;
+        mSmoothing = smoothing;
+
+        Arrays.fill(mKeys, EMPTY);
+    }
+
+    /**
+     * Учесть рекламный пакет
+     *
+     * @param macAddress упакованный MAC адрес
+     * @param rssi       уровень сигнала в дБм
+     * @param nowNanos   время приема по {@link System#nanoTime()}
+     */
+    public synchronized void update(long macAddress, int rssi, long nowNanos) {
+        int slot = find(macAddress);
+
+        if (mKeys[slot] == macAddress) {
+            mRssi[slot] += mSmoothing * (rssi - mRssi[slot]);
+            mLastSeenNanos[slot] = nowNanos;
+
+            if (mAdvertisements[slot] < Integer.MAX_VALUE) {
+                mAdvertisements[slot]++;
+            }
+            return;
+        }
+
+        if (mSize == mMaxDevices) {
+            removeAt(findStalest());
+            mEvicted++;
+            // Сдвиг при удалении мог освободить ячейку ближе к началу цепочки
+            slot = find(macAddress);
+        }
+
+        mKeys[slot] = macAddress;
+        mRssi[slot] = rssi;
+        mLastSeenNanos[slot] = nowNanos;
+        mAdvertisements[slot] = 1;
+        mSize++;
+    }
+
+    /**
+     * Удалить устройства, которые молчат дольше заданного
+     *
+     * @param nowNanos    текущее время по {@link System#nanoTime()}
+     * @param maxAgeNanos допустимое время с последнего пакета
+     * @return количество удаленных
+     */
+    public synchronized int expire(long nowNanos, long maxAgeNanos) {
+        int removed = 0;
+        int slot = 0;
+
+        while (slot < mKeys.length) {
+            if (mKeys[slot] != EMPTY && nowNanos - mLastSeenNanos[slot] > maxAgeNanos) {
+                // На место удаленного может сдвинуться следующий, поэтому ячейка проверяется снова
+                removeAt(slot);
+                removed++;
+            } else {
+                slot++;
+            }
+        }
+
+        return removed;
+    }
+
+    /**
+     * Получить устройства с самым сильным сглаженным сигналом
+     *
+     * @param limit    наибольшее количество устройств
+     * @param nowNanos текущее время по {@link System#nanoTime()}
+     * @return возвращает устройства по убыванию сигнала
+     */
+    public synchronized List<ScannedDevice> rank(int limit, long nowNanos) {
+        int count = Math.min(limit, mSize);
+        int[] top = new int[count];
+        int filled = 0;
+
+        for (int slot = 0; slot < mKeys.length && count > 0; slot++) {
+            if (mKeys[slot] == EMPTY) {
+                continue;
+            }
+
+            float rssi = mRssi[slot];
+
+            if (filled == count && rssi <= mRssi[top[count - 1]]) {
+                continue;
+            }
+
+            int position = filled < count ? filled++ : count - 1;
+
+            while (position > 0 && mRssi[top[position - 1]] < rssi) {
+                top[position] = top[position - 1];
+                position--;
+            }
+
+            top[position] = slot;
+        }
+
+        List<ScannedDevice> devices = new ArrayList<>(count);
+
+        for (int slot : top) {
+            devices.add(new ScannedDevice(
+                    MacAddresses.format(mKeys[slot]),
+                    Math.round(mRssi[slot]),
+                    mAdvertisements[slot],
+                    TimeUnit.NANOSECONDS.toMillis(nowNanos - mLastSeenNanos[slot])
+            ));
+        }
+
+        return devices;
+    }
+
+    /**
+     * Получить количество устройств
+     *
+     * @return устройств в таблице
+     */
+    public synchronized int size() {
+        return mSize;
+    }
+
+    /**
+     * Получить количество вытесненных устройств
+     *
+     * @return устройств за все время
+     */
+    public synchronized long getEvicted() {
+        return mEvicted;
+    }
+
+    /**
+     * Найти ячейку ключа
+     *
+     * @param key ключ
+     * @return ячейка с ключом или пустая ячейка, в которую его следует положить
+     */
+    private int find(long key) {
+        int slot = hash(key) & mMask;
+
+        while (mKeys[slot] != EMPTY && mKeys[slot] != key) {
+            slot = (slot + 1) & mMask;
+        }
+
+        return slot;
+    }
+
+    private int findStalest() {
+        int stalest = -1;
+
+        for (int slot = 0; slot < mKeys.length; slot++) {
+            if (mKeys[slot] != EMPTY && (stalest < 0 || mLastSeenNanos[slot] - mLastSeenNanos[stalest] < 0)) {
+                stalest = slot;
+            }
+        }
+
+        return stalest;
+    }
+
+    /**
+     * Удалить ключ, сдвинув назад те записи цепочки, которые иначе стали бы недостижимы
+     *
+     * @param slot ячейка
+     */
+    private void removeAt(int slot) {
+        int hole = slot;
+        int next = (hole + 1) & mMask;
+
+        while (mKeys[next] != EMPTY) {
+            int home = hash(mKeys[next]) & mMask;
+
+            // Запись можно сдвинуть, если дыра лежит между ее родной ячейкой и текущей
+            if (((next - home) & mMask) >= ((next - hole) & mMask)) {
+                mKeys[hole] = mKeys[next];
+                mRssi[hole] = mRssi[next];
+                mLastSeenNanos[hole] = mLastSeenNanos[next];
+                mAdvertisements[hole] = mAdvertisements[next];
+                hole = next;
+            }
+
+            next = (next + 1) & mMask;
+        }
+
+        mKeys[hole] = EMPTY;
+        mSize--;
+    }
+
+    /**
+     * Перемешать биты ключа: у адресов одного производителя совпадают старшие три байта
+     *
+     * @param key ключ
+     * @return хеш
+     */
+    private static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xFF51AFD7ED558CCDL;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+}
@@ -0,0 +1,120 @@
+package ru.projectsos.projectsos.data.session;
+
+import android.content.SharedPreferences;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import ru.projectsos.projectsos.data.crypto.AuthKey;
+
+import static dagger.internal.Preconditions.checkNotNull;
+
+/**
+ * Кэш сессий аутентификации по MAC адресу
+ * Сессии хранятся в {@link SharedPreferences} под ключами {@code auth_session_*_<MAC>}, а в памяти держатся после
+ * первого чтения, чтобы переподключение не ходило в хранилище
+ */
+public final class AuthSessionCache implements AuthSessionStore {
+
+    /**
+     * Глобальный флаг первой аутентификации из прежних версий, общий для всех устройств
+     */
+    private static final String LEGACY_AUTHENTICATION_KEY = "authentication";
+
+    private static final String BONDED_PREFIX = "auth_session_bonded_";
+    private static final String LAST_AUTHENTICATION_PREFIX = "auth_session_time_";
+    private static final String KEY_VERSION_PREFIX = "auth_session_key_version_";
+
+    private static final AuthSession MISSING = new AuthSession(null, false, 0, AuthKey.LEGACY_VERSION);
+
+    private final SharedPreferences mSharedPreferences;
+    private final ConcurrentMap<String, AuthSession> mSessions = new ConcurrentHashMap<>();
+
+    /**
+     * Конструктор
+     *
+     * @param sharedPreferences хранилище для настроек
+     */
+    public AuthSessionCache(@NonNull SharedPreferences sharedPreferences) {
+        mSharedPreferences = checkNotNull(sharedPreferences, "SharedPreferences is required");
+    }
+
+    /**
+     * Получить сессию устройства
+     * Если устройство аутентифицировалось прежней версией приложения, сессия собирается из глобального флага с
+     * общим секретным ключом: при отказе устройства рукопожатие все равно вернется к полному сопряжению
+     *
+     * @param macAddress MAC адрес устройства
+     * @return сессия или {@code null}, если устройство не аутентифицировалось
+     */
+    @Nullable
+    @Override
+    public AuthSession get(String macAddress) {
+        AuthSession session = mSessions.get(macAddress);
+
+        if (session == null) {
+            session = load(macAddress);
+            AuthSession previous = mSessions.putIfAbsent(macAddress, session);
+
+            if (previous != null) {
+                session = previous;
+            }
+        }
+
+        return session == MISSING ? null : session;
+    }
+
+    /**
+     * Запомнить сессию после успешной аутентификации
+     *
+     * @param session сессия
+     */
+    @Override
+    public void put(@NonNull AuthSession session) {
+        mSessions.put(session.getMacAddress(), session);
+
+        mSharedPreferences
+                .edit()
+                .putBoolean(BONDED_PREFIX + session.getMacAddress(), session.isBonded())
+                .putLong(LAST_AUTHENTICATION_PREFIX + session.getMacAddress(), session.getLastAuthenticationMillis())
+                .putInt(KEY_VERSION_PREFIX + session.getMacAddress(), session.getKeyVersion())
+                .apply();
+    }
+
+    /**
+     * Забыть сессию: следующая аутентификация пройдет с полным сопряжением
+     *
+     * @param macAddress MAC адрес устройства
+     */
+    @Override
+    public void invalidate(String macAddress) {
+        mSessions.put(macAddress, MISSING);
+
+        mSharedPreferences
+                .edit()
+                .remove(BONDED_PREFIX + macAddress)
+                .remove(LAST_AUTHENTICATION_PREFIX + macAddress)
+                .remove(KEY_VERSION_PREFIX + macAddress)
+                .apply();
+    }
+
+    private AuthSession load(String macAddress) {
+        if (mSharedPreferences.contains(KEY_VERSION_PREFIX + macAddress)) {
+            return new AuthSession(
+                    macAddress,
+                    mSharedPreferences.getBoolean(BONDED_PREFIX + macAddress, false),
+                    mSharedPreferences.getLong(LAST_AUTHENTICATION_PREFIX + macAddress, 0),
+                    mSharedPreferences.getInt(KEY_VERSION_PREFIX + macAddress, AuthKey.LEGACY_VERSION)
+            );
+        }
+
+        if (mSharedPreferences.getBoolean(LEGACY_AUTHENTICATION_KEY, false)) {
+            return new AuthSession(macAddress, true, 0, AuthKey.LEGACY_VERSION);
+        }
+
+        return MISSING;
+    }
+
+}
@@ -0,0 +1,54 @@
+package ru.projectsos.projectsos.data.sos;
+
+/**
+ * Распознавание серии нажатий кнопки
+ * <p>
+ * Время последних нажатий хранится в кольце, поэтому нажатие обходится в O(1) и без объектов. После распознанной
+ * серии кольцо очищается: четвертое нажатие подряд не подает сигнал снова
+ * <p>
+ * Не потокобезопасен: нажатия подаются из одного потока
+ */
+public final class ButtonPresses {
+
+    private final long[] mPresses;
+    private final long mWindowMillis;
+
+    private int mIndex;
+    private int mCount;
+
+    /**
+     * Конструктор
+     *
+     * @param presses      количество нажатий серии
+     * @param windowMillis наибольшее время между первым и последним нажатием серии
+     */
+    public ButtonPresses(int presses, long windowMillis) {
+        if (presses <= 0) {
+            throw new IllegalArgumentException("Presses must be positive, got " + presses);
+        }
+
+        mPresses = new long[presses];
+        mWindowMillis = windowMillis;
+    }
+
+    /**
+     * Учесть нажатие
+     *
+     * @param timestampMillis время нажатия
+     * @return возвращает {@code true}, если нажатие завершило серию
+     */
+    public boolean press(long timestampMillis) {
+        mPresses[mIndex] = timestampMillis;
+        mIndex = mIndex + 1 == mPresses.length ? 0 : mIndex + 1;
+        mCount = Math.min(mCount + 1, mPresses.length);
+
+        // После записи по индексу лежит самое старое из последних нажатий
+        if (mCount < mPresses.length || timestampMillis - mPresses[mIndex] > mWindowMillis) {
+            return false;
+        }
+
+        mCount = 0;
+        return true;
+    }
+
+}
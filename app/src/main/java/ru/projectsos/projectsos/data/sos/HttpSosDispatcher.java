@@ -0,0 +1,98 @@
+package ru.projectsos.projectsos.data.sos;
+
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.URL;
+
+import static dagger.internal.Preconditions.checkNotNull;
+
+/**
+ * Отправка сигнала SOS на сервер
+ * Сообщение уходит POST запросом с JSON из {@link SosPayload#encodeJson()} прямо из массива сообщения,
+ * с известной длиной, поэтому тело запроса не копируется и не буферизуется
+ */
+public final class HttpSosDispatcher implements SosDispatcher {
+
+    private static final String TAG = "PROJECT_SOS";
+
+    private final URL mUrl;
+    private final int mTimeoutMillis;
+
+    /**
+     * Конструктор
+     *
+     * @param url           адрес сервера
+     * @param timeoutMillis время ожидания соединения и ответа
+     */
+    public HttpSosDispatcher(@NonNull URL url, int timeoutMillis) {
+        mUrl = checkNotNull(url, "URL is required");
+        mTimeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isConfigured() {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     * Разрешает имя сервера, чтобы сигнал не ждал DNS. Вызывается не в главном потоке
+     */
+    @Override
+    public void prewarm() {
+        try {
+            InetAddress.getAllByName(mUrl.getHost());
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to resolve SOS server " + mUrl.getHost(), e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * После успешного ответа соединение не закрывается, а возвращается в пул, чтобы следующий сигнал не ждал
+     * TCP и TLS рукопожатия. При ошибке соединение закрывается
+     */
+    @Override
+    public void dispatch(SosPayload payload) throws IOException {
+        int length = payload.encodeJson();
+        HttpURLConnection connection = (HttpURLConnection) mUrl.openConnection();
+
+        try {
+            connection.setConnectTimeout(mTimeoutMillis);
+            connection.setReadTimeout(mTimeoutMillis);
+            connection.setDoOutput(true);
+            connection.setRequestMethod("POST");
+            connection.setRequestProperty("Content-Type", "application/json");
+            connection.setFixedLengthStreamingMode(length);
+
+            try (OutputStream body = connection.getOutputStream()) {
+                body.write(payload.getBytes(), 0, length);
+            }
+
+            int code = connection.getResponseCode();
+
+            if (code / 100 != 2) {
+                throw new IOException("SOS server responded with " + code);
+            }
+
+            try (InputStream response = connection.getInputStream()) {
+                while (response.read() != -1) {
+                    // Ответ дочитывается, чтобы соединение вернулось в пул
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            connection.disconnect();
+            throw e;
+        }
+    }
+
+}
@@ -0,0 +1,83 @@
+package ru.projectsos.projectsos.data.sos;
+
+import android.util.Log;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Локальная заглушка отправителя сигнала SOS
+ * Сигнал никуда не уходит: сообщение копируется, пишется в журнал и считается как отправленное. Используется
+ * в симуляторе и замерах задержки; в приложении без настроек стоит {@link UnconfiguredSosDispatcher}
+ */
+public final class LocalSosDispatcher implements SosDispatcher {
+
+    private static final String TAG = "PROJECT_SOS";
+
+    private final boolean mLogging;
+    private final AtomicInteger mDispatched = new AtomicInteger();
+
+    private byte[] mLastPayload = new byte[0];
+
+    /**
+     * Конструктор
+     *
+     * @param logging писать ли сообщения в журнал; замеры задержки выключают журнал, чтобы не замерять его
+     */
+    public LocalSosDispatcher(boolean logging) {
+        mLogging = logging;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isConfigured() {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void prewarm() {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void dispatch(SosPayload payload) {
+        int length = payload.encodeJson();
+
+        if (mLastPayload.length != length) {
+            mLastPayload = new byte[length];
+        }
+
+        System.arraycopy(payload.getBytes(), 0, mLastPayload, 0, length);
+        mDispatched.incrementAndGet();
+
+        if (mLogging) {
+            Log.i(TAG, "SOS dispatched locally: " + new String(mLastPayload, StandardCharsets.US_ASCII));
+        }
+    }
+
+    /**
+     * Получить количество отправленных сигналов
+     *
+     * @return возвращает количество сигналов
+     */
+    public int getDispatched() {
+        return mDispatched.get();
+    }
+
+    /**
+     * Получить последнее отправленное сообщение
+     *
+     * @return возвращает JSON последнего сообщения или пустую строку
+     */
+    public synchronized String getLastPayload() {
+        return new String(mLastPayload, StandardCharsets.US_ASCII);
+    }
+
+}
@@ -0,0 +1,105 @@
+package ru.projectsos.projectsos.data.sos;
+
+import android.location.Location;
+import android.location.LocationListener;
+import android.location.LocationManager;
+import android.os.Bundle;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import java.util.concurrent.TimeUnit;
+
+import static dagger.internal.Preconditions.checkNotNull;
+
+/**
+ * Последнее известное местоположение для сигнала SOS
+ * <p>
+ * Определять местоположение в момент сигнала — это секунды, поэтому кэш заранее подписывается на редкие
+ * обновления сети и хранит последнее примитивами. Сигнал берет то, что есть, и не ждет
+ */
+public final class LocationCache implements LocationListener {
+
+    private static final String TAG = "PROJECT_SOS";
+    private static final long MIN_TIME_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final float MIN_DISTANCE_METERS = 50;
+
+    private boolean mHasLocation;
+    private int mLatitudeE6;
+    private int mLongitudeE6;
+    private int mAccuracyMeters;
+    private long mTimeMillis;
+
+    /**
+     * Начать следить за местоположением
+     * Без разрешения на доступ к местоположению кэш остается пустым, а сигнал уходит без координат
+     *
+     * @param locationManager системная служба местоположения
+     */
+    public void start(@NonNull LocationManager locationManager) {
+        checkNotNull(locationManager, "LocationManager is required");
+
+        try {
+            Location last = locationManager.getLastKnownLocation(LocationManager.NETWORK_PROVIDER);
+
+            if (last != null) {
+                onLocationChanged(last);
+            }
+
+            locationManager.requestLocationUpdates(
+                    LocationManager.NETWORK_PROVIDER,
+                    MIN_TIME_MILLIS,
+                    MIN_DISTANCE_METERS,
+                    this,
+                    Looper.getMainLooper()
+            );
+        } catch (SecurityException | IllegalArgumentException e) {
+            Log.w(TAG, "Location is not available for SOS", e);
+        }
+    }
+
+    /**
+     * Запомнить местоположение
+     *
+     * @param latitude       широта
+     * @param longitude      долгота
+     * @param accuracyMeters точность в метрах
+     * @param timeMillis     время определения
+     */
+    public synchronized void update(double latitude, double longitude, int accuracyMeters, long timeMillis) {
+        mHasLocation = true;
+        mLatitudeE6 = (int) Math.round(latitude * 1e6);
+        mLongitudeE6 = (int) Math.round(longitude * 1e6);
+        mAccuracyMeters = accuracyMeters;
+        mTimeMillis = timeMillis;
+    }
+
+    /**
+     * Указать последнее местоположение в сообщении, если оно известно
+     *
+     * @param payload сообщение
+     */
+    public synchronized void fill(SosPayload payload) {
+        if (mHasLocation) {
+            payload.setLocation(mLatitudeE6, mLongitudeE6, mAccuracyMeters, mTimeMillis);
+        }
+    }
+
+    @Override
+    public void onLocationChanged(Location location) {
+        update(location.getLatitude(), location.getLongitude(), Math.round(location.getAccuracy()), location.getTime());
+    }
+
+    @Override
+    public void onStatusChanged(String provider, int status, Bundle extras) {
+    }
+
+    @Override
+    public void onProviderEnabled(String provider) {
+    }
+
+    @Override
+    public void onProviderDisabled(String provider) {
+    }
+
+}
@@ -0,0 +1,60 @@
+package ru.projectsos.projectsos.data.sos;
+
+import android.support.annotation.NonNull;
+import android.telephony.SmsManager;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+import static dagger.internal.Preconditions.checkNotNull;
+
+/**
+ * Отправка сигнала SOS по SMS
+ * Текст из {@link SosPayload#toText()} умещается в одно сообщение, длинный текст делится на части.
+ * Требует разрешения {@code SEND_SMS}
+ */
+public final class SmsSosDispatcher implements SosDispatcher {
+
+    private final String mPhoneNumber;
+
+    /**
+     * Конструктор
+     *
+     * @param phoneNumber номер получателя
+     */
+    public SmsSosDispatcher(@NonNull String phoneNumber) {
+        mPhoneNumber = checkNotNull(phoneNumber, "Phone number is required");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isConfigured() {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void prewarm() {
+        SmsManager.getDefault();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void dispatch(SosPayload payload) throws IOException {
+        SmsManager smsManager = SmsManager.getDefault();
+
+        try {
+            ArrayList<String> parts = smsManager.divideMessage(payload.toText());
+            smsManager.sendMultipartTextMessage(mPhoneNumber, null, parts, null, null);
+        } catch (SecurityException | IllegalArgumentException e) {
+            throw new IOException("Failed to send SOS SMS", e);
+        }
+    }
+
+}
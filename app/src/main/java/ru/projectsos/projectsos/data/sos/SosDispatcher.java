@@ -0,0 +1,32 @@
+package ru.projectsos.projectsos.data.sos;
+
+import java.io.IOException;
+
+/**
+ * Отправитель сигнала SOS: SMS, HTTP или локальная заглушка
+ */
+public interface SosDispatcher {
+
+    /**
+     * Настроен ли получатель сигнала
+     *
+     * @return {@code false}, если сигнал некуда отправить (см. {@link UnconfiguredSosDispatcher})
+     */
+    boolean isConfigured();
+
+    /**
+     * Подготовиться к отправке заранее, чтобы первый сигнал не платил за загрузку классов и соединения
+     */
+    void prewarm();
+
+    /**
+     * Отправить сигнал
+     * Вызывается на планировщике SOS и блокирует его до отправки. Сообщение перезаписывается следующим сигналом,
+     * поэтому после возврата отправитель не должен держать ссылки на него или его массив
+     *
+     * @param payload сообщение
+     * @throws IOException если сигнал не отправлен
+     */
+    void dispatch(SosPayload payload) throws IOException;
+
+}
@@ -0,0 +1,220 @@
+package ru.projectsos.projectsos.data.sos;
+
+/**
+ * Заранее выделенное сообщение сигнала SOS
+ * <p>
+ * Одно сообщение на устройство создается заранее и перезаполняется при каждом сигнале: поля хранятся примитивами,
+ * а JSON для {@link HttpSosDispatcher} пишется в готовый массив байтов без строк и форматирования. Координаты
+ * хранятся в миллионных долях градуса, поэтому и они пишутся без {@code double} в строку. Строку создает только
+ * {@link #toText()} для отправителей, которым нужен текст
+ * <p>
+ * Не потокобезопасен: заполняется и отправляется на планировщике SOS
+ */
+public final class SosPayload {
+
+    /**
+     * Значение пульса, если его еще не было
+     */
+    public static final int NO_BPM = -1;
+
+    private static final int CAPACITY = 512;
+
+    private final byte[] mBytes = new byte[CAPACITY];
+    private int mLength;
+
+    private String mMacAddress;
+    private long mTimestampMillis;
+    private boolean mHasLocation;
+    private int mLatitudeE6;
+    private int mLongitudeE6;
+    private int mAccuracyMeters;
+    private long mLocationMillis;
+    private int mBpm = NO_BPM;
+    private long mBpmMillis;
+
+    /**
+     * Начать новое сообщение
+     * Местоположение и пульс сбрасываются, их заполняют {@link #setLocation(int, int, int, long)}
+     * и {@link #setHeartRate(int, long)}
+     *
+     * @param macAddress      MAC адрес устройства
+     * @param timestampMillis время сигнала
+     */
+    public void reset(String macAddress, long timestampMillis) {
+        mMacAddress = macAddress;
+        mTimestampMillis = timestampMillis;
+        mHasLocation = false;
+        mBpm = NO_BPM;
+    }
+
+    /**
+     * Указать последнее известное местоположение
+     *
+     * @param latitudeE6     широта в миллионных долях градуса
+     * @param longitudeE6    долгота в миллионных долях градуса
+     * @param accuracyMeters точность в метрах
+     * @param timeMillis     время определения
+     */
+    public void setLocation(int latitudeE6, int longitudeE6, int accuracyMeters, long timeMillis) {
+        mHasLocation = true;
+        mLatitudeE6 = latitudeE6;
+        mLongitudeE6 = longitudeE6;
+        mAccuracyMeters = accuracyMeters;
+        mLocationMillis = timeMillis;
+    }
+
+    /**
+     * Указать последний пульс
+     *
+     * @param bpm        пульс
+     * @param timeMillis время замера
+     */
+    public void setHeartRate(int bpm, long timeMillis) {
+        mBpm = bpm;
+        mBpmMillis = timeMillis;
+    }
+
+    /**
+     * Записать сообщение в JSON
+     * Пример: {@code {"device":"C0:00:00:00:00:01","at":1530000000000,"lat":55.751244,"lon":37.618423,
+     * "accuracy":20,"location_at":1529999990000,"bpm":72,"bpm_at":1529999999000}}. Неизвестные местоположение
+     * и пульс пишутся как {@code null}
+     *
+     * @return возвращает длину сообщения в {@link #getBytes()}
+     */
+    public int encodeJson() {
+        mLength = 0;
+        writeAscii("{\"device\":\"");
+        writeAscii(mMacAddress);
+        writeAscii("\",\"at\":");
+        writeLong(mTimestampMillis);
+
+        if (mHasLocation) {
+            writeAscii(",\"lat\":");
+            writeMicros(mLatitudeE6);
+            writeAscii(",\"lon\":");
+            writeMicros(mLongitudeE6);
+            writeAscii(",\"accuracy\":");
+            writeLong(mAccuracyMeters);
+            writeAscii(",\"location_at\":");
+            writeLong(mLocationMillis);
+        } else {
+            writeAscii(",\"lat\":null,\"lon\":null,\"accuracy\":null,\"location_at\":null");
+        }
+
+        if (mBpm != NO_BPM) {
+            writeAscii(",\"bpm\":");
+            writeLong(mBpm);
+            writeAscii(",\"bpm_at\":");
+            writeLong(mBpmMillis);
+        } else {
+            writeAscii(",\"bpm\":null,\"bpm_at\":null");
+        }
+
+        writeAscii("}");
+        return mLength;
+    }
+
+    /**
+     * Получить массив последней записи {@link #encodeJson()}
+     * Массив принадлежит сообщению и перезаписывается следующим сигналом
+     *
+     * @return массив, значимы первые {@link #getLength()} байтов
+     */
+    public byte[] getBytes() {
+        return mBytes;
+    }
+
+    public int getLength() {
+        return mLength;
+    }
+
+    public String getMacAddress() {
+        return mMacAddress;
+    }
+
+    public long getTimestampMillis() {
+        return mTimestampMillis;
+    }
+
+    /**
+     * Собрать текст сообщения для SMS
+     *
+     * @return возвращает текст
+     */
+    public String toText() {
+        StringBuilder text = new StringBuilder("SOS");
+
+        if (mHasLocation) {
+            text.append(" https://maps.google.com/?q=");
+            appendMicros(text, mLatitudeE6);
+            text.append(',');
+            appendMicros(text, mLongitudeE6);
+            text.append(" (").append(mAccuracyMeters).append(" m)");
+        }
+
+        if (mBpm != NO_BPM) {
+            text.append(" pulse ").append(mBpm);
+        }
+
+        return text.toString();
+    }
+
+    private void writeAscii(String value) {
+        for (int i = 0; i < value.length() && mLength < CAPACITY; i++) {
+            mBytes[mLength++] = (byte) value.charAt(i);
+        }
+    }
+
+    private void writeLong(long value) {
+        if (value < 0) {
+            writeByte('-');
+            value = -value;
+        }
+
+        long divisor = 1;
+
+        while (value / divisor >= 10) {
+            divisor *= 10;
+        }
+
+        for (; divisor > 0; divisor /= 10) {
+            writeByte((char) ('0' + value / divisor % 10));
+        }
+    }
+
+    private void writeMicros(int micros) {
+        long value = micros;
+
+        if (value < 0) {
+            writeByte('-');
+            value = -value;
+        }
+
+        writeLong(value / 1_000_000);
+        writeByte('.');
+
+        for (long divisor = 100_000; divisor > 0; divisor /= 10) {
+            writeByte((char) ('0' + value / divisor % 10));
+        }
+    }
+
+    private void writeByte(char value) {
+        if (mLength < CAPACITY) {
+            mBytes[mLength++] = (byte) value;
+        }
+    }
+
+    private static void appendMicros(StringBuilder text, int micros) {
+        long value = Math.abs((long) micros);
+        text.append(micros < 0 ? "-" : "").append(value / 1_000_000).append('.');
+        String fraction = Long.toString(value % 1_000_000);
+
+        for (int i = fraction.length(); i < 6; i++) {
+            text.append('0');
+        }
+
+        text.append(fraction);
+    }
+
+}
@@ -0,0 +1,40 @@
+package ru.projectsos.projectsos.data.sos;
+
+import android.util.Log;
+
+import java.io.IOException;
+
+/**
+ * Отправитель сигнала SOS, когда в настройках нет ни номера SMS, ни адреса сервера
+ * Сигнал никому не уходит, поэтому отправка всегда завершается ошибкой: браслет не должен вибрировать,
+ * будто помощь вызвана. Сообщение пишется в журнал, чтобы его можно было найти
+ */
+public final class UnconfiguredSosDispatcher implements SosDispatcher {
+
+    private static final String TAG = "PROJECT_SOS";
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isConfigured() {
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void prewarm() {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void dispatch(SosPayload payload) throws IOException {
+        Log.e(TAG, "SOS not sent, no dispatcher configured: " + payload.toText());
+        throw new IOException("SOS dispatcher is not configured");
+    }
+
+}
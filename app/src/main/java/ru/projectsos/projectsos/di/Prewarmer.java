@@ -0,0 +1,39 @@
+package ru.projectsos.projectsos.di;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import io.reactivex.Completable;
+import io.reactivex.Scheduler;
+
+/**
+ * Прогрев тяжелых зависимостей при старте
+ * <p>
+ * Каждая зависимость создается отдельной задачей на планировщике, поэтому независимые инициализации идут
+ * параллельно и не держат главный поток. Синглтоны компонента потокобезопасны, так что если окну зависимость
+ * понадобится раньше, оно просто дождется начатого создания вместо повторного
+ */
+public final class Prewarmer {
+
+    private Prewarmer() {
+    }
+
+    /**
+     * Создать зависимости параллельно
+     *
+     * @param scheduler планировщик
+     * @param warmups   получение зависимостей из компонента
+     * @return возвращает завершаемый источник, который завершится, когда все зависимости созданы
+     */
+    public static Completable prewarm(Scheduler scheduler, Callable<?>... warmups) {
+        List<Completable> tasks = new ArrayList<>(warmups.length);
+
+        for (Callable<?> warmup : warmups) {
+            tasks.add(Completable.fromCallable(warmup).subscribeOn(scheduler));
+        }
+
+        return Completable.merge(tasks);
+    }
+
+}
@@ -1,14 +1,45 @@
 package ru.projectsos.projectsos.di.component;
 
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.polidea.rxandroidble2.RxBleClient;
+
+import javax.inject.Named;
 import javax.inject.Singleton;
 
 import dagger.Component;
+import io.reactivex.Scheduler;
+import ru.projectsos.projectsos.data.capture.SessionRecorder;
+import ru.projectsos.projectsos.data.journal.JournalFlusher;
+import ru.projectsos.projectsos.data.metrics.StartupTimer;
+import ru.projectsos.projectsos.data.sos.LocationCache;
+import ru.projectsos.projectsos.data.sos.SosDispatcher;
 import ru.projectsos.projectsos.di.module.AppModule;
 
 @Singleton
 @Component(modules = AppModule.class)
 public interface AppComponent {
 
-    MainComponent.Builder mainComponentBuilder();
+    DeviceComponent.Builder deviceComponentBuilder();
+
+    JournalFlusher journalFlusher();
+
+    SessionRecorder sessionRecorder();
+
+    StartupTimer startupTimer();
+
+    Context context();
+
+    SharedPreferences sharedPreferences();
+
+    RxBleClient rxBleClient();
+
+    LocationCache locationCache();
+
+    SosDispatcher sosDispatcher();
+
+    @Named(AppModule.SOS_SCHEDULER)
+    Scheduler sosScheduler();
 
 }
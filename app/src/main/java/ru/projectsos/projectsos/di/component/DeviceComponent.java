@@ -0,0 +1,25 @@
+package ru.projectsos.projectsos.di.component;
+
+import dagger.Subcomponent;
+import ru.projectsos.projectsos.di.module.DeviceModule;
+import ru.projectsos.projectsos.di.scope.DeviceScope;
+import ru.projectsos.projectsos.presentation.service.DeviceService;
+
+@DeviceScope
+@Subcomponent(modules = DeviceModule.class)
+public interface DeviceComponent {
+
+    MainComponent.Builder mainComponentBuilder();
+
+    void inject(DeviceService target);
+
+    @Subcomponent.Builder
+    interface Builder {
+
+        Builder deviceModule(DeviceModule module);
+
+        DeviceComponent build();
+
+    }
+
+}
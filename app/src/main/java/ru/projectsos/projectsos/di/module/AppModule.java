@@ -2,25 +2,109 @@ package ru.projectsos.projectsos.di.module;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.location.LocationManager;
+import android.os.ParcelUuid;
 import android.support.annotation.NonNull;
+import android.util.Log;
 
 import com.polidea.rxandroidble2.RxBleClient;
+import com.polidea.rxandroidble2.scan.ScanFilter;
+import com.polidea.rxandroidble2.scan.ScanSettings;
 
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.concurrent.Executors;
+
+import javax.inject.Named;
 import javax.inject.Singleton;
 
 import dagger.Module;
 import dagger.Provides;
-import ru.projectsos.projectsos.di.component.MainComponent;
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+import ru.projectsos.projectsos.data.ScanConstants;
+import ru.projectsos.projectsos.data.capture.SessionRecorder;
+import ru.projectsos.projectsos.data.connection.DeviceConnectionManager;
+import ru.projectsos.projectsos.data.connection.ReconnectPolicy;
+import ru.projectsos.projectsos.data.crypto.AuthCryptoEngine;
+import ru.projectsos.projectsos.data.crypto.AuthKeyStore;
+import ru.projectsos.projectsos.data.crypto.SharedPreferencesAuthKeyStore;
+import ru.projectsos.projectsos.data.journal.EventJournal;
+import ru.projectsos.projectsos.data.journal.JournalFlusher;
+import ru.projectsos.projectsos.data.metrics.MetricsRegistry;
+import ru.projectsos.projectsos.data.metrics.StartupTimer;
+import ru.projectsos.projectsos.data.protocol.NotificationDecoders;
+import ru.projectsos.projectsos.data.repository.MetricsRepositoryImpl;
+import ru.projectsos.projectsos.data.scan.DeviceScanner;
+import ru.projectsos.projectsos.data.session.AuthSessionCache;
+import ru.projectsos.projectsos.data.sos.HttpSosDispatcher;
+import ru.projectsos.projectsos.data.sos.LocationCache;
+import ru.projectsos.projectsos.data.sos.SmsSosDispatcher;
+import ru.projectsos.projectsos.data.sos.SosDispatcher;
+import ru.projectsos.projectsos.data.sos.UnconfiguredSosDispatcher;
+import ru.projectsos.projectsos.data.store.TimeSeriesStore;
+import ru.projectsos.projectsos.di.component.DeviceComponent;
+import ru.projectsos.projectsos.domain.MetricsRepository;
 
-@Module(subcomponents = MainComponent.class)
+@Module(subcomponents = DeviceComponent.class)
 public final class AppModule {
 
+    /**
+     * Имя планировщика Bluetooth: один поток, на котором идут рукопожатия со всеми устройствами
+     */
+    public static final String BLE_SCHEDULER = "ble";
+
+    /**
+     * Имя планировщика датчиков: один поток, на котором распознаются падения по сырым замерам всех устройств
+     */
+    public static final String SENSOR_SCHEDULER = "sensor";
+
+    /**
+     * Имя планировщика SOS: один поток, на котором собираются и отправляются сигналы SOS всех устройств
+     */
+    public static final String SOS_SCHEDULER = "sos";
+
+    /**
+     * Ключ настроек с номером телефона для сигнала SOS
+     */
+    public static final String SOS_SMS_NUMBER_KEY = "sos_sms_number";
+
+    /**
+     * Ключ настроек с адресом сервера для сигнала SOS
+     */
+    public static final String SOS_HTTP_URL_KEY = "sos_http_url";
+
+    /**
+     * Ключ настроек, включающий запись сеансов Bluetooth в {@link #CAPTURE_DIRECTORY} с запуска процесса
+     */
+    public static final String CAPTURE_SESSIONS_KEY = "capture_sessions";
+
+    /**
+     * Папка записей сеансов Bluetooth внутри папки файлов приложения
+     */
+    public static final String CAPTURE_DIRECTORY = "captures";
+
+    private static final String TAG = "PROJECT_SOS";
+    private static final int SOS_HTTP_TIMEOUT_MILLIS = 10_000;
+
     private static final String PREFERENCES_FILE = "project_sos";
+    private static final String TIME_SERIES_DIRECTORY = "timeseries";
+    private static final String METRICS_FILE = "metrics.txt";
+    private static final String JOURNAL_DIRECTORY = "journal";
 
     private final Context mContext;
+    private final long mStartNanos;
 
-    public AppModule(Context context) {
+    /**
+     * Конструктор
+     *
+     * @param context    контекст приложения
+     * @param startNanos начало старта приложения по {@link System#nanoTime()}
+     */
+    public AppModule(Context context, long startNanos) {
         mContext = context;
+        mStartNanos = startNanos;
     }
 
     @Singleton
@@ -41,4 +125,173 @@ public final class AppModule {
         return RxBleClient.create(context);
     }
 
+    @Singleton
+    @Provides
+    ReconnectPolicy provideReconnectPolicy() {
+        return ReconnectPolicy.createDefault();
+    }
+
+    @Singleton
+    @Provides
+    MetricsRegistry provideMetricsRegistry() {
+        return new MetricsRegistry();
+    }
+
+    @Singleton
+    @Provides
+    StartupTimer provideStartupTimer(@NonNull MetricsRegistry metricsRegistry) {
+        return new StartupTimer(metricsRegistry, mStartNanos);
+    }
+
+    @Singleton
+    @Provides
+    MetricsRepository provideMetricsRepository(@NonNull Context context, @NonNull MetricsRegistry metricsRegistry) {
+        return new MetricsRepositoryImpl(metricsRegistry, new File(context.getFilesDir(), METRICS_FILE));
+    }
+
+    @Singleton
+    @Provides
+    EventJournal provideEventJournal() {
+        return new EventJournal(EventJournal.DEFAULT_CAPACITY);
+    }
+
+    @Singleton
+    @Provides
+    JournalFlusher provideJournalFlusher(@NonNull Context context, @NonNull EventJournal journal) {
+        return new JournalFlusher(
+                journal,
+                new File(context.getFilesDir(), JOURNAL_DIRECTORY),
+                JournalFlusher.DEFAULT_MAX_FILE_BYTES,
+                JournalFlusher.DEFAULT_MAX_FILES
+        );
+    }
+
+    @Singleton
+    @Provides
+    SessionRecorder provideSessionRecorder() {
+        return new SessionRecorder();
+    }
+
+    @Singleton
+    @Provides
+    DeviceConnectionManager provideDeviceConnectionManager(@NonNull RxBleClient rxBleClient,
+                                                           @NonNull ReconnectPolicy reconnectPolicy,
+                                                           @NonNull MetricsRegistry metricsRegistry,
+                                                           @NonNull EventJournal journal,
+                                                           @NonNull SessionRecorder recorder) {
+        return new DeviceConnectionManager(
+                rxBleClient,
+                DeviceConnectionManager.DEFAULT_MAX_CONNECTIONS,
+                reconnectPolicy,
+                metricsRegistry,
+                journal,
+                recorder
+        );
+    }
+
+    @Singleton
+    @Provides
+    DeviceScanner provideDeviceScanner(@NonNull RxBleClient rxBleClient) {
+        ScanSettings settings = new ScanSettings.Builder()
+                .setScanMode(ScanSettings.SCAN_MODE_LOW_LATENCY)
+                .setCallbackType(ScanSettings.CALLBACK_TYPE_ALL_MATCHES)
+                .build();
+        ScanFilter filter = new ScanFilter.Builder()
+                .setServiceUuid(new ParcelUuid(ScanConstants.MI_BAND_SERVICE))
+                .build();
+
+        return new DeviceScanner(
+                rxBleClient,
+                settings,
+                filter,
+                ScanConstants.MI_BAND_SERVICE,
+                DeviceScanner.DEFAULT_MAX_DEVICES,
+                DeviceScanner.DEFAULT_SMOOTHING,
+                DeviceScanner.DEFAULT_MAX_AGE_MILLIS
+        );
+    }
+
+    @Singleton
+    @Provides
+    AuthKeyStore provideAuthKeyStore(@NonNull SharedPreferences sharedPreferences) {
+        return new SharedPreferencesAuthKeyStore(sharedPreferences);
+    }
+
+    @Singleton
+    @Provides
+    AuthCryptoEngine provideAuthCryptoEngine(@NonNull AuthKeyStore keyStore) {
+        return new AuthCryptoEngine(keyStore);
+    }
+
+    @Singleton
+    @Provides
+    NotificationDecoders provideNotificationDecoders() {
+        return NotificationDecoders.createDefault();
+    }
+
+    @Singleton
+    @Provides
+    AuthSessionCache provideAuthSessionCache(@NonNull SharedPreferences sharedPreferences) {
+        return new AuthSessionCache(sharedPreferences);
+    }
+
+    @Singleton
+    @Provides
+    TimeSeriesStore provideTimeSeriesStore(@NonNull Context context) {
+        return new TimeSeriesStore(new File(context.getFilesDir(), TIME_SERIES_DIRECTORY), TimeSeriesStore.DEFAULT_SEGMENT_CAPACITY);
+    }
+
+    @Singleton
+    @Provides
+    LocationCache provideLocationCache() {
+        return new LocationCache();
+    }
+
+    /**
+     * Выбрать отправителя сигнала SOS по настройкам: SMS, если указан номер, иначе HTTP, если указан адрес,
+     * иначе отправитель, который сообщает, что сигнал некуда отправить
+     */
+    @Singleton
+    @Provides
+    SosDispatcher provideSosDispatcher(@NonNull SharedPreferences sharedPreferences) {
+        String phoneNumber = sharedPreferences.getString(SOS_SMS_NUMBER_KEY, null);
+
+        if (phoneNumber != null) {
+            return new SmsSosDispatcher(phoneNumber);
+        }
+
+        String url = sharedPreferences.getString(SOS_HTTP_URL_KEY, null);
+
+        if (url != null) {
+            try {
+                return new HttpSosDispatcher(new URL(url), SOS_HTTP_TIMEOUT_MILLIS);
+            } catch (MalformedURLException e) {
+                Log.e(TAG, "Malformed SOS server URL " + url, e);
+            }
+        }
+
+        return new UnconfiguredSosDispatcher();
+    }
+
+    @Singleton
+    @Provides
+    @Named(BLE_SCHEDULER)
+    Scheduler provideBleScheduler() {
+        return Schedulers.from(Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "ProjectSOS-BLE")));
+    }
+
+    @Singleton
+    @Provides
+    @Named(SENSOR_SCHEDULER)
+    Scheduler provideSensorScheduler() {
+        return Schedulers.from(Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "ProjectSOS-Sensor")));
+    }
+
+    @Singleton
+    @Provides
+    @Named(SOS_SCHEDULER)
+    Scheduler provideSosScheduler() {
+        return Schedulers.from(Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "ProjectSOS-SOS")));
+    }
+
 }
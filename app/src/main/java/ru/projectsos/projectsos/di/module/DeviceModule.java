@@ -0,0 +1,129 @@
+package ru.projectsos.projectsos.di.module;
+
+import android.content.SharedPreferences;
+import android.support.annotation.NonNull;
+
+import com.polidea.rxandroidble2.RxBleClient;
+
+import javax.inject.Named;
+
+import dagger.Module;
+import dagger.Provides;
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+import ru.projectsos.projectsos.data.connection.DeviceConnectionManager;
+import ru.projectsos.projectsos.data.crypto.AuthCryptoEngine;
+import ru.projectsos.projectsos.data.metrics.MetricsRegistry;
+import ru.projectsos.projectsos.data.protocol.NotificationDecoders;
+import ru.projectsos.projectsos.data.repository.ActivityRepositoryImpl;
+import ru.projectsos.projectsos.data.repository.AuthRepositoryImpl;
+import ru.projectsos.projectsos.data.repository.HeartRateRepositoryImpl;
+import ru.projectsos.projectsos.data.repository.SampleRepositoryImpl;
+import ru.projectsos.projectsos.data.repository.ScanRepositoryImpl;
+import ru.projectsos.projectsos.data.repository.SensorRepositoryImpl;
+import ru.projectsos.projectsos.data.repository.SosRepositoryImpl;
+import ru.projectsos.projectsos.data.scan.DeviceScanner;
+import ru.projectsos.projectsos.data.session.AuthSessionCache;
+import ru.projectsos.projectsos.data.sos.LocationCache;
+import ru.projectsos.projectsos.data.sos.SosDispatcher;
+import ru.projectsos.projectsos.data.store.TimeSeriesStore;
+import ru.projectsos.projectsos.di.component.MainComponent;
+import ru.projectsos.projectsos.di.scope.DeviceScope;
+import ru.projectsos.projectsos.domain.ActivityRepository;
+import ru.projectsos.projectsos.domain.AuthRepository;
+import ru.projectsos.projectsos.domain.DeviceSessionHolder;
+import ru.projectsos.projectsos.domain.HeartRateRepository;
+import ru.projectsos.projectsos.domain.MainInteractor;
+import ru.projectsos.projectsos.domain.MetricsRepository;
+import ru.projectsos.projectsos.domain.SampleRepository;
+import ru.projectsos.projectsos.domain.ScanRepository;
+import ru.projectsos.projectsos.domain.SensorRepository;
+import ru.projectsos.projectsos.domain.SosRepository;
+
+@Module(subcomponents = MainComponent.class)
+public final class DeviceModule {
+
+    @DeviceScope
+    @Provides
+    AuthRepository provideAuthenticationRepository(@NonNull RxBleClient rxBleClient,
+                                                   @NonNull DeviceConnectionManager connectionManager,
+                                                   @NonNull AuthCryptoEngine cryptoEngine,
+                                                   @NonNull NotificationDecoders decoders,
+                                                   @NonNull AuthSessionCache sessionCache,
+                                                   @NonNull @Named(AppModule.BLE_SCHEDULER) Scheduler bleScheduler) {
+        return new AuthRepositoryImpl(rxBleClient, connectionManager, cryptoEngine, decoders, sessionCache, bleScheduler);
+    }
+
+    @DeviceScope
+    @Provides
+    HeartRateRepository provideHeartRateRepository(@NonNull DeviceConnectionManager connectionManager,
+                                                   @NonNull @Named(AppModule.BLE_SCHEDULER) Scheduler bleScheduler) {
+        return new HeartRateRepositoryImpl(connectionManager, bleScheduler);
+    }
+
+    @DeviceScope
+    @Provides
+    ActivityRepository provideActivityRepository(@NonNull DeviceConnectionManager connectionManager,
+                                                 @NonNull SharedPreferences sharedPreferences) {
+        return new ActivityRepositoryImpl(connectionManager, sharedPreferences);
+    }
+
+    @DeviceScope
+    @Provides
+    SampleRepository provideSampleRepository(@NonNull TimeSeriesStore store, @NonNull MetricsRegistry metricsRegistry) {
+        return new SampleRepositoryImpl(store, metricsRegistry);
+    }
+
+    @DeviceScope
+    @Provides
+    ScanRepository provideScanRepository(@NonNull DeviceScanner scanner) {
+        return new ScanRepositoryImpl(scanner, Schedulers.computation());
+    }
+
+    @DeviceScope
+    @Provides
+    SensorRepository provideSensorRepository(@NonNull DeviceConnectionManager connectionManager,
+                                             @NonNull @Named(AppModule.SENSOR_SCHEDULER) Scheduler sensorScheduler) {
+        return new SensorRepositoryImpl(connectionManager, sensorScheduler);
+    }
+
+    @DeviceScope
+    @Provides
+    SosRepository provideSosRepository(@NonNull DeviceConnectionManager connectionManager,
+                                       @NonNull LocationCache locationCache,
+                                       @NonNull SosDispatcher dispatcher,
+                                       @NonNull @Named(AppModule.SOS_SCHEDULER) Scheduler sosScheduler) {
+        return new SosRepositoryImpl(connectionManager, locationCache, dispatcher, sosScheduler);
+    }
+
+    @DeviceScope
+    @Provides
+    MainInteractor provideMainInteractor(@NonNull AuthRepository authRepository,
+                                         @NonNull HeartRateRepository heartRateRepository,
+                                         @NonNull ActivityRepository activityRepository,
+                                         @NonNull SampleRepository sampleRepository,
+                                         @NonNull MetricsRepository metricsRepository,
+                                         @NonNull ScanRepository scanRepository,
+                                         @NonNull SensorRepository sensorRepository,
+                                         @NonNull SosRepository sosRepository,
+                                         @NonNull @Named(AppModule.BLE_SCHEDULER) Scheduler bleScheduler) {
+        return new MainInteractor(
+                authRepository,
+                heartRateRepository,
+                activityRepository,
+                sampleRepository,
+                metricsRepository,
+                scanRepository,
+                sensorRepository,
+                sosRepository,
+                bleScheduler
+        );
+    }
+
+    @DeviceScope
+    @Provides
+    DeviceSessionHolder provideDeviceSessionHolder(@NonNull MainInteractor interactor) {
+        return new DeviceSessionHolder(interactor, DeviceSessionHolder.DEFAULT_LINGER_MILLIS, Schedulers.computation());
+    }
+
+}
@@ -0,0 +1,19 @@
+package ru.projectsos.projectsos.domain;
+
+import io.reactivex.Single;
+import ru.projectsos.projectsos.models.domain.SyncStats;
+
+public interface ActivityRepository {
+
+    /**
+     * Выгрузить новую историю активности с аутентифицированного устройства
+     * Выгружаются только минуты после контрольной точки устройства, контрольная точка сдвигается по принятым записям
+     * даже при прерванной выгрузке
+     *
+     * @param macAddress MAC адрес устройства
+     * @param sink       приемник записей
+     * @return возвращает источник с итогом выгрузки
+     */
+    Single<SyncStats> sync(String macAddress, ActivitySink sink);
+
+}
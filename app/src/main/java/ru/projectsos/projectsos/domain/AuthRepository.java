@@ -1,20 +1,34 @@
 package ru.projectsos.projectsos.domain;
 
+import java.util.List;
+
 import io.reactivex.Completable;
+import io.reactivex.Flowable;
 import io.reactivex.Observable;
-import ru.projectsos.projectsos.data.AuthConstants;
+import ru.projectsos.projectsos.models.domain.Backpressure;
+import ru.projectsos.projectsos.models.domain.BackpressureStats;
 import ru.projectsos.projectsos.models.domain.BluetoothState;
 import ru.projectsos.projectsos.models.domain.DeviceState;
 
-public interface AuthRepository {
+public interface AuthRepository extends AuthChannel {
 
     /**
      * Следить за состоянием устройства
      *
+     * @param macAddress MAC адрес устройства
      * @return возвращает горячий источник
      */
     Observable<DeviceState> traceDeviceState(String macAddress);
 
+    /**
+     * Держать подключение к устройству и следить за его восстановлениями
+     * Пока есть подписка, подключение восстанавливается после разрывов
+     *
+     * @param macAddress MAC адрес устройства
+     * @return возвращает горячий источник с номером каждого нового GATT подключения, начиная с {@code 1}
+     */
+    Observable<Long> observeConnections(String macAddress);
+
     /**
      * Следить за состоянием Bluetooth
      *
@@ -31,51 +45,42 @@ public interface AuthRepository {
     Observable<byte[]> setupNotification(String macAddress);
 
     /**
-     * Проверка на первую аутентификацию устройства
-     *
-     * @return возвращает {@code true} если это первая аутентификация, иначе {@code false}
-     */
-    boolean isFirstAuthentication();
-
-    /**
-     * Отправить секретный ключ (см. шаг #2)
-     *
-     * @return возвращает завершаемый источник
-     * @see AuthConstants
-     */
-    Completable sendSecretKey();
-
-    /**
-     * Запросить случайный ключ (см. шаг #3)
+     * Подписаться на уведомления с ограниченной очередью
+     * Подписчик получает уведомления по запросу, лишние копятся или теряются согласно {@code backpressure}
      *
-     * @return возвращает завершаемый источник
-     * @see AuthConstants
-     */
-    Completable requestRandomKey();
-
-    /**
-     * Отправка зашифрованного ключа (см. шаг #4)
-     *
-     * @param randomKeyResponse уведомление со случайным ключом
-     * @return возвращает завершаемый источник
-     * @see AuthConstants
+     * @param macAddress   MAC адрес устройства
+     * @param backpressure размер очереди и поведение при переполнении
+     * @param stats        счетчики очереди
+     * @return возвращает горячий источник
      */
-    Completable sendEncryptedKey(byte[] randomKeyResponse);
+    Flowable<byte[]> setupNotification(String macAddress, Backpressure backpressure, BackpressureStats stats);
 
     /**
-     * Процедура после первой аутентификации устройства
-     * Сохраняет флаг о прохождении первой аутентификации и сопрягается с устройством
+     * Подписаться на уведомления пачками с ограниченной очередью
+     * Пачка отправляется, когда в ней набралось {@code maxFrames} уведомлений или прошло {@code maxDelayMillis}
+     * с начала пачки, пустые пачки не отправляются. Очередь и счетчики считают пачки, а не уведомления
      *
-     * @return возвращает завершаемый источник
+     * @param macAddress     MAC адрес устройства
+     * @param backpressure   размер очереди пачек и поведение при переполнении
+     * @param stats          счетчики очереди
+     * @param maxDelayMillis наибольшая задержка уведомления в пачке
+     * @param maxFrames      наибольший размер пачки
+     * @return возвращает горячий источник
      */
-    Completable afterFirstAuthentication();
+    Flowable<List<byte[]>> setupNotificationBatches(String macAddress,
+                                                    Backpressure backpressure,
+                                                    BackpressureStats stats,
+                                                    long maxDelayMillis,
+                                                    int maxFrames);
 
     /**
      * Правильно выключиться
-     * Завершить источники
+     * Завершить источники этого устройства, не затрагивая подключения к другим устройствам и наблюдение за
+     * состоянием Bluetooth
      *
+     * @param macAddress MAC адрес устройства
      * @return возвращает завершаемый источник
      */
-    Completable gracefullyShutdown();
+    Completable gracefullyShutdown(String macAddress);
 
 }
@@ -0,0 +1,199 @@
+package ru.projectsos.projectsos.domain;
+
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Completable;
+import io.reactivex.Observable;
+import io.reactivex.Scheduler;
+import ru.projectsos.projectsos.models.domain.AuthResult;
+import ru.projectsos.projectsos.models.domain.FallEvent;
+import ru.projectsos.projectsos.models.domain.HeartRateWindow;
+import ru.projectsos.projectsos.models.domain.SosResult;
+import ru.projectsos.projectsos.models.domain.SyncStats;
+
+import static dagger.internal.Preconditions.checkNotNull;
+
+/**
+ * Владелец живых сессий с устройствами на все время жизни процесса
+ * <p>
+ * Подключение, рукопожатие, выгрузка и пульс устройства запускаются один раз и разделяются всеми подписчиками:
+ * окна и фоновая служба подключаются к уже идущей сессии и отключаются от нее, не трогая подключение.
+ * Новый подписчик сразу получает последний итог рукопожатия, выгрузки и окно пульса. После ухода последнего
+ * подписчика сессия живет еще {@code lingerMillis}, поэтому пересоздание окна (поворот, короткий уход в фон)
+ * не стоит повторного подключения и рукопожатия. Закончить сессию сразу можно через {@link #shutdown(String)}
+ */
+public final class DeviceSessionHolder {
+
+    /**
+     * Время жизни сессии без подписчиков по умолчанию
+     */
+    public static final long DEFAULT_LINGER_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    private final MainInteractor mInteractor;
+    private final long mLingerMillis;
+    private final Scheduler mScheduler;
+    private final ConcurrentMap<String, Session> mSessions = new ConcurrentHashMap<>();
+
+    /**
+     * Конструктор
+     *
+     * @param mainInteractor интерактор бизнес-задач
+     * @param lingerMillis   время жизни сессии без подписчиков
+     * @param scheduler      планировщик ожидания перед закрытием сессии
+     */
+    public DeviceSessionHolder(@NonNull MainInteractor mainInteractor, long lingerMillis, @NonNull Scheduler scheduler) {
+        mInteractor = checkNotNull(mainInteractor, "MainInteractor is required");
+        mLingerMillis = lingerMillis;
+        mScheduler = checkNotNull(scheduler, "Scheduler is required");
+    }
+
+    /**
+     * Следить за итогами рукопожатия на каждом подключении
+     *
+     * @param macAddress MAC адрес устройства
+     * @return возвращает горячий источник, начинающийся с последнего итога
+     * @see MainInteractor#authenticateOnEveryConnection(String)
+     */
+    public Observable<AuthResult> observeAuthentication(String macAddress) {
+        return session(macAddress).mAuthentication;
+    }
+
+    /**
+     * Следить за выгрузкой истории активности после каждого успешного рукопожатия
+     *
+     * @param macAddress MAC адрес устройства
+     * @return возвращает горячий источник, начинающийся с итога последней выгрузки
+     * @see MainInteractor#syncActivity(String)
+     */
+    public Observable<SyncStats> observeSync(String macAddress) {
+        return session(macAddress).mSync;
+    }
+
+    /**
+     * Следить за пульсом после каждого успешного рукопожатия
+     *
+     * @param macAddress MAC адрес устройства
+     * @return возвращает горячий источник, начинающийся с последнего окна
+     * @see MainInteractor#observeHeartRate(String)
+     */
+    public Observable<HeartRateWindow> observeHeartRate(String macAddress) {
+        return session(macAddress).mHeartRate;
+    }
+
+    /**
+     * Следить за падениями после каждого успешного рукопожатия
+     * В отличие от остальных источников, прошлое падение новому подписчику не повторяется
+     *
+     * @param macAddress MAC адрес устройства
+     * @return возвращает горячий источник падений
+     * @see MainInteractor#observeFalls(String)
+     */
+    public Observable<FallEvent> observeFalls(String macAddress) {
+        return session(macAddress).mFalls;
+    }
+
+    /**
+     * Следить за сигналами SOS после каждого успешного рукопожатия
+     * Как и падение, прошлый сигнал новому подписчику не повторяется
+     *
+     * @param macAddress MAC адрес устройства
+     * @return возвращает горячий источник итогов отправки
+     * @see MainInteractor#observeSos(String)
+     */
+    public Observable<SosResult> observeSos(String macAddress) {
+        return session(macAddress).mSos;
+    }
+
+    /**
+     * Держать сессию целиком, пока есть подписка: подключение, выгрузку, пульс, распознавание падений и сигнал SOS
+     *
+     * @param macAddress MAC адрес устройства
+     * @return возвращает завершаемый источник, завершающийся только ошибкой
+     */
+    public Completable keepAlive(String macAddress) {
+        return Completable.defer(() -> {
+            Session session = session(macAddress);
+            return Completable.mergeArray(
+                    session.mAuthentication.ignoreElements(),
+                    session.mSync.ignoreElements(),
+                    session.mHeartRate.ignoreElements(),
+                    session.mFalls.ignoreElements(),
+                    session.mSos.ignoreElements()
+            );
+        });
+    }
+
+    /**
+     * Закончить сессию и правильно выключиться, не дожидаясь ухода подписчиков
+     * Следующая подписка начнет новую сессию
+     *
+     * @param macAddress MAC адрес устройства
+     * @return возвращает завершаемый источник
+     * @see MainInteractor#gracefullyShutdown(String)
+     */
+    public Completable shutdown(String macAddress) {
+        return Completable.defer(() -> {
+            mSessions.remove(macAddress);
+            return mInteractor.gracefullyShutdown(macAddress);
+        });
+    }
+
+    private Session session(String macAddress) {
+        Session session = mSessions.get(macAddress);
+
+        if (session == null) {
+            Session created = new Session(macAddress);
+            session = mSessions.putIfAbsent(macAddress, created);
+
+            if (session == null) {
+                session = created;
+            }
+        }
+
+        return session;
+    }
+
+    /**
+     * Разделяемые источники одного устройства
+     * Выгрузка, пульс, падения и сигнал SOS подписаны на рукопожатие, поэтому держат подключение, пока держат их самих. Они привязаны
+     * к подключению: ошибка, например разрыв посреди выгрузки, не заканчивает сессию, а ждет следующего рукопожатия
+     */
+    private final class Session {
+
+        private final Observable<AuthResult> mAuthentication;
+        private final Observable<SyncStats> mSync;
+        private final Observable<HeartRateWindow> mHeartRate;
+        private final Observable<FallEvent> mFalls;
+        private final Observable<SosResult> mSos;
+
+        Session(String macAddress) {
+            mAuthentication = share(mInteractor.authenticateOnEveryConnection(macAddress));
+            mSync = share(mAuthentication.switchMap(result -> result.isSuccess()
+                    ? mInteractor.syncActivity(macAddress).toObservable().onErrorResumeNext(Observable.empty())
+                    : Observable.empty()));
+            mHeartRate = share(mAuthentication.switchMap(result -> result.isSuccess()
+                    ? mInteractor.observeHeartRate(macAddress).onErrorResumeNext(Observable.empty())
+                    : Observable.empty()));
+            mFalls = mAuthentication.switchMap(result -> result.isSuccess()
+                    ? mInteractor.observeFalls(macAddress).onErrorResumeNext(Observable.<FallEvent>empty())
+                    : Observable.<FallEvent>empty())
+                    .publish()
+                    .refCount(mLingerMillis, TimeUnit.MILLISECONDS, mScheduler);
+            mSos = mAuthentication.switchMap(result -> result.isSuccess()
+                    ? mInteractor.observeSos(macAddress).onErrorResumeNext(Observable.<SosResult>empty())
+                    : Observable.<SosResult>empty())
+                    .publish()
+                    .refCount(mLingerMillis, TimeUnit.MILLISECONDS, mScheduler);
+        }
+
+        private <T> Observable<T> share(Observable<T> source) {
+            return source.replay(1).refCount(mLingerMillis, TimeUnit.MILLISECONDS, mScheduler);
+        }
+
+    }
+
+}
@@ -0,0 +1,19 @@
+package ru.projectsos.projectsos.domain;
+
+import io.reactivex.Observable;
+import ru.projectsos.projectsos.models.domain.HeartRateWindow;
+
+public interface HeartRateRepository {
+
+    /**
+     * Запустить непрерывное измерение пульса и поддерживать его, пока есть подписчики
+     * Замеры публикуются окнами: по истечении времени окна или при накоплении {@code maxSamples} замеров
+     *
+     * @param macAddress   MAC адрес аутентифицированного устройства
+     * @param windowMillis длительность окна в миллисекундах
+     * @param maxSamples   максимальное количество замеров в окне
+     * @return возвращает горячий источник непустых окон
+     */
+    Observable<HeartRateWindow> observeHeartRate(String macAddress, long windowMillis, int maxSamples);
+
+}
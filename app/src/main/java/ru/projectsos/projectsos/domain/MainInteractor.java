@@ -1,24 +1,95 @@
 package ru.projectsos.projectsos.domain;
 
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 import io.reactivex.Completable;
+import io.reactivex.Flowable;
 import io.reactivex.Observable;
-import ru.projectsos.projectsos.data.AuthConstants;
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import ru.projectsos.projectsos.models.domain.AuthResult;
+import ru.projectsos.projectsos.models.domain.Backpressure;
+import ru.projectsos.projectsos.models.domain.BackpressureStats;
 import ru.projectsos.projectsos.models.domain.BluetoothState;
 import ru.projectsos.projectsos.models.domain.DeviceState;
+import ru.projectsos.projectsos.models.domain.FallEvent;
+import ru.projectsos.projectsos.models.domain.HeartRateWindow;
+import ru.projectsos.projectsos.models.domain.SampleHistory;
+import ru.projectsos.projectsos.models.domain.ScannedDevice;
+import ru.projectsos.projectsos.models.domain.SosResult;
+import ru.projectsos.projectsos.models.domain.SyncStats;
 
 import static dagger.internal.Preconditions.checkNotNull;
 
 public final class MainInteractor {
 
+    /**
+     * Длительность окна пульса
+     */
+    public static final long HEART_RATE_WINDOW_MILLIS = 10_000;
+
+    /**
+     * Максимальное количество замеров в окне пульса
+     */
+    public static final int HEART_RATE_WINDOW_SAMPLES = 64;
+
+    /**
+     * Период списка найденных браслетов
+     */
+    public static final long SCAN_PERIOD_MILLIS = 500;
+
+    /**
+     * Наибольшая длина списка найденных браслетов
+     */
+    public static final int SCAN_LIMIT = 16;
+
+    /**
+     * Время поиска, за которое сглаженный сигнал браслетов поблизости успевает устояться
+     */
+    public static final long DISCOVERY_SETTLE_MILLIS = 2000;
+
     private final AuthRepository mRepository;
+    private final HeartRateRepository mHeartRateRepository;
+    private final ActivityRepository mActivityRepository;
+    private final SampleRepository mSampleRepository;
+    private final MetricsRepository mMetricsRepository;
+    private final ScanRepository mScanRepository;
+    private final SensorRepository mSensorRepository;
+    private final SosRepository mSosRepository;
+    private final AuthHandshake mHandshake;
 
     /**
      * Конструктор
      *
-     * @param authRepository репозиторий для аутентификации
+     * @param authRepository      репозиторий для аутентификации
+     * @param heartRateRepository репозиторий пульса
+     * @param activityRepository  репозиторий истории активности
+     * @param sampleRepository    репозиторий сохраненных замеров
+     * @param metricsRepository   репозиторий метрик
+     * @param scanRepository      репозиторий поиска браслетов
+     * @param sensorRepository    репозиторий датчиков
+     * @param sosRepository       репозиторий сигнала SOS
+     * @param bleScheduler        планировщик Bluetooth
      */
-    public MainInteractor(AuthRepository authRepository) {
+    public MainInteractor(AuthRepository authRepository,
+                          HeartRateRepository heartRateRepository,
+                          ActivityRepository activityRepository,
+                          SampleRepository sampleRepository,
+                          MetricsRepository metricsRepository,
+                          ScanRepository scanRepository,
+                          SensorRepository sensorRepository,
+                          SosRepository sosRepository,
+                          Scheduler bleScheduler) {
         mRepository = checkNotNull(authRepository, "AuthRepository is required");
+        mHeartRateRepository = checkNotNull(heartRateRepository, "HeartRateRepository is required");
+        mActivityRepository = checkNotNull(activityRepository, "ActivityRepository is required");
+        mSampleRepository = checkNotNull(sampleRepository, "SampleRepository is required");
+        mMetricsRepository = checkNotNull(metricsRepository, "MetricsRepository is required");
+        mScanRepository = checkNotNull(scanRepository, "ScanRepository is required");
+        mSensorRepository = checkNotNull(sensorRepository, "SensorRepository is required");
+        mSosRepository = checkNotNull(sosRepository, "SosRepository is required");
+        mHandshake = new AuthHandshake(authRepository, bleScheduler);
     }
 
     /**
@@ -41,73 +112,173 @@ public final class MainInteractor {
     }
 
     /**
-     * Подписаться на уведомления
+     * Искать браслеты поблизости
+     *
+     * @return возвращает горячий источник списков браслетов по убыванию сигнала раз в {@link #SCAN_PERIOD_MILLIS}
+     */
+    public Observable<List<ScannedDevice>> scanDevices() {
+        return mScanRepository.scanDevices(SCAN_PERIOD_MILLIS, SCAN_LIMIT);
+    }
+
+    /**
+     * Найти ближайший браслет
+     * Поиск идет не меньше {@link #DISCOVERY_SETTLE_MILLIS}, чтобы выбор не зависел от того, чей пакет пришел первым
+     *
+     * @return возвращает источник с MAC адресом браслета с самым сильным сигналом
+     */
+    public Single<String> discoverDevice() {
+        return scanDevices()
+                .skip(DISCOVERY_SETTLE_MILLIS, TimeUnit.MILLISECONDS)
+                .filter(devices -> !devices.isEmpty())
+                .firstOrError()
+                .map(devices -> devices.get(0).getMacAddress());
+    }
+
+    /**
+     * Пройти аутентификацию с устройством
+     * Все шаги выполняются на планировщике Bluetooth, итог учитывается в метриках
      *
      * @param macAddress MAC адрес устройства
+     * @return возвращает источник с итогом рукопожатия
+     * @see AuthHandshake
+     */
+    public Single<AuthResult> authenticate(String macAddress) {
+        return mHandshake.authenticate(macAddress)
+                .doOnSuccess(mMetricsRepository::recordAuthentication);
+    }
+
+    /**
+     * Проходить аутентификацию при каждом подключении к устройству
+     * Каждый итог учитывается в метриках
+     * Держит подключение, пока есть подписка: после разрыва оно восстанавливается, и рукопожатие начинается заново.
+     * Рукопожатие, прерванное разрывом, отменяется новым подключением, а если его нет — выдается прерванный итог
+     *
+     * @param macAddress MAC адрес устройства
+     * @return возвращает горячий источник с итогом рукопожатия на каждом подключении
+     * @see AuthResult#isInterrupted()
+     */
+    public Observable<AuthResult> authenticateOnEveryConnection(String macAddress) {
+        return mRepository.observeConnections(macAddress)
+                .switchMapSingle(connection -> {
+                    long startNanos = System.nanoTime();
+
+                    return mHandshake.authenticate(macAddress)
+                            .onErrorReturn(throwable -> AuthResult.interrupted(macAddress, System.nanoTime() - startNanos));
+                })
+                .doOnNext(mMetricsRepository::recordAuthentication);
+    }
+
+    /**
+     * Следить за уведомлениями устройства с ограниченной очередью
+     *
+     * @param macAddress   MAC адрес устройства
+     * @param backpressure размер очереди и поведение при переполнении
+     * @param stats        счетчики очереди
      * @return возвращает горячий источник
+     * @see AuthRepository#setupNotification(String, Backpressure, BackpressureStats)
      */
-    public Observable<byte[]> setupNotification(String macAddress) {
-        return mRepository.setupNotification(macAddress);
+    public Flowable<byte[]> observeNotifications(String macAddress, Backpressure backpressure, BackpressureStats stats) {
+        return mRepository.setupNotification(macAddress, backpressure, stats);
     }
 
     /**
-     * Проверка на первую аутентификацию устройства
+     * Следить за уведомлениями устройства пачками с ограниченной очередью
      *
-     * @return возвращает {@code true} если это первая аутентификация, иначе {@code false}
+     * @param macAddress     MAC адрес устройства
+     * @param backpressure   размер очереди пачек и поведение при переполнении
+     * @param stats          счетчики очереди
+     * @param maxDelayMillis наибольшая задержка уведомления в пачке
+     * @param maxFrames      наибольший размер пачки
+     * @return возвращает горячий источник
+     * @see AuthRepository#setupNotificationBatches(String, Backpressure, BackpressureStats, long, int)
      */
-    public boolean isFirstAuthentication() {
-        return mRepository.isFirstAuthentication();
+    public Flowable<List<byte[]>> observeNotificationBatches(String macAddress,
+                                                             Backpressure backpressure,
+                                                             BackpressureStats stats,
+                                                             long maxDelayMillis,
+                                                             int maxFrames) {
+        return mRepository.setupNotificationBatches(macAddress, backpressure, stats, maxDelayMillis, maxFrames);
     }
 
     /**
-     * Отправить секретный ключ (см. шаг #2)
+     * Следить за пульсом аутентифицированного устройства
+     * Каждое окно сохраняется до того, как уйти подписчику, а последний пульс запоминается для сигнала SOS
      *
-     * @return возвращает завершаемый источник
-     * @see AuthConstants
+     * @param macAddress MAC адрес устройства
+     * @return возвращает горячий источник окон пульса
      */
-    public Completable sendSecretKey() {
-        return mRepository.sendSecretKey();
+    public Observable<HeartRateWindow> observeHeartRate(String macAddress) {
+        return mHeartRateRepository.observeHeartRate(macAddress, HEART_RATE_WINDOW_MILLIS, HEART_RATE_WINDOW_SAMPLES)
+                .doOnNext(window -> mSosRepository.recordHeartRate(macAddress, window))
+                .concatMapSingle(window -> mSampleRepository.recordHeartRate(macAddress, window).toSingleDefault(window));
     }
 
     /**
-     * Запросить случайный ключ (см. шаг #3)
+     * Следить за падениями по сырым данным акселерометра аутентифицированного устройства
      *
-     * @return возвращает завершаемый источник
-     * @see AuthConstants
+     * @param macAddress MAC адрес устройства
+     * @return возвращает горячий источник падений
      */
-    public Completable requestRandomKey() {
-        return mRepository.requestRandomKey();
+    public Observable<FallEvent> observeFalls(String macAddress) {
+        return mSensorRepository.observeFalls(macAddress);
     }
 
     /**
-     * Отправка зашифрованного ключа (см. шаг #4)
+     * Отправлять сигнал SOS по серии нажатий кнопки аутентифицированного устройства
      *
-     * @param randomKeyResponse уведомление со случайным ключом
-     * @return возвращает завершаемый источник
-     * @see AuthConstants
+     * @param macAddress MAC адрес устройства
+     * @return возвращает горячий источник итогов отправки
+     */
+    public Observable<SosResult> observeSos(String macAddress) {
+        return mSosRepository.observeSos(macAddress);
+    }
+
+    /**
+     * Выгрузить новую историю активности в хранилище замеров
+     *
+     * @param macAddress MAC адрес устройства
+     * @return возвращает источник с итогом выгрузки
      */
-    public Completable sendEncryptedKey(byte[] randomKeyResponse) {
-        return mRepository.sendEncryptedKey(randomKeyResponse);
+    public Single<SyncStats> syncActivity(String macAddress) {
+        return mSampleRepository.activitySink(macAddress)
+                .flatMap(sink -> mActivityRepository.sync(macAddress, sink));
     }
 
     /**
-     * Процедура после первой аутентификации устройства
-     * Сохраняет флаг о прохождении первой аутентификации и сопрягается с устройством
+     * Получить историю пульса для графика за период, заканчивающийся сейчас
+     * Разрешение подбирается так, чтобы интервалов было не меньше {@code points}
+     *
+     * @param macAddress   MAC адрес устройства
+     * @param periodMillis длительность периода
+     * @param points       количество точек графика
+     * @return возвращает источник с историей
+     */
+    public Single<SampleHistory> heartRateHistory(String macAddress, long periodMillis, int points) {
+        return Single.defer(() -> {
+            long now = System.currentTimeMillis();
+            return mSampleRepository.heartRateHistory(macAddress, now - periodMillis, now, periodMillis / points);
+        });
+    }
+
+    /**
+     * Выгрузить снимок метрик в файл отчета
      *
      * @return возвращает завершаемый источник
      */
-    public Completable afterFirstAuthentication() {
-        return mRepository.afterFirstAuthentication();
+    public Completable dumpMetrics() {
+        return mMetricsRepository.dump();
     }
 
     /**
      * Правильно выключиться
-     * Отписаться от горячих источников
+     * Отписаться от горячих источников устройства и выгрузить метрики
      *
+     * @param macAddress MAC адрес устройства
      * @return возвращает завершаемый источник
      */
-    public Completable gracefullyShutdown() {
-        return mRepository.gracefullyShutdown();
+    public Completable gracefullyShutdown(String macAddress) {
+        return mRepository.gracefullyShutdown(macAddress)
+                .andThen(mMetricsRepository.dump());
     }
 
 }
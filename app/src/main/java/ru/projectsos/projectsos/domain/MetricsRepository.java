@@ -0,0 +1,22 @@
+package ru.projectsos.projectsos.domain;
+
+import io.reactivex.Completable;
+import ru.projectsos.projectsos.models.domain.AuthResult;
+
+public interface MetricsRepository {
+
+    /**
+     * Учесть итог рукопожатия в метриках устройства: длительность целиком и по шагам
+     *
+     * @param result итог рукопожатия
+     */
+    void recordAuthentication(AuthResult result);
+
+    /**
+     * Выгрузить снимок всех метрик в файл отчета
+     *
+     * @return возвращает завершаемый источник
+     */
+    Completable dump();
+
+}
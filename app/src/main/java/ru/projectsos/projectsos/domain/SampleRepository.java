@@ -0,0 +1,39 @@
+package ru.projectsos.projectsos.domain;
+
+import io.reactivex.Completable;
+import io.reactivex.Single;
+import ru.projectsos.projectsos.models.domain.HeartRateWindow;
+import ru.projectsos.projectsos.models.domain.SampleHistory;
+
+public interface SampleRepository {
+
+    /**
+     * Получить приемник, который сохраняет выгруженную историю активности устройства
+     *
+     * @param macAddress MAC адрес устройства
+     * @return возвращает источник с приемником
+     */
+    Single<ActivitySink> activitySink(String macAddress);
+
+    /**
+     * Сохранить окно пульса
+     *
+     * @param macAddress MAC адрес устройства
+     * @param window     окно замеров
+     * @return возвращает завершаемый источник
+     */
+    Completable recordHeartRate(String macAddress, HeartRateWindow window);
+
+    /**
+     * Получить историю пульса
+     * Чем грубее разрешение, тем меньше интервалов читается
+     *
+     * @param macAddress       MAC адрес устройства
+     * @param fromMillis       начало периода
+     * @param toMillis         конец периода
+     * @param resolutionMillis наибольшая допустимая ширина интервала
+     * @return возвращает источник с историей
+     */
+    Single<SampleHistory> heartRateHistory(String macAddress, long fromMillis, long toMillis, long resolutionMillis);
+
+}
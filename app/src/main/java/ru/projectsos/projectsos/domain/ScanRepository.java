@@ -0,0 +1,19 @@
+package ru.projectsos.projectsos.domain;
+
+import java.util.List;
+
+import io.reactivex.Observable;
+import ru.projectsos.projectsos.models.domain.ScannedDevice;
+
+public interface ScanRepository {
+
+    /**
+     * Искать браслеты поблизости, пока есть подписка
+     *
+     * @param periodMillis период списка
+     * @param limit        наибольшая длина списка
+     * @return возвращает горячий источник списков браслетов по убыванию сглаженного сигнала
+     */
+    Observable<List<ScannedDevice>> scanDevices(long periodMillis, int limit);
+
+}
@@ -0,0 +1,17 @@
+package ru.projectsos.projectsos.domain;
+
+import io.reactivex.Observable;
+import ru.projectsos.projectsos.models.domain.FallEvent;
+
+public interface SensorRepository {
+
+    /**
+     * Запустить поток сырых данных акселерометра и распознавать в нем падения, пока есть подписчики
+     * После разрыва поток запускается на новом подключении, а замеры прежнего подключения забываются
+     *
+     * @param macAddress MAC адрес аутентифицированного устройства
+     * @return возвращает горячий источник падений
+     */
+    Observable<FallEvent> observeFalls(String macAddress);
+
+}
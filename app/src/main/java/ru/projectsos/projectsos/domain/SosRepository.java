@@ -0,0 +1,26 @@
+package ru.projectsos.projectsos.domain;
+
+import io.reactivex.Observable;
+import ru.projectsos.projectsos.models.domain.HeartRateWindow;
+import ru.projectsos.projectsos.models.domain.SosResult;
+
+public interface SosRepository {
+
+    /**
+     * Слушать нажатия кнопки браслета и отправлять сигнал SOS на серию нажатий, пока есть подписчики
+     * Сигнал уходит с последним известным местоположением и пульсом, а после отправки браслет вибрирует
+     *
+     * @param macAddress MAC адрес аутентифицированного устройства
+     * @return возвращает горячий источник итогов отправки
+     */
+    Observable<SosResult> observeSos(String macAddress);
+
+    /**
+     * Запомнить последний пульс устройства для сигнала SOS
+     *
+     * @param macAddress MAC адрес устройства
+     * @param window     окно пульса
+     */
+    void recordHeartRate(String macAddress, HeartRateWindow window);
+
+}
@@ -0,0 +1,86 @@
+package ru.projectsos.projectsos.models.domain;
+
+import java.util.Locale;
+
+/**
+ * Поведение подписки на уведомления, когда подписчик не успевает их обрабатывать
+ */
+public final class Backpressure {
+
+    /**
+     * Стратегия переполнения
+     */
+    public enum Strategy {
+
+        /**
+         * Вытеснять самые старые уведомления из очереди
+         */
+        DROP_OLDEST,
+
+        /**
+         * Хранить только последнее уведомление
+         */
+        LATEST,
+
+        /**
+         * Копить уведомления в очереди и завершить подписку ошибкой при ее переполнении
+         */
+        BUFFER
+
+    }
+
+    private final Strategy mStrategy;
+    private final int mCapacity;
+
+    private Backpressure(Strategy strategy, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive, got " + capacity);
+        }
+
+        mStrategy = strategy;
+        mCapacity = capacity;
+    }
+
+    /**
+     * Очередь, из которой при переполнении вытесняются самые старые уведомления
+     *
+     * @param capacity размер очереди
+     * @return поведение подписки
+     */
+    public static Backpressure dropOldest(int capacity) {
+        return new Backpressure(Strategy.DROP_OLDEST, capacity);
+    }
+
+    /**
+     * Только последнее уведомление: подходит для состояний, где важно текущее значение, а не история
+     *
+     * @return поведение подписки
+     */
+    public static Backpressure latest() {
+        return new Backpressure(Strategy.LATEST, 1);
+    }
+
+    /**
+     * Ограниченная очередь без потерь: переполнение — ошибка подписки
+     *
+     * @param capacity размер очереди
+     * @return поведение подписки
+     */
+    public static Backpressure buffer(int capacity) {
+        return new Backpressure(Strategy.BUFFER, capacity);
+    }
+
+    public Strategy getStrategy() {
+        return mStrategy;
+    }
+
+    public int getCapacity() {
+        return mCapacity;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%s(%d)", mStrategy, mCapacity);
+    }
+
+}
@@ -0,0 +1,71 @@
+package ru.projectsos.projectsos.models.domain;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Счетчики подписки с ограниченной очередью: сколько элементов пришло, сколько отдано подписчику,
+ * сколько потеряно и наибольшая глубина очереди
+ * Потокобезопасны: источник и подписчик обычно работают в разных потоках
+ */
+public final class BackpressureStats {
+
+    private final AtomicLong mReceived = new AtomicLong();
+    private final AtomicLong mDelivered = new AtomicLong();
+    private final AtomicLong mDropped = new AtomicLong();
+    private final AtomicLong mPeakQueued = new AtomicLong();
+
+    /**
+     * Учесть пришедший элемент
+     */
+    public void onReceived() {
+        long queued = mReceived.incrementAndGet() - mDelivered.get() - mDropped.get();
+        long peak;
+
+        do {
+            peak = mPeakQueued.get();
+        } while (queued > peak && !mPeakQueued.compareAndSet(peak, queued));
+    }
+
+    /**
+     * Учесть элемент, отданный подписчику
+     */
+    public void onDelivered() {
+        mDelivered.incrementAndGet();
+    }
+
+    /**
+     * Учесть элемент, потерянный при переполнении очереди
+     */
+    public void onDropped() {
+        mDropped.incrementAndGet();
+    }
+
+    public long getReceived() {
+        return mReceived.get();
+    }
+
+    public long getDelivered() {
+        return mDelivered.get();
+    }
+
+    public long getDropped() {
+        return mDropped.get();
+    }
+
+    /**
+     * Получить наибольшую глубину очереди
+     *
+     * @return количество элементов
+     */
+    public long getPeakQueued() {
+        return mPeakQueued.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "received=%d delivered=%d dropped=%d peak=%d",
+                getReceived(), getDelivered(), getDropped(), getPeakQueued());
+    }
+
+}
@@ -0,0 +1,66 @@
+package ru.projectsos.projectsos.models.domain;
+
+import java.util.Locale;
+
+/**
+ * Распознанное падение
+ */
+public final class FallEvent {
+
+    private final String mMacAddress;
+    private final long mImpactMillis;
+    private final float mPeakG;
+    private final long mFreeFallMillis;
+    private final float mTiltDegrees;
+    private final long mLatencyNanos;
+
+    /**
+     * Конструктор
+     *
+     * @param macAddress     MAC адрес устройства
+     * @param impactMillis   время удара
+     * @param peakG          пиковое ускорение удара в g
+     * @param freeFallMillis длительность невесомости перед ударом или {@code 0}
+     * @param tiltDegrees    поворот руки после падения в градусах
+     * @param latencyNanos   время от получения уведомления, завершившего падение, до распознавания
+     */
+    public FallEvent(String macAddress, long impactMillis, float peakG, long freeFallMillis, float tiltDegrees, long latencyNanos) {
+        mMacAddress = macAddress;
+        mImpactMillis = impactMillis;
+        mPeakG = peakG;
+        mFreeFallMillis = freeFallMillis;
+        mTiltDegrees = tiltDegrees;
+        mLatencyNanos = latencyNanos;
+    }
+
+    public String getMacAddress() {
+        return mMacAddress;
+    }
+
+    public long getImpactMillis() {
+        return mImpactMillis;
+    }
+
+    public float getPeakG() {
+        return mPeakG;
+    }
+
+    public long getFreeFallMillis() {
+        return mFreeFallMillis;
+    }
+
+    public float getTiltDegrees() {
+        return mTiltDegrees;
+    }
+
+    public long getLatencyNanos() {
+        return mLatencyNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%s fall at=%d peak=%.1fg free_fall=%dms tilt=%.0fdeg latency=%.2fms",
+                mMacAddress, mImpactMillis, mPeakG, mFreeFallMillis, mTiltDegrees, mLatencyNanos / 1e6);
+    }
+
+}
@@ -0,0 +1,102 @@
+package ru.projectsos.projectsos.models.domain;
+
+import java.util.Locale;
+
+/**
+ * История замеров для графика: интервалы с минимумом, максимумом, средним и количеством замеров
+ */
+public final class SampleHistory {
+
+    private final long mResolutionMillis;
+    private final long[] mStarts;
+    private final int[] mCounts;
+    private final long[] mMins;
+    private final long[] mMaxs;
+    private final long[] mSums;
+
+    /**
+     * Конструктор
+     * Массивы передаются во владение истории и не копируются
+     *
+     * @param resolutionMillis ширина интервалов или {@code 0}, если каждый интервал — отдельный замер
+     * @param starts           начала интервалов в миллисекундах
+     * @param counts           количества замеров
+     * @param mins             минимальные значения
+     * @param maxs             максимальные значения
+     * @param sums             суммы значений
+     */
+    public SampleHistory(long resolutionMillis, long[] starts, int[] counts, long[] mins, long[] maxs, long[] sums) {
+        int size = starts.length;
+
+        if (counts.length != size || mins.length != size || maxs.length != size || sums.length != size) {
+            throw new IllegalArgumentException("Bucket arrays differ in length");
+        }
+
+        mResolutionMillis = resolutionMillis;
+        mStarts = starts;
+        mCounts = counts;
+        mMins = mins;
+        mMaxs = maxs;
+        mSums = sums;
+    }
+
+    /**
+     * Получить ширину интервалов
+     *
+     * @return миллисекунды или {@code 0}, если каждый интервал — отдельный замер
+     */
+    public long getResolutionMillis() {
+        return mResolutionMillis;
+    }
+
+    /**
+     * Получить количество интервалов
+     *
+     * @return количество интервалов
+     */
+    public int size() {
+        return mStarts.length;
+    }
+
+    /**
+     * Получить начало интервала
+     *
+     * @param index номер интервала
+     * @return миллисекунды
+     */
+    public long getStart(int index) {
+        return mStarts[index];
+    }
+
+    public int getCount(int index) {
+        return mCounts[index];
+    }
+
+    public long getMin(int index) {
+        return mMins[index];
+    }
+
+    public long getMax(int index) {
+        return mMaxs[index];
+    }
+
+    public long getSum(int index) {
+        return mSums[index];
+    }
+
+    /**
+     * Получить среднее значение интервала
+     *
+     * @param index номер интервала
+     * @return среднее значение
+     */
+    public double getAverage(int index) {
+        return (double) mSums[index] / mCounts[index];
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "buckets=%d resolution=%dms", mStarts.length, mResolutionMillis);
+    }
+
+}
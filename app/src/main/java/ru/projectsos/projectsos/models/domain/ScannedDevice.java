@@ -0,0 +1,52 @@
+package ru.projectsos.projectsos.models.domain;
+
+import java.util.Locale;
+
+/**
+ * Устройство, найденное при поиске
+ */
+public final class ScannedDevice {
+
+    private final String mMacAddress;
+    private final int mRssi;
+    private final int mAdvertisements;
+    private final long mAgeMillis;
+
+    /**
+     * Конструктор
+     *
+     * @param macAddress     MAC адрес устройства
+     * @param rssi           сглаженный уровень сигнала в дБм
+     * @param advertisements количество принятых рекламных пакетов
+     * @param ageMillis      время с последнего рекламного пакета
+     */
+    public ScannedDevice(String macAddress, int rssi, int advertisements, long ageMillis) {
+        mMacAddress = macAddress;
+        mRssi = rssi;
+        mAdvertisements = advertisements;
+        mAgeMillis = ageMillis;
+    }
+
+    public String getMacAddress() {
+        return mMacAddress;
+    }
+
+    public int getRssi() {
+        return mRssi;
+    }
+
+    public int getAdvertisements() {
+        return mAdvertisements;
+    }
+
+    public long getAgeMillis() {
+        return mAgeMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%s rssi=%ddBm advertisements=%d age=%dms",
+                mMacAddress, mRssi, mAdvertisements, mAgeMillis);
+    }
+
+}
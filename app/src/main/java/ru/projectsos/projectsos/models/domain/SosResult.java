@@ -0,0 +1,88 @@
+package ru.projectsos.projectsos.models.domain;
+
+import android.support.annotation.Nullable;
+
+import java.util.Locale;
+
+/**
+ * Итог отправки сигнала SOS
+ */
+public final class SosResult {
+
+    private final String mMacAddress;
+    private final long mTimestampMillis;
+    private final boolean mSuccess;
+    private final boolean mConfigured;
+    private final long mTriggerNanos;
+    private final long mDispatchNanos;
+    private final String mError;
+
+    /**
+     * Конструктор
+     *
+     * @param macAddress      MAC адрес устройства
+     * @param timestampMillis время сигнала
+     * @param success         успешность отправки
+     * @param configured      настроен ли получатель сигнала; если нет, сигнал никому не ушел
+     * @param triggerNanos    время от получения уведомления последнего нажатия до передачи сигнала отправителю
+     * @param dispatchNanos   время от получения уведомления последнего нажатия до возврата отправителя
+     * @param error           описание ошибки или {@code null} при успехе
+     */
+    public SosResult(String macAddress,
+                     long timestampMillis,
+                     boolean success,
+                     boolean configured,
+                     long triggerNanos,
+                     long dispatchNanos,
+                     @Nullable String error) {
+        mMacAddress = macAddress;
+        mTimestampMillis = timestampMillis;
+        mSuccess = success;
+        mConfigured = configured;
+        mTriggerNanos = triggerNanos;
+        mDispatchNanos = dispatchNanos;
+        mError = error;
+    }
+
+    public String getMacAddress() {
+        return mMacAddress;
+    }
+
+    public long getTimestampMillis() {
+        return mTimestampMillis;
+    }
+
+    public boolean isSuccess() {
+        return mSuccess;
+    }
+
+    public boolean isConfigured() {
+        return mConfigured;
+    }
+
+    public long getTriggerNanos() {
+        return mTriggerNanos;
+    }
+
+    public long getDispatchNanos() {
+        return mDispatchNanos;
+    }
+
+    /**
+     * Получить описание ошибки отправки
+     *
+     * @return описание или {@code null} при успехе
+     */
+    @Nullable
+    public String getError() {
+        return mError;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%s sos at=%d %s trigger=%.2fms dispatch=%.2fms%s",
+                mMacAddress, mTimestampMillis, mSuccess ? "sent" : mConfigured ? "failed" : "not configured",
+                mTriggerNanos / 1e6, mDispatchNanos / 1e6, mError == null ? "" : " error=" + mError);
+    }
+
+}
@@ -0,0 +1,84 @@
+package ru.projectsos.projectsos.models.domain;
+
+import java.util.Locale;
+
+/**
+ * Итог выгрузки истории активности
+ */
+public final class SyncStats {
+
+    private final String mMacAddress;
+    private final long mRecords;
+    private final long mBytes;
+    private final long mNanos;
+    private final long mCheckpointMillis;
+    private final int mMtu;
+
+    /**
+     * Конструктор
+     *
+     * @param macAddress       MAC адрес устройства
+     * @param records          количество принятых записей
+     * @param bytes            количество принятых байтов данных
+     * @param nanos            длительность выгрузки
+     * @param checkpointMillis контрольная точка, с которой начнется следующая выгрузка
+     * @param mtu              MTU подключения, по которому шла выгрузка
+     */
+    public SyncStats(String macAddress, long records, long bytes, long nanos, long checkpointMillis, int mtu) {
+        mMacAddress = macAddress;
+        mRecords = records;
+        mBytes = bytes;
+        mNanos = nanos;
+        mCheckpointMillis = checkpointMillis;
+        mMtu = mtu;
+    }
+
+    public String getMacAddress() {
+        return mMacAddress;
+    }
+
+    public long getRecords() {
+        return mRecords;
+    }
+
+    public long getBytes() {
+        return mBytes;
+    }
+
+    public long getNanos() {
+        return mNanos;
+    }
+
+    public long getCheckpointMillis() {
+        return mCheckpointMillis;
+    }
+
+    public int getMtu() {
+        return mMtu;
+    }
+
+    /**
+     * Получить скорость выгрузки
+     *
+     * @return байтов в секунду
+     */
+    public double getBytesPerSecond() {
+        return mNanos == 0 ? 0 : mBytes * 1e9 / mNanos;
+    }
+
+    /**
+     * Получить скорость выгрузки
+     *
+     * @return записей в секунду
+     */
+    public double getRecordsPerSecond() {
+        return mNanos == 0 ? 0 : mRecords * 1e9 / mNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%s records=%d bytes=%d time=%.1fms %.0f B/s %.0f records/s mtu=%d checkpoint=%d",
+                mMacAddress, mRecords, mBytes, mNanos / 1e6, getBytesPerSecond(), getRecordsPerSecond(), mMtu, mCheckpointMillis);
+    }
+
+}
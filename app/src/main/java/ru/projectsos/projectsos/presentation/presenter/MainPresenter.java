@@ -1,55 +1,80 @@
 package ru.projectsos.projectsos.presentation.presenter;
 
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.util.Log;
 
 import com.arellomobile.mvp.InjectViewState;
 
-import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
 
+import dagger.Lazy;
+import io.reactivex.Single;
 import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.disposables.SerialDisposable;
 import io.reactivex.schedulers.Schedulers;
 import ru.projectsos.projectsos.R;
-import ru.projectsos.projectsos.data.AuthConstants;
+import ru.projectsos.projectsos.data.metrics.StartupTimer;
+import ru.projectsos.projectsos.domain.DeviceSessionHolder;
 import ru.projectsos.projectsos.domain.MainInteractor;
+import ru.projectsos.projectsos.models.domain.AuthResult;
 import ru.projectsos.projectsos.models.domain.BluetoothState;
 import ru.projectsos.projectsos.models.domain.DeviceState;
+import ru.projectsos.projectsos.models.domain.HeartRateWindow;
+import ru.projectsos.projectsos.models.domain.SosResult;
 import ru.projectsos.projectsos.presentation.util.BasePresenter;
+import ru.projectsos.projectsos.presentation.util.OperationTracker;
 import ru.projectsos.projectsos.presentation.view.MainView;
 
 import static dagger.internal.Preconditions.checkNotNull;
-import static ru.projectsos.projectsos.data.AuthConstants.AUTH_REQUEST_RANDOM_KEY_COMMAND;
-import static ru.projectsos.projectsos.data.AuthConstants.AUTH_RESPONSE;
-import static ru.projectsos.projectsos.data.AuthConstants.AUTH_SEND_ENCRYPTED_KEY_COMMAND;
-import static ru.projectsos.projectsos.data.AuthConstants.AUTH_SEND_SECRET_KEY_COMMAND;
-import static ru.projectsos.projectsos.data.AuthConstants.AUTH_SUCCESS;
 
 @InjectViewState
 public final class MainPresenter extends BasePresenter<MainView> {
 
     private static final String TAG = "PROJECT_SOS";
+    private static final long HEART_RATE_HISTORY_PERIOD_MILLIS = TimeUnit.DAYS.toMillis(30);
+    private static final int HEART_RATE_HISTORY_POINTS = 720;
 
-    private final MainInteractor mInteractor;
+    private final Lazy<MainInteractor> mInteractor;
+    private final Lazy<DeviceSessionHolder> mSessionHolder;
+    private final StartupTimer mStartupTimer;
+    private final SerialDisposable mDiscoveryDisposable = new SerialDisposable();
+    private final OperationTracker mSessionOperations = new OperationTracker();
 
     private String mMacAddress;
 
     /**
      * Конструктор
+     * Интерактор и владелец сессий создаются лениво вне главного потока (см. {@link #interactor()}), поэтому
+     * окно создается, не дожидаясь клиента Bluetooth и хранилищ
      *
      * @param mainInteractor интерактор бизнес-задач
+     * @param sessionHolder  владелец сессий с устройствами
+     * @param startupTimer   время холодного старта
      */
-    public MainPresenter(@NonNull MainInteractor mainInteractor) {
+    public MainPresenter(@NonNull Lazy<MainInteractor> mainInteractor,
+                         @NonNull Lazy<DeviceSessionHolder> sessionHolder,
+                         @NonNull StartupTimer startupTimer) {
         mInteractor = checkNotNull(mainInteractor, "MainInteractor is required");
+        mSessionHolder = checkNotNull(sessionHolder, "DeviceSessionHolder is required");
+        mStartupTimer = checkNotNull(startupTimer, "StartupTimer is required");
+        getOperations().add(mDiscoveryDisposable);
+        getOperations().add(mSessionOperations);
     }
 
     /**
      * Установить MAC адрес устройства
      * Вызывается до запуска всех других методов, а также до связки с окном
-     * При вызове запускается наблюдение за состоянием устройства
+     * При вызове запускается наблюдение за состоянием устройства. Без адреса ничего не меняется: если адрес
+     * еще не известен, браслет ищется, как только Bluetooth будет готов (см. {@link MainInteractor#discoverDevice()})
      *
-     * @param macAddress MAC адрес
+     * @param macAddress MAC адрес или {@code null}
      */
-    public void setMacAddress(String macAddress) {
+    public void setMacAddress(@Nullable String macAddress) {
+        if (macAddress == null) {
+            return;
+        }
+
         mMacAddress = macAddress;
         traceDeviceState();
     }
@@ -63,23 +88,36 @@ public final class MainPresenter extends BasePresenter<MainView> {
     }
 
     /**
-     * При завершении запустить правильное выключение
+     * Получить интерактор
+     * При первом обращении создается весь граф зависимостей интерактора: клиент Bluetooth, предпочтения,
+     * хранилище замеров, поэтому обращение всегда идет вне главного потока
+     *
+     * @return возвращает источник с интерактором на планировщике ввода-вывода
      */
-    @Override
-    public void onDestroy() {
-        super.onDestroy();
-        gracefullyShutdown();
+    private Single<MainInteractor> interactor() {
+        return Single.fromCallable(mInteractor::get).subscribeOn(Schedulers.io());
+    }
+
+    /**
+     * Получить владельца сессий
+     *
+     * @return возвращает источник с владельцем сессий на планировщике ввода-вывода
+     * @see #interactor()
+     */
+    private Single<DeviceSessionHolder> sessionHolder() {
+        return Single.fromCallable(mSessionHolder::get).subscribeOn(Schedulers.io());
     }
 
     /**
      * Запустить наблюдение за состоянием устройства
      */
     private void traceDeviceState() {
-        getCompositeDisposable().add(
-                mInteractor.traceDeviceState(mMacAddress)
-                        .subscribeOn(Schedulers.io())
-                        .observeOn(AndroidSchedulers.mainThread())
-                        .subscribe(this::onTraceDeviceState, this::onError)
+        getOperations().track(
+                interactor()
+                        .flatMapObservable(interactor -> interactor.traceDeviceState(mMacAddress))
+                        .observeOn(AndroidSchedulers.mainThread()),
+                this::onTraceDeviceState,
+                this::onError
         );
     }
 
@@ -87,91 +125,109 @@ public final class MainPresenter extends BasePresenter<MainView> {
      * Запустить наблюдение за состоянием Bluetooth
      */
     private void traceBluetoothState() {
-        getCompositeDisposable().add(
-                mInteractor.traceBluetoothState()
-                        .subscribeOn(Schedulers.io())
-                        .observeOn(AndroidSchedulers.mainThread())
-                        .subscribe(this::onTraceBluetoothState, this::onError)
+        getOperations().track(
+                interactor()
+                        .flatMapObservable(MainInteractor::traceBluetoothState)
+                        .observeOn(AndroidSchedulers.mainThread()),
+                this::onTraceBluetoothState,
+                this::onError
         );
     }
 
     /**
-     * Запустить подписку на уведомления
+     * Найти ближайший браслет, а затем следить за ним и подключиться к его сессии
      */
-    private void setupNotification() {
-        getCompositeDisposable().add(
-                mInteractor.setupNotification(mMacAddress)
-                        .subscribeOn(Schedulers.io())
+    private void discoverDevice() {
+        getViewState().informDeviceState(R.string.device_state_searching);
+        mDiscoveryDisposable.set(
+                interactor()
+                        .flatMap(MainInteractor::discoverDevice)
                         .observeOn(AndroidSchedulers.mainThread())
-                        .subscribe(this::onSetupNotification, this::onError)
+                        .subscribe(this::onDiscoverDevice, this::onError)
         );
     }
 
     /**
-     * Отправить секретный ключ
+     * Подключиться к сессии с устройством: итогам рукопожатия, выгрузке и пульсу
+     * Сессией владеет фоновая служба, поэтому окно только подписывается на нее, а при пересоздании окна
+     * новый презентер сразу получает последние итоги без повторного подключения и рукопожатия
+     * Повторный вызов, например после включения Bluetooth, заменяет прежние подписки
      */
-    private void sendSecretKey() {
-        getCompositeDisposable().add(
-                mInteractor.sendSecretKey()
-                        .subscribeOn(Schedulers.io())
-                        .observeOn(AndroidSchedulers.mainThread())
-                        .subscribe(() -> {
-                        }, this::onError)
+    private void attachSession() {
+        mSessionOperations.clear();
+        getViewState().startDeviceService(mMacAddress);
+        authenticate();
+        syncActivity();
+        observeHeartRate();
+        observeFalls();
+        observeSos();
+    }
+
+    /**
+     * Следить за итогами аутентификации на каждом подключении
+     * Рукопожатие целиком выполняется вне главного потока, сюда приходит только итог
+     */
+    private void authenticate() {
+        mSessionOperations.track(
+                sessionHolder()
+                        .flatMapObservable(sessionHolder -> sessionHolder.observeAuthentication(mMacAddress))
+                        .observeOn(AndroidSchedulers.mainThread()),
+                this::onAuthenticate,
+                this::onError
         );
     }
 
     /**
-     * Запросить случайный ключ
+     * Следить за выгрузкой истории активности, а после каждой выгрузки — загрузить историю пульса
      */
-    private void requestRandomKey() {
-        getCompositeDisposable().add(
-                mInteractor.requestRandomKey()
-                        .subscribeOn(Schedulers.io())
-                        .observeOn(AndroidSchedulers.mainThread())
-                        .subscribe(() -> {
-                        }, this::onError)
+    private void syncActivity() {
+        mSessionOperations.track(
+                interactor()
+                        .flatMapObservable(interactor -> sessionHolder()
+                                .flatMapObservable(sessionHolder -> sessionHolder.observeSync(mMacAddress))
+                                .doOnNext(stats -> Log.d(TAG, "SYNCED: " + stats))
+                                .concatMapSingle(stats -> interactor.heartRateHistory(mMacAddress, HEART_RATE_HISTORY_PERIOD_MILLIS, HEART_RATE_HISTORY_POINTS))),
+                history -> Log.d(TAG, "HEART RATE HISTORY: " + history),
+                this::onError
         );
     }
 
     /**
-     * Отправить зашифрованный ключ
-     *
-     * @param randomKeyResponse уведомление со случайным ключом
+     * Следить за пульсом
      */
-    private void sendEncryptedKey(byte[] randomKeyResponse) {
-        getCompositeDisposable().add(
-                mInteractor.sendEncryptedKey(randomKeyResponse)
-                        .subscribeOn(Schedulers.io())
-                        .observeOn(AndroidSchedulers.mainThread())
-                        .subscribe(() -> {
-                        }, this::onError)
+    private void observeHeartRate() {
+        mSessionOperations.track(
+                sessionHolder()
+                        .flatMapObservable(sessionHolder -> sessionHolder.observeHeartRate(mMacAddress))
+                        .observeOn(AndroidSchedulers.mainThread()),
+                this::onHeartRate,
+                this::onError
         );
     }
 
     /**
-     * Запустить процедуру после первой аутентификации устройства
+     * Следить за падениями
      */
-    private void afterFirstAuthentication() {
-        getCompositeDisposable().add(
-                mInteractor.afterFirstAuthentication()
-                        .subscribeOn(Schedulers.io())
-                        .observeOn(AndroidSchedulers.mainThread())
-                        .subscribe(() -> {
-                            // TODO: Parse data
-                        }, this::onError)
+    private void observeFalls() {
+        mSessionOperations.track(
+                sessionHolder()
+                        .flatMapObservable(sessionHolder -> sessionHolder.observeFalls(mMacAddress)),
+                fall -> Log.w(TAG, "FALL DETECTED: " + fall),
+                this::onError
         );
     }
 
     /**
-     * Запустить правильное выключение
+     * Следить за сигналами SOS
+     * Сигнал отправляется без участия окна, сюда приходит только итог
      */
-    private void gracefullyShutdown() {
-        getCompositeDisposable().add(
-                mInteractor.gracefullyShutdown()
-                        .subscribeOn(Schedulers.io())
-                        .observeOn(AndroidSchedulers.mainThread())
-                        .subscribe(() -> {
-                        }, throwable -> Log.e(TAG, throwable.getLocalizedMessage(), throwable))
+    private void observeSos() {
+        mSessionOperations.track(
+                sessionHolder()
+                        .flatMapObservable(sessionHolder -> sessionHolder.observeSos(mMacAddress))
+                        .observeOn(AndroidSchedulers.mainThread()),
+                this::onSos,
+                this::onError
         );
     }
 
@@ -181,6 +237,8 @@ public final class MainPresenter extends BasePresenter<MainView> {
      * @param state состояние устройства
      */
     private void onTraceDeviceState(DeviceState state) {
+        mStartupTimer.mark(StartupTimer.FIRST_STATE);
+
         switch (state) {
             case CONNECTING:
                 getViewState().informDeviceState(R.string.device_state_connecting);
@@ -203,16 +261,15 @@ public final class MainPresenter extends BasePresenter<MainView> {
      * @param state состояние Bluetooth
      */
     private void onTraceBluetoothState(BluetoothState state) {
+        mStartupTimer.mark(StartupTimer.FIRST_STATE);
+
         switch (state) {
             case READY:
-                setupNotification();
-
-                if (mInteractor.isFirstAuthentication()) {
-                    sendSecretKey();
+                if (mMacAddress == null) {
+                    discoverDevice();
                 } else {
-                    requestRandomKey();
+                    attachSession();
                 }
-
                 break;
             case LOCATION_PERMISSION_NOT_GRANTED:
                 getViewState().informGrantLocationPermission();
@@ -230,21 +287,57 @@ public final class MainPresenter extends BasePresenter<MainView> {
     }
 
     /**
-     * Реагирование на получение уведомлений
+     * Реагирование на найденный браслет
+     *
+     * @param macAddress MAC адрес браслета
+     */
+    private void onDiscoverDevice(String macAddress) {
+        Log.d(TAG, "DISCOVERED: " + macAddress);
+        setMacAddress(macAddress);
+        attachSession();
+    }
+
+    /**
+     * Реагирование на итог аутентификации
+     *
+     * @param result итог рукопожатия
+     */
+    private void onAuthenticate(AuthResult result) {
+        if (result.isSuccess()) {
+            getViewState().informDeviceState(R.string.device_state_authenticated);
+            Log.d(TAG, "AUTHENTICATED: " + result);
+        } else if (result.isInterrupted()) {
+            Log.w(TAG, "AUTHENTICATION INTERRUPTED: " + result);
+        } else {
+            getViewState().informDeviceState(R.string.device_state_authentication_failed);
+            Log.e(TAG, "AUTHENTICATION FAILED: " + result);
+        }
+    }
+
+    /**
+     * Реагирование на окно пульса
+     *
+     * @param window окно замеров
+     */
+    private void onHeartRate(HeartRateWindow window) {
+        getViewState().informHeartRate(window.getLastBpm());
+    }
+
+    /**
+     * Реагирование на итог отправки сигнала SOS
      *
-     * @param bytes уведомление в байтах
-     * @see AuthConstants
+     * @param result итог отправки
      */
-    private void onSetupNotification(byte[] bytes) {
-        if (bytes[0] == AUTH_RESPONSE && bytes[1] == AUTH_SEND_SECRET_KEY_COMMAND && bytes[2] == AUTH_SUCCESS) {
-            requestRandomKey();
-        } else if (bytes[0] == AUTH_RESPONSE && bytes[1] == AUTH_REQUEST_RANDOM_KEY_COMMAND && bytes[2] == AUTH_SUCCESS) {
-            sendEncryptedKey(bytes);
-        } else if (bytes[0] == AUTH_RESPONSE && bytes[1] == AUTH_SEND_ENCRYPTED_KEY_COMMAND && bytes[2] == AUTH_SUCCESS) {
-            Log.d(TAG, "AUTHENTICATED");
-            afterFirstAuthentication();
+    private void onSos(SosResult result) {
+        if (result.isSuccess()) {
+            getViewState().informSos(R.string.sos_sent);
+            Log.w(TAG, "SOS SENT: " + result);
+        } else if (!result.isConfigured()) {
+            getViewState().informSos(R.string.sos_not_configured);
+            Log.e(TAG, "SOS NOT CONFIGURED: " + result);
         } else {
-            Log.e(TAG, "UNKNOWN: " + Arrays.toString(bytes));
+            getViewState().informSos(R.string.sos_failed);
+            Log.e(TAG, "SOS FAILED: " + result);
         }
     }
 
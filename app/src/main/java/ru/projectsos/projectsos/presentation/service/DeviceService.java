@@ -0,0 +1,191 @@
+package ru.projectsos.projectsos.presentation.service;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.os.IBinder;
+import android.support.annotation.Nullable;
+import android.support.v4.app.NotificationCompat;
+import android.support.v4.content.ContextCompat;
+import android.util.Log;
+
+import javax.inject.Inject;
+
+import dagger.Lazy;
+import io.reactivex.Single;
+import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.disposables.SerialDisposable;
+import io.reactivex.schedulers.Schedulers;
+import ru.projectsos.projectsos.App;
+import ru.projectsos.projectsos.R;
+import ru.projectsos.projectsos.domain.DeviceSessionHolder;
+import ru.projectsos.projectsos.presentation.view.MainActivity;
+
+/**
+ * Фоновая служба, которая держит сессию с браслетом, пока пользователь ее не остановит
+ * <p>
+ * Сама служба ничего не подключает: она подписывается на сессию в {@link DeviceSessionHolder}, как и окна,
+ * поэтому окно, открытое при работающей службе, подключается к уже идущей сессии без повторного рукопожатия.
+ * Служба работает на переднем плане, чтобы система не останавливала ее вместе с окном
+ */
+public final class DeviceService extends Service {
+
+    private static final String TAG = "PROJECT_SOS";
+    private static final String ACTION_START = "ru.projectsos.projectsos.action.START_DEVICE_SESSION";
+    private static final String ACTION_STOP = "ru.projectsos.projectsos.action.STOP_DEVICE_SESSION";
+    private static final String CHANNEL_ID = "device_session";
+    private static final int NOTIFICATION_ID = 1;
+
+    @Inject
+    Lazy<DeviceSessionHolder> mSessionHolder;
+
+    private final SerialDisposable mSessionDisposable = new SerialDisposable();
+
+    private String mMacAddress;
+
+    /**
+     * Запустить службу или переключить ее на другое устройство
+     *
+     * @param context    контекст
+     * @param macAddress MAC адрес устройства
+     */
+    public static void start(Context context, String macAddress) {
+        Intent intent = new Intent(context, DeviceService.class)
+                .setAction(ACTION_START)
+                .putExtra(MainActivity.EXTRA_MAC_ADDRESS, macAddress);
+
+        ContextCompat.startForegroundService(context, intent);
+    }
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        App.getDeviceComponent().inject(this);
+        createNotificationChannel();
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        String macAddress = intent == null ? null : intent.getStringExtra(MainActivity.EXTRA_MAC_ADDRESS);
+
+        // Запущенная на переднем плане служба обязана сразу показать уведомление, даже если сейчас остановится
+        startForeground(NOTIFICATION_ID, createNotification(macAddress));
+
+        if (intent == null || ACTION_STOP.equals(intent.getAction()) || macAddress == null) {
+            stop();
+            return START_NOT_STICKY;
+        }
+
+        if (!macAddress.equals(mMacAddress)) {
+            shutdown(mMacAddress);
+            mMacAddress = macAddress;
+            mSessionDisposable.set(
+                    sessionHolder()
+                            .flatMapCompletable(sessionHolder -> sessionHolder.keepAlive(macAddress))
+                            .observeOn(AndroidSchedulers.mainThread())
+                            .subscribe(this::stop, this::onError)
+            );
+        }
+
+        return START_REDELIVER_INTENT;
+    }
+
+    @Override
+    public void onDestroy() {
+        mSessionDisposable.dispose();
+        super.onDestroy();
+    }
+
+    @Nullable
+    @Override
+    public IBinder onBind(Intent intent) {
+        return null;
+    }
+
+    /**
+     * Получить владельца сессий
+     * При первом обращении создается граф зависимостей интерактора, поэтому обращение идет вне главного потока
+     *
+     * @return возвращает источник с владельцем сессий на планировщике ввода-вывода
+     */
+    private Single<DeviceSessionHolder> sessionHolder() {
+        return Single.fromCallable(mSessionHolder::get).subscribeOn(Schedulers.io());
+    }
+
+    /**
+     * Закончить сессию с устройством и остановить службу
+     */
+    private void stop() {
+        shutdown(mMacAddress);
+        mMacAddress = null;
+        mSessionDisposable.set(null);
+        stopForeground(true);
+        stopSelf();
+    }
+
+    /**
+     * Закончить сессию с устройством, даже если на нее подписаны окна
+     *
+     * @param macAddress MAC адрес устройства или {@code null}
+     */
+    private void shutdown(@Nullable String macAddress) {
+        if (macAddress == null) {
+            return;
+        }
+
+        sessionHolder()
+                .flatMapCompletable(sessionHolder -> sessionHolder.shutdown(macAddress))
+                .subscribe(() -> {
+                }, throwable -> Log.e(TAG, throwable.getLocalizedMessage(), throwable));
+    }
+
+    private void onError(Throwable throwable) {
+        Log.e(TAG, throwable.getLocalizedMessage(), throwable);
+        stop();
+    }
+
+    private void createNotificationChannel() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O) {
+            return;
+        }
+
+        NotificationChannel channel = new NotificationChannel(
+                CHANNEL_ID,
+                getString(R.string.device_service_channel),
+                NotificationManager.IMPORTANCE_LOW
+        );
+
+        ((NotificationManager) getSystemService(NOTIFICATION_SERVICE)).createNotificationChannel(channel);
+    }
+
+    private Notification createNotification(@Nullable String macAddress) {
+        PendingIntent contentIntent = PendingIntent.getActivity(
+                this,
+                0,
+                new Intent(this, MainActivity.class).putExtra(MainActivity.EXTRA_MAC_ADDRESS, macAddress),
+                PendingIntent.FLAG_UPDATE_CURRENT
+        );
+        PendingIntent stopIntent = PendingIntent.getService(
+                this,
+                0,
+                new Intent(this, DeviceService.class).setAction(ACTION_STOP),
+                PendingIntent.FLAG_UPDATE_CURRENT
+        );
+
+        return new NotificationCompat.Builder(this, CHANNEL_ID)
+                .setSmallIcon(R.mipmap.ic_launcher)
+                .setContentTitle(getString(R.string.device_service_title))
+                .setContentText(macAddress)
+                .setCategory(NotificationCompat.CATEGORY_SERVICE)
+                .setOngoing(true)
+                .setContentIntent(contentIntent)
+                .addAction(0, getString(R.string.device_service_stop), stopIntent)
+                .build();
+    }
+
+}
@@ -3,8 +3,6 @@ package ru.projectsos.projectsos.presentation.util;
 import com.arellomobile.mvp.MvpPresenter;
 import com.arellomobile.mvp.MvpView;
 
-import io.reactivex.disposables.CompositeDisposable;
-
 /**
  * Base presenter
  * Takes over RxJava-specific code for avoiding boilerplate code
@@ -13,23 +11,25 @@ import io.reactivex.disposables.CompositeDisposable;
  */
 public abstract class BasePresenter<View extends MvpView> extends MvpPresenter<View> {
 
-    private CompositeDisposable mCompositeDisposable;
+    private final OperationTracker mOperations;
 
     /**
      * Initializes special container for RxJava sources
      */
     protected BasePresenter() {
         super();
-        mCompositeDisposable = new CompositeDisposable();
+        mOperations = new OperationTracker();
     }
 
     /**
      * Get special container for RxJava sources
+     * Operations started through it are removed as soon as they terminate, so it stays bounded
+     * for the whole lifetime of the presenter
      *
-     * @return {@link CompositeDisposable}
+     * @return {@link OperationTracker}
      */
-    protected CompositeDisposable getCompositeDisposable() {
-        return mCompositeDisposable;
+    protected OperationTracker getOperations() {
+        return mOperations;
     }
 
     /**
@@ -38,7 +38,7 @@ public abstract class BasePresenter<View extends MvpView> extends MvpPresenter<V
     @Override
     public void onDestroy() {
         super.onDestroy();
-        mCompositeDisposable.dispose();
+        mOperations.dispose();
     }
 
 }
@@ -0,0 +1,245 @@
+package ru.projectsos.projectsos.presentation.util;
+
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.Completable;
+import io.reactivex.Observable;
+import io.reactivex.Single;
+import io.reactivex.disposables.CompositeDisposable;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.exceptions.CompositeException;
+import io.reactivex.exceptions.Exceptions;
+import io.reactivex.functions.Action;
+import io.reactivex.functions.Consumer;
+import io.reactivex.observers.DisposableCompletableObserver;
+import io.reactivex.observers.DisposableObserver;
+import io.reactivex.observers.DisposableSingleObserver;
+import io.reactivex.plugins.RxJavaPlugins;
+
+import static dagger.internal.Preconditions.checkNotNull;
+
+/**
+ * Контейнер подписок, который удаляет закончившиеся операции
+ * <p>
+ * {@link CompositeDisposable} держит каждую добавленную подписку до своего {@code dispose()}, поэтому запись,
+ * шаг рукопожатия или выключение, запущенные через него, остаются в памяти вместе с цепочкой операторов и
+ * замыканиями, даже когда давно закончились. Операция, запущенная через {@code track(...)}, удаляет себя из
+ * контейнера сама, как только завершится успешно или ошибкой, так что размер контейнера равен числу
+ * выполняющихся операций. Долгие ресурсы, которые сами не заканчиваются, добавляются через {@link #add(Disposable)}
+ * <p>
+ * Потокобезопасен: операции могут заканчиваться на любом планировщике
+ */
+public final class OperationTracker implements Disposable {
+
+    private final CompositeDisposable mOperations = new CompositeDisposable();
+    private final AtomicInteger mPeak = new AtomicInteger();
+
+    /**
+     * Добавить долгий ресурс, который будет освобожден вместе с контейнером
+     * Ресурс не удаляется сам, поэтому так добавляются только подписки, живущие столько же, сколько контейнер
+     *
+     * @param disposable ресурс
+     */
+    public void add(@NonNull Disposable disposable) {
+        checkNotNull(disposable, "Disposable is required");
+
+        if (mOperations.add(disposable)) {
+            updatePeak();
+        }
+    }
+
+    /**
+     * Подписаться на источник и держать подписку, пока он не закончится
+     *
+     * @param source  источник
+     * @param onNext  обработчик элементов
+     * @param onError обработчик ошибки
+     * @param <T>     тип элементов
+     * @return возвращает подписку
+     */
+    public <T> Disposable track(@NonNull Observable<T> source,
+                                @NonNull Consumer<? super T> onNext,
+                                @NonNull Consumer<? super Throwable> onError) {
+        checkNotNull(onNext, "onNext is required");
+        checkNotNull(onError, "onError is required");
+
+        DisposableObserver<T> observer = new DisposableObserver<T>() {
+            @Override
+            public void onNext(T value) {
+                if (isDisposed()) {
+                    return;
+                }
+
+                try {
+                    onNext.accept(value);
+                } catch (Throwable throwable) {
+                    Exceptions.throwIfFatal(throwable);
+                    dispose();
+                    onError(throwable);
+                }
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                mOperations.delete(this);
+                error(onError, throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                mOperations.delete(this);
+            }
+        };
+
+        return subscribe(observer, () -> checkNotNull(source, "Observable is required").subscribe(observer));
+    }
+
+    /**
+     * Подписаться на источник и держать подписку, пока он не закончится
+     *
+     * @param source    источник
+     * @param onSuccess обработчик результата
+     * @param onError   обработчик ошибки
+     * @param <T>       тип результата
+     * @return возвращает подписку
+     */
+    public <T> Disposable track(@NonNull Single<T> source,
+                                @NonNull Consumer<? super T> onSuccess,
+                                @NonNull Consumer<? super Throwable> onError) {
+        checkNotNull(onSuccess, "onSuccess is required");
+        checkNotNull(onError, "onError is required");
+
+        DisposableSingleObserver<T> observer = new DisposableSingleObserver<T>() {
+            @Override
+            public void onSuccess(T value) {
+                mOperations.delete(this);
+
+                try {
+                    onSuccess.accept(value);
+                } catch (Throwable throwable) {
+                    Exceptions.throwIfFatal(throwable);
+                    RxJavaPlugins.onError(throwable);
+                }
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                mOperations.delete(this);
+                error(onError, throwable);
+            }
+        };
+
+        return subscribe(observer, () -> checkNotNull(source, "Single is required").subscribe(observer));
+    }
+
+    /**
+     * Подписаться на источник и держать подписку, пока он не закончится
+     *
+     * @param source     источник
+     * @param onComplete обработчик завершения
+     * @param onError    обработчик ошибки
+     * @return возвращает подписку
+     */
+    public Disposable track(@NonNull Completable source,
+                            @NonNull Action onComplete,
+                            @NonNull Consumer<? super Throwable> onError) {
+        checkNotNull(onComplete, "onComplete is required");
+        checkNotNull(onError, "onError is required");
+
+        DisposableCompletableObserver observer = new DisposableCompletableObserver() {
+            @Override
+            public void onComplete() {
+                mOperations.delete(this);
+
+                try {
+                    onComplete.run();
+                } catch (Throwable throwable) {
+                    Exceptions.throwIfFatal(throwable);
+                    RxJavaPlugins.onError(throwable);
+                }
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                mOperations.delete(this);
+                error(onError, throwable);
+            }
+        };
+
+        return subscribe(observer, () -> checkNotNull(source, "Completable is required").subscribe(observer));
+    }
+
+    /**
+     * Отменить все операции и ресурсы, но оставить контейнер открытым для новых
+     */
+    public void clear() {
+        mOperations.clear();
+    }
+
+    /**
+     * Получить количество выполняющихся операций вместе с долгими ресурсами
+     *
+     * @return количество подписок в контейнере
+     */
+    public int getLive() {
+        return mOperations.size();
+    }
+
+    /**
+     * Получить наибольшее количество подписок в контейнере за все время
+     *
+     * @return пиковое количество подписок
+     */
+    public int getPeak() {
+        return mPeak.get();
+    }
+
+    @Override
+    public void dispose() {
+        mOperations.dispose();
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return mOperations.isDisposed();
+    }
+
+    /**
+     * Добавить подписку в контейнер до подписки на источник
+     * Источник может закончиться прямо во время подписки, и удалить себя он должен уже из контейнера. Если
+     * контейнер освобожден, подписка отменяется сразу и источник не запускается
+     *
+     * @param observer  подписчик
+     * @param subscribe подписка на источник
+     * @return возвращает подписку
+     */
+    private Disposable subscribe(Disposable observer, Runnable subscribe) {
+        if (mOperations.add(observer)) {
+            updatePeak();
+            subscribe.run();
+        }
+
+        return observer;
+    }
+
+    private void updatePeak() {
+        int live = mOperations.size();
+        int peak;
+
+        do {
+            peak = mPeak.get();
+        } while (live > peak && !mPeak.compareAndSet(peak, live));
+    }
+
+    private static void error(Consumer<? super Throwable> onError, Throwable throwable) {
+        try {
+            onError.accept(throwable);
+        } catch (Throwable inner) {
+            Exceptions.throwIfFatal(inner);
+            RxJavaPlugins.onError(new CompositeException(throwable, inner));
+        }
+    }
+
+}
@@ -12,6 +12,7 @@ import android.support.annotation.StringRes;
 import android.support.v4.app.ActivityCompat;
 import android.support.v7.app.AlertDialog;
 import android.widget.TextView;
+import android.widget.Toast;
 
 import com.arellomobile.mvp.MvpAppCompatActivity;
 import com.arellomobile.mvp.presenter.InjectPresenter;
@@ -21,13 +22,14 @@ import javax.inject.Inject;
 
 import ru.projectsos.projectsos.App;
 import ru.projectsos.projectsos.R;
+import ru.projectsos.projectsos.di.module.MainModule;
 import ru.projectsos.projectsos.presentation.presenter.MainPresenter;
+import ru.projectsos.projectsos.presentation.service.DeviceService;
 
 public class MainActivity extends MvpAppCompatActivity implements MainView {
 
     public static final String EXTRA_MAC_ADDRESS = "extra_mac_address";
 
-    private static final String FARRUKHS_MIBAND2_MAC_ADDRESS = "F2:BD:A9:26:44:A6";
     private static final String SMARTBAND_MAC_ADDRESS = "EA:8F:43:E4:8B:AE";
 
     private static final int ENABLE_BLUETOOTH_REQUEST_CODE = 1;
@@ -52,14 +54,15 @@ public class MainActivity extends MvpAppCompatActivity implements MainView {
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
-        App.getMainComponent().inject(this);
+        // Компонент окна живет вместе с окном, а подключения — в компоненте устройств над ним
+        App.getDeviceComponent()
+                .mainComponentBuilder()
+                .mainModule(new MainModule())
+                .build()
+                .inject(this);
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
-        //region FIXME: Make launcher activity that gets MAC address of device dynamically
-        getIntent().putExtra(EXTRA_MAC_ADDRESS, FARRUKHS_MIBAND2_MAC_ADDRESS);
-        //endregion
-
         String macAddress = getIntent().getStringExtra(EXTRA_MAC_ADDRESS);
         mPresenter.setMacAddress(macAddress);
 
@@ -188,6 +191,30 @@ public class MainActivity extends MvpAppCompatActivity implements MainView {
         mTextView.setText(state);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void informHeartRate(int bpm) {
+        mTextView.setText(getString(R.string.heart_rate, bpm));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void startDeviceService(String macAddress) {
+        DeviceService.start(this, macAddress);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void informSos(int result) {
+        Toast.makeText(this, result, Toast.LENGTH_LONG).show();
+    }
+
     //endregion
 
     /**
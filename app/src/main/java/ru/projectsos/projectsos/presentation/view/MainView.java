@@ -3,6 +3,8 @@ package ru.projectsos.projectsos.presentation.view;
 import android.support.annotation.StringRes;
 
 import com.arellomobile.mvp.MvpView;
+import com.arellomobile.mvp.viewstate.strategy.OneExecutionStateStrategy;
+import com.arellomobile.mvp.viewstate.strategy.StateStrategyType;
 
 public interface MainView extends MvpView {
 
@@ -33,4 +35,29 @@ public interface MainView extends MvpView {
      */
     void informDeviceState(@StringRes int state);
 
+    /**
+     * Inform user of heart rate
+     *
+     * @param bpm heart rate in beats per minute
+     */
+    void informHeartRate(int bpm);
+
+    /**
+     * Start the service that keeps device session alive while the app is in background
+     * Executed once, so recreated view doesn't restart the service
+     *
+     * @param macAddress MAC address of device
+     */
+    @StateStrategyType(OneExecutionStateStrategy.class)
+    void startDeviceService(String macAddress);
+
+    /**
+     * Inform user whether SOS signal was sent
+     * Executed once, so recreated view doesn't repeat the message
+     *
+     * @param result SOS result string resource
+     */
+    @StateStrategyType(OneExecutionStateStrategy.class)
+    void informSos(@StringRes int result);
+
 }
@@ -0,0 +1,92 @@
+package ru.projectsos.projectsos.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import ru.projectsos.projectsos.data.crypto.AuthCryptoEngine;
+import ru.projectsos.projectsos.data.crypto.AuthKey;
+import ru.projectsos.projectsos.data.crypto.AuthKeyStore;
+
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_BYTE;
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_COMMAND_HEADER_LENGTH;
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_KEY_LENGTH;
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_RANDOM_KEY_OFFSET;
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_SEND_ENCRYPTED_KEY_COMMAND;
+import static ru.projectsos.projectsos.data.AuthConstants.SECRET_KEY;
+
+/**
+ * Шифрование случайного ключа через {@link AuthCryptoEngine}
+ * Сравнивается с {@link EncryptionBenchmark} и {@link FrameBuildingBenchmark#encryptedKeyFrame()}
+ */
+@State(Scope.Thread)
+public class AuthCryptoEngineBenchmark {
+
+    private static final String MAC_ADDRESS = "C0:00:00:00:00:01";
+
+    private AuthCryptoEngine mEngine;
+    private byte[] mRandomKeyResponse;
+    private byte[] mOutput;
+    private ByteBuffer mInputBuffer;
+    private ByteBuffer mOutputBuffer;
+
+    @Setup
+    public void setUp() {
+        AuthKey key = new AuthKey(SECRET_KEY, AuthKey.LEGACY_VERSION);
+
+        mEngine = new AuthCryptoEngine(new AuthKeyStore() {
+            @Override
+            public AuthKey getKey(String macAddress) {
+                return key;
+            }
+
+            @Override
+            public void saveKey(String macAddress, AuthKey savedKey) {
+            }
+        });
+
+        mRandomKeyResponse = new byte[AUTH_RANDOM_KEY_OFFSET + AUTH_KEY_LENGTH];
+        new Random(42).nextBytes(mRandomKeyResponse);
+        mOutput = new byte[AUTH_COMMAND_HEADER_LENGTH + AUTH_KEY_LENGTH];
+        mInputBuffer = ByteBuffer.allocateDirect(AUTH_KEY_LENGTH);
+        mInputBuffer.put(mRandomKeyResponse, AUTH_RANDOM_KEY_OFFSET, AUTH_KEY_LENGTH);
+        mOutputBuffer = ByteBuffer.allocateDirect(AUTH_KEY_LENGTH);
+    }
+
+    /**
+     * Шифрование в заранее выделенный массив
+     */
+    @Benchmark
+    public byte[] encryptIntoArray() {
+        mEngine.encrypt(MAC_ADDRESS, mRandomKeyResponse, AUTH_RANDOM_KEY_OFFSET, mOutput, AUTH_COMMAND_HEADER_LENGTH);
+        return mOutput;
+    }
+
+    /**
+     * Шифрование между прямыми {@link ByteBuffer}
+     */
+    @Benchmark
+    public ByteBuffer encryptIntoByteBuffer() {
+        mInputBuffer.clear();
+        mOutputBuffer.clear();
+        mEngine.encrypt(MAC_ADDRESS, mInputBuffer, mOutputBuffer);
+        return mOutputBuffer;
+    }
+
+    /**
+     * Сборка кадра шага #4 так, как это делает {@code AuthProtocol.sendEncryptedKey}
+     */
+    @Benchmark
+    public byte[] encryptedKeyFrame() {
+        byte[] frame = new byte[AUTH_COMMAND_HEADER_LENGTH + AUTH_KEY_LENGTH];
+        frame[0] = AUTH_SEND_ENCRYPTED_KEY_COMMAND;
+        frame[1] = AUTH_BYTE;
+        mEngine.encrypt(MAC_ADDRESS, mRandomKeyResponse, AUTH_RANDOM_KEY_OFFSET, frame, AUTH_COMMAND_HEADER_LENGTH);
+        return frame;
+    }
+
+}
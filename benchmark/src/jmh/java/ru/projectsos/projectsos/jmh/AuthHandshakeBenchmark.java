@@ -0,0 +1,119 @@
+package ru.projectsos.projectsos.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import io.reactivex.Completable;
+import io.reactivex.Observable;
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subjects.PublishSubject;
+import ru.projectsos.projectsos.data.crypto.AuthCryptoEngine;
+import ru.projectsos.projectsos.data.crypto.InMemoryAuthKeyStore;
+import ru.projectsos.projectsos.data.protocol.AuthProtocol;
+import ru.projectsos.projectsos.data.protocol.NotificationDecoders;
+import ru.projectsos.projectsos.data.session.InMemoryAuthSessionStore;
+import ru.projectsos.projectsos.data.transport.BandTransport;
+import ru.projectsos.projectsos.domain.AuthHandshake;
+import ru.projectsos.projectsos.models.domain.AuthResult;
+
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_KEY_LENGTH;
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_RANDOM_KEY_OFFSET;
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_REQUEST_RANDOM_KEY_COMMAND;
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_RESPONSE;
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_SUCCESS;
+
+/**
+ * Рукопожатие {@link AuthHandshake} поверх {@link AuthProtocol} без Android
+ * Браслет заменен транспортом, который сразу подтверждает каждую команду, поэтому измеряются только автомат,
+ * сборка кадров, шифрование и переходы между потоками
+ */
+@State(Scope.Thread)
+public class AuthHandshakeBenchmark {
+
+    private static final String MAC_ADDRESS = "C0:00:00:00:00:01";
+
+    private ExecutorService mExecutor;
+    private AuthProtocol mProtocol;
+    private AuthHandshake mHandshake;
+
+    @Setup
+    public void setUp() {
+        mExecutor = Executors.newSingleThreadExecutor();
+        Scheduler scheduler = Schedulers.from(mExecutor);
+
+        mProtocol = new AuthProtocol(
+                new LoopbackTransport(),
+                new AuthCryptoEngine(new InMemoryAuthKeyStore()),
+                NotificationDecoders.createDefault(),
+                new InMemoryAuthSessionStore()
+        );
+        mHandshake = new AuthHandshake(mProtocol, scheduler);
+    }
+
+    @TearDown
+    public void tearDown() {
+        mExecutor.shutdownNow();
+    }
+
+    /**
+     * Известное устройство: запрос случайного ключа и ответ на вызов
+     */
+    @Benchmark
+    public AuthResult knownDevice() {
+        mProtocol.recordAuthentication(MAC_ADDRESS, true);
+        return mHandshake.authenticate(MAC_ADDRESS).blockingGet();
+    }
+
+    /**
+     * Первое сопряжение: новый ключ устройства и все три шага
+     */
+    @Benchmark
+    public AuthResult pairing() {
+        mProtocol.resetAuthentication(MAC_ADDRESS).blockingAwait();
+        return mHandshake.authenticate(MAC_ADDRESS).blockingGet();
+    }
+
+    /**
+     * Транспорт, который отвечает на команду уведомлением сразу после записи
+     * Рукопожатие подписывается и пишет на одном потоке, поэтому ответ не обгоняет подписку на уведомления
+     */
+    private static final class LoopbackTransport implements BandTransport {
+
+        private final PublishSubject<byte[]> mNotifications = PublishSubject.create();
+        private final Random mRandom = new Random(42);
+
+        @Override
+        public Observable<Observable<byte[]>> setupNotification(String macAddress, UUID characteristic) {
+            return Observable.just(mNotifications.hide());
+        }
+
+        @Override
+        public Completable write(String macAddress, UUID characteristic, byte[] value) {
+            return Completable.fromAction(() -> mNotifications.onNext(respond(value[0])));
+        }
+
+        private byte[] respond(byte command) {
+            if (command != AUTH_REQUEST_RANDOM_KEY_COMMAND) {
+                return new byte[]{AUTH_RESPONSE, command, AUTH_SUCCESS};
+            }
+
+            byte[] response = new byte[AUTH_RANDOM_KEY_OFFSET + AUTH_KEY_LENGTH];
+            mRandom.nextBytes(response);
+            response[0] = AUTH_RESPONSE;
+            response[1] = AUTH_REQUEST_RANDOM_KEY_COMMAND;
+            response[2] = AUTH_SUCCESS;
+            return response;
+        }
+
+    }
+
+}
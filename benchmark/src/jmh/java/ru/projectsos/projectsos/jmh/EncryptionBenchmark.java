@@ -0,0 +1,31 @@
+package ru.projectsos.projectsos.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+import ru.projectsos.projectsos.data.AuthConstants;
+
+/**
+ * Шифрование случайного ключа (шаг #4 аутентификации)
+ */
+@State(Scope.Thread)
+public class EncryptionBenchmark {
+
+    private byte[] mRandomKey;
+
+    @Setup
+    public void setUp() {
+        mRandomKey = new byte[16];
+        new Random(42).nextBytes(mRandomKey);
+    }
+
+    @Benchmark
+    public byte[] encryptRandomKeyWithSecretKey() {
+        return AuthConstants.encryptRandomKeyWithSecretKey(mRandomKey);
+    }
+
+}
@@ -0,0 +1,92 @@
+package ru.projectsos.projectsos.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+import ru.projectsos.projectsos.data.fall.FallDetector;
+import ru.projectsos.projectsos.data.protocol.AccelerometerFrame;
+
+import static ru.projectsos.projectsos.data.SensorConstants.ACCELEROMETER_COUNTS_PER_G;
+import static ru.projectsos.projectsos.data.SensorConstants.ACCELEROMETER_SAMPLE_RATE_HZ;
+import static ru.projectsos.projectsos.data.SensorConstants.SENSOR_FRAME_ACCELEROMETER;
+import static ru.projectsos.projectsos.data.SensorConstants.SENSOR_FRAME_HEADER_LENGTH;
+import static ru.projectsos.projectsos.data.SensorConstants.SENSOR_SAMPLE_LENGTH;
+
+/**
+ * Путь сырых замеров акселерометра от уведомления до решения о падении
+ * Одна операция — одно уведомление на {@link AccelerometerFrame#MAX_SAMPLES} замера. Замеры — покой руки
+ * с шумом, в который каждые {@link #FALL_PERIOD} уведомлений вставлено падение
+ */
+@State(Scope.Thread)
+public class FallDetectorBenchmark {
+
+    private static final int FRAMES = 1024;
+    private static final int FALL_PERIOD = 256;
+
+    private byte[][] mFrames;
+    private short[] mSamples;
+    private FallDetector mDetector;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        mFrames = new byte[FRAMES][];
+
+        for (int i = 0; i < FRAMES; i++) {
+            int phase = i % FALL_PERIOD;
+            float x = phase == 10 ? 3 : phase > 10 && phase < 80 ? 1 : 0;
+            float z = phase == 10 ? -2 : phase > 10 && phase < 80 ? 0 : 1;
+            mFrames[i] = frame(random, i, x, 0, z);
+        }
+
+        mSamples = new short[AccelerometerFrame.MAX_SAMPLES * 3];
+        mDetector = new FallDetector(ACCELEROMETER_SAMPLE_RATE_HZ, ACCELEROMETER_COUNTS_PER_G);
+    }
+
+    /**
+     * Распаковка уведомлений в переиспользуемый массив и распознавание
+     */
+    @Benchmark
+    @OperationsPerInvocation(FRAMES)
+    public int detect() {
+        int falls = 0;
+
+        for (byte[] frame : mFrames) {
+            int count = AccelerometerFrame.decode(frame, mSamples);
+
+            for (int i = 0; i < count * 3; i += 3) {
+                if (mDetector.add(mSamples[i], mSamples[i + 1], mSamples[i + 2])) {
+                    falls++;
+                }
+            }
+        }
+
+        return falls;
+    }
+
+    private static byte[] frame(Random random, int counter, float x, float y, float z) {
+        byte[] frame = new byte[SENSOR_FRAME_HEADER_LENGTH + AccelerometerFrame.MAX_SAMPLES * SENSOR_SAMPLE_LENGTH];
+        frame[0] = SENSOR_FRAME_ACCELEROMETER;
+        frame[1] = (byte) counter;
+
+        for (int offset = SENSOR_FRAME_HEADER_LENGTH; offset < frame.length; offset += SENSOR_SAMPLE_LENGTH) {
+            putShort(frame, offset, x, random);
+            putShort(frame, offset + 2, y, random);
+            putShort(frame, offset + 4, z, random);
+        }
+
+        return frame;
+    }
+
+    private static void putShort(byte[] frame, int offset, float g, Random random) {
+        int value = Math.round(g * ACCELEROMETER_COUNTS_PER_G) + random.nextInt(17) - 8;
+        frame[offset] = (byte) value;
+        frame[offset + 1] = (byte) (value >> 8);
+    }
+
+}
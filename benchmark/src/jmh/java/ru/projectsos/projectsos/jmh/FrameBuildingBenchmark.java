@@ -0,0 +1,64 @@
+package ru.projectsos.projectsos.jmh;
+
+import org.apache.commons.lang3.ArrayUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_BYTE;
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_REQUEST_RANDOM_KEY_COMMAND;
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_RESPONSE;
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_SEND_ENCRYPTED_KEY_COMMAND;
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_SEND_SECRET_KEY_COMMAND;
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_SUCCESS;
+import static ru.projectsos.projectsos.data.AuthConstants.SECRET_KEY;
+import static ru.projectsos.projectsos.data.AuthConstants.encryptRandomKeyWithSecretKey;
+
+/**
+ * Сборка кадров и извлечение ключа так, как это делает {@code AuthProtocol}
+ */
+@State(Scope.Thread)
+public class FrameBuildingBenchmark {
+
+    private byte[] mRandomKeyResponse;
+
+    @Setup
+    public void setUp() {
+        mRandomKeyResponse = new byte[19];
+        new Random(42).nextBytes(mRandomKeyResponse);
+        mRandomKeyResponse[0] = AUTH_RESPONSE;
+        mRandomKeyResponse[1] = AUTH_REQUEST_RANDOM_KEY_COMMAND;
+        mRandomKeyResponse[2] = AUTH_SUCCESS;
+    }
+
+    /**
+     * {@code AuthProtocol.sendSecretKey}
+     */
+    @Benchmark
+    public byte[] secretKeyFrame() {
+        return ArrayUtils.addAll(new byte[]{AUTH_SEND_SECRET_KEY_COMMAND, AUTH_BYTE}, SECRET_KEY);
+    }
+
+    /**
+     * Извлечение случайного ключа из уведомления
+     */
+    @Benchmark
+    public byte[] randomKeyExtraction() {
+        return Arrays.copyOfRange(mRandomKeyResponse, 3, 19);
+    }
+
+    /**
+     * {@code AuthProtocol.sendEncryptedKey}: извлечение, шифрование и сборка кадра
+     */
+    @Benchmark
+    public byte[] encryptedKeyFrame() {
+        byte[] randomKey = Arrays.copyOfRange(mRandomKeyResponse, 3, 19);
+        byte[] encryptedRandomKey = encryptRandomKeyWithSecretKey(randomKey);
+        return ArrayUtils.addAll(new byte[]{AUTH_SEND_ENCRYPTED_KEY_COMMAND, AUTH_BYTE}, encryptedRandomKey);
+    }
+
+}
@@ -0,0 +1,79 @@
+package ru.projectsos.projectsos.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import ru.projectsos.projectsos.data.heartrate.HeartRateRingBuffer;
+import ru.projectsos.projectsos.data.protocol.HeartRateMeasurement;
+import ru.projectsos.projectsos.models.domain.HeartRateWindow;
+
+/**
+ * Путь одного замера пульса от уведомления до окна
+ * Одна операция — один замер, окно публикуется каждые {@link #WINDOW} замеров
+ */
+@State(Scope.Thread)
+public class HeartRatePipelineBenchmark {
+
+    private static final int WINDOW = 64;
+
+    private byte[][] mFrames;
+    private HeartRateRingBuffer mBuffer;
+
+    @Setup
+    public void setUp() {
+        mFrames = new byte[WINDOW][];
+
+        for (int i = 0; i < WINDOW; i++) {
+            mFrames[i] = new byte[]{0x00, (byte) (60 + i)};
+        }
+
+        mBuffer = new HeartRateRingBuffer(WINDOW);
+    }
+
+    /**
+     * Декодирование в кольцевой буфер и выгрузка окна
+     */
+    @Benchmark
+    @OperationsPerInvocation(WINDOW)
+    public HeartRateWindow ringBuffer() {
+        for (byte[] frame : mFrames) {
+            mBuffer.add(System.currentTimeMillis(), HeartRateMeasurement.decodeBpm(frame));
+        }
+
+        return mBuffer.drain();
+    }
+
+    /**
+     * Объект на каждый замер, как при {@code Observable<Sample>} с {@code buffer(count)}
+     */
+    @Benchmark
+    @OperationsPerInvocation(WINDOW)
+    public List<Sample> boxedSamples() {
+        List<Sample> window = new ArrayList<>();
+
+        for (byte[] frame : mFrames) {
+            window.add(new Sample(System.currentTimeMillis(), HeartRateMeasurement.decodeBpm(frame)));
+        }
+
+        return window;
+    }
+
+    public static final class Sample {
+
+        final Long mTimestamp;
+        final Integer mBpm;
+
+        Sample(Long timestamp, Integer bpm) {
+            mTimestamp = timestamp;
+            mBpm = bpm;
+        }
+
+    }
+
+}
@@ -0,0 +1,71 @@
+package ru.projectsos.projectsos.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_FAIL;
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_REQUEST_RANDOM_KEY_COMMAND;
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_RESPONSE;
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_SEND_ENCRYPTED_KEY_COMMAND;
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_SEND_SECRET_KEY_COMMAND;
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_SUCCESS;
+
+/**
+ * Классификация уведомлений {@code AUTH_CHAR}
+ * Повторяет цепочку проверок из {@code MainPresenter.onSetupNotification}, включая строку для неизвестных кадров
+ */
+@State(Scope.Thread)
+public class NotificationClassificationBenchmark {
+
+    private static final int SECRET_KEY_ACCEPTED = 1;
+    private static final int RANDOM_KEY_RECEIVED = 2;
+    private static final int AUTHENTICATED = 3;
+    private static final int UNKNOWN = 0;
+
+    @Param({"SECRET_KEY_ACCEPTED", "RANDOM_KEY_RECEIVED", "AUTHENTICATED", "UNKNOWN"})
+    public String frame;
+
+    private byte[] mBytes;
+
+    @Setup
+    public void setUp() {
+        switch (frame) {
+            case "SECRET_KEY_ACCEPTED":
+                mBytes = new byte[]{AUTH_RESPONSE, AUTH_SEND_SECRET_KEY_COMMAND, AUTH_SUCCESS};
+                break;
+            case "RANDOM_KEY_RECEIVED":
+                mBytes = new byte[19];
+                mBytes[0] = AUTH_RESPONSE;
+                mBytes[1] = AUTH_REQUEST_RANDOM_KEY_COMMAND;
+                mBytes[2] = AUTH_SUCCESS;
+                break;
+            case "AUTHENTICATED":
+                mBytes = new byte[]{AUTH_RESPONSE, AUTH_SEND_ENCRYPTED_KEY_COMMAND, AUTH_SUCCESS};
+                break;
+            default:
+                mBytes = new byte[]{AUTH_RESPONSE, AUTH_SEND_ENCRYPTED_KEY_COMMAND, AUTH_FAIL};
+                break;
+        }
+    }
+
+    @Benchmark
+    public Object presenterChain() {
+        byte[] bytes = mBytes;
+
+        if (bytes[0] == AUTH_RESPONSE && bytes[1] == AUTH_SEND_SECRET_KEY_COMMAND && bytes[2] == AUTH_SUCCESS) {
+            return SECRET_KEY_ACCEPTED;
+        } else if (bytes[0] == AUTH_RESPONSE && bytes[1] == AUTH_REQUEST_RANDOM_KEY_COMMAND && bytes[2] == AUTH_SUCCESS) {
+            return RANDOM_KEY_RECEIVED;
+        } else if (bytes[0] == AUTH_RESPONSE && bytes[1] == AUTH_SEND_ENCRYPTED_KEY_COMMAND && bytes[2] == AUTH_SUCCESS) {
+            return AUTHENTICATED;
+        } else {
+            return "UNKNOWN: " + Arrays.toString(bytes);
+        }
+    }
+
+}
@@ -0,0 +1,78 @@
+package ru.projectsos.projectsos.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+
+import ru.projectsos.projectsos.data.protocol.AuthEvent;
+import ru.projectsos.projectsos.data.protocol.FrameDecoder;
+import ru.projectsos.projectsos.data.protocol.NotificationDecoders;
+
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_CHAR;
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_FAIL;
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_REQUEST_RANDOM_KEY_COMMAND;
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_RESPONSE;
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_SEND_ENCRYPTED_KEY_COMMAND;
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_SEND_SECRET_KEY_COMMAND;
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_SUCCESS;
+
+/**
+ * Табличный декодер уведомлений {@code AUTH_CHAR}
+ * Те же кадры, что и в {@link NotificationClassificationBenchmark}
+ */
+@State(Scope.Thread)
+public class NotificationDecoderBenchmark {
+
+    @Param({"SECRET_KEY_ACCEPTED", "RANDOM_KEY_RECEIVED", "AUTHENTICATED", "UNKNOWN"})
+    public String frame;
+
+    private FrameDecoder<AuthEvent> mDecoder;
+    private byte[] mBytes;
+    private ByteBuffer mBuffer;
+
+    @Setup
+    public void setUp() {
+        mDecoder = NotificationDecoders.createDefault().get(AUTH_CHAR);
+
+        switch (frame) {
+            case "SECRET_KEY_ACCEPTED":
+                mBytes = new byte[]{AUTH_RESPONSE, AUTH_SEND_SECRET_KEY_COMMAND, AUTH_SUCCESS};
+                break;
+            case "RANDOM_KEY_RECEIVED":
+                mBytes = new byte[19];
+                mBytes[0] = AUTH_RESPONSE;
+                mBytes[1] = AUTH_REQUEST_RANDOM_KEY_COMMAND;
+                mBytes[2] = AUTH_SUCCESS;
+                break;
+            case "AUTHENTICATED":
+                mBytes = new byte[]{AUTH_RESPONSE, AUTH_SEND_ENCRYPTED_KEY_COMMAND, AUTH_SUCCESS};
+                break;
+            default:
+                mBytes = new byte[]{AUTH_RESPONSE, AUTH_SEND_ENCRYPTED_KEY_COMMAND, AUTH_FAIL + 1};
+                break;
+        }
+
+        mBuffer = ByteBuffer.wrap(mBytes);
+    }
+
+    /**
+     * Разбор уже обернутого кадра
+     */
+    @Benchmark
+    public AuthEvent decodeBuffer() {
+        return mDecoder.decode(mBuffer);
+    }
+
+    /**
+     * Разбор так, как это делает {@code AuthProtocol.observeAuthEvents}: обертка массива и разбор
+     */
+    @Benchmark
+    public AuthEvent decodeArray() {
+        return mDecoder.decode(ByteBuffer.wrap(mBytes));
+    }
+
+}
@@ -0,0 +1,104 @@
+package ru.projectsos.projectsos.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import ru.projectsos.projectsos.data.store.Metric;
+import ru.projectsos.projectsos.data.store.TimeSeries;
+import ru.projectsos.projectsos.data.store.TimeSeriesStore;
+
+/**
+ * Хранилище временных рядов: дописывание поминутного пульса, чтение 30 дней и график по свертке
+ */
+@State(Scope.Thread)
+public class TimeSeriesStoreBenchmark {
+
+    private static final String MAC_ADDRESS = "C0:00:00:00:00:01";
+    private static final long START_MILLIS = 1_500_000_000_000L;
+    private static final long MINUTE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final int DAYS = 30;
+    private static final long HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private File mRoot;
+    private TimeSeries mScanSeries;
+    private TimeSeries mAppendSeries;
+    private long mNextTimestamp;
+    private int mBpm = 70;
+    private Random mRandom;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        mRoot = Files.createTempDirectory("timeseries").toFile();
+        mRandom = new Random(42);
+
+        TimeSeriesStore store = new TimeSeriesStore(mRoot, TimeSeriesStore.DEFAULT_SEGMENT_CAPACITY);
+        mScanSeries = store.series(MAC_ADDRESS, Metric.HEART_RATE);
+
+        for (int minute = 0; minute < DAYS * 24 * 60; minute++) {
+            mScanSeries.append(START_MILLIS + minute * MINUTE_MILLIS + mRandom.nextInt(1000), nextBpm());
+        }
+
+        mAppendSeries = store.series(MAC_ADDRESS, Metric.STEPS);
+        mNextTimestamp = START_MILLIS;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        delete(mRoot);
+    }
+
+    /**
+     * Один поминутный замер
+     */
+    @Benchmark
+    public boolean append() throws IOException {
+        mNextTimestamp += MINUTE_MILLIS;
+        return mAppendSeries.append(mNextTimestamp + mRandom.nextInt(1000), nextBpm());
+    }
+
+    /**
+     * Все замеры за 30 дней без создания объектов
+     */
+    @Benchmark
+    public void scan30Days(Blackhole blackhole) {
+        mScanSeries.scan(Long.MIN_VALUE, Long.MAX_VALUE, (timestamp, value) -> blackhole.consume(value));
+    }
+
+    /**
+     * График за 30 дней по часовым интервалам свертки
+     */
+    @Benchmark
+    public long chart30DaysHourly(Blackhole blackhole) {
+        return mScanSeries.query(Long.MIN_VALUE, Long.MAX_VALUE, HOUR_MILLIS,
+                (start, count, min, max, sum) -> blackhole.consume(sum));
+    }
+
+    private int nextBpm() {
+        mBpm = Math.max(50, Math.min(150, mBpm + mRandom.nextInt(5) - 2));
+        return mBpm;
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+
+        file.delete();
+    }
+
+}
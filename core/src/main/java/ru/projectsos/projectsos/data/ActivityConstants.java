@@ -0,0 +1,95 @@
+package ru.projectsos.projectsos.data;
+
+import java.util.UUID;
+
+/**
+ * <h1>Константы выгрузки истории активности</h1>
+ *
+ * <h2>Выгрузка состоит из трех шагов:</h2>
+ * <ol>
+ * <li>Подписка на уведомления {@link #ACTIVITY_FETCH_CHAR} и {@link #ACTIVITY_DATA_CHAR};</li>
+ * <li>Отправка {@link #ACTIVITY_START_COMMAND}, {@link #ACTIVITY_TYPE} и времени, с которого нужна история;</li>
+ * <li>Отправка {@link #ACTIVITY_FETCH_COMMAND} после ответа с метаданными.</li>
+ * </ol>
+ *
+ * <h3>Метаданные</h3>
+ * В ответ на шаг #2 по {@link #ACTIVITY_FETCH_CHAR} придет уведомление из {@link #ACTIVITY_METADATA_LENGTH} байтов:
+ * {@link #ACTIVITY_RESPONSE}, {@link #ACTIVITY_START_COMMAND}, {@link #ACTIVITY_SUCCESS}, 4 байта количества записей
+ * и время первой записи в том же формате, что и в запросе
+ *
+ * <h3>Данные</h3>
+ * Записи приходят по {@link #ACTIVITY_DATA_CHAR}: в каждом уведомлении счетчик пакетов и записи по
+ * {@link #ACTIVITY_RECORD_LENGTH} байта (вид активности, интенсивность, шаги, пульс), по одной на минуту подряд.
+ * Окончание выгрузки — уведомление {@link #ACTIVITY_RESPONSE}, {@link #ACTIVITY_FETCH_COMMAND},
+ * {@link #ACTIVITY_SUCCESS} по {@link #ACTIVITY_FETCH_CHAR}
+ *
+ * <h3>Время</h3>
+ * Год ({@code uint16}, младший байт первым), месяц от 1, день, час, минута, секунда и смещение часового пояса
+ * в четвертях часа. В запросе секунды нет
+ */
+public final class ActivityConstants {
+
+    /**
+     * Уникальный универсальный идентификатор характеристики управления выгрузкой
+     */
+    public static final UUID ACTIVITY_FETCH_CHAR = UUID.fromString("00000004-0000-3512-2118-0009af100700");
+
+    /**
+     * Уникальный универсальный идентификатор характеристики данных выгрузки
+     */
+    public static final UUID ACTIVITY_DATA_CHAR = UUID.fromString("00000005-0000-3512-2118-0009af100700");
+
+    /**
+     * Команда начала выгрузки с заданного времени
+     */
+    public static final byte ACTIVITY_START_COMMAND = 0x01;
+
+    /**
+     * Тип выгружаемых данных: поминутная активность
+     */
+    public static final byte ACTIVITY_TYPE = 0x01;
+
+    /**
+     * Команда передачи данных
+     */
+    public static final byte ACTIVITY_FETCH_COMMAND = 0x02;
+
+    /**
+     * Бит уведомления
+     */
+    public static final byte ACTIVITY_RESPONSE = 0x10;
+
+    /**
+     * Бит успешности команды
+     */
+    public static final byte ACTIVITY_SUCCESS = 0x01;
+
+    /**
+     * Длина уведомления с метаданными
+     */
+    public static final int ACTIVITY_METADATA_LENGTH = 15;
+
+    /**
+     * Смещение количества записей в метаданных
+     */
+    public static final int ACTIVITY_COUNT_OFFSET = 3;
+
+    /**
+     * Смещение времени первой записи в метаданных
+     */
+    public static final int ACTIVITY_TIME_OFFSET = 7;
+
+    /**
+     * Длина одной записи
+     */
+    public static final int ACTIVITY_RECORD_LENGTH = 4;
+
+    /**
+     * Интервал между записями
+     */
+    public static final long ACTIVITY_RECORD_INTERVAL_MILLIS = 60_000;
+
+    private ActivityConstants() {
+    }
+
+}
@@ -1,8 +1,5 @@
 package ru.projectsos.projectsos.data;
 
-import android.annotation.SuppressLint;
-import android.bluetooth.BluetoothGattCharacteristic;
-
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.util.UUID;
@@ -27,11 +24,9 @@ import javax.crypto.spec.SecretKeySpec;
  * <h3>Рассмотрим каждый шаг по отдельности</h3>
  *
  * <h4>Подписка на уведомления</h4>
- * Подписываемся на уведомления характеристики {@link #AUTH_CHAR} устройства. Это можно сделать с помощью:
- * <ul>
- * <li>Android SDK ({@link android.bluetooth.BluetoothGatt#setCharacteristicNotification(BluetoothGattCharacteristic, boolean)});</li>
- * <li>Библиотеки RxAndroidBle ({@link com.polidea.rxandroidble2.RxBleConnection#setupNotification(UUID)}).</li>
- * </ul>
+ * Подписываемся на уведомления характеристики {@link #AUTH_CHAR} устройства через
+ * {@link ru.projectsos.projectsos.data.transport.BandTransport#setupNotification(String, UUID)}. На Android транспорт
+ * включает их через RxAndroidBle ({@code RxBleConnection#setupNotification(UUID)})
  *
  * <h4>Отправка секретного ключа</h4>
  * Отправляем на устройство по характеристике {@link #AUTH_CHAR} массив из 18 байтов:
@@ -104,15 +99,33 @@ public final class AuthConstants {
      */
     public static final byte AUTH_BYTE = 0x00;
 
+    /**
+     * Длина секретного, случайного и зашифрованного ключей
+     */
+    public static final int AUTH_KEY_LENGTH = 16;
+
+    /**
+     * Длина заголовка команды: команда и {@link #AUTH_BYTE}
+     */
+    public static final int AUTH_COMMAND_HEADER_LENGTH = 2;
+
+    /**
+     * Смещение случайного ключа в уведомлении из шага #3
+     */
+    public static final int AUTH_RANDOM_KEY_OFFSET = 3;
+
     /**
      * Зашифровать случайный ключ секретным ключом
      *
      * @param randomKey уведомление из шага #3
      * @return зашифрованный ключ для шага #4
+     * @deprecated создает шифр на каждый вызов и возвращает пустой массив при ошибке,
+     * используйте {@link ru.projectsos.projectsos.data.crypto.AuthCryptoEngine}
      */
+    @Deprecated
     public static byte[] encryptRandomKeyWithSecretKey(byte[] randomKey) {
         try {
-            @SuppressLint("GetInstance")
+            // ECB без дополнения задан протоколом браслета
             Cipher cipher = Cipher.getInstance("AES/ECB/NoPadding");
             SecretKeySpec secretKeySpec = new SecretKeySpec(SECRET_KEY, "AES");
 
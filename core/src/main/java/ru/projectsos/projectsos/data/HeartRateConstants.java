@@ -0,0 +1,74 @@
+package ru.projectsos.projectsos.data;
+
+import java.util.UUID;
+
+/**
+ * <h1>Константы пульсометра устройства</h1>
+ *
+ * <h2>Непрерывное измерение пульса состоит из трех шагов:</h2>
+ * <ol>
+ * <li>Подписка на уведомления характеристики {@link #HEART_RATE_MEASUREMENT_CHAR};</li>
+ * <li>Остановка ручного и непрерывного измерений и запуск непрерывного через {@link #HEART_RATE_CONTROL_POINT_CHAR};</li>
+ * <li>Отправка {@link #HEART_RATE_PING_COMMAND} каждые {@link #HEART_RATE_PING_INTERVAL_SECONDS} секунд.</li>
+ * </ol>
+ *
+ * Без пинга браслет прекращает измерение примерно через 15 секунд. Уведомления приходят в стандартном формате
+ * Heart Rate Measurement: байт флагов и пульс в {@code uint8} или, если установлен {@link #HEART_RATE_FORMAT_UINT16},
+ * в {@code uint16}. Пульс {@code 0} означает, что браслет не на руке
+ */
+public final class HeartRateConstants {
+
+    /**
+     * Уникальный универсальный идентификатор характеристики измерений пульса
+     */
+    public static final UUID HEART_RATE_MEASUREMENT_CHAR = UUID.fromString("00002a37-0000-1000-8000-00805f9b34fb");
+
+    /**
+     * Уникальный универсальный идентификатор характеристики управления пульсометром
+     */
+    public static final UUID HEART_RATE_CONTROL_POINT_CHAR = UUID.fromString("00002a39-0000-1000-8000-00805f9b34fb");
+
+    /**
+     * Команда управления измерением
+     */
+    public static final byte HEART_RATE_COMMAND = 0x15;
+
+    /**
+     * Режим непрерывного измерения
+     */
+    public static final byte HEART_RATE_MODE_CONTINUOUS = 0x01;
+
+    /**
+     * Режим ручного (однократного) измерения
+     */
+    public static final byte HEART_RATE_MODE_MANUAL = 0x02;
+
+    /**
+     * Включить режим
+     */
+    public static final byte HEART_RATE_ENABLE = 0x01;
+
+    /**
+     * Выключить режим
+     */
+    public static final byte HEART_RATE_DISABLE = 0x00;
+
+    /**
+     * Команда продления непрерывного измерения
+     */
+    public static final byte HEART_RATE_PING_COMMAND = 0x16;
+
+    /**
+     * Период отправки {@link #HEART_RATE_PING_COMMAND}
+     */
+    public static final long HEART_RATE_PING_INTERVAL_SECONDS = 12;
+
+    /**
+     * Флаг формата {@code uint16} в байте флагов уведомления
+     */
+    public static final int HEART_RATE_FORMAT_UINT16 = 0x01;
+
+    private HeartRateConstants() {
+    }
+
+}
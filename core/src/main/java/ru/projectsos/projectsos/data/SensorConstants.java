@@ -0,0 +1,74 @@
+package ru.projectsos.projectsos.data;
+
+import java.util.UUID;
+
+/**
+ * <h1>Константы сырых данных датчиков устройства</h1>
+ *
+ * <h2>Поток сырых данных акселерометра включается в три шага:</h2>
+ * <ol>
+ * <li>Выбор акселерометра командой {@link #SENSOR_ENABLE_COMMAND} в характеристику {@link #SENSOR_CONTROL_CHAR};</li>
+ * <li>Подписка на уведомления характеристики {@link #SENSOR_DATA_CHAR};</li>
+ * <li>Запуск потока командой {@link #SENSOR_START_COMMAND}.</li>
+ * </ol>
+ *
+ * Уведомление начинается с байта типа ({@link #SENSOR_FRAME_ACCELEROMETER}) и байта счетчика, за которыми идут замеры
+ * по {@link #SENSOR_SAMPLE_LENGTH} байт: оси X, Y и Z в {@code int16}, младшим байтом первым. Поток идет, пока
+ * включены уведомления
+ */
+public final class SensorConstants {
+
+    /**
+     * Уникальный универсальный идентификатор характеристики управления датчиками
+     */
+    public static final UUID SENSOR_CONTROL_CHAR = UUID.fromString("00000001-0000-3512-2118-0009af100700");
+
+    /**
+     * Уникальный универсальный идентификатор характеристики сырых данных датчиков
+     */
+    public static final UUID SENSOR_DATA_CHAR = UUID.fromString("00000002-0000-3512-2118-0009af100700");
+
+    /**
+     * Команда выбора датчика: {@code {0x01, 0x01, 0x19}} включает акселерометр
+     */
+    public static final byte[] SENSOR_ENABLE_COMMAND = {0x01, 0x01, 0x19};
+
+    /**
+     * Команда запуска потока
+     */
+    public static final byte SENSOR_START_COMMAND = 0x02;
+
+    /**
+     * Команда остановки потока
+     */
+    public static final byte SENSOR_STOP_COMMAND = 0x03;
+
+    /**
+     * Тип уведомления с замерами акселерометра
+     */
+    public static final int SENSOR_FRAME_ACCELEROMETER = 0x01;
+
+    /**
+     * Длина заголовка уведомления: тип и счетчик
+     */
+    public static final int SENSOR_FRAME_HEADER_LENGTH = 2;
+
+    /**
+     * Длина одного замера: три оси по два байта
+     */
+    public static final int SENSOR_SAMPLE_LENGTH = 6;
+
+    /**
+     * Частота замеров акселерометра
+     */
+    public static final int ACCELEROMETER_SAMPLE_RATE_HZ = 25;
+
+    /**
+     * Отсчетов акселерометра на ускорение свободного падения
+     */
+    public static final int ACCELEROMETER_COUNTS_PER_G = 512;
+
+    private SensorConstants() {
+    }
+
+}
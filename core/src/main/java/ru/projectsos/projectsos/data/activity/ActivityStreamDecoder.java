@@ -0,0 +1,120 @@
+package ru.projectsos.projectsos.data.activity;
+
+import android.support.annotation.NonNull;
+
+import ru.projectsos.projectsos.domain.ActivitySink;
+
+import static dagger.internal.Preconditions.checkNotNull;
+import static ru.projectsos.projectsos.data.ActivityConstants.ACTIVITY_RECORD_INTERVAL_MILLIS;
+import static ru.projectsos.projectsos.data.ActivityConstants.ACTIVITY_RECORD_LENGTH;
+
+/**
+ * Потоковый декодер уведомлений {@link ru.projectsos.projectsos.data.ActivityConstants#ACTIVITY_DATA_CHAR}
+ * <p>
+ * Каждый пакет разбирается сразу по приходу и отдается в {@link ActivitySink}: в памяти держится только хвост
+ * неполной записи, если запись разорвана между пакетами. Не потокобезопасен, пакеты подаются по порядку
+ */
+public final class ActivityStreamDecoder {
+
+    private final ActivitySink mSink;
+    private final byte[] mCarry = new byte[ACTIVITY_RECORD_LENGTH];
+
+    private int mCarryLength;
+    private long mNextTimestampMillis;
+    private long mRecords;
+    private long mBytes;
+
+    /**
+     * Конструктор
+     *
+     * @param sink приемник записей
+     */
+    public ActivityStreamDecoder(@NonNull ActivitySink sink) {
+        mSink = checkNotNull(sink, "ActivitySink is required");
+    }
+
+    /**
+     * Начать выгрузку
+     *
+     * @param startMillis время первой записи из метаданных
+     */
+    public void begin(long startMillis) {
+        mNextTimestampMillis = startMillis;
+        mCarryLength = 0;
+    }
+
+    /**
+     * Разобрать пакет данных
+     * Первый байт пакета — счетчик пакетов, он пропускается
+     *
+     * @param packet уведомление
+     */
+    public void onPacket(byte[] packet) {
+        mBytes += packet.length;
+
+        int offset = 1;
+
+        if (mCarryLength > 0) {
+            int needed = Math.min(ACTIVITY_RECORD_LENGTH - mCarryLength, packet.length - offset);
+            System.arraycopy(packet, offset, mCarry, mCarryLength, needed);
+            mCarryLength += needed;
+            offset += needed;
+
+            if (mCarryLength < ACTIVITY_RECORD_LENGTH) {
+                return;
+            }
+
+            emit(mCarry, 0);
+            mCarryLength = 0;
+        }
+
+        while (packet.length - offset >= ACTIVITY_RECORD_LENGTH) {
+            emit(packet, offset);
+            offset += ACTIVITY_RECORD_LENGTH;
+        }
+
+        mCarryLength = packet.length - offset;
+        System.arraycopy(packet, offset, mCarry, 0, mCarryLength);
+    }
+
+    /**
+     * Получить количество разобранных записей
+     *
+     * @return количество записей
+     */
+    public long getRecords() {
+        return mRecords;
+    }
+
+    /**
+     * Получить количество принятых байтов
+     *
+     * @return количество байтов, включая счетчики пакетов
+     */
+    public long getBytes() {
+        return mBytes;
+    }
+
+    /**
+     * Получить время, с которого начнется следующая запись
+     *
+     * @return время в миллисекундах
+     */
+    public long getNextTimestampMillis() {
+        return mNextTimestampMillis;
+    }
+
+    private void emit(byte[] src, int offset) {
+        mSink.onRecord(
+                mNextTimestampMillis,
+                src[offset] & 0xFF,
+                src[offset + 1] & 0xFF,
+                src[offset + 2] & 0xFF,
+                src[offset + 3] & 0xFF
+        );
+
+        mNextTimestampMillis += ACTIVITY_RECORD_INTERVAL_MILLIS;
+        mRecords++;
+    }
+
+}
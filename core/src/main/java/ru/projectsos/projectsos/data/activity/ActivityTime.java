@@ -0,0 +1,72 @@
+package ru.projectsos.projectsos.data.activity;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * Время в формате выгрузки истории активности (см. {@link ru.projectsos.projectsos.data.ActivityConstants})
+ */
+public final class ActivityTime {
+
+    /**
+     * Длина времени в запросе: без секунд
+     */
+    public static final int REQUEST_LENGTH = 7;
+
+    /**
+     * Длина времени в ответе: с секундами
+     */
+    public static final int RESPONSE_LENGTH = 8;
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+    private static final long QUARTER_HOUR_MILLIS = 15 * 60 * 1000;
+
+    private ActivityTime() {
+    }
+
+    /**
+     * Записать время для запроса выгрузки
+     *
+     * @param timeMillis время
+     * @param timeZone   часовой пояс браслета
+     * @param dst        массив для записи
+     * @param offset     смещение в массиве
+     */
+    public static void encodeRequest(long timeMillis, TimeZone timeZone, byte[] dst, int offset) {
+        int zoneOffset = timeZone.getOffset(timeMillis);
+        Calendar calendar = Calendar.getInstance(UTC);
+        calendar.setTimeInMillis(timeMillis + zoneOffset);
+
+        int year = calendar.get(Calendar.YEAR);
+        dst[offset] = (byte) year;
+        dst[offset + 1] = (byte) (year >> 8);
+        dst[offset + 2] = (byte) (calendar.get(Calendar.MONTH) + 1);
+        dst[offset + 3] = (byte) calendar.get(Calendar.DAY_OF_MONTH);
+        dst[offset + 4] = (byte) calendar.get(Calendar.HOUR_OF_DAY);
+        dst[offset + 5] = (byte) calendar.get(Calendar.MINUTE);
+        dst[offset + 6] = (byte) (zoneOffset / QUARTER_HOUR_MILLIS);
+    }
+
+    /**
+     * Прочитать время из ответа браслета
+     *
+     * @param src    уведомление
+     * @param offset смещение времени в уведомлении
+     * @return время
+     */
+    public static long decodeResponse(byte[] src, int offset) {
+        Calendar calendar = Calendar.getInstance(UTC);
+        calendar.clear();
+        calendar.set(
+                (src[offset] & 0xFF) | ((src[offset + 1] & 0xFF) << 8),
+                (src[offset + 2] & 0xFF) - 1,
+                src[offset + 3] & 0xFF,
+                src[offset + 4] & 0xFF,
+                src[offset + 5] & 0xFF,
+                src[offset + 6] & 0xFF
+        );
+
+        return calendar.getTimeInMillis() - src[offset + 7] * QUARTER_HOUR_MILLIS;
+    }
+
+}
@@ -0,0 +1,204 @@
+package ru.projectsos.projectsos.data.crypto;
+
+import android.support.annotation.NonNull;
+
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+
+import static dagger.internal.Preconditions.checkNotNull;
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_KEY_LENGTH;
+
+/**
+ * Шифратор для шага #4 аутентификации (см. {@link ru.projectsos.projectsos.data.AuthConstants})
+ * <p>
+ * Держит по одному инициализированному {@code AES/ECB/NoPadding} шифру на устройство, поэтому поиск провайдера
+ * и разбор ключа происходят один раз, а не на каждое рукопожатие. Шифрует в буферы вызывающего кода без
+ * промежуточных массивов. Любая ошибка шифрования выбрасывается, а не превращается в пустой ключ
+ * <p>
+ * Новый ключ сопряжения сначала только отправляется браслету и сохраняется и начинает шифровать, лишь когда
+ * браслет его принял (см. {@link #commitKey(String)}). Иначе сорванное сопряжение оставило бы в хранилище ключ,
+ * которого браслет не знает, и следующая быстрая аутентификация тоже не прошла бы
+ */
+public final class AuthCryptoEngine {
+
+    private static final String TRANSFORMATION = "AES/ECB/NoPadding";
+    private static final String ALGORITHM = "AES";
+
+    private final AuthKeyStore mKeyStore;
+    private final ConcurrentMap<String, CipherSlot> mCipherSlots = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AuthKey> mPendingKeys = new ConcurrentHashMap<>();
+    private final SecureRandom mSecureRandom = new SecureRandom();
+
+    /**
+     * Конструктор
+     *
+     * @param keyStore хранилище ключей устройств
+     */
+    public AuthCryptoEngine(@NonNull AuthKeyStore keyStore) {
+        mKeyStore = checkNotNull(keyStore, "AuthKeyStore is required");
+    }
+
+    /**
+     * Получить текущий ключ устройства
+     *
+     * @param macAddress MAC адрес устройства
+     * @return ключ
+     */
+    public AuthKey getKey(@NonNull String macAddress) {
+        return slot(macAddress).mKey;
+    }
+
+    /**
+     * Сгенерировать новый ключ устройства для сопряжения
+     * Ключ не сохраняется и не заменяет текущий, пока браслет его не примет (см. {@link #commitKey(String)}).
+     * Повторный вызов заменяет прежний непринятый ключ
+     *
+     * @param macAddress MAC адрес устройства
+     * @return новый ключ
+     */
+    public AuthKey generateKey(@NonNull String macAddress) {
+        checkNotNull(macAddress, "MAC address is required");
+
+        byte[] bytes = new byte[AUTH_KEY_LENGTH];
+        mSecureRandom.nextBytes(bytes);
+
+        AuthKey key = new AuthKey(bytes, getKey(macAddress).getVersion() + 1);
+        mPendingKeys.put(macAddress, key);
+        return key;
+    }
+
+    /**
+     * Сохранить ключ из {@link #generateKey(String)}, когда браслет подтвердил его прием
+     * Закешированный шифр устройства пересоздается с новым ключом
+     *
+     * @param macAddress MAC адрес устройства
+     * @return возвращает {@code false}, если непринятого ключа нет
+     */
+    public boolean commitKey(@NonNull String macAddress) {
+        AuthKey key = mPendingKeys.remove(checkNotNull(macAddress, "MAC address is required"));
+
+        if (key == null) {
+            return false;
+        }
+
+        mKeyStore.saveKey(macAddress, key);
+        mCipherSlots.put(macAddress, new CipherSlot(key));
+        return true;
+    }
+
+    /**
+     * Зашифровать случайный ключ ключом устройства
+     *
+     * @param macAddress   MAC адрес устройства
+     * @param input        буфер со случайным ключом
+     * @param inputOffset  смещение случайного ключа
+     * @param output       буфер для зашифрованного ключа
+     * @param outputOffset смещение зашифрованного ключа
+     */
+    public void encrypt(@NonNull String macAddress, byte[] input, int inputOffset, byte[] output, int outputOffset) {
+        checkRange(input.length, inputOffset, "input");
+        checkRange(output.length, outputOffset, "output");
+
+        CipherSlot slot = slot(macAddress);
+
+        synchronized (slot) {
+            try {
+                slot.mCipher.doFinal(input, inputOffset, AUTH_KEY_LENGTH, output, outputOffset);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Failed to encrypt random key for " + macAddress, e);
+            }
+        }
+    }
+
+    /**
+     * Зашифровать случайный ключ ключом устройства
+     * Читает 16 байт с текущей позиции {@code input} и пишет 16 байт с текущей позиции {@code output}
+     *
+     * @param macAddress MAC адрес устройства
+     * @param input      буфер со случайным ключом
+     * @param output     буфер для зашифрованного ключа
+     */
+    public void encrypt(@NonNull String macAddress, ByteBuffer input, ByteBuffer output) {
+        checkRange(input.remaining(), 0, "input");
+        checkRange(output.remaining(), 0, "output");
+
+        CipherSlot slot = slot(macAddress);
+        int limit = input.limit();
+
+        synchronized (slot) {
+            try {
+                input.limit(input.position() + AUTH_KEY_LENGTH);
+                slot.mCipher.doFinal(input, output);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Failed to encrypt random key for " + macAddress, e);
+            } finally {
+                input.limit(limit);
+            }
+        }
+    }
+
+    /**
+     * Забыть закешированный шифр устройства
+     *
+     * @param macAddress MAC адрес устройства
+     */
+    public void invalidate(@NonNull String macAddress) {
+        mCipherSlots.remove(macAddress);
+    }
+
+    private CipherSlot slot(String macAddress) {
+        checkNotNull(macAddress, "MAC address is required");
+
+        CipherSlot slot = mCipherSlots.get(macAddress);
+
+        if (slot == null) {
+            CipherSlot created = new CipherSlot(mKeyStore.getKey(macAddress));
+            slot = mCipherSlots.putIfAbsent(macAddress, created);
+
+            if (slot == null) {
+                slot = created;
+            }
+        }
+
+        return slot;
+    }
+
+    private static void checkRange(int length, int offset, String name) {
+        if (offset < 0 || length - offset < AUTH_KEY_LENGTH) {
+            throw new IllegalArgumentException(
+                    "Not enough room in " + name + ": need " + AUTH_KEY_LENGTH + " bytes at offset " + offset + ", length " + length
+            );
+        }
+    }
+
+    /**
+     * Инициализированный шифр одного устройства
+     * {@link Cipher} не потокобезопасен, поэтому используется под монитором слота
+     */
+    private static final class CipherSlot {
+
+        private final AuthKey mKey;
+        private final Cipher mCipher;
+
+        CipherSlot(AuthKey key) {
+            mKey = key;
+
+            try {
+                // ECB без дополнения задан протоколом браслета
+                Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+                cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key.bytes(), ALGORITHM));
+                mCipher = cipher;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(TRANSFORMATION + " is not available", e);
+            }
+        }
+
+    }
+
+}
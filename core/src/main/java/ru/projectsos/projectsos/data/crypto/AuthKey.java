@@ -0,0 +1,68 @@
+package ru.projectsos.projectsos.data.crypto;
+
+import android.support.annotation.NonNull;
+
+import static dagger.internal.Preconditions.checkNotNull;
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_KEY_LENGTH;
+
+/**
+ * Секретный ключ устройства с номером версии
+ * Версия меняется при каждом новом сопряжении, что позволяет отличать устаревшие ключи
+ */
+public final class AuthKey {
+
+    /**
+     * Версия общего ключа {@link ru.projectsos.projectsos.data.AuthConstants#SECRET_KEY},
+     * которым сопрягались устройства до появления ключей для каждого устройства
+     */
+    public static final int LEGACY_VERSION = 0;
+
+    private final byte[] mBytes;
+    private final int mVersion;
+
+    /**
+     * Конструктор
+     *
+     * @param bytes   16 байт ключа AES-128
+     * @param version версия ключа
+     */
+    public AuthKey(@NonNull byte[] bytes, int version) {
+        checkNotNull(bytes, "Key bytes are required");
+
+        if (bytes.length != AUTH_KEY_LENGTH) {
+            throw new IllegalArgumentException("Key must be " + AUTH_KEY_LENGTH + " bytes, got " + bytes.length);
+        }
+
+        mBytes = bytes.clone();
+        mVersion = version;
+    }
+
+    /**
+     * Получить версию ключа
+     *
+     * @return версия
+     */
+    public int getVersion() {
+        return mVersion;
+    }
+
+    /**
+     * Скопировать ключ в буфер
+     *
+     * @param destination буфер
+     * @param offset      смещение в буфере
+     */
+    public void copyTo(byte[] destination, int offset) {
+        System.arraycopy(mBytes, 0, destination, offset, AUTH_KEY_LENGTH);
+    }
+
+    /**
+     * Получить байты ключа без копирования, только для инициализации шифра
+     *
+     * @return байты ключа
+     */
+    byte[] bytes() {
+        return mBytes;
+    }
+
+}
@@ -0,0 +1,25 @@
+package ru.projectsos.projectsos.data.crypto;
+
+/**
+ * Хранилище секретных ключей устройств по MAC адресу
+ */
+public interface AuthKeyStore {
+
+    /**
+     * Получить текущий ключ устройства
+     * Для устройств без сохраненного ключа возвращается общий ключ версии {@link AuthKey#LEGACY_VERSION}
+     *
+     * @param macAddress MAC адрес устройства
+     * @return ключ
+     */
+    AuthKey getKey(String macAddress);
+
+    /**
+     * Сохранить ключ устройства, принятый браслетом при сопряжении (см. шаг #2)
+     *
+     * @param macAddress MAC адрес устройства
+     * @param key        ключ
+     */
+    void saveKey(String macAddress, AuthKey key);
+
+}
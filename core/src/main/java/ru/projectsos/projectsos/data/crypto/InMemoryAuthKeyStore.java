@@ -0,0 +1,35 @@
+package ru.projectsos.projectsos.data.crypto;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static ru.projectsos.projectsos.data.AuthConstants.SECRET_KEY;
+
+/**
+ * Хранилище ключей устройств в памяти процесса
+ * Для шлюзов и нагрузочных прогонов: после перезапуска браслеты снова пройдут сопряжение
+ */
+public final class InMemoryAuthKeyStore implements AuthKeyStore {
+
+    private static final AuthKey LEGACY_KEY = new AuthKey(SECRET_KEY, AuthKey.LEGACY_VERSION);
+
+    private final ConcurrentMap<String, AuthKey> mKeys = new ConcurrentHashMap<>();
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AuthKey getKey(String macAddress) {
+        AuthKey key = mKeys.get(macAddress);
+        return key != null ? key : LEGACY_KEY;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void saveKey(String macAddress, AuthKey key) {
+        mKeys.put(macAddress, key);
+    }
+
+}
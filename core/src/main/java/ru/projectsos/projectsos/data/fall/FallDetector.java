@@ -0,0 +1,289 @@
+package ru.projectsos.projectsos.data.fall;
+
+/**
+ * Распознавание падения по сырым замерам акселерометра
+ * <p>
+ * Падение — удар сильнее {@link #IMPACT_G}, после которого рука, успокоившись за {@link #SETTLE_MILLIS}, лежит
+ * неподвижно {@link #STILLNESS_WINDOW_MILLIS} и повернута относительно положения до удара не меньше чем на
+ * {@link #MIN_TILT_DEGREES}. Прыжок или хлопок по столу дают удар, но не меняют положение руки или не дают покоя.
+ * Невесомость перед ударом (ускорение меньше {@link #FREE_FALL_G}) в решении не участвует и только сообщается
+ * <p>
+ * Замеры хранятся в скользящем окне на примитивных массивах, а суммы и суммы квадратов по осям обновляются при
+ * каждом замере, поэтому замер обходится в O(1) и без объектов. Суммы целочисленные и не накапливают ошибку
+ * округления. Сравнения идут с квадратами порогов в отсчетах датчика, корень извлекается только при решении
+ * <p>
+ * Не потокобезопасен: все замеры подаются из одного потока
+ */
+public final class FallDetector {
+
+    /**
+     * Ускорение, ниже которого рука считается в невесомости, в g
+     */
+    public static final float FREE_FALL_G = 0.6f;
+
+    /**
+     * Ускорение удара, в g
+     */
+    public static final float IMPACT_G = 2.5f;
+
+    /**
+     * Наибольший промежуток между концом невесомости и ударом, при котором невесомость относится к удару
+     */
+    public static final long FREE_FALL_MAX_GAP_MILLIS = 500;
+
+    /**
+     * Время после удара, за которое затихают отскоки
+     */
+    public static final long SETTLE_MILLIS = 500;
+
+    /**
+     * Длительность окна, в котором проверяется покой
+     */
+    public static final long STILLNESS_WINDOW_MILLIS = 1000;
+
+    /**
+     * Наибольшее среднеквадратичное отклонение ускорения в покое, в g
+     */
+    public static final float STILLNESS_G = 0.15f;
+
+    /**
+     * Наименьший поворот руки между положением до удара и положением в покое
+     */
+    public static final float MIN_TILT_DEGREES = 45;
+
+    private final int mSampleRateHz;
+    private final float mCountsPerG;
+    private final long mFreeFallSquared;
+    private final long mImpactSquared;
+    private final int mFreeFallMaxGapSamples;
+    private final int mDecisionSamples;
+
+    private final short[] mX;
+    private final short[] mY;
+    private final short[] mZ;
+    private int mIndex;
+    private int mSize;
+    private long mSumX;
+    private long mSumY;
+    private long mSumZ;
+    private long mSumSquaresX;
+    private long mSumSquaresY;
+    private long mSumSquaresZ;
+
+    private int mFreeFallRun;
+    private int mLastFreeFall;
+    private int mSamplesSinceFreeFall = Integer.MAX_VALUE;
+
+    private boolean mImpact;
+    private int mSamplesSinceImpact;
+    private long mPeakSquared;
+    private int mImpactFreeFall;
+    private long mPoseX;
+    private long mPoseY;
+    private long mPoseZ;
+
+    private float mPeakG;
+    private long mFreeFallMillis;
+    private float mTiltDegrees;
+    private float mStillnessG;
+    private long mMillisSinceImpact;
+
+    /**
+     * Конструктор
+     *
+     * @param sampleRateHz частота замеров
+     * @param countsPerG   отсчетов датчика на ускорение свободного падения
+     */
+    public FallDetector(int sampleRateHz, int countsPerG) {
+        if (sampleRateHz <= 0 || countsPerG <= 0) {
+            throw new IllegalArgumentException("Sample rate and scale must be positive, got " + sampleRateHz + " Hz and " + countsPerG);
+        }
+
+        int windowSamples = samples(STILLNESS_WINDOW_MILLIS, sampleRateHz);
+
+        mSampleRateHz = sampleRateHz;
+        mCountsPerG = countsPerG;
+        mFreeFallSquared = squared(FREE_FALL_G * countsPerG);
+        mImpactSquared = squared(IMPACT_G * countsPerG);
+        mFreeFallMaxGapSamples = samples(FREE_FALL_MAX_GAP_MILLIS, sampleRateHz);
+        mDecisionSamples = samples(SETTLE_MILLIS, sampleRateHz) + windowSamples;
+        mX = new short[windowSamples];
+        mY = new short[windowSamples];
+        mZ = new short[windowSamples];
+    }
+
+    /**
+     * Учесть замер
+     *
+     * @param x ось X в отсчетах датчика
+     * @param y ось Y в отсчетах датчика
+     * @param z ось Z в отсчетах датчика
+     * @return возвращает {@code true}, если этот замер завершил распознанное падение; подробности до следующего
+     * распознанного падения доступны через {@link #getPeakG()} и остальные свойства
+     */
+    public boolean add(short x, short y, short z) {
+        push(x, y, z);
+
+        long squared = (long) x * x + (long) y * y + (long) z * z;
+
+        if (squared < mFreeFallSquared) {
+            mFreeFallRun++;
+            mSamplesSinceFreeFall = 0;
+        } else {
+            if (mFreeFallRun > 0) {
+                mLastFreeFall = mFreeFallRun;
+                mFreeFallRun = 0;
+            }
+
+            if (mSamplesSinceFreeFall < Integer.MAX_VALUE) {
+                mSamplesSinceFreeFall++;
+            }
+        }
+
+        if (squared >= mImpactSquared) {
+            onImpact(squared);
+            return false;
+        }
+
+        if (!mImpact || ++mSamplesSinceImpact < mDecisionSamples) {
+            return false;
+        }
+
+        mImpact = false;
+        return decide();
+    }
+
+    /**
+     * Получить пиковое ускорение удара последнего падения
+     *
+     * @return ускорение в g
+     */
+    public float getPeakG() {
+        return mPeakG;
+    }
+
+    /**
+     * Получить длительность невесомости перед ударом последнего падения
+     *
+     * @return длительность в миллисекундах или {@code 0}, если невесомости не было
+     */
+    public long getFreeFallMillis() {
+        return mFreeFallMillis;
+    }
+
+    /**
+     * Получить поворот руки последнего падения
+     *
+     * @return угол в градусах
+     */
+    public float getTiltDegrees() {
+        return mTiltDegrees;
+    }
+
+    /**
+     * Получить среднеквадратичное отклонение ускорения в покое последнего падения
+     *
+     * @return отклонение в g
+     */
+    public float getStillnessG() {
+        return mStillnessG;
+    }
+
+    /**
+     * Получить время от последнего удара до замера, завершившего последнее падение
+     *
+     * @return время в миллисекундах
+     */
+    public long getMillisSinceImpact() {
+        return mMillisSinceImpact;
+    }
+
+    private void push(short x, short y, short z) {
+        if (mSize == mX.length) {
+            short oldX = mX[mIndex];
+            short oldY = mY[mIndex];
+            short oldZ = mZ[mIndex];
+            mSumX -= oldX;
+            mSumY -= oldY;
+            mSumZ -= oldZ;
+            mSumSquaresX -= oldX * oldX;
+            mSumSquaresY -= oldY * oldY;
+            mSumSquaresZ -= oldZ * oldZ;
+        } else {
+            mSize++;
+        }
+
+        mX[mIndex] = x;
+        mY[mIndex] = y;
+        mZ[mIndex] = z;
+        mSumX += x;
+        mSumY += y;
+        mSumZ += z;
+        mSumSquaresX += x * x;
+        mSumSquaresY += y * y;
+        mSumSquaresZ += z * z;
+        mIndex = mIndex + 1 == mX.length ? 0 : mIndex + 1;
+    }
+
+    /**
+     * Начать или продлить удар
+     * Положение до удара запоминается по окну на момент первого удара, отскоки только обновляют пик
+     * и откладывают решение
+     *
+     * @param squared квадрат ускорения замера в отсчетах
+     */
+    private void onImpact(long squared) {
+        if (!mImpact) {
+            mImpact = true;
+            mPeakSquared = squared;
+            mImpactFreeFall = mSamplesSinceFreeFall <= mFreeFallMaxGapSamples ? Math.max(mFreeFallRun, mLastFreeFall) : 0;
+            mPoseX = mSumX;
+            mPoseY = mSumY;
+            mPoseZ = mSumZ;
+        } else if (squared > mPeakSquared) {
+            mPeakSquared = squared;
+        }
+
+        mSamplesSinceImpact = 0;
+    }
+
+    /**
+     * Проверить покой и поворот руки после удара
+     * Окно к этому моменту целиком состоит из замеров после затихания отскоков
+     *
+     * @return возвращает {@code true}, если это падение
+     */
+    private boolean decide() {
+        double n = mSize;
+        double variance = (mSumSquaresX - mSumX * (double) mSumX / n
+                + mSumSquaresY - mSumY * (double) mSumY / n
+                + mSumSquaresZ - mSumZ * (double) mSumZ / n) / n;
+        float stillnessG = (float) (Math.sqrt(Math.max(0, variance)) / mCountsPerG);
+
+        // Средние векторы пропорциональны суммам, поэтому для угла достаточно сумм
+        double dot = (double) mPoseX * mSumX + (double) mPoseY * mSumY + (double) mPoseZ * mSumZ;
+        double norms = Math.sqrt((double) mPoseX * mPoseX + (double) mPoseY * mPoseY + (double) mPoseZ * mPoseZ)
+                * Math.sqrt((double) mSumX * mSumX + (double) mSumY * mSumY + (double) mSumZ * mSumZ);
+        float tiltDegrees = norms == 0 ? 0 : (float) Math.toDegrees(Math.acos(Math.max(-1, Math.min(1, dot / norms))));
+
+        if (stillnessG > STILLNESS_G || tiltDegrees < MIN_TILT_DEGREES) {
+            return false;
+        }
+
+        mPeakG = (float) (Math.sqrt(mPeakSquared) / mCountsPerG);
+        mFreeFallMillis = mImpactFreeFall * 1000L / mSampleRateHz;
+        mTiltDegrees = tiltDegrees;
+        mStillnessG = stillnessG;
+        mMillisSinceImpact = mSamplesSinceImpact * 1000L / mSampleRateHz;
+        return true;
+    }
+
+    private static int samples(long millis, int sampleRateHz) {
+        return (int) Math.max(1, millis * sampleRateHz / 1000);
+    }
+
+    private static long squared(float counts) {
+        return (long) Math.ceil(counts * counts);
+    }
+
+}
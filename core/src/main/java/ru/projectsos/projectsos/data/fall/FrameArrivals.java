@@ -0,0 +1,54 @@
+package ru.projectsos.projectsos.data.fall;
+
+/**
+ * Время получения уведомлений, которые ждут обработки в очереди другого потока
+ * <p>
+ * Уведомление — голый {@code byte[]}, и чтобы не оборачивать каждое в объект со временем, время кладется в кольцо
+ * в порядке получения, а обработчик забирает его в том же порядке. Один поток пишет, другой читает; видимость
+ * записей обеспечивает сама очередь, через которую проходят уведомления ({@code observeOn}). Если обработчик
+ * отстал больше чем на вместимость кольца, время отставших уведомлений теряется и подменяется более поздним
+ */
+public final class FrameArrivals {
+
+    private final long[] mNanos;
+    private final int mMask;
+
+    private long mArrived;
+    private long mDeparted;
+
+    /**
+     * Конструктор
+     *
+     * @param capacity минимальная вместимость, округляется вверх до степени двойки
+     */
+    public FrameArrivals(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive, got " + capacity);
+        }
+
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+
+        mNanos = new long[size];
+        mMask = size - 1;
+    }
+
+    /**
+     * Отметить получение уведомления, вызывается в потоке получения
+     */
+    public void arrive() {
+        mNanos[(int) (mArrived++ & mMask)] = System.nanoTime();
+    }
+
+    /**
+     * Забрать время получения очередного уведомления, вызывается в потоке обработки
+     *
+     * @return время получения по {@link System#nanoTime()}
+     */
+    public long depart() {
+        return mNanos[(int) (mDeparted++ & mMask)];
+    }
+
+}
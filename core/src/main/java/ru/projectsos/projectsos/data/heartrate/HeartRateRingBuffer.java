@@ -0,0 +1,99 @@
+package ru.projectsos.projectsos.data.heartrate;
+
+import ru.projectsos.projectsos.models.domain.HeartRateWindow;
+
+/**
+ * Кольцевой буфер замеров пульса на примитивных массивах
+ * <p>
+ * Замеры складываются без упаковки в объекты, а наружу уходят пачкой через {@link #drain()}. При переполнении
+ * вытесняются самые старые замеры
+ */
+public final class HeartRateRingBuffer {
+
+    private final long[] mTimestamps;
+    private final int[] mBpm;
+    private final int mMask;
+
+    private long mWritten;
+    private long mRead;
+    private long mDropped;
+
+    /**
+     * Конструктор
+     *
+     * @param capacity минимальная вместимость, округляется вверх до степени двойки
+     */
+    public HeartRateRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive, got " + capacity);
+        }
+
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+
+        mTimestamps = new long[size];
+        mBpm = new int[size];
+        mMask = size - 1;
+    }
+
+    /**
+     * Добавить замер
+     *
+     * @param timestamp время замера в миллисекундах
+     * @param bpm       пульс
+     * @return количество замеров, ожидающих {@link #drain()}
+     */
+    public synchronized int add(long timestamp, int bpm) {
+        int index = (int) (mWritten & mMask);
+        mTimestamps[index] = timestamp;
+        mBpm[index] = bpm;
+        mWritten++;
+
+        if (mWritten - mRead > mBpm.length) {
+            mRead = mWritten - mBpm.length;
+            mDropped++;
+        }
+
+        return (int) (mWritten - mRead);
+    }
+
+    /**
+     * Получить количество замеров, ожидающих {@link #drain()}
+     *
+     * @return количество замеров
+     */
+    public synchronized int size() {
+        return (int) (mWritten - mRead);
+    }
+
+    /**
+     * Забрать все накопленные замеры одним окном
+     *
+     * @return окно или {@link HeartRateWindow#EMPTY}, если замеров не было
+     */
+    public synchronized HeartRateWindow drain() {
+        int size = (int) (mWritten - mRead);
+
+        if (size == 0) {
+            return HeartRateWindow.EMPTY;
+        }
+
+        long[] timestamps = new long[size];
+        int[] bpm = new int[size];
+        int start = (int) (mRead & mMask);
+        int head = Math.min(size, mBpm.length - start);
+
+        System.arraycopy(mTimestamps, start, timestamps, 0, head);
+        System.arraycopy(mBpm, start, bpm, 0, head);
+        System.arraycopy(mTimestamps, 0, timestamps, head, size - head);
+        System.arraycopy(mBpm, 0, bpm, head, size - head);
+
+        HeartRateWindow window = new HeartRateWindow(timestamps, bpm, mDropped);
+        mRead = mWritten;
+        mDropped = 0;
+        return window;
+    }
+
+}
@@ -0,0 +1,52 @@
+package ru.projectsos.projectsos.data.protocol;
+
+import static ru.projectsos.projectsos.data.SensorConstants.SENSOR_FRAME_ACCELEROMETER;
+import static ru.projectsos.projectsos.data.SensorConstants.SENSOR_FRAME_HEADER_LENGTH;
+import static ru.projectsos.projectsos.data.SensorConstants.SENSOR_SAMPLE_LENGTH;
+
+/**
+ * Декодер уведомлений {@link ru.projectsos.projectsos.data.SensorConstants#SENSOR_DATA_CHAR}
+ * <p>
+ * Как и {@link HeartRateMeasurement}, не создает объектов: замеры распаковываются в переданный массив, который
+ * переиспользуется для каждого уведомления
+ */
+public final class AccelerometerFrame {
+
+    /**
+     * Наибольшее количество замеров в уведомлении при MTU по умолчанию
+     */
+    public static final int MAX_SAMPLES = (20 - SENSOR_FRAME_HEADER_LENGTH) / SENSOR_SAMPLE_LENGTH;
+
+    /**
+     * Наибольшее количество замеров в уведомлении при любом MTU: значение атрибута GATT не длиннее 512 байт
+     * Массив на столько замеров вмещает уведомление целиком, сколько бы ни дало согласование MTU
+     */
+    public static final int MAX_ATTRIBUTE_SAMPLES = (512 - SENSOR_FRAME_HEADER_LENGTH) / SENSOR_SAMPLE_LENGTH;
+
+    private AccelerometerFrame() {
+    }
+
+    /**
+     * Распаковать замеры уведомления
+     * Оси каждого замера ложатся в массив подряд: X, Y, Z. Неполный замер в конце уведомления пропускается,
+     * замеры, которым не хватило места в массиве, тоже
+     *
+     * @param frame   уведомление
+     * @param samples массив для осей замеров
+     * @return количество распакованных замеров, {@code 0} если это не уведомление акселерометра
+     */
+    public static int decode(byte[] frame, short[] samples) {
+        if (frame == null || frame.length < SENSOR_FRAME_HEADER_LENGTH || (frame[0] & 0xFF) != SENSOR_FRAME_ACCELEROMETER) {
+            return 0;
+        }
+
+        int count = Math.min((frame.length - SENSOR_FRAME_HEADER_LENGTH) / SENSOR_SAMPLE_LENGTH, samples.length / 3);
+
+        for (int i = 0, offset = SENSOR_FRAME_HEADER_LENGTH; i < count * 3; i++, offset += 2) {
+            samples[i] = (short) ((frame[offset] & 0xFF) | (frame[offset + 1] << 8));
+        }
+
+        return count;
+    }
+
+}
@@ -0,0 +1,174 @@
+package ru.projectsos.projectsos.data.protocol;
+
+import android.support.annotation.Nullable;
+
+import java.nio.ByteBuffer;
+
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_KEY_LENGTH;
+
+/**
+ * Событие характеристики авторизации
+ * <p>
+ * События результата шага неизменяемы и создаются заранее, поэтому разбор не аллоцирует память.
+ * Вызов случайного ключа и неизвестный кадр ссылаются на байты уведомления без копирования
+ */
+public final class AuthEvent {
+
+    /**
+     * Тип события
+     */
+    public enum Type {
+
+        /**
+         * Уведомления характеристики включены: команды можно отправлять, ответ не потеряется
+         */
+        NOTIFICATIONS_READY,
+
+        /**
+         * Результат шага аутентификации
+         */
+        STEP_RESULT,
+
+        /**
+         * Успешный ответ на запрос случайного ключа, содержит сам ключ
+         */
+        RANDOM_KEY_CHALLENGE,
+
+        /**
+         * Кадр, который не относится к протоколу аутентификации
+         */
+        UNKNOWN
+
+    }
+
+    private static final AuthEvent NOTIFICATIONS_READY = new AuthEvent(Type.NOTIFICATIONS_READY, null, false, null);
+
+    private final Type mType;
+    private final AuthStep mStep;
+    private final boolean mSuccess;
+    private final ByteBuffer mPayload;
+
+    private AuthEvent(Type type, AuthStep step, boolean success, ByteBuffer payload) {
+        mType = type;
+        mStep = step;
+        mSuccess = success;
+        mPayload = payload;
+    }
+
+    /**
+     * Получить событие включения уведомлений
+     *
+     * @return событие
+     */
+    public static AuthEvent notificationsReady() {
+        return NOTIFICATIONS_READY;
+    }
+
+    /**
+     * Создать результат шага
+     *
+     * @param step    шаг
+     * @param success успешность шага
+     * @return событие
+     */
+    static AuthEvent stepResult(AuthStep step, boolean success) {
+        return new AuthEvent(Type.STEP_RESULT, step, success, null);
+    }
+
+    /**
+     * Создать вызов случайного ключа
+     *
+     * @param frame  уведомление
+     * @param offset абсолютное смещение ключа в уведомлении
+     * @return событие
+     */
+    static AuthEvent randomKeyChallenge(ByteBuffer frame, int offset) {
+        ByteBuffer randomKey = frame.duplicate();
+        randomKey.limit(offset + AUTH_KEY_LENGTH);
+        randomKey.position(offset);
+        return new AuthEvent(Type.RANDOM_KEY_CHALLENGE, AuthStep.REQUEST_RANDOM_KEY, true, randomKey.slice());
+    }
+
+    /**
+     * Создать неизвестное событие
+     *
+     * @param frame уведомление
+     * @return событие
+     */
+    static AuthEvent unknown(ByteBuffer frame) {
+        return new AuthEvent(Type.UNKNOWN, null, false, frame.slice());
+    }
+
+    /**
+     * Получить тип события
+     *
+     * @return тип
+     */
+    public Type getType() {
+        return mType;
+    }
+
+    /**
+     * Получить шаг, к которому относится событие
+     *
+     * @return шаг или {@code null} для неизвестного кадра и включения уведомлений
+     */
+    @Nullable
+    public AuthStep getStep() {
+        return mStep;
+    }
+
+    /**
+     * Проверить успешность шага
+     *
+     * @return {@code true} если браслет ответил {@code AUTH_SUCCESS}
+     */
+    public boolean isSuccess() {
+        return mSuccess;
+    }
+
+    /**
+     * Получить случайный ключ из шага #3
+     * Возвращается представление байтов уведомления только для чтения: позиция 0, 16 байт
+     *
+     * @return случайный ключ или {@code null}, если это не {@link Type#RANDOM_KEY_CHALLENGE}
+     */
+    @Nullable
+    public ByteBuffer getRandomKey() {
+        return mType == Type.RANDOM_KEY_CHALLENGE ? mPayload.asReadOnlyBuffer() : null;
+    }
+
+    /**
+     * Получить исходный кадр неизвестного события
+     *
+     * @return кадр или {@code null}, если событие известно
+     */
+    @Nullable
+    public ByteBuffer getFrame() {
+        return mType == Type.UNKNOWN ? mPayload.asReadOnlyBuffer() : null;
+    }
+
+    /**
+     * Строковое представление для отладки
+     * Собирается только при явном вызове, чтобы разбор не тратил время на строки
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("AuthEvent{").append(mType);
+
+        if (mStep != null) {
+            builder.append(", ").append(mStep).append(mSuccess ? ", success" : ", fail");
+        }
+
+        if (mType == Type.UNKNOWN) {
+            builder.append(", frame=");
+
+            for (int i = mPayload.position(); i < mPayload.limit(); i++) {
+                builder.append(String.format("%02x", mPayload.get(i)));
+            }
+        }
+
+        return builder.append('}').toString();
+    }
+
+}
@@ -0,0 +1,69 @@
+package ru.projectsos.projectsos.data.protocol;
+
+import java.nio.ByteBuffer;
+
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_FAIL;
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_KEY_LENGTH;
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_RANDOM_KEY_OFFSET;
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_RESPONSE;
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_SUCCESS;
+
+/**
+ * Декодер уведомлений характеристики {@link ru.projectsos.projectsos.data.AuthConstants#AUTH_CHAR}
+ * <p>
+ * Шаг определяется по таблице, заранее построенной по байту команды, а результаты шагов берутся из заранее
+ * созданных событий: разбор занимает O(1) и не аллоцирует память, кроме вызова случайного ключа
+ * (один раз за рукопожатие) и неизвестных кадров
+ */
+public final class AuthNotificationDecoder implements FrameDecoder<AuthEvent> {
+
+    private static final int HEADER_LENGTH = 3;
+
+    private static final AuthStep[] STEPS_BY_COMMAND = new AuthStep[256];
+    private static final AuthEvent[] SUCCESS_EVENTS = new AuthEvent[AuthStep.values().length];
+    private static final AuthEvent[] FAIL_EVENTS = new AuthEvent[AuthStep.values().length];
+
+    static {
+        for (AuthStep step : AuthStep.values()) {
+            STEPS_BY_COMMAND[step.getCommand() & 0xFF] = step;
+            SUCCESS_EVENTS[step.ordinal()] = AuthEvent.stepResult(step, true);
+            FAIL_EVENTS[step.ordinal()] = AuthEvent.stepResult(step, false);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AuthEvent decode(ByteBuffer frame) {
+        int position = frame.position();
+
+        if (frame.remaining() < HEADER_LENGTH || frame.get(position) != AUTH_RESPONSE) {
+            return AuthEvent.unknown(frame);
+        }
+
+        AuthStep step = STEPS_BY_COMMAND[frame.get(position + 1) & 0xFF];
+        byte result = frame.get(position + 2);
+
+        if (step == null) {
+            return AuthEvent.unknown(frame);
+        }
+
+        if (result == AUTH_FAIL) {
+            return FAIL_EVENTS[step.ordinal()];
+        }
+
+        if (result != AUTH_SUCCESS) {
+            return AuthEvent.unknown(frame);
+        }
+
+        if (step == AuthStep.REQUEST_RANDOM_KEY) {
+            return frame.remaining() >= AUTH_RANDOM_KEY_OFFSET + AUTH_KEY_LENGTH
+                    ? AuthEvent.randomKeyChallenge(frame, position + AUTH_RANDOM_KEY_OFFSET)
+                    : AuthEvent.unknown(frame);
+        }
+
+        return SUCCESS_EVENTS[step.ordinal()];
+    }
+
+}
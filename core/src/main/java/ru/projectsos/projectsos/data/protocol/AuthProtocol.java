@@ -0,0 +1,177 @@
+package ru.projectsos.projectsos.data.protocol;
+
+import android.support.annotation.NonNull;
+
+import java.nio.ByteBuffer;
+
+import io.reactivex.Completable;
+import io.reactivex.Observable;
+import io.reactivex.Single;
+import ru.projectsos.projectsos.data.crypto.AuthCryptoEngine;
+import ru.projectsos.projectsos.data.session.AuthSession;
+import ru.projectsos.projectsos.data.session.AuthSessionStore;
+import ru.projectsos.projectsos.data.transport.BandTransport;
+import ru.projectsos.projectsos.domain.AuthChannel;
+
+import static dagger.internal.Preconditions.checkNotNull;
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_BYTE;
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_CHAR;
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_COMMAND_HEADER_LENGTH;
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_KEY_LENGTH;
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_REQUEST_RANDOM_KEY_COMMAND;
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_SEND_ENCRYPTED_KEY_COMMAND;
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_SEND_SECRET_KEY_COMMAND;
+
+/**
+ * Протокол аутентификации браслета поверх {@link BandTransport} (см. {@link ru.projectsos.projectsos.data.AuthConstants})
+ * <p>
+ * Собирает кадры команд, декодирует ответы и ведет сессии устройств, не завися от Android. Вместе с
+ * {@link ru.projectsos.projectsos.domain.AuthHandshake} это весь протокол рукопожатия: на Android его оборачивает
+ * репозиторий, добавляя сопряжение в системе и высокий приоритет подключения, а на Linux он работает как есть
+ */
+public final class AuthProtocol implements AuthChannel {
+
+    private final BandTransport mTransport;
+    private final AuthCryptoEngine mCryptoEngine;
+    private final FrameDecoder<AuthEvent> mAuthDecoder;
+    private final AuthSessionStore mSessionStore;
+
+    /**
+     * Конструктор
+     *
+     * @param transport    транспорт до браслетов
+     * @param cryptoEngine шифратор с ключами устройств
+     * @param decoders     декодеры уведомлений
+     * @param sessionStore хранилище сессий аутентификации
+     */
+    public AuthProtocol(@NonNull BandTransport transport,
+                        @NonNull AuthCryptoEngine cryptoEngine,
+                        @NonNull NotificationDecoders decoders,
+                        @NonNull AuthSessionStore sessionStore) {
+        mTransport = checkNotNull(transport, "BandTransport is required");
+        mCryptoEngine = checkNotNull(cryptoEngine, "AuthCryptoEngine is required");
+        mAuthDecoder = checkNotNull(decoders, "NotificationDecoders is required").get(AUTH_CHAR);
+        mSessionStore = checkNotNull(sessionStore, "AuthSessionStore is required");
+    }
+
+    /**
+     * Включать уведомления характеристики авторизации на каждом подключении
+     *
+     * @param macAddress MAC адрес
+     * @return возвращает горячий источник, который выдает источник уведомлений, когда они включены
+     */
+    public Observable<Observable<byte[]>> authNotifications(String macAddress) {
+        return mTransport.setupNotification(macAddress, AUTH_CHAR);
+    }
+
+    /**
+     * {@inheritDoc}
+     * Подтверждение отправки секретного ключа сохраняет этот ключ раньше, чем событие увидит рукопожатие,
+     * поэтому следующий шаг уже шифрует им
+     */
+    @Override
+    public Observable<AuthEvent> observeAuthEvents(String macAddress) {
+        return authNotifications(macAddress)
+                .flatMap(observable -> observable
+                        .map(bytes -> mAuthDecoder.decode(ByteBuffer.wrap(bytes)))
+                        .doOnNext(event -> {
+                            if (event.getType() == AuthEvent.Type.STEP_RESULT
+                                    && event.getStep() == AuthStep.SEND_SECRET_KEY
+                                    && event.isSuccess()) {
+                                mCryptoEngine.commitKey(macAddress);
+                            }
+                        })
+                        .startWith(AuthEvent.notificationsReady()));
+    }
+
+    /**
+     * {@inheritDoc}
+     * Без системного сопряжения устройство известно, если оно аутентифицировалось текущей версией ключа
+     */
+    @Override
+    public boolean isFirstAuthentication(String macAddress) {
+        AuthSession session = mSessionStore.get(macAddress);
+        return session == null || !session.isBonded() || session.getKeyVersion() != mCryptoEngine.getKey(macAddress).getVersion();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Completable sendSecretKey(String macAddress) {
+        return write(macAddress, Single.fromCallable(() -> {
+            byte[] frame = new byte[AUTH_COMMAND_HEADER_LENGTH + AUTH_KEY_LENGTH];
+            frame[0] = AUTH_SEND_SECRET_KEY_COMMAND;
+            frame[1] = AUTH_BYTE;
+            mCryptoEngine.generateKey(macAddress).copyTo(frame, AUTH_COMMAND_HEADER_LENGTH);
+            return frame;
+        }));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Completable requestRandomKey(String macAddress) {
+        return write(macAddress, Single.fromCallable(() -> new byte[]{AUTH_REQUEST_RANDOM_KEY_COMMAND, AUTH_BYTE}));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Completable sendEncryptedKey(String macAddress, ByteBuffer randomKey) {
+        return write(macAddress, Single.fromCallable(() -> {
+            byte[] frame = new byte[AUTH_COMMAND_HEADER_LENGTH + AUTH_KEY_LENGTH];
+            frame[0] = AUTH_SEND_ENCRYPTED_KEY_COMMAND;
+            frame[1] = AUTH_BYTE;
+            mCryptoEngine.encrypt(macAddress, randomKey.duplicate(), ByteBuffer.wrap(frame, AUTH_COMMAND_HEADER_LENGTH, AUTH_KEY_LENGTH));
+            return frame;
+        }));
+    }
+
+    /**
+     * {@inheritDoc}
+     * Без системного сопряжения сессия запоминается как сопряженная
+     */
+    @Override
+    public Completable afterAuthentication(String macAddress) {
+        return Completable.fromAction(() -> recordAuthentication(macAddress, true));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Completable resetAuthentication(String macAddress) {
+        return Completable.fromAction(() -> mSessionStore.invalidate(macAddress));
+    }
+
+    /**
+     * Запомнить сессию устройства после успешной аутентификации
+     *
+     * @param macAddress MAC адрес устройства
+     * @param bonded     сопряжено ли устройство в системе
+     */
+    public void recordAuthentication(String macAddress, boolean bonded) {
+        mSessionStore.put(new AuthSession(
+                macAddress,
+                bonded,
+                System.currentTimeMillis(),
+                mCryptoEngine.getKey(macAddress).getVersion()
+        ));
+    }
+
+    /**
+     * Записать кадр в характеристику авторизации
+     * Кадр собирается при подписке, поэтому ошибки сборки приходят в {@code onError}
+     *
+     * @param macAddress MAC адрес
+     * @param frame      источник кадра
+     * @return возвращает завершаемый источник
+     */
+    private Completable write(String macAddress, Single<byte[]> frame) {
+        return frame.flatMapCompletable(bytes -> mTransport.write(macAddress, AUTH_CHAR, bytes));
+    }
+
+}
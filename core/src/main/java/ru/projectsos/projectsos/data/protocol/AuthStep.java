@@ -0,0 +1,42 @@
+package ru.projectsos.projectsos.data.protocol;
+
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_REQUEST_RANDOM_KEY_COMMAND;
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_SEND_ENCRYPTED_KEY_COMMAND;
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_SEND_SECRET_KEY_COMMAND;
+
+/**
+ * Шаги аутентификации (см. {@link ru.projectsos.projectsos.data.AuthConstants})
+ */
+public enum AuthStep {
+
+    /**
+     * Отправка секретного ключа (шаг #2)
+     */
+    SEND_SECRET_KEY(AUTH_SEND_SECRET_KEY_COMMAND),
+
+    /**
+     * Запрос случайного ключа (шаг #3)
+     */
+    REQUEST_RANDOM_KEY(AUTH_REQUEST_RANDOM_KEY_COMMAND),
+
+    /**
+     * Отправка зашифрованного ключа (шаг #4)
+     */
+    SEND_ENCRYPTED_KEY(AUTH_SEND_ENCRYPTED_KEY_COMMAND);
+
+    private final byte mCommand;
+
+    AuthStep(byte command) {
+        mCommand = command;
+    }
+
+    /**
+     * Получить байт команды шага
+     *
+     * @return команда
+     */
+    public byte getCommand() {
+        return mCommand;
+    }
+
+}
@@ -0,0 +1,22 @@
+package ru.projectsos.projectsos.data.protocol;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Декодер уведомлений одной характеристики
+ *
+ * @param <T> тип событий
+ */
+public interface FrameDecoder<T> {
+
+    /**
+     * Декодировать уведомление
+     * Кадр лежит между {@link ByteBuffer#position()} и {@link ByteBuffer#limit()}. Декодер читает его абсолютными
+     * индексами, не меняет позицию и не копирует байты
+     *
+     * @param frame уведомление
+     * @return событие
+     */
+    T decode(ByteBuffer frame);
+
+}
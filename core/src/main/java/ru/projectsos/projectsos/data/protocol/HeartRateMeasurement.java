@@ -0,0 +1,43 @@
+package ru.projectsos.projectsos.data.protocol;
+
+import static ru.projectsos.projectsos.data.HeartRateConstants.HEART_RATE_FORMAT_UINT16;
+
+/**
+ * Декодер уведомлений {@link ru.projectsos.projectsos.data.HeartRateConstants#HEART_RATE_MEASUREMENT_CHAR}
+ * <p>
+ * В отличие от {@link FrameDecoder} возвращает примитив: пульс приходит раз в секунду круглые сутки, и объект на
+ * каждое уведомление был бы лишней нагрузкой на сборщик мусора
+ */
+public final class HeartRateMeasurement {
+
+    /**
+     * Значение для уведомления, из которого не удалось извлечь пульс
+     */
+    public static final int NO_SAMPLE = -1;
+
+    private HeartRateMeasurement() {
+    }
+
+    /**
+     * Извлечь пульс из уведомления
+     *
+     * @param frame уведомление
+     * @return удары в минуту, {@code 0} если браслет не на руке, или {@link #NO_SAMPLE}
+     */
+    public static int decodeBpm(byte[] frame) {
+        if (frame == null || frame.length < 2) {
+            return NO_SAMPLE;
+        }
+
+        if ((frame[0] & HEART_RATE_FORMAT_UINT16) == 0) {
+            return frame[1] & 0xFF;
+        }
+
+        if (frame.length < 3) {
+            return NO_SAMPLE;
+        }
+
+        return (frame[1] & 0xFF) | ((frame[2] & 0xFF) << 8);
+    }
+
+}
@@ -0,0 +1,72 @@
+package ru.projectsos.projectsos.data.protocol;
+
+import android.support.annotation.NonNull;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static dagger.internal.Preconditions.checkNotNull;
+import static ru.projectsos.projectsos.data.AuthConstants.AUTH_CHAR;
+
+/**
+ * Реестр декодеров уведомлений по UUID характеристики
+ * Декодер выбирается один раз при подписке на характеристику, а не на каждое уведомление
+ * <p>
+ * В реестре только характеристики, чьи уведомления редки и становятся событиями, — сейчас авторизация.
+ * Потоковые характеристики сюда намеренно не входят: {@link FrameDecoder} возвращает объект на каждое
+ * уведомление, а пульс ({@link HeartRateMeasurement}) и акселерометр ({@link AccelerometerFrame}) приходят
+ * непрерывно и декодируются в примитивы и переиспользуемые массивы без объектов. Выгрузка активности
+ * ({@link ru.projectsos.projectsos.data.activity.ActivityStreamDecoder}) к тому же хранит состояние между
+ * пакетами одного потока, поэтому создается на каждую выгрузку, а не берется из общего реестра
+ */
+public final class NotificationDecoders {
+
+    private final Map<UUID, FrameDecoder<?>> mDecoders = new HashMap<>();
+
+    /**
+     * Создать реестр с декодерами всех событийных характеристик
+     *
+     * @return реестр
+     */
+    public static NotificationDecoders createDefault() {
+        return new NotificationDecoders()
+                .register(AUTH_CHAR, new AuthNotificationDecoder());
+    }
+
+    /**
+     * Зарегистрировать декодер характеристики
+     *
+     * @param characteristic UUID характеристики
+     * @param decoder        декодер
+     * @param <T>            тип событий
+     * @return реестр
+     */
+    public <T> NotificationDecoders register(@NonNull UUID characteristic, @NonNull FrameDecoder<T> decoder) {
+        mDecoders.put(
+                checkNotNull(characteristic, "Characteristic is required"),
+                checkNotNull(decoder, "FrameDecoder is required")
+        );
+        return this;
+    }
+
+    /**
+     * Получить декодер характеристики
+     *
+     * @param characteristic UUID характеристики
+     * @param <T>            тип событий
+     * @return декодер
+     * @throws IllegalArgumentException если декодер не зарегистрирован
+     */
+    @SuppressWarnings("unchecked")
+    public <T> FrameDecoder<T> get(@NonNull UUID characteristic) {
+        FrameDecoder<?> decoder = mDecoders.get(characteristic);
+
+        if (decoder == null) {
+            throw new IllegalArgumentException("No decoder registered for " + characteristic);
+        }
+
+        return (FrameDecoder<T>) decoder;
+    }
+
+}
@@ -0,0 +1,44 @@
+package ru.projectsos.projectsos.data.session;
+
+/**
+ * Сессия аутентификации устройства: что известно о нем после последнего успешного рукопожатия
+ */
+public final class AuthSession {
+
+    private final String mMacAddress;
+    private final boolean mBonded;
+    private final long mLastAuthenticationMillis;
+    private final int mKeyVersion;
+
+    /**
+     * Конструктор
+     *
+     * @param macAddress               MAC адрес устройства
+     * @param bonded                   сопряжено ли устройство со смартфоном
+     * @param lastAuthenticationMillis время последней успешной аутентификации
+     * @param keyVersion               версия ключа, которым устройство аутентифицировалось
+     */
+    public AuthSession(String macAddress, boolean bonded, long lastAuthenticationMillis, int keyVersion) {
+        mMacAddress = macAddress;
+        mBonded = bonded;
+        mLastAuthenticationMillis = lastAuthenticationMillis;
+        mKeyVersion = keyVersion;
+    }
+
+    public String getMacAddress() {
+        return mMacAddress;
+    }
+
+    public boolean isBonded() {
+        return mBonded;
+    }
+
+    public long getLastAuthenticationMillis() {
+        return mLastAuthenticationMillis;
+    }
+
+    public int getKeyVersion() {
+        return mKeyVersion;
+    }
+
+}
@@ -0,0 +1,34 @@
+package ru.projectsos.projectsos.data.session;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * Хранилище сессий аутентификации устройств по MAC адресу
+ */
+public interface AuthSessionStore {
+
+    /**
+     * Получить сессию устройства
+     *
+     * @param macAddress MAC адрес устройства
+     * @return сессия или {@code null}, если устройство не аутентифицировалось
+     */
+    @Nullable
+    AuthSession get(String macAddress);
+
+    /**
+     * Запомнить сессию после успешной аутентификации
+     *
+     * @param session сессия
+     */
+    void put(@NonNull AuthSession session);
+
+    /**
+     * Забыть сессию: следующая аутентификация пройдет с полным сопряжением
+     *
+     * @param macAddress MAC адрес устройства
+     */
+    void invalidate(String macAddress);
+
+}
@@ -0,0 +1,42 @@
+package ru.projectsos.projectsos.data.session;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Хранилище сессий в памяти процесса
+ * Для шлюзов и нагрузочных прогонов, которым не нужно помнить браслеты между запусками
+ */
+public final class InMemoryAuthSessionStore implements AuthSessionStore {
+
+    private final ConcurrentMap<String, AuthSession> mSessions = new ConcurrentHashMap<>();
+
+    /**
+     * {@inheritDoc}
+     */
+    @Nullable
+    @Override
+    public AuthSession get(String macAddress) {
+        return mSessions.get(macAddress);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void put(@NonNull AuthSession session) {
+        mSessions.put(session.getMacAddress(), session);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void invalidate(String macAddress) {
+        mSessions.remove(macAddress);
+    }
+
+}
@@ -0,0 +1,20 @@
+package ru.projectsos.projectsos.data.store;
+
+/**
+ * Получатель интервалов свертки при чтении временного ряда
+ * Интервалы передаются примитивами прямо из файла свертки
+ */
+public interface BucketVisitor {
+
+    /**
+     * Принять интервал
+     *
+     * @param startMillis начало интервала
+     * @param count       количество замеров
+     * @param min         минимальное значение
+     * @param max         максимальное значение
+     * @param sum         сумма значений
+     */
+    void onBucket(long startMillis, int count, long min, long max, long sum);
+
+}
@@ -0,0 +1,50 @@
+package ru.projectsos.projectsos.data.store;
+
+/**
+ * Вид замеров временного ряда
+ */
+public enum Metric {
+
+    /**
+     * Пульс, удары в минуту
+     */
+    HEART_RATE(true),
+
+    /**
+     * Пульс за минуту из выгруженной истории активности
+     * Выгрузка идет вместе с живым пульсом и дописывает минуты старше его последнего замера, поэтому ряд отдельный
+     */
+    ACTIVITY_HEART_RATE(true),
+
+    /**
+     * Шаги за минуту
+     */
+    STEPS(true),
+
+    /**
+     * Интенсивность активности за минуту
+     */
+    ACTIVITY_INTENSITY(true),
+
+    /**
+     * Вид активности за минуту
+     */
+    ACTIVITY_KIND(false);
+
+    private final boolean mRolledUp;
+
+    Metric(boolean rolledUp) {
+        mRolledUp = rolledUp;
+    }
+
+    /**
+     * Ведется ли для ряда свертка
+     * Для категориальных замеров минимум, максимум и среднее не имеют смысла
+     *
+     * @return {@code true} если ряд сворачивается
+     */
+    public boolean isRolledUp() {
+        return mRolledUp;
+    }
+
+}
@@ -0,0 +1,234 @@
+package ru.projectsos.projectsos.data.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Уровень свертки временного ряда: минимум, максимум, сумма и количество замеров в интервалах фиксированной ширины
+ * <p>
+ * Формат: заголовок из {@link #HEADER_LENGTH} байтов (сигнатура, версия, ширина интервала, количество интервалов)
+ * и интервалы по {@link #BUCKET_LENGTH} байтов, упорядоченные по времени. Фиксированная длина записи позволяет искать
+ * начало запроса двоичным поиском. Интервалы выровнены по эпохе, то есть суточные — по UTC
+ * <p>
+ * Свертка производна от сырых замеров: при открытии ряда она достраивается по ним (см. {@link TimeSeries}),
+ * поэтому поврежденный или устаревший файл просто создается заново
+ */
+final class Rollup {
+
+    /**
+     * Ширина интервалов уровней свертки по возрастанию
+     */
+    static final long[] WIDTHS = {
+            TimeUnit.MINUTES.toMillis(5),
+            TimeUnit.HOURS.toMillis(1),
+            TimeUnit.DAYS.toMillis(1)
+    };
+
+    static final int HEADER_LENGTH = 32;
+    static final int BUCKET_LENGTH = 32;
+
+    private static final int MAGIC = 0x50535255;
+    private static final int VERSION = 1;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int WIDTH_OFFSET = 8;
+    private static final int COUNT_OFFSET = 16;
+
+    private static final int BUCKET_INDEX_OFFSET = 0;
+    private static final int BUCKET_COUNT_OFFSET = 4;
+    private static final int BUCKET_MIN_OFFSET = 8;
+    private static final int BUCKET_MAX_OFFSET = 16;
+    private static final int BUCKET_SUM_OFFSET = 24;
+
+    private static final int INITIAL_BUCKETS = 256;
+
+    private final File mFile;
+    private final long mWidth;
+
+    private MappedByteBuffer mBuffer;
+    private int mCount;
+
+    private Rollup(File file, long width) {
+        mFile = file;
+        mWidth = width;
+    }
+
+    /**
+     * Открыть уровень свертки, создав пустой, если файла нет или он не подходит
+     *
+     * @param file  файл
+     * @param width ширина интервала
+     * @return уровень свертки
+     * @throws IOException при ошибке ввода-вывода
+     */
+    static Rollup open(File file, long width) throws IOException {
+        Rollup rollup = new Rollup(file, width);
+        long length = file.length();
+
+        if (length >= HEADER_LENGTH && length <= Integer.MAX_VALUE) {
+            rollup.mBuffer = map(file, (int) length);
+
+            int count = rollup.mBuffer.getInt(COUNT_OFFSET);
+
+            if (rollup.mBuffer.getInt(MAGIC_OFFSET) == MAGIC
+                    && rollup.mBuffer.getInt(VERSION_OFFSET) == VERSION
+                    && rollup.mBuffer.getLong(WIDTH_OFFSET) == width
+                    && count >= 0
+                    && count <= (length - HEADER_LENGTH) / BUCKET_LENGTH) {
+                rollup.mCount = count;
+                return rollup;
+            }
+        }
+
+        rollup.mBuffer = map(file, HEADER_LENGTH + INITIAL_BUCKETS * BUCKET_LENGTH);
+        rollup.mBuffer.putInt(MAGIC_OFFSET, MAGIC);
+        rollup.mBuffer.putInt(VERSION_OFFSET, VERSION);
+        rollup.mBuffer.putLong(WIDTH_OFFSET, width);
+        rollup.mBuffer.putInt(COUNT_OFFSET, 0);
+        return rollup;
+    }
+
+    /**
+     * Учесть замер
+     * Замеры приходят по возрастанию времени, поэтому меняется только последний интервал или добавляется новый
+     *
+     * @param timestamp время замера, не раньше начала последнего интервала
+     * @param value     значение
+     * @throws IOException при ошибке увеличения файла
+     */
+    void add(long timestamp, long value) throws IOException {
+        int index = (int) (timestamp / mWidth);
+
+        if (mCount > 0 && getIndex(mCount - 1) == index) {
+            int position = position(mCount - 1);
+            mBuffer.putInt(position + BUCKET_COUNT_OFFSET, mBuffer.getInt(position + BUCKET_COUNT_OFFSET) + 1);
+            mBuffer.putLong(position + BUCKET_MIN_OFFSET, Math.min(mBuffer.getLong(position + BUCKET_MIN_OFFSET), value));
+            mBuffer.putLong(position + BUCKET_MAX_OFFSET, Math.max(mBuffer.getLong(position + BUCKET_MAX_OFFSET), value));
+            mBuffer.putLong(position + BUCKET_SUM_OFFSET, mBuffer.getLong(position + BUCKET_SUM_OFFSET) + value);
+            return;
+        }
+
+        if (position(mCount + 1) > mBuffer.capacity()) {
+            mBuffer = map(mFile, HEADER_LENGTH + 2 * (mBuffer.capacity() - HEADER_LENGTH));
+        }
+
+        int position = position(mCount);
+        mBuffer.putInt(position + BUCKET_INDEX_OFFSET, index);
+        mBuffer.putInt(position + BUCKET_COUNT_OFFSET, 1);
+        mBuffer.putLong(position + BUCKET_MIN_OFFSET, value);
+        mBuffer.putLong(position + BUCKET_MAX_OFFSET, value);
+        mBuffer.putLong(position + BUCKET_SUM_OFFSET, value);
+
+        // Интервал записан целиком до того, как попасть в счетчик заголовка
+        mCount++;
+        mBuffer.putInt(COUNT_OFFSET, mCount);
+    }
+
+    /**
+     * Отбросить интервалы, начинающиеся не раньше заданного времени
+     *
+     * @param fromMillis время
+     */
+    void truncate(long fromMillis) {
+        int count = lowerBound(fromMillis / mWidth);
+
+        if (count < mCount) {
+            mCount = count;
+            mBuffer.putInt(COUNT_OFFSET, mCount);
+        }
+    }
+
+    /**
+     * Прочитать интервалы, пересекающиеся с заданным
+     *
+     * @param fromMillis начало интервала включительно
+     * @param toMillis   конец интервала включительно
+     * @param visitor    получатель интервалов
+     */
+    void scan(long fromMillis, long toMillis, BucketVisitor visitor) {
+        long last = toMillis / mWidth;
+
+        for (int i = lowerBound(fromMillis / mWidth); i < mCount; i++) {
+            int position = position(i);
+            int index = mBuffer.getInt(position + BUCKET_INDEX_OFFSET);
+
+            if (index > last) {
+                return;
+            }
+
+            visitor.onBucket(
+                    index * mWidth,
+                    mBuffer.getInt(position + BUCKET_COUNT_OFFSET),
+                    mBuffer.getLong(position + BUCKET_MIN_OFFSET),
+                    mBuffer.getLong(position + BUCKET_MAX_OFFSET),
+                    mBuffer.getLong(position + BUCKET_SUM_OFFSET)
+            );
+        }
+    }
+
+    /**
+     * Сбросить изменения на диск
+     */
+    void force() {
+        mBuffer.force();
+    }
+
+    long getWidth() {
+        return mWidth;
+    }
+
+    /**
+     * Получить начало последнего интервала
+     *
+     * @return миллисекунды или {@link Long#MIN_VALUE}, если интервалов нет
+     */
+    long getLastStart() {
+        return mCount == 0 ? Long.MIN_VALUE : getIndex(mCount - 1) * mWidth;
+    }
+
+    /**
+     * Найти первый интервал с номером не меньше заданного
+     *
+     * @param index номер интервала от начала эпохи
+     * @return позиция интервала или количество интервалов, если такого нет
+     */
+    private int lowerBound(long index) {
+        int low = 0;
+        int high = mCount;
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+
+            if (getIndex(middle) < index) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    private long getIndex(int bucket) {
+        return mBuffer.getInt(position(bucket) + BUCKET_INDEX_OFFSET);
+    }
+
+    private static int position(int bucket) {
+        return HEADER_LENGTH + bucket * BUCKET_LENGTH;
+    }
+
+    private static MappedByteBuffer map(File file, int capacity) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            if (randomAccessFile.length() < capacity) {
+                randomAccessFile.setLength(capacity);
+            }
+
+            return randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        }
+    }
+
+}
@@ -0,0 +1,17 @@
+package ru.projectsos.projectsos.data.store;
+
+/**
+ * Получатель замеров при чтении временного ряда
+ * Замеры передаются примитивами прямо из декодера
+ */
+public interface SampleVisitor {
+
+    /**
+     * Принять замер
+     *
+     * @param timestampMillis время замера
+     * @param value           значение
+     */
+    void onSample(long timestampMillis, long value);
+
+}
@@ -0,0 +1,244 @@
+package ru.projectsos.projectsos.data.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Сегмент временного ряда: файл фиксированного размера, отображенный в память, в который замеры только дописываются
+ * <p>
+ * Формат: заголовок из {@link #HEADER_LENGTH} байтов (сигнатура, версия, длина зафиксированных данных, время первого
+ * замера) и записи. Первая запись — время и значение, вторая — разность времени и значения, дальше — разность
+ * разностей времени и разность значения. Все числа в {@link Varint}, поэтому замер раз в минуту с медленно
+ * меняющимся значением занимает два байта
+ * <p>
+ * Длина в заголовке обновляется после каждой записи, поэтому после падения процесса все, что за ней, отбрасывается
+ */
+final class Segment {
+
+    static final int HEADER_LENGTH = 32;
+
+    private static final int MAGIC = 0x50535453;
+    private static final int VERSION = 1;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int LENGTH_OFFSET = 8;
+    private static final int FIRST_TIMESTAMP_OFFSET = 16;
+
+    private final File mFile;
+    private final MappedByteBuffer mBuffer;
+
+    private long mFirstTimestamp;
+    private long mLastTimestamp;
+    private long mLastDelta;
+    private long mLastValue;
+    private long mCount;
+
+    private Segment(File file, MappedByteBuffer buffer) {
+        mFile = file;
+        mBuffer = buffer;
+    }
+
+    /**
+     * Создать пустой сегмент
+     *
+     * @param file           файл
+     * @param capacity       размер файла
+     * @param firstTimestamp время первого замера
+     * @return сегмент
+     * @throws IOException при ошибке ввода-вывода
+     */
+    static Segment create(File file, int capacity, long firstTimestamp) throws IOException {
+        Segment segment = new Segment(file, map(file, capacity));
+        segment.mBuffer.putInt(MAGIC_OFFSET, MAGIC);
+        segment.mBuffer.putInt(VERSION_OFFSET, VERSION);
+        segment.mBuffer.putLong(FIRST_TIMESTAMP_OFFSET, firstTimestamp);
+        segment.mBuffer.putLong(LENGTH_OFFSET, 0);
+        segment.mBuffer.position(HEADER_LENGTH);
+        segment.mFirstTimestamp = firstTimestamp;
+        return segment;
+    }
+
+    /**
+     * Открыть сегмент и восстановить хвост
+     * Если последняя запись повреждена, сегмент обрезается по последней целой записи
+     *
+     * @param file файл
+     * @return сегмент
+     * @throws IOException при ошибке ввода-вывода или чужом файле
+     */
+    static Segment open(File file) throws IOException {
+        if (file.length() < HEADER_LENGTH || file.length() > Integer.MAX_VALUE) {
+            throw new IOException("Not a segment: " + file);
+        }
+
+        Segment segment = new Segment(file, map(file, (int) file.length()));
+
+        if (segment.mBuffer.getInt(MAGIC_OFFSET) != MAGIC || segment.mBuffer.getInt(VERSION_OFFSET) != VERSION) {
+            throw new IOException("Not a segment: " + file);
+        }
+
+        segment.recover();
+        return segment;
+    }
+
+    /**
+     * Дописать замер
+     *
+     * @param timestamp время, не раньше последнего замера
+     * @param value     значение
+     * @return {@code false} если сегмент заполнен
+     */
+    boolean append(long timestamp, long value) {
+        if (mBuffer.remaining() < 2 * Varint.MAX_LENGTH) {
+            return false;
+        }
+
+        if (mCount == 0) {
+            Varint.write(mBuffer, timestamp);
+            Varint.write(mBuffer, value);
+            mFirstTimestamp = timestamp;
+        } else {
+            long delta = timestamp - mLastTimestamp;
+            Varint.write(mBuffer, mCount == 1 ? delta : delta - mLastDelta);
+            Varint.write(mBuffer, value - mLastValue);
+            mLastDelta = delta;
+        }
+
+        mLastTimestamp = timestamp;
+        mLastValue = value;
+        mCount++;
+
+        mBuffer.putLong(LENGTH_OFFSET, mBuffer.position() - HEADER_LENGTH);
+        return true;
+    }
+
+    /**
+     * Прочитать замеры из интервала
+     *
+     * @param from    начало интервала включительно
+     * @param to      конец интервала включительно
+     * @param visitor получатель замеров
+     */
+    void scan(long from, long to, SampleVisitor visitor) {
+        ByteBuffer buffer = mBuffer.duplicate();
+        buffer.limit(mBuffer.position());
+        buffer.position(HEADER_LENGTH);
+
+        long timestamp = 0;
+        long delta = 0;
+        long value = 0;
+
+        for (long i = 0; i < mCount; i++) {
+            if (i == 0) {
+                timestamp = Varint.read(buffer);
+                value = Varint.read(buffer);
+            } else {
+                delta = i == 1 ? Varint.read(buffer) : delta + Varint.read(buffer);
+                timestamp += delta;
+                value += Varint.read(buffer);
+            }
+
+            if (timestamp > to) {
+                return;
+            }
+
+            if (timestamp >= from) {
+                visitor.onSample(timestamp, value);
+            }
+        }
+    }
+
+    /**
+     * Сбросить изменения на диск
+     */
+    void force() {
+        mBuffer.force();
+    }
+
+    File getFile() {
+        return mFile;
+    }
+
+    long getFirstTimestamp() {
+        return mFirstTimestamp;
+    }
+
+    long getLastTimestamp() {
+        return mLastTimestamp;
+    }
+
+    long getCount() {
+        return mCount;
+    }
+
+    /**
+     * Получить объем зафиксированных данных
+     *
+     * @return байты, включая заголовок
+     */
+    int getUsedBytes() {
+        return mBuffer.position();
+    }
+
+    /**
+     * Прочитать записи до зафиксированной длины, восстановить состояние кодера и обрезать поврежденный хвост
+     */
+    private void recover() {
+        long length = mBuffer.getLong(LENGTH_OFFSET);
+        int limit = (int) Math.max(HEADER_LENGTH, Math.min(mBuffer.capacity(), HEADER_LENGTH + length));
+
+        ByteBuffer buffer = mBuffer.duplicate();
+        buffer.limit(limit);
+        buffer.position(HEADER_LENGTH);
+
+        mFirstTimestamp = mBuffer.getLong(FIRST_TIMESTAMP_OFFSET);
+        int tail = HEADER_LENGTH;
+
+        try {
+            while (buffer.hasRemaining()) {
+                long timestamp;
+                long value;
+
+                if (mCount == 0) {
+                    timestamp = Varint.read(buffer);
+                    value = Varint.read(buffer);
+                    mFirstTimestamp = timestamp;
+                } else {
+                    long delta = mCount == 1 ? Varint.read(buffer) : mLastDelta + Varint.read(buffer);
+                    timestamp = mLastTimestamp + delta;
+                    value = mLastValue + Varint.read(buffer);
+                    mLastDelta = delta;
+                }
+
+                mLastTimestamp = timestamp;
+                mLastValue = value;
+                mCount++;
+                tail = buffer.position();
+            }
+        } catch (BufferUnderflowException | IllegalStateException e) {
+            // Оборванная запись: все, что после последней целой записи, отбрасывается
+        }
+
+        mBuffer.position(tail);
+
+        if (tail - HEADER_LENGTH != length) {
+            mBuffer.putLong(LENGTH_OFFSET, tail - HEADER_LENGTH);
+        }
+    }
+
+    private static MappedByteBuffer map(File file, int capacity) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            if (randomAccessFile.length() < capacity) {
+                randomAccessFile.setLength(capacity);
+            }
+
+            return randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        }
+    }
+
+}
@@ -0,0 +1,251 @@
+package ru.projectsos.projectsos.data.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Временной ряд одного вида замеров одного устройства: каталог сегментов, упорядоченных по времени первого замера
+ * <p>
+ * Замеры только дописываются в последний сегмент, заполненный сегмент сменяется новым. Потокобезопасен
+ * <p>
+ * Ряд может вести свертку (см. {@link Rollup}): уровни обновляются при каждой записи, а запрос с заданным разрешением
+ * читает самый грубый подходящий уровень вместо сырых замеров
+ */
+public final class TimeSeries {
+
+    /**
+     * Разрешение ответа на запрос, если подходящего уровня свертки нет и переданы сырые замеры
+     */
+    public static final long RAW_RESOLUTION = 0;
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String ROLLUP_SUFFIX = ".rollup";
+    private static final Rollup[] NO_ROLLUPS = new Rollup[0];
+
+    private final File mDirectory;
+    private final int mSegmentCapacity;
+    private final List<Segment> mSegments = new ArrayList<>();
+
+    private Rollup[] mRollups = NO_ROLLUPS;
+
+    private TimeSeries(File directory, int segmentCapacity) {
+        mDirectory = directory;
+        mSegmentCapacity = segmentCapacity;
+    }
+
+    /**
+     * Открыть временной ряд, создав каталог при необходимости
+     * Открытие отображает сегменты в память и дочитывает хвост последнего после возможного падения,
+     * а отставшую или отсутствующую свертку достраивает по сырым замерам
+     *
+     * @param directory       каталог ряда
+     * @param segmentCapacity размер новых сегментов
+     * @param rolledUp        вести ли свертку
+     * @return временной ряд
+     * @throws IOException при ошибке ввода-вывода
+     */
+    static TimeSeries open(File directory, int segmentCapacity, boolean rolledUp) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+
+        TimeSeries series = new TimeSeries(directory, segmentCapacity);
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(SEGMENT_SUFFIX));
+
+        if (files != null) {
+            // Имена — время первого замера в шестнадцатеричном виде фиксированной длины
+            Arrays.sort(files);
+
+            for (File file : files) {
+                series.mSegments.add(Segment.open(file));
+            }
+        }
+
+        if (rolledUp) {
+            series.mRollups = new Rollup[Rollup.WIDTHS.length];
+
+            for (int i = 0; i < Rollup.WIDTHS.length; i++) {
+                series.mRollups[i] = series.openRollup(Rollup.WIDTHS[i]);
+            }
+        }
+
+        return series;
+    }
+
+    /**
+     * Дописать замер
+     *
+     * @param timestampMillis время замера
+     * @param value           значение
+     * @return {@code false} если замер раньше последнего и не записан
+     * @throws IOException при ошибке создания нового сегмента
+     */
+    public synchronized boolean append(long timestampMillis, long value) throws IOException {
+        Segment last = mSegments.isEmpty() ? null : mSegments.get(mSegments.size() - 1);
+
+        if (last != null && last.getCount() > 0 && timestampMillis < last.getLastTimestamp()) {
+            return false;
+        }
+
+        if (last == null || !last.append(timestampMillis, value)) {
+            last = Segment.create(segmentFile(timestampMillis), mSegmentCapacity, timestampMillis);
+            mSegments.add(last);
+            last.append(timestampMillis, value);
+        }
+
+        for (Rollup rollup : mRollups) {
+            rollup.add(timestampMillis, value);
+        }
+
+        return true;
+    }
+
+    /**
+     * Прочитать замеры из интервала по возрастанию времени
+     * Сегменты вне интервала не читаются
+     *
+     * @param fromMillis начало интервала включительно
+     * @param toMillis   конец интервала включительно
+     * @param visitor    получатель замеров
+     */
+    public synchronized void scan(long fromMillis, long toMillis, SampleVisitor visitor) {
+        for (int i = 0; i < mSegments.size(); i++) {
+            Segment segment = mSegments.get(i);
+
+            if (segment.getFirstTimestamp() > toMillis) {
+                return;
+            }
+
+            boolean before = i + 1 < mSegments.size() && mSegments.get(i + 1).getFirstTimestamp() < fromMillis;
+
+            if (!before && segment.getCount() > 0) {
+                segment.scan(fromMillis, toMillis, visitor);
+            }
+        }
+    }
+
+    /**
+     * Прочитать замеры из интервала с разрешением не мельче заданного
+     * Читается самый грубый уровень свертки, интервалы которого не шире {@code resolutionMillis}. Если такого нет,
+     * каждый сырой замер передается отдельным интервалом из одного замера
+     *
+     * @param fromMillis       начало интервала включительно
+     * @param toMillis         конец интервала включительно
+     * @param resolutionMillis наибольшая допустимая ширина интервала
+     * @param visitor          получатель интервалов
+     * @return ширина переданных интервалов или {@link #RAW_RESOLUTION}
+     */
+    public synchronized long query(long fromMillis, long toMillis, long resolutionMillis, BucketVisitor visitor) {
+        for (int i = mRollups.length - 1; i >= 0; i--) {
+            if (mRollups[i].getWidth() <= resolutionMillis) {
+                mRollups[i].scan(fromMillis, toMillis, visitor);
+                return mRollups[i].getWidth();
+            }
+        }
+
+        scan(fromMillis, toMillis, (timestamp, value) -> visitor.onBucket(timestamp, 1, value, value, value));
+        return RAW_RESOLUTION;
+    }
+
+    /**
+     * Получить время последнего замера
+     *
+     * @return миллисекунды или {@link Long#MIN_VALUE}, если замеров нет
+     */
+    public synchronized long getLastTimestamp() {
+        for (int i = mSegments.size() - 1; i >= 0; i--) {
+            if (mSegments.get(i).getCount() > 0) {
+                return mSegments.get(i).getLastTimestamp();
+            }
+        }
+
+        return Long.MIN_VALUE;
+    }
+
+    /**
+     * Получить количество замеров
+     *
+     * @return количество замеров
+     */
+    public synchronized long size() {
+        long size = 0;
+
+        for (Segment segment : mSegments) {
+            size += segment.getCount();
+        }
+
+        return size;
+    }
+
+    /**
+     * Получить объем данных без учета незаполненного места в сегментах
+     *
+     * @return байты
+     */
+    public synchronized long getUsedBytes() {
+        long bytes = 0;
+
+        for (Segment segment : mSegments) {
+            bytes += segment.getUsedBytes();
+        }
+
+        return bytes;
+    }
+
+    /**
+     * Сбросить изменения на диск
+     */
+    public synchronized void flush() {
+        if (!mSegments.isEmpty()) {
+            mSegments.get(mSegments.size() - 1).force();
+        }
+
+        for (Rollup rollup : mRollups) {
+            rollup.force();
+        }
+    }
+
+    /**
+     * Открыть уровень свертки и догнать им сырые замеры
+     * Последний интервал мог не получить замеры, записанные перед падением, поэтому он пересчитывается заново,
+     * как и все интервалы после последнего сохранившегося замера
+     *
+     * @param width ширина интервала
+     * @return уровень свертки
+     * @throws IOException при ошибке ввода-вывода
+     */
+    private Rollup openRollup(long width) throws IOException {
+        Rollup rollup = Rollup.open(new File(mDirectory, width + ROLLUP_SUFFIX), width);
+
+        long lastTimestamp = getLastTimestamp();
+        long from = lastTimestamp == Long.MIN_VALUE
+                ? Long.MIN_VALUE
+                : Math.min(rollup.getLastStart(), lastTimestamp - lastTimestamp % width);
+
+        rollup.truncate(from);
+
+        IOException[] error = new IOException[1];
+        scan(from, Long.MAX_VALUE, (timestamp, value) -> {
+            try {
+                rollup.add(timestamp, value);
+            } catch (IOException e) {
+                error[0] = e;
+            }
+        });
+
+        if (error[0] != null) {
+            throw error[0];
+        }
+
+        return rollup;
+    }
+
+    private File segmentFile(long firstTimestamp) {
+        return new File(mDirectory, String.format(Locale.US, "%016x%s", firstTimestamp, SEGMENT_SUFFIX));
+    }
+
+}
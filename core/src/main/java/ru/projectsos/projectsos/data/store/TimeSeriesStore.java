@@ -0,0 +1,76 @@
+package ru.projectsos.projectsos.data.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Хранилище временных рядов замеров браслетов
+ * <p>
+ * Каждый ряд — отдельный каталог {@code <MAC>_<вид замеров>} с сегментами (см. {@link Segment}) и уровнями свертки
+ * (см. {@link Rollup}). Ряды открываются при первом обращении, поэтому создание хранилища не трогает диск
+ */
+public final class TimeSeriesStore {
+
+    /**
+     * Размер сегмента по умолчанию: около трех месяцев поминутных замеров одного ряда
+     */
+    public static final int DEFAULT_SEGMENT_CAPACITY = 256 * 1024;
+
+    private final File mRoot;
+    private final int mSegmentCapacity;
+    private final ConcurrentMap<String, TimeSeries> mSeries = new ConcurrentHashMap<>();
+
+    /**
+     * Конструктор
+     *
+     * @param root            корневой каталог хранилища
+     * @param segmentCapacity размер новых сегментов в байтах
+     */
+    public TimeSeriesStore(File root, int segmentCapacity) {
+        if (segmentCapacity <= Segment.HEADER_LENGTH + 2 * Varint.MAX_LENGTH) {
+            throw new IllegalArgumentException("Segment capacity is too small: " + segmentCapacity);
+        }
+
+        mRoot = root;
+        mSegmentCapacity = segmentCapacity;
+    }
+
+    /**
+     * Получить временной ряд устройства
+     *
+     * @param macAddress MAC адрес устройства
+     * @param metric     вид замеров
+     * @return временной ряд
+     * @throws IOException при ошибке открытия ряда
+     */
+    public TimeSeries series(String macAddress, Metric metric) throws IOException {
+        String name = macAddress.replace(":", "") + "_" + metric.name().toLowerCase(Locale.US);
+        TimeSeries series = mSeries.get(name);
+
+        if (series == null) {
+            synchronized (mSeries) {
+                series = mSeries.get(name);
+
+                if (series == null) {
+                    series = TimeSeries.open(new File(mRoot, name), mSegmentCapacity, metric.isRolledUp());
+                    mSeries.put(name, series);
+                }
+            }
+        }
+
+        return series;
+    }
+
+    /**
+     * Сбросить изменения всех открытых рядов на диск
+     */
+    public void flush() {
+        for (TimeSeries series : mSeries.values()) {
+            series.flush();
+        }
+    }
+
+}
@@ -0,0 +1,59 @@
+package ru.projectsos.projectsos.data.store;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Кодирование целых чисел переменной длины с зигзаг-преобразованием: числа, близкие к нулю, занимают один байт
+ * независимо от знака
+ */
+final class Varint {
+
+    /**
+     * Максимальная длина закодированного {@code long}
+     */
+    static final int MAX_LENGTH = 10;
+
+    private Varint() {
+    }
+
+    /**
+     * Записать число
+     *
+     * @param buffer буфер
+     * @param value  число
+     */
+    static void write(ByteBuffer buffer, long value) {
+        long zigzag = (value << 1) ^ (value >> 63);
+
+        while ((zigzag & ~0x7FL) != 0) {
+            buffer.put((byte) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+
+        buffer.put((byte) zigzag);
+    }
+
+    /**
+     * Прочитать число
+     *
+     * @param buffer буфер
+     * @return число
+     * @throws java.nio.BufferUnderflowException если число обрезано концом буфера
+     * @throws IllegalStateException             если число длиннее {@link #MAX_LENGTH} байтов
+     */
+    static long read(ByteBuffer buffer) {
+        long zigzag = 0;
+
+        for (int shift = 0; shift < 7 * MAX_LENGTH; shift += 7) {
+            byte b = buffer.get();
+            zigzag |= (long) (b & 0x7F) << shift;
+
+            if ((b & 0x80) == 0) {
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+        }
+
+        throw new IllegalStateException("Malformed varint at " + buffer.position());
+    }
+
+}
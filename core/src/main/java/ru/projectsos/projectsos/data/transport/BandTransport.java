@@ -0,0 +1,37 @@
+package ru.projectsos.projectsos.data.transport;
+
+import java.util.UUID;
+
+import io.reactivex.Completable;
+import io.reactivex.Observable;
+
+/**
+ * Транспорт до браслета: уведомления и запись характеристик по MAC адресу
+ * <p>
+ * Протокол браслета ничего не знает о том, как устроено подключение. На Android транспорт — это RxAndroidBle
+ * с очередью операций и восстановлением подключения, на Linux — любой стек BLE или симулятор. Транспорт сам
+ * держит подключение, пока на его источники есть подписчики
+ */
+public interface BandTransport {
+
+    /**
+     * Включать уведомления характеристики на каждом подключении
+     *
+     * @param macAddress     MAC адрес устройства
+     * @param characteristic UUID характеристики
+     * @return возвращает горячий источник, который на каждом подключении выдает источник уведомлений, когда они включены
+     */
+    Observable<Observable<byte[]>> setupNotification(String macAddress, UUID characteristic);
+
+    /**
+     * Записать характеристику
+     * Записи одного вызывающего выполняются в порядке вызова и не объединяются: шаги протокола зависят от порядка
+     *
+     * @param macAddress     MAC адрес устройства
+     * @param characteristic UUID характеристики
+     * @param value          значение
+     * @return возвращает завершаемый источник, который завершится, когда браслет подтвердит запись
+     */
+    Completable write(String macAddress, UUID characteristic, byte[] value);
+
+}
@@ -0,0 +1,26 @@
+package ru.projectsos.projectsos.domain;
+
+/**
+ * Приемник записей истории активности
+ * Записи передаются примитивами прямо из декодера, без промежуточных объектов и без накопления всей выгрузки в памяти
+ */
+public interface ActivitySink {
+
+    /**
+     * Принять запись
+     *
+     * @param timestampMillis время начала минуты
+     * @param kind            вид активности
+     * @param intensity       интенсивность
+     * @param steps           количество шагов
+     * @param heartRate       пульс или {@code 255}, если не измерялся
+     */
+    void onRecord(long timestampMillis, int kind, int intensity, int steps, int heartRate);
+
+    /**
+     * Сохранить принятые записи
+     * Вызывается перед сохранением контрольной точки: после возврата записи не должны потеряться
+     */
+    void flush();
+
+}
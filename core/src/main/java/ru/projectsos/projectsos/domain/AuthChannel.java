@@ -0,0 +1,76 @@
+package ru.projectsos.projectsos.domain;
+
+import java.nio.ByteBuffer;
+
+import io.reactivex.Completable;
+import io.reactivex.Observable;
+import ru.projectsos.projectsos.data.AuthConstants;
+import ru.projectsos.projectsos.data.protocol.AuthEvent;
+
+public interface AuthChannel {
+
+    /**
+     * Подписаться на уведомления и декодировать их в события аутентификации
+     * На каждом подключении первым приходит {@link AuthEvent.Type#NOTIFICATIONS_READY}, когда уведомления включены
+     *
+     * @param macAddress MAC адрес устройства
+     * @return возвращает горячий источник
+     */
+    Observable<AuthEvent> observeAuthEvents(String macAddress);
+
+    /**
+     * Проверка на первую аутентификацию устройства
+     * Устройство считается известным, если оно сопряжено и аутентифицировалось текущей версией ключа
+     *
+     * @param macAddress MAC адрес устройства
+     * @return возвращает {@code true} если нужно полное сопряжение, иначе {@code false}
+     */
+    boolean isFirstAuthentication(String macAddress);
+
+    /**
+     * Отправить секретный ключ (см. шаг #2)
+     *
+     * @param macAddress MAC адрес устройства
+     * @return возвращает завершаемый источник
+     * @see AuthConstants
+     */
+    Completable sendSecretKey(String macAddress);
+
+    /**
+     * Запросить случайный ключ (см. шаг #3)
+     *
+     * @param macAddress MAC адрес устройства
+     * @return возвращает завершаемый источник
+     * @see AuthConstants
+     */
+    Completable requestRandomKey(String macAddress);
+
+    /**
+     * Отправка зашифрованного ключа (см. шаг #4)
+     *
+     * @param macAddress MAC адрес устройства
+     * @param randomKey  случайный ключ из {@link AuthEvent#getRandomKey()}
+     * @return возвращает завершаемый источник
+     * @see AuthConstants
+     */
+    Completable sendEncryptedKey(String macAddress, ByteBuffer randomKey);
+
+    /**
+     * Процедура после успешной аутентификации устройства
+     * Запоминает сессию устройства и сопрягается с ним, если оно еще не сопряжено
+     *
+     * @param macAddress MAC адрес устройства
+     * @return возвращает завершаемый источник
+     */
+    Completable afterAuthentication(String macAddress);
+
+    /**
+     * Забыть сессию устройства, которое отвергло вызов случайного ключа
+     * Следующая аутентификация пройдет с полным сопряжением
+     *
+     * @param macAddress MAC адрес устройства
+     * @return возвращает завершаемый источник
+     */
+    Completable resetAuthentication(String macAddress);
+
+}
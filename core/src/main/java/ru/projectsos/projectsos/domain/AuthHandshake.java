@@ -0,0 +1,187 @@
+package ru.projectsos.projectsos.domain;
+
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Completable;
+import io.reactivex.Observable;
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import ru.projectsos.projectsos.data.protocol.AuthEvent;
+import ru.projectsos.projectsos.data.protocol.AuthStep;
+import ru.projectsos.projectsos.models.domain.AuthResult;
+
+import static dagger.internal.Preconditions.checkNotNull;
+
+/**
+ * Конечный автомат рукопожатия с устройством (см. {@link ru.projectsos.projectsos.data.AuthConstants})
+ * <p>
+ * Все шаги выполняются на планировщике Bluetooth: ответ устройства сразу запускает следующую запись, без
+ * переходов на главный поток. Наружу отдается только итог со временем каждого шага
+ * <p>
+ * Известное сопряженное устройство сразу получает запрос случайного ключа. Если оно отвергает вызов (например,
+ * после сброса браслета), сессия забывается и рукопожатие один раз повторяется с полным сопряжением
+ */
+public final class AuthHandshake {
+
+    /**
+     * Максимальная длительность рукопожатия
+     */
+    public static final long TIMEOUT_SECONDS = 30;
+
+    private final AuthChannel mChannel;
+    private final Scheduler mScheduler;
+
+    /**
+     * Конструктор
+     *
+     * @param authChannel  канал аутентификации: репозиторий на Android или {@link ru.projectsos.projectsos.data.protocol.AuthProtocol}
+     *                     поверх любого транспорта
+     * @param bleScheduler планировщик Bluetooth
+     */
+    public AuthHandshake(@NonNull AuthChannel authChannel, @NonNull Scheduler bleScheduler) {
+        mChannel = checkNotNull(authChannel, "AuthChannel is required");
+        mScheduler = checkNotNull(bleScheduler, "Scheduler is required");
+    }
+
+    /**
+     * Пройти аутентификацию
+     * При первой аутентификации начинает с отправки секретного ключа, иначе с запроса случайного ключа
+     *
+     * @param macAddress MAC адрес устройства
+     * @return возвращает источник с итогом рукопожатия
+     */
+    public Single<AuthResult> authenticate(String macAddress) {
+        return Single.defer(() -> {
+            Session session = new Session(macAddress, mChannel.isFirstAuthentication(macAddress));
+
+            return mChannel.observeAuthEvents(macAddress)
+                    .observeOn(mScheduler)
+                    .concatMap(event -> onEvent(session, event))
+                    .firstOrError()
+                    .timeout(TIMEOUT_SECONDS, TimeUnit.SECONDS, mScheduler);
+        }).subscribeOn(mScheduler);
+    }
+
+    /**
+     * Переход автомата по событию устройства
+     *
+     * @param session состояние рукопожатия
+     * @param event   событие
+     * @return источник, который выдает итог, когда рукопожатие закончено
+     */
+    private Observable<AuthResult> onEvent(Session session, AuthEvent event) {
+        switch (event.getType()) {
+            case NOTIFICATIONS_READY:
+                // Первая команда уходит только после включения уведомлений, иначе ответ на нее может потеряться
+                return start(session, session.mPairing ? AuthStep.SEND_SECRET_KEY : AuthStep.REQUEST_RANDOM_KEY, null)
+                        .toObservable();
+            case STEP_RESULT:
+                if (!session.finish(event.getStep())) {
+                    return Observable.empty();
+                }
+
+                if (!event.isSuccess()) {
+                    if (!session.mPairing) {
+                        session.mPairing = true;
+
+                        return mChannel.resetAuthentication(session.mMacAddress)
+                                .andThen(start(session, AuthStep.SEND_SECRET_KEY, null))
+                                .toObservable();
+                    }
+
+                    return Observable.just(session.result(event.getStep()));
+                }
+
+                if (event.getStep() == AuthStep.SEND_SECRET_KEY) {
+                    return start(session, AuthStep.REQUEST_RANDOM_KEY, null).toObservable();
+                }
+
+                if (event.getStep() == AuthStep.SEND_ENCRYPTED_KEY) {
+                    return mChannel.afterAuthentication(session.mMacAddress)
+                            .andThen(Observable.fromCallable(() -> session.result(null)));
+                }
+
+                return Observable.empty();
+            case RANDOM_KEY_CHALLENGE:
+                if (!session.finish(AuthStep.REQUEST_RANDOM_KEY)) {
+                    return Observable.empty();
+                }
+
+                return start(session, AuthStep.SEND_ENCRYPTED_KEY, event).toObservable();
+            default:
+                return Observable.empty();
+        }
+    }
+
+    /**
+     * Начать шаг: отметить время и записать команду
+     *
+     * @param session   состояние рукопожатия
+     * @param step      шаг
+     * @param challenge вызов случайного ключа для шага #4
+     * @return возвращает завершаемый источник
+     */
+    private Completable start(Session session, AuthStep step, AuthEvent challenge) {
+        return Completable.defer(() -> {
+            session.begin(step);
+
+            switch (step) {
+                case SEND_SECRET_KEY:
+                    return mChannel.sendSecretKey(session.mMacAddress);
+                case REQUEST_RANDOM_KEY:
+                    return mChannel.requestRandomKey(session.mMacAddress);
+                default:
+                    return mChannel.sendEncryptedKey(session.mMacAddress, challenge.getRandomKey());
+            }
+        });
+    }
+
+    /**
+     * Состояние одного рукопожатия
+     * Меняется только на планировщике Bluetooth
+     */
+    private static final class Session {
+
+        private final String mMacAddress;
+        private final long mStartNanos = System.nanoTime();
+        private final long[] mStepNanos = AuthResult.emptyStepNanos();
+
+        private boolean mPairing;
+        private AuthStep mCurrentStep;
+        private long mStepStartNanos;
+
+        Session(String macAddress, boolean pairing) {
+            mMacAddress = macAddress;
+            mPairing = pairing;
+        }
+
+        void begin(AuthStep step) {
+            mCurrentStep = step;
+            mStepStartNanos = System.nanoTime();
+        }
+
+        /**
+         * Завершить текущий шаг
+         *
+         * @param step шаг, о котором сообщило устройство
+         * @return {@code false} если устройство ответило не на текущий шаг
+         */
+        boolean finish(AuthStep step) {
+            if (step != mCurrentStep) {
+                return false;
+            }
+
+            mStepNanos[step.ordinal()] = System.nanoTime() - mStepStartNanos;
+            mCurrentStep = null;
+            return true;
+        }
+
+        AuthResult result(AuthStep failedStep) {
+            return new AuthResult(mMacAddress, failedStep == null, mPairing, failedStep, mStepNanos, System.nanoTime() - mStartNanos);
+        }
+
+    }
+
+}
@@ -0,0 +1,139 @@
+package ru.projectsos.projectsos.models.domain;
+
+import android.support.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+import ru.projectsos.projectsos.data.protocol.AuthStep;
+
+/**
+ * Итог рукопожатия с устройством и длительность каждого шага
+ */
+public final class AuthResult {
+
+    /**
+     * Значение длительности шага, который не выполнялся
+     */
+    public static final long NOT_EXECUTED = -1;
+
+    private final String mMacAddress;
+    private final boolean mSuccess;
+    private final boolean mPaired;
+    private final AuthStep mFailedStep;
+    private final long[] mStepNanos;
+    private final long mTotalNanos;
+
+    /**
+     * Конструктор
+     *
+     * @param macAddress MAC адрес устройства
+     * @param success    успешность аутентификации
+     * @param paired     выполнялось ли сопряжение (шаг #2)
+     * @param failedStep шаг, на котором устройство отказало, или {@code null} при успехе и прерванном рукопожатии
+     * @param stepNanos  длительности шагов по {@link AuthStep#ordinal()}
+     * @param totalNanos длительность всего рукопожатия
+     */
+    public AuthResult(String macAddress,
+                      boolean success,
+                      boolean paired,
+                      @Nullable AuthStep failedStep,
+                      long[] stepNanos,
+                      long totalNanos) {
+        mMacAddress = macAddress;
+        mSuccess = success;
+        mPaired = paired;
+        mFailedStep = failedStep;
+        mStepNanos = stepNanos.clone();
+        mTotalNanos = totalNanos;
+    }
+
+    public String getMacAddress() {
+        return mMacAddress;
+    }
+
+    public boolean isSuccess() {
+        return mSuccess;
+    }
+
+    public boolean isPaired() {
+        return mPaired;
+    }
+
+    /**
+     * Получить шаг, на котором устройство отказало
+     *
+     * @return шаг или {@code null} при успехе
+     */
+    @Nullable
+    public AuthStep getFailedStep() {
+        return mFailedStep;
+    }
+
+    /**
+     * Проверить, прервано ли рукопожатие: подключение разорвалось или браслет не ответил вовремя
+     *
+     * @return возвращает {@code true}, если итога от устройства нет
+     */
+    public boolean isInterrupted() {
+        return !mSuccess && mFailedStep == null;
+    }
+
+    /**
+     * Получить длительность шага: от записи команды до ответного уведомления
+     *
+     * @param step шаг
+     * @return наносекунды или {@link #NOT_EXECUTED}
+     */
+    public long getStepNanos(AuthStep step) {
+        return mStepNanos[step.ordinal()];
+    }
+
+    /**
+     * Получить длительность всего рукопожатия: от подписки на уведомления до итога
+     *
+     * @return наносекунды
+     */
+    public long getTotalNanos() {
+        return mTotalNanos;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder()
+                .append(mMacAddress)
+                .append(mSuccess ? " authenticated" : isInterrupted() ? " interrupted" : " failed at " + mFailedStep)
+                .append(String.format(Locale.US, " total=%.1fms", mTotalNanos / 1e6));
+
+        for (AuthStep step : AuthStep.values()) {
+            if (mStepNanos[step.ordinal()] != NOT_EXECUTED) {
+                builder.append(String.format(Locale.US, " %s=%.1fms", step, mStepNanos[step.ordinal()] / 1e6));
+            }
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Создать итог прерванного рукопожатия
+     *
+     * @param macAddress MAC адрес устройства
+     * @param totalNanos длительность до прерывания
+     * @return итог без выполненных шагов
+     */
+    public static AuthResult interrupted(String macAddress, long totalNanos) {
+        return new AuthResult(macAddress, false, false, null, emptyStepNanos(), totalNanos);
+    }
+
+    /**
+     * Создать массив длительностей, в котором ни один шаг не выполнялся
+     *
+     * @return массив длительностей
+     */
+    public static long[] emptyStepNanos() {
+        long[] stepNanos = new long[AuthStep.values().length];
+        Arrays.fill(stepNanos, NOT_EXECUTED);
+        return stepNanos;
+    }
+
+}
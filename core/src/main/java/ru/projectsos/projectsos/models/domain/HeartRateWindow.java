@@ -0,0 +1,111 @@
+package ru.projectsos.projectsos.models.domain;
+
+/**
+ * Окно измерений пульса: все замеры, накопленные с публикации предыдущего окна
+ */
+public final class HeartRateWindow {
+
+    /**
+     * Пустое окно
+     */
+    public static final HeartRateWindow EMPTY = new HeartRateWindow(new long[0], new int[0], 0);
+
+    private final long[] mTimestamps;
+    private final int[] mBpm;
+    private final long mDropped;
+    private final int mMinBpm;
+    private final int mMaxBpm;
+    private final int mAverageBpm;
+
+    /**
+     * Конструктор
+     * Массивы передаются во владение окну и не копируются
+     *
+     * @param timestamps время замеров в миллисекундах
+     * @param bpm        пульс замеров
+     * @param dropped    количество замеров, вытесненных до публикации окна
+     */
+    public HeartRateWindow(long[] timestamps, int[] bpm, long dropped) {
+        if (timestamps.length != bpm.length) {
+            throw new IllegalArgumentException("Timestamps and samples differ in length: " + timestamps.length + " != " + bpm.length);
+        }
+
+        mTimestamps = timestamps;
+        mBpm = bpm;
+        mDropped = dropped;
+
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        long sum = 0;
+
+        for (int value : bpm) {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            sum += value;
+        }
+
+        mMinBpm = bpm.length == 0 ? 0 : min;
+        mMaxBpm = bpm.length == 0 ? 0 : max;
+        mAverageBpm = bpm.length == 0 ? 0 : (int) (sum / bpm.length);
+    }
+
+    /**
+     * Получить количество замеров
+     *
+     * @return количество замеров
+     */
+    public int size() {
+        return mBpm.length;
+    }
+
+    /**
+     * Получить время замера
+     *
+     * @param index номер замера
+     * @return миллисекунды
+     */
+    public long getTimestamp(int index) {
+        return mTimestamps[index];
+    }
+
+    /**
+     * Получить пульс замера
+     *
+     * @param index номер замера
+     * @return удары в минуту
+     */
+    public int getBpm(int index) {
+        return mBpm[index];
+    }
+
+    /**
+     * Получить количество замеров, вытесненных до публикации окна
+     *
+     * @return количество замеров
+     */
+    public long getDropped() {
+        return mDropped;
+    }
+
+    public int getMinBpm() {
+        return mMinBpm;
+    }
+
+    public int getMaxBpm() {
+        return mMaxBpm;
+    }
+
+    public int getAverageBpm() {
+        return mAverageBpm;
+    }
+
+    /**
+     * Получить пульс последнего замера
+     *
+     * @return удары в минуту или {@code 0} для пустого окна
+     */
+    public int getLastBpm() {
+        return mBpm.length == 0 ? 0 : mBpm[mBpm.length - 1];
+    }
+
+}